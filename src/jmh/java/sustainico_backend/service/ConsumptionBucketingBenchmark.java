@@ -0,0 +1,73 @@
+package sustainico_backend.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import sustainico_backend.Models.NewWaterReading2;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The day/month/year chart buckets of NewWaterReading2Service on one meter reporting every 15 minutes
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConsumptionBucketingBenchmark {
+
+    private static final ZoneId INDIA_ZONE = ZoneId.of("Asia/Kolkata");
+
+    @Param({"900"})
+    public int reportingIntervalSeconds;
+
+    private final NewWaterReading2Service service = new NewWaterReading2Service();
+
+    private long dayStart;
+    private long monthStart;
+    private long yearStart;
+    private long yearEnd;
+
+    private List<NewWaterReading2> dayReadings;
+    private List<NewWaterReading2> monthReadings;
+    private List<NewWaterReading2> yearReadings;
+
+    @Setup
+    public void setUp() {
+        LocalDate firstOfYear = LocalDate.of(2024, 1, 1);
+        yearStart = firstOfYear.atStartOfDay(INDIA_ZONE).toEpochSecond();
+        yearEnd = firstOfYear.plusYears(1).atStartOfDay(INDIA_ZONE).toEpochSecond();
+        monthStart = firstOfYear.plusMonths(5).atStartOfDay(INDIA_ZONE).toEpochSecond();
+        dayStart = firstOfYear.plusMonths(5).plusDays(14).atStartOfDay(INDIA_ZONE).toEpochSecond();
+
+        yearReadings = SyntheticReadings.newWaterReading2Series("bench-meter", yearStart, yearEnd, reportingIntervalSeconds);
+        monthReadings = slice(yearReadings, monthStart, firstOfYear.plusMonths(6).atStartOfDay(INDIA_ZONE).toEpochSecond());
+        dayReadings = slice(yearReadings, dayStart, dayStart + 86400);
+    }
+
+    @Benchmark
+    public void hourlyConsumption(Blackhole blackhole) {
+        blackhole.consume(service.calculateHourlyConsumption(dayReadings, dayStart, dayStart + 86400));
+    }
+
+    @Benchmark
+    public void dailyConsumption(Blackhole blackhole) {
+        blackhole.consume(service.calculateDailyConsumption(monthReadings, monthStart, monthStart + 30L * 86400));
+    }
+
+    @Benchmark
+    public void monthlyConsumption(Blackhole blackhole) {
+        blackhole.consume(service.calculateMonthlyConsumption(yearReadings, yearStart, yearEnd));
+    }
+
+    private static List<NewWaterReading2> slice(List<NewWaterReading2> readings, long from, long to) {
+        List<NewWaterReading2> slice = new ArrayList<>();
+        for (NewWaterReading2 reading : readings) {
+            long timestamp = Long.parseLong(reading.getTimestamp());
+            if (timestamp >= from && timestamp < to) {
+                slice.add(reading);
+            }
+        }
+        return slice;
+    }
+}
@@ -0,0 +1,31 @@
+package sustainico_backend.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import sustainico_backend.Models.NewWaterReading;
+
+import java.util.concurrent.TimeUnit;
+
+// intraDay expansion done for every newWaterReading uplink; 288 is a full day at 5-minute resolution
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReadingExpansionBenchmark {
+
+    @Param({"12", "96", "288"})
+    public int intraDaySize;
+
+    private NewWaterReadingService service;
+    private NewWaterReading uplink;
+
+    @Setup
+    public void setUp() {
+        service = new NewWaterReadingService(null, null);
+        uplink = SyntheticReadings.newWaterReading("bench-meter", intraDaySize);
+    }
+
+    @Benchmark
+    public void convertNewToWaterReadings(Blackhole blackhole) {
+        blackhole.consume(service.convertNewToWaterReadings(uplink));
+    }
+}
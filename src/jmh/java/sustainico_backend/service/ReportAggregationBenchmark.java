@@ -0,0 +1,53 @@
+package sustainico_backend.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import sustainico_backend.Models.WaterReadingPerDay;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// The per-day delta/peak loop behind device reports and the bucket merge behind home reports
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReportAggregationBenchmark {
+
+    @Param({"31", "366"})
+    public int days;
+
+    // Devices in a home, each contributing one bucket per hour of the range
+    @Param({"4"})
+    public int devices;
+
+    private final WaterReadingAggregationService aggregationService = new WaterReadingAggregationService();
+
+    private List<WaterReadingPerDay> dailyRows;
+    private List<Map<String, Double>> deviceBuckets;
+
+    @Setup
+    public void setUp() {
+        dailyRows = SyntheticReadings.dailyRows("bench-meter", 1704047400L, days);
+        deviceBuckets = new ArrayList<>();
+        for (int device = 0; device < devices; device++) {
+            deviceBuckets.add(SyntheticReadings.aggregatedBuckets(Math.min(days, 30) * 24, device));
+        }
+    }
+
+    @Benchmark
+    public void dailyDeltas(Blackhole blackhole) {
+        blackhole.consume(WaterReadingPerDayService.summarizeDailyDeltas(dailyRows));
+    }
+
+    @Benchmark
+    public void mergeAggregatedReadings(Blackhole blackhole) {
+        Map<String, Double> aggregated = new HashMap<>();
+        for (Map<String, Double> buckets : deviceBuckets) {
+            aggregated = aggregationService.mergeAggregatedReadings(aggregated, buckets);
+        }
+        blackhole.consume(aggregated);
+    }
+}
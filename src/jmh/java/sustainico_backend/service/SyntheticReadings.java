@@ -0,0 +1,89 @@
+package sustainico_backend.service;
+
+import sustainico_backend.Models.NewWaterReading;
+import sustainico_backend.Models.NewWaterReading2;
+import sustainico_backend.Models.WaterReadingPerDay;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Deterministic meter data for the benchmarks: a household pattern of morning and evening draws,
+// occasional zero readings (as the meters send on reset) and a slow night trickle
+final class SyntheticReadings {
+
+    private static final long SEED = 42;
+
+    private SyntheticReadings() {}
+
+    static List<NewWaterReading2> newWaterReading2Series(String deviceId, long start, long end, int intervalSeconds) {
+        Random random = new Random(SEED);
+        List<NewWaterReading2> readings = new ArrayList<>();
+        double total = 10_000;
+        for (long timestamp = start; timestamp < end; timestamp += intervalSeconds) {
+            total += usage(random, timestamp, intervalSeconds);
+            boolean dropout = random.nextInt(500) == 0;
+            long liters = dropout ? 0 : (long) total;
+            long milliliters = dropout ? 0 : Math.round((total - (long) total) * 1000);
+            readings.add(new NewWaterReading2(deviceId, String.valueOf(timestamp), Map.of("tamper", false),
+                    liters, milliliters, deviceId + "-" + timestamp));
+        }
+        return readings;
+    }
+
+    static List<WaterReadingPerDay> dailyRows(String deviceId, long start, int days) {
+        Random random = new Random(SEED);
+        List<WaterReadingPerDay> rows = new ArrayList<>();
+        double total = 10_000;
+        for (int day = 0; day < days; day++) {
+            long timestamp = start + day * 86400L;
+            total += 300 + random.nextGaussian() * 60;
+            WaterReadingPerDay row = new WaterReadingPerDay();
+            row.setDeviceId(deviceId);
+            row.setFlowReading(Double.toString(total));
+            row.setFetchTimestamp(String.valueOf(timestamp));
+            row.setTimestamp(String.valueOf(timestamp));
+            row.setReadingId(deviceId + "-" + timestamp);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    // The shape the meters uplink: a totalizer plus key * 5-minute usage deltas for the period
+    static NewWaterReading newWaterReading(String deviceId, int intraDaySize) {
+        Random random = new Random(SEED);
+        List<Integer> intraDay = new ArrayList<>();
+        int totalizer = 50_000;
+        for (int i = 0; i < intraDaySize; i++) {
+            int used = random.nextInt(10) < 7 ? 0 : random.nextInt(40);
+            intraDay.add(used);
+            totalizer += used;
+        }
+        NewWaterReading reading = new NewWaterReading();
+        reading.setDeviceId(deviceId);
+        reading.setTimestamp("1718793671");
+        reading.setIndex(4000);
+        reading.setKey(1);
+        reading.setTotalizer(totalizer);
+        reading.setIntraDay(intraDay);
+        return reading;
+    }
+
+    // Chart buckets of one device, keyed the way WaterReadingAggregationService formats them
+    static Map<String, Double> aggregatedBuckets(int buckets, long seed) {
+        Random random = new Random(seed);
+        Map<String, Double> readings = new HashMap<>();
+        for (int i = 0; i < buckets; i++) {
+            readings.put(String.format("2024-06-%02d %02d:00", 1 + i / 24 % 30, i % 24), random.nextDouble() * 50);
+        }
+        return readings;
+    }
+
+    private static double usage(Random random, long timestamp, int intervalSeconds) {
+        int hour = (int) ((timestamp + 19800) % 86400 / 3600);
+        double perHour = (hour >= 6 && hour < 9) || (hour >= 18 && hour < 21) ? 60 : hour < 5 ? 0.5 : 10;
+        return Math.max(0, perHour * intervalSeconds / 3600.0 * (0.5 + random.nextDouble()));
+    }
+}
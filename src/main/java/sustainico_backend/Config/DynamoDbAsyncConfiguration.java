@@ -0,0 +1,94 @@
+package sustainico_backend.Config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClientBuilder;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.logging.Logger;
+
+// SDK v2 async client for the hot reading tables, next to the v1 client in DynamoDbConfiguration.
+// Calls run on the Netty event loop and complete CompletableFutures, so fan-out paths do not hold
+// a thread per outstanding call. Only built against a real endpoint: the in-memory backend is v1 only.
+@Configuration
+@ConditionalOnProperty(name = "aws.dynamodb.mode", havingValue = "remote", matchIfMissing = true)
+public class DynamoDbAsyncConfiguration {
+
+    private static final Logger logger = Logger.getLogger(DynamoDbAsyncConfiguration.class.getName());
+
+    @Value("${aws.dynamodb.endpoint:}")
+    private String dynamoDBEndpoint;
+
+    @Value("${aws.region:}")
+    private String region;
+
+    @Value("${aws.accessKeyId:}")
+    private String accessKeyId;
+
+    @Value("${aws.secretAccessKey:}")
+    private String secretAccessKey;
+
+    // Open connections to DynamoDB; calls beyond this wait for a connection instead of a thread
+    @Value("${aws.dynamodb.async.max-concurrency:200}")
+    private int maxConcurrency;
+
+    @Value("${aws.dynamodb.async.connection-acquisition-timeout-ms:10000}")
+    private long connectionAcquisitionTimeoutMs;
+
+    @Value("${aws.dynamodb.async.api-call-timeout-ms:30000}")
+    private long apiCallTimeoutMs;
+
+    @Value("${aws.dynamodb.metrics.enabled:true}")
+    private boolean metricsEnabled;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Bean(destroyMethod = "close")
+    public DynamoDbAsyncClient dynamoDbAsyncClient() {
+        ClientOverrideConfiguration.Builder overrides = ClientOverrideConfiguration.builder()
+                .apiCallTimeout(Duration.ofMillis(apiCallTimeoutMs));
+        if (metricsEnabled) {
+            overrides.addExecutionInterceptor(new DynamoDbAsyncMetrics(meterRegistry));
+        }
+
+        DynamoDbAsyncClientBuilder builder = DynamoDbAsyncClient.builder();
+        if (!dynamoDBEndpoint.isBlank()) {
+            builder.endpointOverride(URI.create(dynamoDBEndpoint));
+        }
+        if (!region.isBlank()) {
+            builder.region(Region.of(region));
+        }
+        builder.credentialsProvider(accessKeyId.isBlank()
+                ? DefaultCredentialsProvider.create()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKeyId, secretAccessKey)));
+        DynamoDbAsyncClient client = builder
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(maxConcurrency)
+                        .connectionAcquisitionTimeout(Duration.ofMillis(connectionAcquisitionTimeoutMs)))
+                .overrideConfiguration(overrides.build())
+                .build();
+        logger.info("Async DynamoDB client ready (max " + maxConcurrency + " connections)");
+        return client;
+    }
+
+    @Bean
+    public DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient(DynamoDbAsyncClient dynamoDbAsyncClient) {
+        return DynamoDbEnhancedAsyncClient.builder()
+                .dynamoDbClient(dynamoDbAsyncClient)
+                .build();
+    }
+}
@@ -0,0 +1,124 @@
+package sustainico_backend.Config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.services.dynamodb.model.*;
+import sustainico_backend.util.DynamoDbCallTally;
+
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+// The v2 counterpart of DynamoDbMetrics for the async client: the same dynamodb.requests timer and
+// dynamodb.consumed.capacity counter, so both clients show up side by side on one dashboard.
+// beforeExecution runs on the calling thread, so calls started from an HTTP request still count
+// against its DynamoDbCallTally; items and capacity arrive on the event loop and are not tallied.
+public class DynamoDbAsyncMetrics implements ExecutionInterceptor {
+
+    private static final ExecutionAttribute<Long> START_NANOS = new ExecutionAttribute<>("DynamoDbAsyncMetrics.start");
+
+    private final MeterRegistry meterRegistry;
+
+    public DynamoDbAsyncMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes attributes) {
+        attributes.putAttribute(START_NANOS, System.nanoTime());
+        DynamoDbCallTally tally = DynamoDbCallTally.current();
+        if (tally != null) {
+            tally.recordCall(attributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME));
+        }
+    }
+
+    @Override
+    public SdkRequest modifyRequest(Context.ModifyRequest context, ExecutionAttributes attributes) {
+        SdkRequest request = context.request();
+        if (request instanceof GetItemRequest get && get.returnConsumedCapacity() == null) {
+            return get.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+        }
+        if (request instanceof PutItemRequest put && put.returnConsumedCapacity() == null) {
+            return put.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+        }
+        if (request instanceof QueryRequest query && query.returnConsumedCapacity() == null) {
+            return query.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+        }
+        if (request instanceof BatchGetItemRequest batchGet && batchGet.returnConsumedCapacity() == null) {
+            return batchGet.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+        }
+        if (request instanceof BatchWriteItemRequest batchWrite && batchWrite.returnConsumedCapacity() == null) {
+            return batchWrite.toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+        }
+        return request;
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes attributes) {
+        String operation = attributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+        time(attributes, operation, tableOf(context.request()), "success");
+
+        SdkResponse response = context.response();
+        if (response instanceof GetItemResponse get) {
+            capacity(operation, "read", get.consumedCapacity());
+        } else if (response instanceof PutItemResponse put) {
+            capacity(operation, "write", put.consumedCapacity());
+        } else if (response instanceof QueryResponse query) {
+            capacity(operation, "read", query.consumedCapacity());
+        } else if (response instanceof BatchGetItemResponse batchGet) {
+            batchGet.consumedCapacity().forEach(consumed -> capacity(operation, "read", consumed));
+        } else if (response instanceof BatchWriteItemResponse batchWrite) {
+            batchWrite.consumedCapacity().forEach(consumed -> capacity(operation, "write", consumed));
+        }
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes attributes) {
+        Throwable error = context.exception();
+        String outcome = error instanceof AwsServiceException service && service.awsErrorDetails() != null
+                && service.awsErrorDetails().errorCode() != null
+                ? service.awsErrorDetails().errorCode() : error.getClass().getSimpleName();
+        time(attributes, attributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME), tableOf(context.request()), outcome);
+    }
+
+    private void time(ExecutionAttributes attributes, String operation, String table, String outcome) {
+        Long start = attributes.getAttribute(START_NANOS);
+        if (start == null) {
+            return;
+        }
+        Timer.builder("dynamodb.requests")
+                .tag("operation", operation)
+                .tag("table", table)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void capacity(String operation, String type, ConsumedCapacity consumed) {
+        if (consumed == null || consumed.capacityUnits() == null || consumed.capacityUnits() == 0) {
+            return;
+        }
+        Counter.builder("dynamodb.consumed.capacity")
+                .baseUnit("units")
+                .tag("operation", operation)
+                .tag("table", consumed.tableName() != null ? consumed.tableName() : "unknown")
+                .tag("capacity", type)
+                .register(meterRegistry)
+                .increment(consumed.capacityUnits());
+    }
+
+    // Same tagging as DynamoDbMetrics.tableOf: batches are tagged with every table involved
+    private static String tableOf(SdkRequest request) {
+        if (request instanceof BatchGetItemRequest batchGet) return String.join(",", new TreeSet<>(batchGet.requestItems().keySet()));
+        if (request instanceof BatchWriteItemRequest batchWrite) return String.join(",", new TreeSet<>(batchWrite.requestItems().keySet()));
+        return request.getValueForField("TableName", String.class).orElse("none");
+    }
+}
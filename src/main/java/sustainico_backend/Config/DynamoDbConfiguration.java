@@ -3,29 +3,70 @@ package sustainico_backend.Config;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.handlers.RequestHandler2;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.util.ClassUtils;
+import sustainico_backend.rep.InMemoryDynamoDB;
+
+import java.util.logging.Logger;
 
 @Configuration
 public class DynamoDbConfiguration {
 
-    @Value("${aws.dynamodb.endpoint}")
+    private static final Logger logger = Logger.getLogger(DynamoDbConfiguration.class.getName());
+
+    // remote talks to aws.dynamodb.endpoint; memory keeps every table in-process for load tests and profiling
+    @Value("${aws.dynamodb.mode:remote}")
+    private String mode;
+
+    @Value("${aws.dynamodb.endpoint:}")
     private String dynamoDBEndpoint;
 
-    @Value("${aws.region}")
+    @Value("${aws.region:}")
     private String region;
 
-    @Value("${aws.accessKeyId}")
+    @Value("${aws.accessKeyId:}")
     private String accessKeyId;
 
-    @Value("${aws.secretAccessKey}")
+    @Value("${aws.secretAccessKey:}")
     private String secretAccessKey;
 
+    @Value("${aws.dynamodb.metrics.enabled:true}")
+    private boolean metricsEnabled;
+
+    // Asks DynamoDB for consumed capacity on every call that does not already
+    @Value("${aws.dynamodb.metrics.consumed-capacity:true}")
+    private boolean metricsConsumedCapacity;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${aws.dynamodb.memory.latency-ms:0}")
+    private long memoryLatencyMs;
+
+    @Value("${aws.dynamodb.memory.latency-jitter-ms:0}")
+    private long memoryLatencyJitterMs;
+
+    // Share of calls failing with ProvisionedThroughputExceededException
+    @Value("${aws.dynamodb.memory.throttle-rate:0}")
+    private double memoryThrottleRate;
+
+    // Share of batch get/write items handed back as unprocessed
+    @Value("${aws.dynamodb.memory.unprocessed-rate:0}")
+    private double memoryUnprocessedRate;
+
     @Bean
     public DynamoDBMapperConfig dynamoDBMapperConfig() {
         return DynamoDBMapperConfig.DEFAULT;
@@ -33,6 +74,9 @@ public class DynamoDbConfiguration {
 
     @Bean
     public AmazonDynamoDB buildAmazonDynamoDB() {
+        if ("memory".equalsIgnoreCase(mode)) {
+            return buildInMemoryDynamoDB();
+        }
         AmazonDynamoDB dynamoDBClient =  null;
 
         try {
@@ -52,14 +96,39 @@ public class DynamoDbConfiguration {
                                     )
                             )
                     )
+                    .withRequestHandlers(requestHandlers())
                     .build();
-            System.out.println("Successfully connected to DynamoDB");
+            logger.info("Successfully connected to DynamoDB");
         }catch (Exception err){
-            System.out.println("Failed to connect to DynamoDB: " + err.getMessage());
+            logger.warning("Failed to connect to DynamoDB: " + err.getMessage());
         }
         return dynamoDBClient;
     }
 
+    // Creates one table per @DynamoDBTable model, with the keys and indexes its annotations declare
+    private AmazonDynamoDB buildInMemoryDynamoDB() {
+        InMemoryDynamoDB dynamoDBClient = new InMemoryDynamoDB(memoryLatencyMs, memoryLatencyJitterMs,
+                memoryThrottleRate, memoryUnprocessedRate).withRequestHandlers(requestHandlers());
+        DynamoDBMapper mapper = new DynamoDBMapper(dynamoDBClient);
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AnnotationTypeFilter(DynamoDBTable.class));
+        int tables = 0;
+        for (BeanDefinition model : scanner.findCandidateComponents("sustainico_backend.Models")) {
+            Class<?> clazz = ClassUtils.resolveClassName(model.getBeanClassName(), getClass().getClassLoader());
+            dynamoDBClient.createTable(mapper.generateCreateTableRequest(clazz));
+            tables++;
+        }
+        logger.info("Using in-memory DynamoDB with " + tables + " tables");
+        return dynamoDBClient;
+    }
+
+    private RequestHandler2[] requestHandlers() {
+        if (!metricsEnabled) {
+            return new RequestHandler2[0];
+        }
+        return new RequestHandler2[]{new DynamoDbMetrics(meterRegistry, metricsConsumedCapacity)};
+    }
+
     @Bean
     public DynamoDBMapper dynamoDBMapper() {
         return new DynamoDBMapper(buildAmazonDynamoDB());
@@ -0,0 +1,274 @@
+package sustainico_backend.Config;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.HandlerBeforeAttemptContext;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.services.dynamodbv2.model.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import sustainico_backend.util.DynamoDbCallTally;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Request handler on the AmazonDynamoDB client recording, per table and operation:
+//   dynamodb.requests            timer, tagged with outcome (success or the error code)
+//   dynamodb.consumed.capacity   capacity units DynamoDB reports, tagged read or write
+//   dynamodb.items               items returned by reads or written by writes
+//   dynamodb.retries             attempts beyond the first
+//   dynamodb.throttles           attempts rejected for throughput
+//   dynamodb.unprocessed         batch items DynamoDB handed back
+// Mapper calls show up as the operations they issue (save is UpdateItem/PutItem, load is GetItem).
+// Requests that do not ask for consumed capacity are switched to TOTAL so the counter sees every call.
+// Calls made on an HTTP request thread are also added to that request's DynamoDbCallTally.
+public class DynamoDbMetrics extends RequestHandler2 {
+
+    private static final HandlerContextKey<Long> START_NANOS = new HandlerContextKey<>("DynamoDbMetrics.start");
+    private static final HandlerContextKey<AtomicInteger> ATTEMPTS = new HandlerContextKey<>("DynamoDbMetrics.attempts");
+
+    private static final Set<String> THROTTLING_CODES = Set.of("ProvisionedThroughputExceededException",
+            "ThrottlingException", "RequestLimitExceeded", "LimitExceededException");
+
+    private final MeterRegistry meterRegistry;
+    private final boolean requestConsumedCapacity;
+
+    public DynamoDbMetrics(MeterRegistry meterRegistry, boolean requestConsumedCapacity) {
+        this.meterRegistry = meterRegistry;
+        this.requestConsumedCapacity = requestConsumedCapacity;
+    }
+
+    @Override
+    public AmazonWebServiceRequest beforeExecution(AmazonWebServiceRequest request) {
+        DynamoDbCallTally tally = DynamoDbCallTally.current();
+        if (tally != null) {
+            tally.recordCall(operationOf(request));
+        }
+        if (!requestConsumedCapacity) {
+            return request;
+        }
+        if (request instanceof GetItemRequest get && get.getReturnConsumedCapacity() == null) {
+            get.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        } else if (request instanceof PutItemRequest put && put.getReturnConsumedCapacity() == null) {
+            put.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        } else if (request instanceof UpdateItemRequest update && update.getReturnConsumedCapacity() == null) {
+            update.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        } else if (request instanceof DeleteItemRequest delete && delete.getReturnConsumedCapacity() == null) {
+            delete.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        } else if (request instanceof QueryRequest query && query.getReturnConsumedCapacity() == null) {
+            query.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        } else if (request instanceof ScanRequest scan && scan.getReturnConsumedCapacity() == null) {
+            scan.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        } else if (request instanceof BatchGetItemRequest batchGet && batchGet.getReturnConsumedCapacity() == null) {
+            batchGet.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        } else if (request instanceof BatchWriteItemRequest batchWrite && batchWrite.getReturnConsumedCapacity() == null) {
+            batchWrite.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        } else if (request instanceof TransactWriteItemsRequest transactWrite && transactWrite.getReturnConsumedCapacity() == null) {
+            transactWrite.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL.toString());
+        } else if (request instanceof TransactGetItemsRequest transactGet && transactGet.getReturnConsumedCapacity() == null) {
+            transactGet.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL.toString());
+        }
+        return request;
+    }
+
+    @Override
+    public void beforeRequest(Request<?> request) {
+        request.addHandlerContext(START_NANOS, System.nanoTime());
+        request.addHandlerContext(ATTEMPTS, new AtomicInteger());
+    }
+
+    @Override
+    public void beforeAttempt(HandlerBeforeAttemptContext context) {
+        AtomicInteger attempts = context.getRequest().getHandlerContext(ATTEMPTS);
+        if (attempts != null && attempts.incrementAndGet() > 1) {
+            counter("dynamodb.retries", context.getRequest()).increment();
+        }
+    }
+
+    @Override
+    public void afterAttempt(HandlerAfterAttemptContext context) {
+        if (context.getException() instanceof AmazonServiceException error && THROTTLING_CODES.contains(error.getErrorCode())) {
+            counter("dynamodb.throttles", context.getRequest()).increment();
+        }
+    }
+
+    @Override
+    public void afterResponse(Request<?> request, Response<?> response) {
+        String operation = operationOf(request);
+        String table = tableOf(request.getOriginalRequest());
+        time(request, operation, table, "success");
+        Object result = response != null ? response.getAwsResponse() : null;
+        if (result == null) {
+            return;
+        }
+
+        if (result instanceof GetItemResult get) {
+            capacity(operation, "read", get.getConsumedCapacity());
+            items(operation, table, true, get.getItem() != null ? 1 : 0);
+        } else if (result instanceof QueryResult query) {
+            capacity(operation, "read", query.getConsumedCapacity());
+            items(operation, table, true, query.getCount() != null ? query.getCount() : 0);
+        } else if (result instanceof ScanResult scan) {
+            capacity(operation, "read", scan.getConsumedCapacity());
+            items(operation, table, true, scan.getCount() != null ? scan.getCount() : 0);
+        } else if (result instanceof PutItemResult put) {
+            capacity(operation, "write", put.getConsumedCapacity());
+            items(operation, table, false, 1);
+        } else if (result instanceof UpdateItemResult update) {
+            capacity(operation, "write", update.getConsumedCapacity());
+            items(operation, table, false, 1);
+        } else if (result instanceof DeleteItemResult delete) {
+            capacity(operation, "write", delete.getConsumedCapacity());
+            items(operation, table, false, 1);
+        } else if (result instanceof BatchGetItemResult batchGet) {
+            capacity(operation, "read", batchGet.getConsumedCapacity());
+            if (batchGet.getResponses() != null) {
+                batchGet.getResponses().forEach((name, found) -> items(operation, name, true, found.size()));
+            }
+            if (batchGet.getUnprocessedKeys() != null) {
+                batchGet.getUnprocessedKeys().forEach((name, keys) -> unprocessed(operation, name, keys.getKeys().size()));
+            }
+        } else if (result instanceof BatchWriteItemResult batchWrite
+                && request.getOriginalRequest() instanceof BatchWriteItemRequest batchWriteRequest) {
+            capacity(operation, "write", batchWrite.getConsumedCapacity());
+            Map<String, List<WriteRequest>> left = batchWrite.getUnprocessedItems() != null ? batchWrite.getUnprocessedItems() : Map.of();
+            batchWriteRequest.getRequestItems().forEach((name, writes) -> {
+                int unprocessed = left.getOrDefault(name, List.of()).size();
+                items(operation, name, false, writes.size() - unprocessed);
+                unprocessed(operation, name, unprocessed);
+            });
+        } else if (result instanceof TransactWriteItemsResult transactWrite) {
+            capacity(operation, "write", transactWrite.getConsumedCapacity());
+        } else if (result instanceof TransactGetItemsResult transactGet) {
+            capacity(operation, "read", transactGet.getConsumedCapacity());
+        }
+    }
+
+    @Override
+    public void afterError(Request<?> request, Response<?> response, Exception e) {
+        String outcome = e instanceof AmazonServiceException error && error.getErrorCode() != null
+                ? error.getErrorCode() : e.getClass().getSimpleName();
+        time(request, operationOf(request), tableOf(request.getOriginalRequest()), outcome);
+    }
+
+    private void time(Request<?> request, String operation, String table, String outcome) {
+        Long start = request.getHandlerContext(START_NANOS);
+        if (start == null) {
+            return;
+        }
+        Timer.builder("dynamodb.requests")
+                .tag("operation", operation)
+                .tag("table", table)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void capacity(String operation, String type, ConsumedCapacity consumed) {
+        if (consumed != null) {
+            capacity(operation, type, List.of(consumed));
+        }
+    }
+
+    private void capacity(String operation, String type, List<ConsumedCapacity> consumed) {
+        if (consumed == null) {
+            return;
+        }
+        DynamoDbCallTally tally = DynamoDbCallTally.current();
+        for (ConsumedCapacity capacity : consumed) {
+            if (capacity.getCapacityUnits() == null || capacity.getCapacityUnits() == 0) {
+                continue;
+            }
+            if (tally != null) {
+                tally.recordCapacity(type.equals("read"), capacity.getCapacityUnits());
+            }
+            Counter.builder("dynamodb.consumed.capacity")
+                    .baseUnit("units")
+                    .tag("operation", operation)
+                    .tag("table", capacity.getTableName() != null ? capacity.getTableName() : "unknown")
+                    .tag("capacity", type)
+                    .register(meterRegistry)
+                    .increment(capacity.getCapacityUnits());
+        }
+    }
+
+    private void items(String operation, String table, boolean read, int count) {
+        DynamoDbCallTally tally = DynamoDbCallTally.current();
+        if (tally != null) {
+            tally.recordItems(read, count);
+        }
+        DistributionSummary.builder("dynamodb.items")
+                .tag("operation", operation)
+                .tag("table", table)
+                .register(meterRegistry)
+                .record(count);
+    }
+
+    private void unprocessed(String operation, String table, int count) {
+        if (count > 0) {
+            Counter.builder("dynamodb.unprocessed")
+                    .tag("operation", operation)
+                    .tag("table", table)
+                    .register(meterRegistry)
+                    .increment(count);
+        }
+    }
+
+    private Counter counter(String name, Request<?> request) {
+        return Counter.builder(name)
+                .tag("operation", operationOf(request))
+                .tag("table", tableOf(request.getOriginalRequest()))
+                .register(meterRegistry);
+    }
+
+    private static String operationOf(Request<?> request) {
+        String operation = request.getHandlerContext(HandlerContextKey.OPERATION_NAME);
+        return operation != null ? operation : operationOf(request.getOriginalRequest());
+    }
+
+    private static String operationOf(AmazonWebServiceRequest request) {
+        String name = request.getClass().getSimpleName();
+        return name.endsWith("Request") ? name.substring(0, name.length() - "Request".length()) : name;
+    }
+
+    // Batches and transactions can span tables; they are tagged with every table involved
+    static String tableOf(AmazonWebServiceRequest request) {
+        if (request instanceof GetItemRequest get) return get.getTableName();
+        if (request instanceof PutItemRequest put) return put.getTableName();
+        if (request instanceof UpdateItemRequest update) return update.getTableName();
+        if (request instanceof DeleteItemRequest delete) return delete.getTableName();
+        if (request instanceof QueryRequest query) return query.getTableName();
+        if (request instanceof ScanRequest scan) return scan.getTableName();
+        if (request instanceof BatchGetItemRequest batchGet) return String.join(",", new TreeSet<>(batchGet.getRequestItems().keySet()));
+        if (request instanceof BatchWriteItemRequest batchWrite) return String.join(",", new TreeSet<>(batchWrite.getRequestItems().keySet()));
+        if (request instanceof TransactWriteItemsRequest transactWrite) {
+            Set<String> tables = new TreeSet<>();
+            for (TransactWriteItem item : transactWrite.getTransactItems()) {
+                if (item.getPut() != null) tables.add(item.getPut().getTableName());
+                if (item.getUpdate() != null) tables.add(item.getUpdate().getTableName());
+                if (item.getDelete() != null) tables.add(item.getDelete().getTableName());
+                if (item.getConditionCheck() != null) tables.add(item.getConditionCheck().getTableName());
+            }
+            return String.join(",", tables);
+        }
+        if (request instanceof TransactGetItemsRequest transactGet) {
+            Set<String> tables = new TreeSet<>();
+            transactGet.getTransactItems().forEach(item -> tables.add(item.getGet().getTableName()));
+            return String.join(",", tables);
+        }
+        if (request instanceof DescribeTableRequest describe) return describe.getTableName();
+        if (request instanceof CreateTableRequest create) return create.getTableName();
+        if (request instanceof DeleteTableRequest delete) return delete.getTableName();
+        return "none";
+    }
+}
@@ -0,0 +1,50 @@
+package sustainico_backend.Config;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import sustainico_backend.Models.Device;
+import sustainico_backend.Models.Home;
+import sustainico_backend.Models.User;
+import sustainico_backend.rep.EntityCache;
+
+import java.time.Duration;
+
+@Configuration
+public class EntityCacheConfig {
+
+    // Upper bound on how stale another node's write can look here; 0 turns the caches off
+    @Value("${cache.metadata.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    // Entries per cache
+    @Value("${cache.metadata.max-size:10000}")
+    private long maxSize;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DynamoDBMapper dynamoDBMapper;
+
+    @Bean
+    public EntityCache<Device> deviceCache() {
+        return new EntityCache<>("device", dynamoDBMapper.getTableModel(Device.class), maxSize,
+                Duration.ofSeconds(ttlSeconds), meterRegistry);
+    }
+
+    @Bean
+    public EntityCache<Home> homeCache() {
+        return new EntityCache<>("home", dynamoDBMapper.getTableModel(Home.class), maxSize,
+                Duration.ofSeconds(ttlSeconds), meterRegistry);
+    }
+
+    @Bean
+    public EntityCache<User> userCache() {
+        return new EntityCache<>("user", dynamoDBMapper.getTableModel(User.class), maxSize,
+                Duration.ofSeconds(ttlSeconds), meterRegistry);
+    }
+}
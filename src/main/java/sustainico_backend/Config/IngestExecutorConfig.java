@@ -0,0 +1,70 @@
+package sustainico_backend.Config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class IngestExecutorConfig {
+
+    @Value("${ingest.executor.threads:4}")
+    private int ingestThreads;
+
+    @Value("${ingest.executor.queue-capacity:2000}")
+    private int ingestQueueCapacity;
+
+    @Value("${dynamodb.batch.threads:8}")
+    private int batchWriteThreads;
+
+    @Value("${ingest.gateway.threads:4}")
+    private int gatewayThreads;
+
+    @Value("${ingest.gateway.queue-capacity:1000}")
+    private int gatewayQueueCapacity;
+
+    // Runs the work that used to happen on the webhook thread (intraDay expansion, batch writes,
+    // latest reading updates). When the queue is full the caller runs the task, which slows the
+    // webhook down instead of dropping uplinks.
+    @Bean(name = "ingestExecutor")
+    public ThreadPoolTaskExecutor ingestExecutor() {
+        return buildExecutor("ingest-", ingestThreads, ingestQueueCapacity, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    // Used to send the 25-item chunks of a single batch write concurrently
+    @Bean(name = "batchWriteExecutor")
+    public ThreadPoolTaskExecutor batchWriteExecutor() {
+        return buildExecutor("batch-write-", batchWriteThreads, batchWriteThreads * 50, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    // Stores frames from the TCP/UDP gateway listener. Running a frame on the caller would block a
+    // Netty event loop, so a full queue rejects instead and the gateway is told to retry.
+    @Bean(name = "gatewayExecutor")
+    public ThreadPoolTaskExecutor gatewayExecutor() {
+        return buildExecutor("gateway-", gatewayThreads, gatewayQueueCapacity, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Runs manually started maintenance jobs (retention, UserHomes compaction) one at a time, off the
+    // common pool; a second start while one is queued is rejected
+    @Bean(name = "maintenanceExecutor")
+    public ThreadPoolTaskExecutor maintenanceExecutor() {
+        return buildExecutor("maintenance-", 1, 1, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    private ThreadPoolTaskExecutor buildExecutor(String prefix, int threads, int queueCapacity,
+                                                 RejectedExecutionHandler rejectedExecutionHandler) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(prefix);
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(rejectedExecutionHandler);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,58 @@
+package sustainico_backend.Config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import sustainico_backend.controller.ReactiveReadingHandler;
+
+import java.util.logging.Logger;
+
+// Second HTTP server next to Tomcat, on Reactor Netty, for the routes in ReactiveReadingHandler.
+// It has its own event loop threads, so Tomcat pool exhaustion does not reach it and vice versa.
+// Spring Security and the servlet filters do not apply here; the handler checks tokens itself.
+// Off unless reactive.server.enabled=true, since it opens a second port.
+@Configuration
+@ConditionalOnProperty(name = "reactive.server.enabled", havingValue = "true")
+public class ReactiveServerConfig {
+
+    private static final Logger logger = Logger.getLogger(ReactiveServerConfig.class.getName());
+
+    @Value("${reactive.server.port:8081}")
+    private int port;
+
+    // Largest single JSON value (one reading, one chart request) decoded into memory
+    @Value("${reactive.server.max-in-memory-size:262144}")
+    private int maxInMemorySize;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Bean(destroyMethod = "disposeNow")
+    public DisposableServer reactiveServer(ReactiveReadingHandler handler) {
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().maxInMemorySize(maxInMemorySize);
+                })
+                .build();
+        HttpHandler httpHandler = RouterFunctions.toHttpHandler(handler.routes(), strategies);
+        DisposableServer server = HttpServer.create()
+                .port(port)
+                .handle(new ReactorHttpHandlerAdapter(httpHandler))
+                .bindNow();
+        logger.info("Reactive ingest/report server listening on port " + server.port());
+        return server;
+    }
+}
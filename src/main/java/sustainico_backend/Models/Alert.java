@@ -0,0 +1,23 @@
+package sustainico_backend.Models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Alert {
+
+    public static final String RAISED = "RAISED";
+    public static final String CLEARED = "CLEARED";
+
+    private String deviceId;
+    private String ruleName;
+    private AlertRuleType type;
+    private String state;
+    private String message;
+
+    // Epoch seconds of the reading (or sweep) that changed the alert's state
+    private long timestamp;
+}
@@ -0,0 +1,94 @@
+package sustainico_backend.Models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// One compiled alert rule. Rules are written as "name:expression" and separated by commas:
+//   high-flow:flow>500/15m     flow above 500 L/h for 15 minutes
+//   tamper:status.tamper       status.tamper is true ("alerts.*" matches any key of the map)
+//   silent:nodata/6h           no uplink for 6 hours
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertRule {
+
+    public static final String ANY_FLAG = "*";
+
+    private String name;
+    private AlertRuleType type;
+
+    // FLAG_SET: which map ("alerts" or "status") and which key
+    private String flagSource;
+    private String flagKey;
+
+    // FLOW_ABOVE: litres per hour
+    private double threshold;
+
+    // FLOW_ABOVE and NO_DATA
+    private long durationSeconds;
+
+    public static List<AlertRule> parseAll(String definitions) {
+        List<AlertRule> rules = new ArrayList<>();
+        if (definitions == null || definitions.isBlank()) {
+            return rules;
+        }
+        for (String definition : definitions.split(",")) {
+            if (!definition.isBlank()) {
+                rules.add(parse(definition.trim()));
+            }
+        }
+        return rules;
+    }
+
+    public static AlertRule parse(String definition) {
+        int colon = definition.indexOf(':');
+        if (colon <= 0 || colon == definition.length() - 1) {
+            throw new IllegalArgumentException("Alert rule must look like name:expression: " + definition);
+        }
+        String name = definition.substring(0, colon).trim();
+        String expression = definition.substring(colon + 1).trim().toLowerCase(Locale.ROOT);
+
+        if (expression.startsWith("flow>")) {
+            String[] parts = expression.substring("flow>".length()).split("/");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Flow rule needs a threshold and a duration: " + definition);
+            }
+            return new AlertRule(name, AlertRuleType.FLOW_ABOVE, null, null,
+                    Double.parseDouble(parts[0]), parseDuration(parts[1], definition));
+        }
+        if (expression.startsWith("nodata/")) {
+            return new AlertRule(name, AlertRuleType.NO_DATA, null, null, 0,
+                    parseDuration(expression.substring("nodata/".length()), definition));
+        }
+        int dot = expression.indexOf('.');
+        if (dot > 0 && dot < expression.length() - 1) {
+            String source = expression.substring(0, dot);
+            if (!source.equals("alerts") && !source.equals("status")) {
+                throw new IllegalArgumentException("Flag rules read alerts.* or status.*: " + definition);
+            }
+            // Flag keys keep the case the meters send
+            String key = definition.substring(colon + 1).trim().substring(dot + 1);
+            return new AlertRule(name, AlertRuleType.FLAG_SET, source, key, 0, 0);
+        }
+        throw new IllegalArgumentException("Unrecognised alert rule: " + definition);
+    }
+
+    private static long parseDuration(String duration, String definition) {
+        if (duration.length() < 2) {
+            throw new IllegalArgumentException("Invalid duration in alert rule: " + definition);
+        }
+        long amount = Long.parseLong(duration.substring(0, duration.length() - 1));
+        return switch (duration.charAt(duration.length() - 1)) {
+            case 's' -> amount;
+            case 'm' -> amount * 60;
+            case 'h' -> amount * 3600;
+            case 'd' -> amount * 86400;
+            default -> throw new IllegalArgumentException("Duration unit must be s, m, h or d: " + definition);
+        };
+    }
+}
@@ -0,0 +1,10 @@
+package sustainico_backend.Models;
+
+public enum AlertRuleType {
+    // Flow rate derived from consecutive totalizer readings stays above a threshold for a duration
+    FLOW_ABOVE,
+    // A flag in the uplink's alerts or status map is set
+    FLAG_SET,
+    // The device has not reported for a duration
+    NO_DATA
+}
@@ -0,0 +1,22 @@
+package sustainico_backend.Models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchWriteResult {
+
+    private int requestedItems;
+    private int failedItems;
+    private int chunks;
+    private int retries;
+
+    public boolean isComplete() {
+        return failedItems == 0;
+    }
+}
@@ -0,0 +1,38 @@
+package sustainico_backend.Models;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Status handle of one home or user cascade delete; status is pending, running, done or failed
+@Getter
+@Setter
+@NoArgsConstructor
+public class CascadeDeleteJob {
+
+    private String jobId;
+    private String kind;
+    private String targetId;
+    private String userId;
+    // Set on user deletes, whose userId no longer resolves once the job is done
+    private String contactNo;
+    private volatile String status = "pending";
+    private volatile int homes;
+    private volatile int devices;
+    private volatile int failedItems;
+    private volatile String message;
+    private long createdAt;
+    private volatile long finishedAt;
+
+    public CascadeDeleteJob(String jobId, String kind, String targetId, String userId) {
+        this.jobId = jobId;
+        this.kind = kind;
+        this.targetId = targetId;
+        this.userId = userId;
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    public boolean isFinished() {
+        return finishedAt != 0;
+    }
+}
@@ -0,0 +1,22 @@
+package sustainico_backend.Models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Compact form of DeviceReportResponse/HomeReportResponse for charts: point i is
+// (timestamps[i], values[i]), timestamps are epoch seconds in ascending order.
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChartSeriesResponse {
+
+    private long[] timestamps;
+    private double[] values;
+    private double averageUsage;
+    private double peakUsage;
+    private double continuesFlowPercentage;
+    private double estimatedLeakage;
+}
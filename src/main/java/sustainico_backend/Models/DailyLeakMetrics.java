@@ -0,0 +1,59 @@
+package sustainico_backend.Models;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.*;
+import lombok.*;
+
+// Compact per-device-day output of the leak detector. The last* and currentFlowRunSeconds fields are
+// detector state, so a restart picks up the running day where it left off.
+// Table dailyLeakMetrics: hash key deviceId (S), range key day (S); only the in-memory backend creates
+// it, so create it before deploying to a real account. Without it reports show no leakage instead of failing.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDBTable(tableName = "dailyLeakMetrics")
+public class DailyLeakMetrics {
+
+    @DynamoDBHashKey(attributeName = "deviceId")
+    private String deviceId;
+
+    // yyyy-MM-dd in IST
+    @DynamoDBRangeKey(attributeName = "day")
+    private String day;
+
+    // Reading-to-reading intervals seen during the day
+    @DynamoDBAttribute(attributeName = "intervals")
+    private Integer intervals;
+
+    // Intervals in which the totalizer moved
+    @DynamoDBAttribute(attributeName = "flowingIntervals")
+    private Integer flowingIntervals;
+
+    @DynamoDBAttribute(attributeName = "longestFlowRunSeconds")
+    private Long longestFlowRunSeconds;
+
+    @DynamoDBAttribute(attributeName = "currentFlowRunSeconds")
+    private Long currentFlowRunSeconds;
+
+    @DynamoDBAttribute(attributeName = "nightIntervals")
+    private Integer nightIntervals;
+
+    // Lowest flow rate (litres per hour) seen in the night window
+    @DynamoDBAttribute(attributeName = "nightMinFlowPerHour")
+    private Double nightMinFlowPerHour;
+
+    @DynamoDBAttribute(attributeName = "continuousFlowPercentage")
+    private Double continuousFlowPercentage;
+
+    // Litres per day implied by the night minimum flow
+    @DynamoDBAttribute(attributeName = "estimatedLeakage")
+    private Double estimatedLeakage;
+
+    @DynamoDBAttribute(attributeName = "lastTimestamp")
+    private Long lastTimestamp;
+
+    @DynamoDBAttribute(attributeName = "lastFlowReading")
+    private Double lastFlowReading;
+
+    @DynamoDBAttribute(attributeName = "updatedAt")
+    private String updatedAt;
+}
@@ -0,0 +1,19 @@
+package sustainico_backend.Models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestFrameResult {
+
+    private int received;
+    private int stored;
+    private int duplicates;
+    // LoRa uplinks the JSON webhook would also ignore: future period or an empty totalizer
+    private int skipped;
+}
@@ -0,0 +1,27 @@
+package sustainico_backend.Models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Leak metrics over a report range; intervals are kept so summaries of several devices can be weighted
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeakSummary {
+
+    private long intervals;
+    private long flowingIntervals;
+    private double estimatedLeakage;
+
+    public double getContinuousFlowPercentage() {
+        return intervals == 0 ? 0 : flowingIntervals * 100.0 / intervals;
+    }
+
+    public LeakSummary add(LeakSummary other) {
+        return new LeakSummary(intervals + other.intervals, flowingIntervals + other.flowingIntervals,
+                estimatedLeakage + other.estimatedLeakage);
+    }
+}
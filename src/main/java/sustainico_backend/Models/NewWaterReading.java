@@ -17,6 +17,8 @@ public class NewWaterReading {
     @DynamoDBHashKey(attributeName = "deviceId")
     private String deviceId;
 
+    // Epoch seconds. Uplinks sent without one are keyed by the end of the period they cover (the time
+    // of their last intraDay reading), not by when they were received, so retransmissions share a key
     @DynamoDBRangeKey(attributeName = "timestamp")
     private String timestamp;
 
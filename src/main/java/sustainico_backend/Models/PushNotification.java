@@ -0,0 +1,20 @@
+package sustainico_backend.Models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PushNotification {
+
+    // Notifications with the same key that are waiting for the same user replace each other,
+    // e.g. "<deviceId>#<rule>" so a flapping alert is sent once per window
+    private String coalesceKey;
+    private String title;
+    private String body;
+    private Map<String, String> data;
+}
@@ -0,0 +1,22 @@
+package sustainico_backend.Models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PushSendResult {
+
+    private int successCount;
+    private int failureCount;
+
+    // Tokens the transport reported as unregistered; the dispatcher deletes them
+    private List<String> invalidTokens = new ArrayList<>();
+}
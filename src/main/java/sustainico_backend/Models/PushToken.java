@@ -0,0 +1,24 @@
+package sustainico_backend.Models;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.*;
+import lombok.*;
+
+// A Firebase Cloud Messaging registration token of one of the user's app installs
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDBTable(tableName = "pushToken")
+public class PushToken {
+
+    @DynamoDBHashKey(attributeName = "userId")
+    private String userId;
+
+    @DynamoDBRangeKey(attributeName = "token")
+    private String token;
+
+    @DynamoDBAttribute(attributeName = "platform")
+    private String platform;
+
+    @DynamoDBAttribute(attributeName = "updatedAt")
+    private String updatedAt;
+}
@@ -0,0 +1,22 @@
+package sustainico_backend.Models;
+
+// How raw waterReading rows are persisted, set with water.storage.mode.
+// DUAL writes both layouts but keeps serving reads from items, which is the state to run in
+// while the block migration catches up.
+public enum ReadingStorageMode {
+    ITEMS,
+    BLOCKS,
+    DUAL;
+
+    public boolean writesItems() {
+        return this != BLOCKS;
+    }
+
+    public boolean writesBlocks() {
+        return this != ITEMS;
+    }
+
+    public boolean readsBlocks() {
+        return this == BLOCKS;
+    }
+}
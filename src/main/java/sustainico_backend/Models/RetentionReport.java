@@ -0,0 +1,59 @@
+package sustainico_backend.Models;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Outcome of one retention run, keyed by tier (table name, or cold:<table> for segment files).
+// Byte counts for DynamoDB are estimates from the item contents plus the per-item overhead DynamoDB bills.
+@Getter
+@Setter
+public class RetentionReport {
+
+    private String startedAt;
+    private String finishedAt;
+    private int devices;
+
+    private final Map<String, Long> itemsDeleted = new TreeMap<>();
+    private final Map<String, Long> bytesReclaimed = new TreeMap<>();
+
+    // Rows past their retention that were kept because no coarser rollup covers their day
+    private final Map<String, Long> itemsKeptWithoutRollup = new TreeMap<>();
+
+    private final Map<String, Long> itemsFailed = new TreeMap<>();
+
+    private final List<String> notes = new ArrayList<>();
+
+    public synchronized void recordDeleted(String tier, long items, long bytes) {
+        itemsDeleted.merge(tier, items, Long::sum);
+        bytesReclaimed.merge(tier, bytes, Long::sum);
+    }
+
+    public synchronized void recordKept(String tier, long items) {
+        if (items > 0) {
+            itemsKeptWithoutRollup.merge(tier, items, Long::sum);
+        }
+    }
+
+    public synchronized void recordFailed(String tier, long items) {
+        if (items > 0) {
+            itemsFailed.merge(tier, items, Long::sum);
+        }
+    }
+
+    public synchronized void addNote(String note) {
+        notes.add(note);
+    }
+
+    public synchronized long getTotalItemsDeleted() {
+        return itemsDeleted.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public synchronized long getTotalBytesReclaimed() {
+        return bytesReclaimed.values().stream().mapToLong(Long::longValue).sum();
+    }
+}
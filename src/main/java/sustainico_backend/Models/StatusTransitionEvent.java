@@ -0,0 +1,32 @@
+package sustainico_backend.Models;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.*;
+import lombok.*;
+
+// A status flag going from 0 to 1 on a newWaterReading2 uplink
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDBTable(tableName = "statusTransitionEvent")
+public class StatusTransitionEvent {
+
+    @DynamoDBHashKey(attributeName = "deviceId")
+    private String deviceId;
+
+    // "<epoch seconds>#<status>", so a device's events sort by time and a reading can raise several
+    @DynamoDBRangeKey(attributeName = "eventKey")
+    private String eventKey;
+
+    @DynamoDBAttribute(attributeName = "status")
+    private String status;
+
+    @DynamoDBAttribute(attributeName = "timestamp")
+    private Long timestamp;
+
+    @DynamoDBAttribute(attributeName = "dateTime")
+    private String dateTime;
+
+    public static String eventKey(long timestamp, String status) {
+        return timestamp + "#" + status;
+    }
+}
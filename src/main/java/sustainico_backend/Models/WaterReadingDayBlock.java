@@ -0,0 +1,35 @@
+package sustainico_backend.Models;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.*;
+import lombok.*;
+
+// One device-day of raw readings packed by ReadingBlockCodec. The version attribute makes
+// concurrent appends to the same day fail fast instead of overwriting each other.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDBTable(tableName = "waterReadingDayBlock")
+public class WaterReadingDayBlock {
+
+    @DynamoDBHashKey(attributeName = "deviceId")
+    private String deviceId;
+
+    // yyyy-MM-dd in IST
+    @DynamoDBRangeKey(attributeName = "day")
+    private String day;
+
+    @DynamoDBAttribute(attributeName = "block")
+    private byte[] block;
+
+    @DynamoDBAttribute(attributeName = "readingCount")
+    private Integer readingCount;
+
+    @DynamoDBAttribute(attributeName = "firstTimestamp")
+    private Long firstTimestamp;
+
+    @DynamoDBAttribute(attributeName = "lastTimestamp")
+    private Long lastTimestamp;
+
+    @DynamoDBVersionAttribute(attributeName = "version")
+    private Long version;
+}
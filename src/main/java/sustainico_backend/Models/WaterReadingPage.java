@@ -0,0 +1,20 @@
+package sustainico_backend.Models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaterReadingPage {
+
+    private List<WaterReading> readings;
+
+    // Opaque token for the next page, null when there are no more readings
+    private String nextCursor;
+}
@@ -0,0 +1,43 @@
+package sustainico_backend.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import sustainico_backend.Models.Alert;
+import sustainico_backend.Models.AlertRule;
+import sustainico_backend.service.AlertEngine;
+import sustainico_backend.service.InMemoryAlertSink;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/alerts")
+public class AlertController {
+
+    @Autowired
+    private AlertEngine alertEngine;
+
+    @Autowired
+    private InMemoryAlertSink inMemoryAlertSink;
+
+    // Alerts currently raised, for one device or the whole fleet
+    @GetMapping
+    public ResponseEntity<List<Alert>> getActiveAlerts(@RequestParam(required = false) String deviceId) {
+        return ResponseEntity.ok(alertEngine.getActiveAlerts(deviceId));
+    }
+
+    // Raise and clear events seen by this node, newest first
+    @GetMapping("/recent")
+    public ResponseEntity<List<Alert>> getRecentAlerts(@RequestParam(required = false) String deviceId,
+                                                       @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(inMemoryAlertSink.getRecent(deviceId, Math.max(1, Math.min(limit, 1000))));
+    }
+
+    @GetMapping("/rules")
+    public ResponseEntity<List<AlertRule>> getRules() {
+        return ResponseEntity.ok(alertEngine.getRules());
+    }
+}
@@ -0,0 +1,56 @@
+package sustainico_backend.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import sustainico_backend.Models.IngestFrameResult;
+import sustainico_backend.service.BinaryIngestService;
+import sustainico_backend.util.IngestFrameCodec;
+
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+
+// Binary counterpart of /newWaterReading/send and /newWaterReading2/send for cellular meters and
+// gateways: one IngestFrameCodec frame per request, any number of readings of either kind.
+// The body is read straight off the request stream rather than through a message converter, so no more
+// than ingest.binary.max-frame-bytes (plus one byte to detect overflow) is ever buffered.
+@RestController
+@RequestMapping("/ingest")
+public class BinaryIngestController {
+
+    @Autowired
+    private BinaryIngestService binaryIngestService;
+
+    @Value("${ingest.binary.max-frame-bytes:1048576}")
+    private int maxFrameBytes;
+
+    @PostMapping(value = "/binary", consumes = IngestFrameCodec.MEDIA_TYPE)
+    public ResponseEntity<?> ingest(HttpServletRequest request) throws IOException {
+        long declaredLength = request.getContentLengthLong();
+        if (declaredLength > maxFrameBytes) {
+            return frameTooLarge();
+        }
+        // A chunked body declares no length, so read one byte past the limit to tell whether it is over
+        byte[] frame = request.getInputStream().readNBytes(declaredLength >= 0 ? (int) declaredLength : maxFrameBytes + 1);
+        if (frame.length > maxFrameBytes) {
+            return frameTooLarge();
+        }
+        try {
+            IngestFrameResult result = binaryIngestService.ingest(frame, 0, frame.length).join();
+            return new ResponseEntity<>(result, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>("Invalid frame: " + e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (CompletionException e) {
+            return new ResponseEntity<>("Error storing readings: " + e.getCause().getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private ResponseEntity<String> frameTooLarge() {
+        return new ResponseEntity<>("Frame larger than " + maxFrameBytes + " bytes", HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+}
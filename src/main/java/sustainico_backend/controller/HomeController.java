@@ -1,13 +1,19 @@
 package sustainico_backend.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import sustainico_backend.Models.CascadeDeleteJob;
 import sustainico_backend.Models.Home;
 import sustainico_backend.Models.User;
 import sustainico_backend.rep.WaterReadingRepository;
+import sustainico_backend.security.MaintenanceAccess;
 import sustainico_backend.service.HomeService;
+import sustainico_backend.service.UserHomesCompactionService;
 import sustainico_backend.service.UserService;
 import sustainico_backend.service.WaterReadingService;
 import sustainico_backend.util.ApiResponse;
@@ -36,9 +42,19 @@ public class HomeController {
     @Autowired
     private WaterReadingService waterReadingService;
 
+    @Autowired
+    private MaintenanceAccess maintenanceAccess;
+
+    @Autowired
+    @Qualifier("maintenanceExecutor")
+    private TaskExecutor maintenanceExecutor;
+
     @Autowired
     private WaterReadingRepository waterReadingRepository;
 
+    @Autowired
+    private UserHomesCompactionService userHomesCompactionService;
+
 
     @PostMapping("/create")
     public ResponseEntity<?> createHome(@RequestBody Home home, @RequestHeader("Authorization") String jwttoken) {
@@ -82,14 +98,22 @@ public class HomeController {
     }
 
     @DeleteMapping("/delete/{homeId}")
-    public ResponseEntity<String> deleteHomeById(@PathVariable String homeId, @RequestHeader("Authorization") String jwttoken) {
+    public ResponseEntity<?> deleteHomeById(@PathVariable String homeId, @RequestParam(defaultValue = "false") boolean async,
+                                            @RequestHeader("Authorization") String jwttoken) {
         String token = jwttoken.substring(7);
         String contactNoByToken = jwtUtil.extractContactNo(token);
         Optional<User> user = userService.getUserByContactNo(contactNoByToken);
         Home home = homeService.getHomeById(homeId);
 
-        if(user.isPresent() && Objects.equals(user.get().getUserId(), home.getUserId())){
-            homeService.deleteHome(home);
+        if(user.isPresent() && home != null && Objects.equals(user.get().getUserId(), home.getUserId())){
+            // async=true answers 202 with a job to poll at /user/delete/jobs/{jobId}
+            if (async) {
+                return ResponseEntity.accepted().body(homeService.startDeleteHome(home));
+            }
+            CascadeDeleteJob job = homeService.deleteHome(home);
+            if ("failed".equals(job.getStatus())) {
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(job);
+            }
             return new ResponseEntity<>("Home deleted successfully", HttpStatus.OK);
         }
         return new ResponseEntity<>("Invalid data", HttpStatus.BAD_REQUEST);
@@ -130,5 +154,29 @@ public class HomeController {
         }
         return ResponseEntity.status(404).body("User not found or userId mismatch.");
     }
-    
+
+    // Removes duplicate homeIds from every UserHomes row in the background; poll GET for the outcome
+    @PostMapping("/userHomes/compact")
+    public ResponseEntity<?> compactUserHomes(@RequestHeader("Authorization") String jwttoken) {
+        if (!maintenanceAccess.allows(jwttoken)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Not allowed to start maintenance jobs");
+        }
+        if (userHomesCompactionService.isRunning()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("UserHomes compaction already running");
+        }
+        try {
+            maintenanceExecutor.execute(userHomesCompactionService::run);
+        } catch (TaskRejectedException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Another maintenance job is queued");
+        }
+        return ResponseEntity.accepted().body("UserHomes compaction started");
+    }
+
+    @GetMapping("/userHomes/compact")
+    public ResponseEntity<?> getUserHomesCompaction() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("running", userHomesCompactionService.isRunning());
+        status.put("lastRun", userHomesCompactionService.getLastRun());
+        return ResponseEntity.ok(status);
+    }
 }
@@ -6,6 +6,7 @@ import sustainico_backend.Models.Home;
 import sustainico_backend.Models.ResourceNotFoundException;
 import sustainico_backend.Models.User;
 import sustainico_backend.Models.UserWithHomesDTO;
+import sustainico_backend.filter.DynamoDbCallBudget;
 import sustainico_backend.rep.HomeRepository;
 import sustainico_backend.rep.UserRepository;
 import sustainico_backend.util.JwtUtil;
@@ -28,6 +29,8 @@ public class MainController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    // User scan, home scan, then a batch get and queries per home and device: room for a few homes
+    @DynamoDbCallBudget(40)
     @GetMapping("/{contactNo}")
     public UserWithHomesDTO getUserWithHomesByContactNo(@PathVariable String contactNo, @RequestHeader("Authorization") String jwttoken) {
         String token = jwttoken.substring(7);
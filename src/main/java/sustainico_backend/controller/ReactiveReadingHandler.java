@@ -0,0 +1,191 @@
+package sustainico_backend.controller;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import sustainico_backend.Models.NewWaterReading2;
+import sustainico_backend.rep.ColdSegmentStore;
+import sustainico_backend.rep.NewWaterReading2AsyncRepository;
+import sustainico_backend.rep.NewWaterReading2Repository;
+import sustainico_backend.service.NewWaterReading2Service;
+import sustainico_backend.util.JwtUtil;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.ToLongFunction;
+
+// Reactive twins of the newWaterReading2 ingest and chart endpoints, served by ReactiveServerConfig on
+// its own port so a burst of slow dashboard reads cannot take Tomcat threads away from meter uplinks.
+// Backpressure runs end to end: the body is decoded only as fast as readings are stored (at most
+// reactive.ingest.concurrency puts in flight), and streamed reads fetch the next DynamoDB page on demand.
+@Component
+@ConditionalOnProperty(name = "reactive.server.enabled", havingValue = "true")
+public class ReactiveReadingHandler {
+
+    private static final ParameterizedTypeReference<Map<String, Object>> OBJECT_MAP = new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<Map<String, String>> STRING_MAP = new ParameterizedTypeReference<>() {};
+
+    // Reads that still need the blocking repository (archived segments, in-memory mode)
+    private static final Executor BLOCKING = task -> Schedulers.boundedElastic().schedule(task);
+
+    @Autowired
+    private NewWaterReading2Service service;
+
+    @Autowired
+    private NewWaterReading2Repository repository;
+
+    @Autowired
+    private ObjectProvider<NewWaterReading2AsyncRepository> asyncRepository;
+
+    @Autowired
+    private ColdSegmentStore coldSegmentStore;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Value("${reactive.ingest.concurrency:32}")
+    private int ingestConcurrency;
+
+    public RouterFunction<ServerResponse> routes() {
+        // Same paths as the servlet controller; ingest is open there too
+        RouterFunction<ServerResponse> ingest = RouterFunctions.route()
+                .POST("/newWaterReading2/send", this::createReadings)
+                .build();
+        RouterFunction<ServerResponse> reports = RouterFunctions.route()
+                .POST("/newWaterReading2/latest", this::getLatestReading)
+                .GET("/newWaterReading2/{deviceId}/readings", this::streamReadings)
+                .filter(this::authenticated)
+                .build();
+        return ingest.and(reports);
+    }
+
+    // Accepts one reading, a JSON array or an NDJSON stream. Timestamp (epoch seconds) is optional; the
+    // readings of a device that leave it out get consecutive seconds from now in body order, so a batch
+    // of them is stored whole instead of collapsing onto one (deviceId, timestamp) key.
+    private Mono<ServerResponse> createReadings(ServerRequest request) {
+        long now = Instant.now().getEpochSecond();
+        // The body is mapped one element at a time, so a plain map is enough
+        Map<String, Long> nextSecond = new HashMap<>();
+        return request.bodyToFlux(OBJECT_MAP)
+                .map(body -> mapToNewWaterReading(body, deviceId -> nextSecond.merge(deviceId, now, (last, ignored) -> last + 1)))
+                .flatMap(reading -> Mono.fromFuture(() -> service.saveReadingAsync(reading)), ingestConcurrency)
+                .reduce(new long[2], (counts, stored) -> {
+                    counts[0]++;
+                    if (stored) {
+                        counts[1]++;
+                    }
+                    return counts;
+                })
+                .flatMap(counts -> {
+                    Map<String, Long> result = new LinkedHashMap<>();
+                    result.put("received", counts[0]);
+                    result.put("stored", counts[1]);
+                    result.put("duplicates", counts[0] - counts[1]);
+                    return ServerResponse.ok().bodyValue(result);
+                })
+                .onErrorResume(e -> e instanceof IllegalArgumentException || e instanceof DecodingException
+                                || e instanceof ServerWebInputException,
+                        e -> ServerResponse.badRequest().bodyValue("Invalid reading: " + e.getMessage()));
+    }
+
+    private Mono<ServerResponse> getLatestReading(ServerRequest request) {
+        return request.bodyToMono(STRING_MAP).flatMap(body -> {
+            String deviceId = body.get("deviceId");
+            String timeFilter = body.get("timeFilter");
+            String targetDate = body.get("targetDate");
+            if (deviceId == null || deviceId.trim().isEmpty()) {
+                return ServerResponse.badRequest().bodyValue("Device ID is required");
+            }
+            if (timeFilter == null || timeFilter.trim().isEmpty()) {
+                return ServerResponse.badRequest().bodyValue("Time filter is required");
+            }
+            if (targetDate == null || targetDate.trim().isEmpty()) {
+                return ServerResponse.badRequest().bodyValue("Target date is required");
+            }
+            return Mono.fromFuture(() -> service.getWaterConsumptionDataAsync(deviceId, timeFilter, targetDate, BLOCKING))
+                    .flatMap(data -> data.isEmpty()
+                            ? ServerResponse.status(HttpStatus.NOT_FOUND).bodyValue("No readings found for device ID: " + deviceId)
+                            : ServerResponse.ok().bodyValue(data))
+                    .onErrorResume(IllegalArgumentException.class, e -> ServerResponse.badRequest().bodyValue(e.getMessage()))
+                    .onErrorResume(e -> ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .bodyValue("Error retrieving consumption data: " + e.getMessage()));
+        });
+    }
+
+    // NDJSON, oldest first; start and end are epoch seconds and default to everything up to now
+    private Mono<ServerResponse> streamReadings(ServerRequest request) {
+        String deviceId = request.pathVariable("deviceId");
+        String start = request.queryParam("start").orElse("0");
+        String end = request.queryParam("end").orElse(String.valueOf(Instant.now().getEpochSecond()));
+
+        NewWaterReading2AsyncRepository async = asyncRepository.getIfAvailable();
+        Flux<NewWaterReading2> readings;
+        if (async == null || coldSegmentStore.hasSegments(ColdSegmentStore.NEW_WATER_READING_2, deviceId)) {
+            readings = Flux.defer(() -> Flux.fromIterable(repository.findReadingsBetweenTimestamps(deviceId, start, end)))
+                    .subscribeOn(Schedulers.boundedElastic());
+        } else {
+            readings = Flux.from(async.streamHotReadingsBetweenTimestamps(deviceId, start, end));
+        }
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(readings, NewWaterReading2.class);
+    }
+
+    // Signature and expiry only: unlike JwtRequestFilter this does not load the user, which would block
+    private Mono<ServerResponse> authenticated(ServerRequest request, HandlerFunction<ServerResponse> next) {
+        String authorizationHeader = request.headers().firstHeader("Authorization");
+        if (authorizationHeader == null || !authorizationHeader.startsWith("Bearer ")) {
+            return ServerResponse.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        try {
+            String jwt = authorizationHeader.substring(7);
+            String contactNo = jwtUtil.extractContactNo(jwt);
+            if (contactNo == null || !jwtUtil.validateToken(jwt, contactNo)) {
+                return ServerResponse.status(HttpStatus.UNAUTHORIZED).build();
+            }
+        } catch (Exception e) {
+            return ServerResponse.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return next.handle(request);
+    }
+
+    private NewWaterReading2 mapToNewWaterReading(Map<String, Object> body, ToLongFunction<String> defaultTimestamp) {
+        if (!(body.get("DeviceID") instanceof String deviceId) || deviceId.isBlank()) {
+            throw new IllegalArgumentException("DeviceID is required");
+        }
+        if (!(body.get("Liters") instanceof Number liters) || !(body.get("Milliliters") instanceof Number milliliters)) {
+            throw new IllegalArgumentException("Liters and Milliliters must be numbers");
+        }
+        NewWaterReading2 newWaterReading2 = new NewWaterReading2();
+        newWaterReading2.setDeviceId(deviceId);
+        newWaterReading2.setLiters(liters.longValue());
+        newWaterReading2.setMilliliters(milliliters.longValue());
+        if (body.get("Status") instanceof Map<?, ?> status) {
+            Map<String, Boolean> flags = new LinkedHashMap<>();
+            status.forEach((flag, set) -> flags.put(String.valueOf(flag), Boolean.TRUE.equals(set)));
+            newWaterReading2.setStatus(flags);
+        }
+        Object timestamp = body.get("Timestamp");
+        newWaterReading2.setTimestamp(String.valueOf(timestamp instanceof Number epochSeconds
+                ? epochSeconds.longValue() : defaultTimestamp.applyAsLong(deviceId)));
+        return newWaterReading2;
+    }
+}
@@ -0,0 +1,60 @@
+package sustainico_backend.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import sustainico_backend.Models.RetentionReport;
+import sustainico_backend.security.MaintenanceAccess;
+import sustainico_backend.service.RetentionService;
+
+@RestController
+@RequestMapping("/retention")
+public class RetentionController {
+
+    @Autowired
+    private RetentionService retentionService;
+
+    @Autowired
+    private MaintenanceAccess maintenanceAccess;
+
+    @Autowired
+    @Qualifier("maintenanceExecutor")
+    private TaskExecutor maintenanceExecutor;
+
+    // Starts a run in the background; poll /retention/report for the outcome
+    @PostMapping("/run")
+    public ResponseEntity<?> runRetention(@RequestHeader("Authorization") String jwttoken) {
+        if (!maintenanceAccess.allows(jwttoken)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Not allowed to start maintenance jobs");
+        }
+        if (!retentionService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Retention is disabled");
+        }
+        if (retentionService.isRunning()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Retention run already in progress");
+        }
+        try {
+            maintenanceExecutor.execute(retentionService::run);
+        } catch (TaskRejectedException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Another maintenance job is queued");
+        }
+        return ResponseEntity.accepted().body("Retention run started");
+    }
+
+    @GetMapping("/report")
+    public ResponseEntity<?> getLastReport() {
+        RetentionReport report = retentionService.getLastReport();
+        if (report == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(report);
+    }
+}
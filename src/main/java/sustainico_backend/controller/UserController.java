@@ -12,13 +12,16 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.web.bind.annotation.*;
 import sustainico_backend.Models.AuthenticationRequest;
 import sustainico_backend.Models.AuthenticationResponse;
+import sustainico_backend.Models.CascadeDeleteJob;
 import sustainico_backend.Models.CreateUserResponse;
+import sustainico_backend.Models.PushToken;
 import sustainico_backend.Models.User;
 import sustainico_backend.service.MyUserDetailsService;
 import sustainico_backend.service.UserService;
 import sustainico_backend.util.ApiResponse;
 import sustainico_backend.util.JwtUtil;
 
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -68,16 +71,40 @@ public class UserController {
         return null;
     }
 
+    // Cascades to the user's homes and devices; async=true answers 202 with a job to poll instead of waiting
     @DeleteMapping("/delete")
-    public ResponseEntity<?> deleteUser(@RequestHeader("Authorization") String jwttoken) {
+    public ResponseEntity<?> deleteUser(@RequestParam(defaultValue = "false") boolean async,
+                                        @RequestHeader("Authorization") String jwttoken) {
         String token = jwttoken.substring(7);
         String contactNoByToken = jwtUtil.extractContactNo(token);
-        boolean isDeleted = userService.deleteUser(contactNoByToken);
-        if (isDeleted) {
-            return ResponseEntity.ok("User deleted successfully");
-        } else {
+        if (async) {
+            Optional<CascadeDeleteJob> job = userService.startDeleteUser(contactNoByToken);
+            return job.<ResponseEntity<?>>map(started -> ResponseEntity.accepted().body(started))
+                    .orElseGet(() -> ResponseEntity.badRequest().body("User not found"));
+        }
+        Optional<CascadeDeleteJob> job = userService.deleteUser(contactNoByToken);
+        if (job.isEmpty()) {
             return ResponseEntity.badRequest().body("User not found");
         }
+        if ("failed".equals(job.get().getStatus())) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(job.get());
+        }
+        return ResponseEntity.ok("User deleted successfully");
+    }
+
+    // Status of a home or user delete started with async=true, visible to the user it belongs to
+    @GetMapping("/delete/jobs/{jobId}")
+    public ResponseEntity<?> getDeleteJob(@PathVariable String jobId, @RequestHeader("Authorization") String jwttoken) {
+        String contactNoByToken = jwtUtil.extractContactNo(jwttoken.substring(7));
+        Optional<User> user = userService.getUserByContactNo(contactNoByToken);
+        CascadeDeleteJob job = userService.getDeleteJob(jobId);
+        // A finished user delete has removed the caller's row, so the job is matched on the contact number too
+        boolean owner = job != null && (user.map(found -> found.getUserId().equals(job.getUserId())).orElse(false)
+                || Objects.equals(contactNoByToken, job.getContactNo()));
+        if (!owner) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Delete job not found");
+        }
+        return ResponseEntity.ok(job);
     }
 
     @GetMapping("/contactno")
@@ -87,4 +114,25 @@ public class UserController {
         return userService.getUserByContactNo(contactNoByToken);
     }
 
+    // Registers an FCM token of the caller's app install for alert notifications
+    @PostMapping("/push-token")
+    public ResponseEntity<?> registerPushToken(@RequestBody Map<String, String> request, @RequestHeader("Authorization") String jwttoken) {
+        String pushToken = request.get("token");
+        if (pushToken == null || pushToken.isBlank()) {
+            return ResponseEntity.badRequest().body("token is required");
+        }
+        String contactNoByToken = jwtUtil.extractContactNo(jwttoken.substring(7));
+        Optional<PushToken> saved = userService.registerPushToken(contactNoByToken, pushToken, request.get("platform"));
+        return saved.<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found"));
+    }
+
+    @DeleteMapping("/push-token")
+    public ResponseEntity<?> removePushToken(@RequestParam String token, @RequestHeader("Authorization") String jwttoken) {
+        String contactNoByToken = jwtUtil.extractContactNo(jwttoken.substring(7));
+        if (userService.removePushToken(contactNoByToken, token)) {
+            return ResponseEntity.ok("Push token removed");
+        }
+        return ResponseEntity.badRequest().body("User not found");
+    }
 }
@@ -6,8 +6,12 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import sustainico_backend.Models.*;
+import sustainico_backend.security.MaintenanceAccess;
 import sustainico_backend.service.*;
+import sustainico_backend.util.ChartSeriesCodec;
 import sustainico_backend.util.JwtUtil;
 
 import java.util.*;
@@ -36,6 +40,12 @@ public class WaterReadingController {
     @Autowired
     private WaterReadingAggregationService waterReadingAggregationService;
 
+    @Autowired
+    private WaterReadingBlockMigrationService waterReadingBlockMigrationService;
+
+    @Autowired
+    private MaintenanceAccess maintenanceAccess;
+
     private final DeviceService deviceService;
 
     @Autowired
@@ -59,11 +69,16 @@ public class WaterReadingController {
 
     @PostMapping("/reading/send")
     public WaterReading createWater(@RequestBody WaterReading waterReading) {
-        return waterReadingService.saveWaterReading(waterReading);
+        try {
+            return waterReadingService.saveWaterReading(waterReading);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 
     @PostMapping("/reading/report/device")
-    public ResponseEntity<?> getWaterReadings(@RequestBody WaterReadingDeviceRequest request, @RequestHeader("Authorization") String jwttoken) {
+    public ResponseEntity<?> getWaterReadings(@RequestBody WaterReadingDeviceRequest request, @RequestHeader("Authorization") String jwttoken,
+                                              @RequestParam(required = false) String format) {
         String userId = request.getUserId();
         String token = jwttoken.substring(7);
         String contactNoByToken = jwtUtil.extractContactNo(token);
@@ -88,7 +103,7 @@ public class WaterReadingController {
                     default:
                         return ResponseEntity.badRequest().body("Invalid resolution specified.");
                 }
-                return ResponseEntity.ok(readings);
+                return chartResponse(readings, format);
             } catch (IllegalArgumentException e) {
                 return ResponseEntity.badRequest().body(e.getMessage());
             }
@@ -97,9 +112,10 @@ public class WaterReadingController {
     }
 
     @PostMapping("/reading/report/home")
-    public ResponseEntity<HomeReportResponse> getCumulativeFlowReading(
+    public ResponseEntity<?> getCumulativeFlowReading(
             @RequestBody WaterReadingHomeRequest request,
-            @RequestHeader("Authorization") String jwttoken) {
+            @RequestHeader("Authorization") String jwttoken,
+            @RequestParam(required = false) String format) {
 
         String token = jwttoken.substring(7);
         String contactNoByToken = jwtUtil.extractContactNo(token);
@@ -110,6 +126,15 @@ public class WaterReadingController {
             try {
                 logger.info("Received request for cumulative flow reading: " + request);
 
+                if (format != null) {
+                    return chartSeriesResponse(waterReadingAggregationService.fetchFlowSeriesForDevices(
+                            request.getHomeId(),
+                            request.getStartTimestamp(),
+                            request.getEndTimestamp(),
+                            request.getResolution()
+                    ), format);
+                }
+
                 HomeReportResponse cumulativeFlowReading = waterReadingAggregationService.fetchFlowReadingsForDevices(
                         request.getHomeId(),
                         request.getStartTimestamp(),
@@ -121,13 +146,35 @@ public class WaterReadingController {
 
             } catch (IllegalArgumentException e) {
                 // Returning a more suitable response for errors
-                return ResponseEntity.badRequest().body((HomeReportResponse) Collections.singletonMap("error", e.getMessage()));
+                return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
             }
         }
 
         // Unauthorized access case
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                .body((HomeReportResponse) Collections.singletonMap("error", "Unauthorized Access. Please log in again!"));
+                .body(Collections.singletonMap("error", "Unauthorized Access. Please log in again!"));
+    }
+
+    // Opt-in chart formats for the report endpoints: format=compact returns parallel epoch/value arrays,
+    // format=binary the same packed by ChartSeriesCodec. Without format the full report is returned.
+    private ResponseEntity<?> chartResponse(DeviceReportResponse report, String format) {
+        if (format == null) {
+            return ResponseEntity.ok(report);
+        }
+        return chartSeriesResponse(ChartSeriesCodec.fromDeviceReport(report), format);
+    }
+
+    private ResponseEntity<?> chartSeriesResponse(ChartSeriesResponse series, String format) {
+        switch (format.toLowerCase()) {
+            case "compact":
+                return ResponseEntity.ok(series);
+            case "binary":
+                return ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType(ChartSeriesCodec.MEDIA_TYPE))
+                        .body(ChartSeriesCodec.encode(series));
+            default:
+                return ResponseEntity.badRequest().body("Invalid format specified.");
+        }
     }
 
 
@@ -156,18 +203,76 @@ public class WaterReadingController {
 //        return waterReadingService.getLatestReadingById(deviceId);
 //    }
 
+    // Same JSON array as before, but written page by page instead of materializing the full history
     @GetMapping("/{deviceId}")
-    public List<WaterReading> getReadingsByDeviceId(@PathVariable String deviceId) {
-        return waterReadingService.getWaterReadingsByDeviceId(deviceId);
+    public ResponseEntity<StreamingResponseBody> getReadingsByDeviceId(@PathVariable String deviceId) {
+        return streamReadings(deviceId, null, null);
+    }
+
+    @GetMapping("/{deviceId}/stream")
+    public ResponseEntity<StreamingResponseBody> streamReadingsByDeviceId(
+            @PathVariable String deviceId,
+            @RequestParam(required = false) String startTimestamp,
+            @RequestParam(required = false) String endTimestamp) {
+        return streamReadings(deviceId, startTimestamp, endTimestamp);
+    }
+
+    @GetMapping("/{deviceId}/page")
+    public ResponseEntity<?> getReadingsPageByDeviceId(
+            @PathVariable String deviceId,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String startTimestamp,
+            @RequestParam(required = false) String endTimestamp) {
+        try {
+            WaterReadingPage page = waterReadingService.getWaterReadingsPage(deviceId, startTimestamp, endTimestamp, limit, cursor);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamReadings(String deviceId, String startTimestamp, String endTimestamp) {
+        StreamingResponseBody body = outputStream ->
+                waterReadingService.streamWaterReadings(deviceId, startTimestamp, endTimestamp, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
     }
 
     @GetMapping("/latest-readings")
-    public List<WaterReading> getLatestReadingsForAllDevices() {
-        return waterReadingService.getLatestReadingsForAllDevices();
+    public List<WaterReading> getLatestReadingsForAllDevices(
+            @RequestParam(required = false) String deviceIdPrefix,
+            @RequestParam(required = false) String sinceTimestamp,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "" + Integer.MAX_VALUE) int limit) {
+        return waterReadingService.getLatestReadingsForAllDevices(deviceIdPrefix, sinceTimestamp, offset, limit);
+    }
+
+    // Backfills day blocks from the item rows for one device, or all devices when deviceId is omitted
+    @PostMapping("/blocks/migrate")
+    public ResponseEntity<?> migrateToDayBlocks(@RequestHeader("Authorization") String jwttoken,
+                                                @RequestParam(required = false) String deviceId) {
+        if (!maintenanceAccess.allows(jwttoken)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Not allowed to start maintenance jobs");
+        }
+        if (!waterReadingBlockMigrationService.startMigration(deviceId)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Block migration already running");
+        }
+        return ResponseEntity.accepted().body(waterReadingBlockMigrationService.getProgress());
+    }
+
+    @GetMapping("/blocks/migrate")
+    public ResponseEntity<?> getDayBlockMigration() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("running", waterReadingBlockMigrationService.isRunning());
+        status.put("devices", waterReadingBlockMigrationService.getProgress());
+        return ResponseEntity.ok(status);
     }
 
     @PostMapping("/deviceData")
-    public ResponseEntity<?> getDeviceData(@RequestBody Map<String, String> request) throws Exception {
+    public ResponseEntity<?> getDeviceData(@RequestBody Map<String, String> request,
+                                           @RequestParam(required = false) String format) throws Exception {
         // Get the initial pin from the request
         String initialPin = request.get("initialPin");
         String deviceId = request.get("deviceId");
@@ -205,7 +310,7 @@ public class WaterReadingController {
             default:
                 return ResponseEntity.badRequest().body("Invalid resolution specified.");
         }
-        return ResponseEntity.ok(readings);
+        return chartResponse(readings, format);
     }
 
 
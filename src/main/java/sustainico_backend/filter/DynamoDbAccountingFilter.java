@@ -0,0 +1,82 @@
+package sustainico_backend.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import sustainico_backend.util.DynamoDbCallTally;
+
+import java.io.IOException;
+import java.util.logging.Logger;
+
+// Opens a DynamoDbCallTally for every request, ahead of the security chain so the JWT user lookup is
+// counted too. Slow requests and requests over their call budget are logged with their totals;
+// with aws.dynamodb.accounting.response-headers=true the totals are also sent back as X-DynamoDB-* headers.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class DynamoDbAccountingFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = Logger.getLogger(DynamoDbAccountingFilter.class.getName());
+
+    @Value("${aws.dynamodb.accounting.enabled:true}")
+    private boolean enabled;
+
+    @Value("${aws.dynamodb.accounting.slow-request-ms:1000}")
+    private long slowRequestMillis;
+
+    @Value("${aws.dynamodb.accounting.response-headers:false}")
+    private boolean responseHeaders;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        DynamoDbCallTally tally = DynamoDbCallTally.begin();
+        HttpServletResponse target = response;
+        if (responseHeaders) {
+            // Headers have to go out before the body; calls made while streaming are not included
+            target = new OnCommittedResponseWrapper(response) {
+                @Override
+                protected void onResponseCommitted() {
+                    writeHeaders(tally, response);
+                }
+            };
+        }
+        try {
+            chain.doFilter(request, target);
+        } finally {
+            DynamoDbCallTally.end();
+            if (responseHeaders && !response.isCommitted()) {
+                writeHeaders(tally, response);
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            if (tally.isBudgetExceeded()) {
+                logger.warning(request.getMethod() + " " + request.getRequestURI() + " (" + tally.getEndpoint()
+                        + ") went over its budget of " + tally.getBudget() + " DynamoDB calls in " + millis + "ms: "
+                        + tally.summary());
+            } else if (millis >= slowRequestMillis && tally.getCalls() > 0) {
+                logger.info("Slow request " + request.getMethod() + " " + request.getRequestURI() + " took "
+                        + millis + "ms: " + tally.summary());
+            }
+        }
+    }
+
+    private void writeHeaders(DynamoDbCallTally tally, HttpServletResponse response) {
+        response.setHeader("X-DynamoDB-Calls", String.valueOf(tally.getCalls()));
+        response.setHeader("X-DynamoDB-Items-Read", String.valueOf(tally.getItemsRead()));
+        response.setHeader("X-DynamoDB-Items-Written", String.valueOf(tally.getItemsWritten()));
+        response.setHeader("X-DynamoDB-Read-Capacity", String.format("%.1f", tally.getReadCapacity()));
+        response.setHeader("X-DynamoDB-Write-Capacity", String.format("%.1f", tally.getWriteCapacity()));
+    }
+}
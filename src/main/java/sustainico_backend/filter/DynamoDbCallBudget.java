@@ -0,0 +1,15 @@
+package sustainico_backend.filter;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Most DynamoDB calls one request to this endpoint may make; over it, the request is logged
+// (aws.dynamodb.budget.mode=warn) or the offending call fails (fail, meant for tests)
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DynamoDbCallBudget {
+
+    int value();
+}
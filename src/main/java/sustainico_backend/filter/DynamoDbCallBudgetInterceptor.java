@@ -0,0 +1,39 @@
+package sustainico_backend.filter;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import sustainico_backend.util.DynamoDbCallTally;
+
+// Attaches the endpoint's @DynamoDbCallBudget (method first, then controller), or the default, to the request's tally
+@Component
+public class DynamoDbCallBudgetInterceptor implements HandlerInterceptor {
+
+    @Value("${aws.dynamodb.budget.mode:warn}")
+    private String mode;
+
+    // Applies to endpoints without @DynamoDbCallBudget; 0 leaves them unbudgeted
+    @Value("${aws.dynamodb.budget.default-max-calls:0}")
+    private int defaultMaxCalls;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        DynamoDbCallTally tally = DynamoDbCallTally.current();
+        if (tally == null || !(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        DynamoDbCallBudget budget = handlerMethod.getMethodAnnotation(DynamoDbCallBudget.class);
+        if (budget == null) {
+            budget = handlerMethod.getBeanType().getAnnotation(DynamoDbCallBudget.class);
+        }
+        int maxCalls = budget != null ? budget.value() : defaultMaxCalls;
+        if (maxCalls > 0) {
+            String endpoint = handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+            tally.setBudget(endpoint, maxCalls, DynamoDbCallTally.BudgetMode.valueOf(mode.toUpperCase()));
+        }
+        return true;
+    }
+}
@@ -0,0 +1,297 @@
+package sustainico_backend.rep;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import sustainico_backend.Models.NewWaterReading2;
+import sustainico_backend.Models.WaterReading;
+import sustainico_backend.util.ColdSegment;
+import sustainico_backend.util.ReadingBlockCodec;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+// Cold tier for raw readings: one segment file per table, device and IST month under water.cold.dir.
+// Segments are only ever replaced as a whole, so a mapped segment can be cached until its file changes.
+@Repository
+public class ColdSegmentStore {
+
+    public static final String WATER_READING = "waterReading";
+    public static final String NEW_WATER_READING_2 = "newWaterReading2";
+
+    private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    // Device ids that are safe as a file name are used as is; any other id is written as this prefix plus
+    // its URL-safe Base64 form. The prefix never appears in a plain name, so two ids never share a directory
+    private static final String ENCODED_ID_PREFIX = "~";
+
+    private static final List<String> WATER_READING_COLUMNS = List.of("timestamp", "flowReading");
+
+    // statusPresent/statusValue are bitmasks over the segment dictionary of status keys
+    private static final List<String> NEW_WATER_READING_2_COLUMNS =
+            List.of("timestamp", "liters", "milliliters", "statusPresent", "statusValue");
+
+    // File systems that do not outlive the container or host. Archived rows are deleted from DynamoDB,
+    // so segments written there would be the only copy and vanish on the next restart
+    private static final Set<String> EPHEMERAL_FILE_STORES = Set.of("tmpfs", "ramfs", "overlay", "aufs");
+
+    private record CachedSegment(FileTime modified, ColdSegment segment) {}
+
+    private final Map<Path, CachedSegment> openSegments = new ConcurrentHashMap<>();
+
+    @Value("${water.cold.dir:cold-segments}")
+    private String coldDir;
+
+    // Null when dir looks like persistent storage, otherwise the reason it does not
+    public static String ephemeralReason(Path dir) throws IOException {
+        Path absolute = dir.toAbsolutePath().normalize();
+        Path tempDir = Paths.get(System.getProperty("java.io.tmpdir")).toAbsolutePath().normalize();
+        if (absolute.startsWith(tempDir)) {
+            return absolute + " is under java.io.tmpdir";
+        }
+        Files.createDirectories(absolute);
+        String type = Files.getFileStore(absolute).type();
+        if (EPHEMERAL_FILE_STORES.contains(type)) {
+            return absolute + " is on a " + type + " file system";
+        }
+        return null;
+    }
+
+    public Path getRoot() {
+        return Paths.get(coldDir);
+    }
+
+    public static YearMonth monthOf(long epochSeconds) {
+        return YearMonth.from(Instant.ofEpochSecond(epochSeconds).atZone(IST));
+    }
+
+    public boolean hasSegments(String table, String deviceId) {
+        return Files.isDirectory(deviceDir(table, deviceId));
+    }
+
+    public List<YearMonth> findSegmentMonths(String table, String deviceId) {
+        return months(table, deviceId, Long.MIN_VALUE, Long.MAX_VALUE, false);
+    }
+
+    public long[] readTimestamps(String table, String deviceId, YearMonth month) {
+        ColdSegment segment = open(table, deviceId, month);
+        long[] timestamps = new long[segment.getRowCount()];
+        for (int row = 0; row < timestamps.length; row++) {
+            timestamps[row] = segment.getTimestamp(row);
+        }
+        return timestamps;
+    }
+
+    // Returns the number of bytes freed on disk
+    public long deleteSegment(String table, String deviceId, YearMonth month) {
+        Path path = segmentPath(table, deviceId, month);
+        try {
+            long size = Files.size(path);
+            Files.delete(path);
+            openSegments.remove(path);
+            return size;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete cold segment " + path, e);
+        }
+    }
+
+    // Readings with from <= timestamp <= to, at most limit of them, newest first when requested
+    public List<WaterReading> findWaterReadings(String deviceId, long from, long to, int limit, boolean newestFirst) {
+        List<WaterReading> readings = new ArrayList<>();
+        for (YearMonth month : months(WATER_READING, deviceId, from, to, newestFirst)) {
+            ColdSegment segment = open(WATER_READING, deviceId, month);
+            int flowColumn = segment.columnIndex("flowReading");
+            int[] rows = rowRange(segment, from, to);
+            for (int i = 0; i < rows[1] - rows[0] && readings.size() < limit; i++) {
+                int row = newestFirst ? rows[1] - 1 - i : rows[0] + i;
+                long timestamp = segment.getTimestamp(row);
+                readings.add(new WaterReading(deviceId, ReadingBlockCodec.fromMilliUnits(segment.get(flowColumn, row)),
+                        String.valueOf(timestamp), deviceId + "-" + timestamp));
+            }
+            if (readings.size() >= limit) {
+                break;
+            }
+        }
+        return readings;
+    }
+
+    // Ascending, both bounds inclusive
+    public List<NewWaterReading2> findNewWaterReading2(String deviceId, long from, long to) {
+        List<NewWaterReading2> readings = new ArrayList<>();
+        for (YearMonth month : months(NEW_WATER_READING_2, deviceId, from, to, false)) {
+            ColdSegment segment = open(NEW_WATER_READING_2, deviceId, month);
+            int litersColumn = segment.columnIndex("liters");
+            int millilitersColumn = segment.columnIndex("milliliters");
+            int presentColumn = segment.columnIndex("statusPresent");
+            int valueColumn = segment.columnIndex("statusValue");
+            List<String> statusKeys = segment.getDictionary();
+            int[] rows = rowRange(segment, from, to);
+            for (int row = rows[0]; row < rows[1]; row++) {
+                NewWaterReading2 reading = new NewWaterReading2();
+                reading.setDeviceId(deviceId);
+                reading.setTimestamp(String.valueOf(segment.getTimestamp(row)));
+                reading.setLiters(segment.get(litersColumn, row));
+                reading.setMilliliters(segment.get(millilitersColumn, row));
+                long present = segment.get(presentColumn, row);
+                if (present != 0) {
+                    long values = segment.get(valueColumn, row);
+                    Map<String, Boolean> status = new HashMap<>();
+                    for (int bit = 0; bit < statusKeys.size(); bit++) {
+                        if ((present & (1L << bit)) != 0) {
+                            status.put(statusKeys.get(bit), (values & (1L << bit)) != 0);
+                        }
+                    }
+                    reading.setStatus(status);
+                }
+                reading.generateReadingId();
+                readings.add(reading);
+            }
+        }
+        return readings;
+    }
+
+    // Merges the readings into the device-month segment; rows already archived for a timestamp are kept
+    public void archiveWaterReadings(String deviceId, YearMonth month, List<WaterReading> readings) {
+        TreeMap<Long, long[]> rows = new TreeMap<>();
+        Path path = segmentPath(WATER_READING, deviceId, month);
+        if (Files.exists(path)) {
+            ColdSegment existing = open(WATER_READING, deviceId, month);
+            for (int row = 0; row < existing.getRowCount(); row++) {
+                rows.put(existing.getTimestamp(row), new long[]{existing.getTimestamp(row), existing.get(1, row)});
+            }
+        }
+        for (WaterReading reading : readings) {
+            long timestamp = Long.parseLong(reading.getTimestamp());
+            rows.putIfAbsent(timestamp, new long[]{timestamp, ReadingBlockCodec.toMilliUnits(reading.getFlowReading())});
+        }
+        write(path, WATER_READING_COLUMNS, Collections.emptyList(), rows);
+    }
+
+    public void archiveNewWaterReading2(String deviceId, YearMonth month, List<NewWaterReading2> readings) {
+        List<String> statusKeys = new ArrayList<>();
+        TreeMap<Long, long[]> rows = new TreeMap<>();
+        Path path = segmentPath(NEW_WATER_READING_2, deviceId, month);
+        if (Files.exists(path)) {
+            // Existing rows are decoded back to status maps and re-encoded against the merged dictionary
+            long monthStart = month.atDay(1).atStartOfDay(IST).toEpochSecond();
+            long monthEnd = month.plusMonths(1).atDay(1).atStartOfDay(IST).toEpochSecond() - 1;
+            for (NewWaterReading2 reading : findNewWaterReading2(deviceId, monthStart, monthEnd)) {
+                rows.put(Long.parseLong(reading.getTimestamp()), toRow(reading, statusKeys));
+            }
+        }
+        for (NewWaterReading2 reading : readings) {
+            rows.putIfAbsent(Long.parseLong(reading.getTimestamp()), toRow(reading, statusKeys));
+        }
+        write(path, NEW_WATER_READING_2_COLUMNS, statusKeys, rows);
+    }
+
+    private long[] toRow(NewWaterReading2 reading, List<String> statusKeys) {
+        long present = 0;
+        long values = 0;
+        if (reading.getStatus() != null) {
+            for (Map.Entry<String, Boolean> entry : reading.getStatus().entrySet()) {
+                int bit = statusKeys.indexOf(entry.getKey());
+                if (bit < 0) {
+                    bit = statusKeys.size();
+                    if (bit >= Long.SIZE) {
+                        throw new IllegalArgumentException("Too many distinct status keys for device " + reading.getDeviceId());
+                    }
+                    statusKeys.add(entry.getKey());
+                }
+                present |= 1L << bit;
+                if (Boolean.TRUE.equals(entry.getValue())) {
+                    values |= 1L << bit;
+                }
+            }
+        }
+        return new long[]{Long.parseLong(reading.getTimestamp()), reading.getLiters(), reading.getMilliliters(), present, values};
+    }
+
+    private void write(Path path, List<String> columns, List<String> dictionary, TreeMap<Long, long[]> rows) {
+        long[][] data = new long[columns.size()][rows.size()];
+        int row = 0;
+        for (long[] values : rows.values()) {
+            for (int column = 0; column < columns.size(); column++) {
+                data[column][row] = values[column];
+            }
+            row++;
+        }
+        try {
+            ColdSegment.write(path, columns, dictionary, data, rows.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write cold segment " + path, e);
+        }
+        openSegments.remove(path);
+    }
+
+    private ColdSegment open(String table, String deviceId, YearMonth month) {
+        Path path = segmentPath(table, deviceId, month);
+        try {
+            FileTime modified = Files.getLastModifiedTime(path);
+            CachedSegment cached = openSegments.get(path);
+            if (cached == null || !cached.modified().equals(modified)) {
+                cached = new CachedSegment(modified, ColdSegment.open(path));
+                openSegments.put(path, cached);
+            }
+            return cached.segment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open cold segment " + path, e);
+        }
+    }
+
+    private int[] rowRange(ColdSegment segment, long from, long to) {
+        int start = segment.lowerBound(from);
+        int end = to == Long.MAX_VALUE ? segment.getRowCount() : segment.lowerBound(to + 1);
+        return new int[]{start, Math.max(start, end)};
+    }
+
+    // Months with a segment on disk that overlap [from, to]
+    private List<YearMonth> months(String table, String deviceId, long from, long to, boolean newestFirst) {
+        Path dir = deviceDir(table, deviceId);
+        if (!Files.isDirectory(dir) || from > to) {
+            return Collections.emptyList();
+        }
+        YearMonth first = from == Long.MIN_VALUE ? YearMonth.of(0, 1) : monthOf(from);
+        YearMonth last = to == Long.MAX_VALUE ? YearMonth.of(9999, 12) : monthOf(to);
+        List<YearMonth> months = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> YearMonth.parse(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .filter(month -> !month.isBefore(first) && !month.isAfter(last))
+                    .forEach(months::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list cold segments in " + dir, e);
+        }
+        months.sort(newestFirst ? Comparator.reverseOrder() : Comparator.naturalOrder());
+        return months;
+    }
+
+    static String deviceDirName(String deviceId) {
+        if (!deviceId.isEmpty() && deviceId.matches("[A-Za-z0-9_-]+")) {
+            return deviceId;
+        }
+        return ENCODED_ID_PREFIX + Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(deviceId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Path deviceDir(String table, String deviceId) {
+        return Paths.get(coldDir, table, deviceDirName(deviceId));
+    }
+
+    private Path segmentPath(String table, String deviceId, YearMonth month) {
+        return deviceDir(table, deviceId).resolve(month + SEGMENT_SUFFIX);
+    }
+}
@@ -0,0 +1,61 @@
+package sustainico_backend.rep;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ConditionalOperator;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import sustainico_backend.Models.DailyLeakMetrics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class DailyLeakMetricsRepository {
+
+    @Autowired
+    private DynamoDBMapper dynamoDBMapper;
+
+    public DailyLeakMetrics findByDay(String deviceId, String day) {
+        return dynamoDBMapper.load(DailyLeakMetrics.class, deviceId, day);
+    }
+
+    // Lands only over a missing row or one with an older lastTimestamp; returns false when the stored
+    // row has already seen this far, e.g. because another node wrote it
+    public boolean saveIfNewer(DailyLeakMetrics metrics) {
+        DynamoDBSaveExpression saveExpression = new DynamoDBSaveExpression()
+                .withExpectedEntry("deviceId", new ExpectedAttributeValue(false))
+                .withExpectedEntry("lastTimestamp", new ExpectedAttributeValue()
+                        .withComparisonOperator(ComparisonOperator.LT)
+                        .withAttributeValueList(new AttributeValue().withN(String.valueOf(metrics.getLastTimestamp()))))
+                .withConditionalOperator(ConditionalOperator.OR);
+        try {
+            dynamoDBMapper.save(metrics, saveExpression);
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    // Both days inclusive, yyyy-MM-dd
+    public List<DailyLeakMetrics> findBetween(String deviceId, String fromDay, String toDay) {
+        Map<String, AttributeValue> eav = new HashMap<>();
+        eav.put(":v1", new AttributeValue().withS(deviceId));
+        eav.put(":from", new AttributeValue().withS(fromDay));
+        eav.put(":to", new AttributeValue().withS(toDay));
+
+        DynamoDBQueryExpression<DailyLeakMetrics> queryExpression = new DynamoDBQueryExpression<DailyLeakMetrics>()
+                .withKeyConditionExpression("deviceId = :v1 and #day between :from and :to")
+                .withExpressionAttributeNames(Collections.singletonMap("#day", "day"))
+                .withExpressionAttributeValues(eav);
+
+        return dynamoDBMapper.query(DailyLeakMetrics.class, queryExpression);
+    }
+}
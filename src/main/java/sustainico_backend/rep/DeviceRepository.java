@@ -15,18 +15,26 @@ public class DeviceRepository {
 
     private final DynamoDBMapper dynamoDBMapper;
 
+    @Autowired
+    private EntityCache<Device> deviceCache;
+
     @Autowired
     public DeviceRepository(DynamoDBMapper dynamoDBMapper) {
         this.dynamoDBMapper = dynamoDBMapper;
     }
 
+    // Invalidated even when the write fails, since callers edit the cached instance before saving
     public Device save(Device device) {
-        dynamoDBMapper.save(device);
+        try {
+            dynamoDBMapper.save(device);
+        } finally {
+            deviceCache.invalidate(device.getDeviceId());
+        }
         return device;
     }
 
     public Optional<Device> findByDeviceId(String deviceId) {
-        return Optional.ofNullable(dynamoDBMapper.load(Device.class, deviceId));
+        return Optional.ofNullable(deviceCache.get(deviceId, id -> dynamoDBMapper.load(Device.class, id)));
     }
 
     public List<Device> findAll(){
@@ -36,7 +44,11 @@ public class DeviceRepository {
     }
 
     public void delete(Device device) {
-        dynamoDBMapper.delete(device);
+        try {
+            dynamoDBMapper.delete(device);
+        } finally {
+            deviceCache.invalidate(device.getDeviceId());
+        }
     }
 
 }
@@ -0,0 +1,122 @@
+package sustainico_backend.rep;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchGetItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.ReadBatch;
+import software.amazon.awssdk.enhanced.dynamodb.model.WriteBatch;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Batch helpers shared by the async repositories. Chunks go out concurrently and nothing blocks:
+// backoff between retries of unprocessed items is a delayed continuation, not a sleeping thread.
+@Component
+@ConditionalOnProperty(name = "aws.dynamodb.mode", havingValue = "remote", matchIfMissing = true)
+public class DynamoDbAsyncSupport {
+
+    public static final int MAX_BATCH_WRITE = 25;
+    public static final int MAX_BATCH_GET = 100;
+
+    private static final long MAX_BACKOFF_MS = 2000;
+
+    private final DynamoDbEnhancedAsyncClient enhancedClient;
+
+    // Same knobs as DynamoDbBatchWriter, so both paths retry alike
+    @Value("${dynamodb.batch.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${dynamodb.batch.base-backoff-ms:50}")
+    private long baseBackoffMs;
+
+    @Autowired
+    public DynamoDbAsyncSupport(DynamoDbEnhancedAsyncClient enhancedClient) {
+        this.enhancedClient = enhancedClient;
+    }
+
+    public DynamoDbEnhancedAsyncClient client() {
+        return enhancedClient;
+    }
+
+    // Items are delivered one at a time, so a plain list is enough
+    public static <T> CompletableFuture<List<T>> collect(SdkPublisher<T> items) {
+        List<T> collected = new ArrayList<>();
+        return items.subscribe(collected::add).thenApply(done -> collected);
+    }
+
+    // Completes with the items still unwritten after maxAttempts rounds; empty when everything landed
+    public <T> CompletableFuture<List<T>> putAll(DynamoDbAsyncTable<T> table, List<T> items) {
+        List<CompletableFuture<List<T>>> chunks = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += MAX_BATCH_WRITE) {
+            chunks.add(putChunk(table, List.copyOf(items.subList(i, Math.min(i + MAX_BATCH_WRITE, items.size()))), 0));
+        }
+        return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).thenApply(done -> {
+            List<T> unwritten = new ArrayList<>();
+            chunks.forEach(chunk -> unwritten.addAll(chunk.join()));
+            return unwritten;
+        });
+    }
+
+    // The enhanced publisher asks again for unprocessed keys page by page; duplicate keys must be removed by the caller
+    public <T> CompletableFuture<List<T>> getAll(DynamoDbAsyncTable<T> table, List<Key> keys) {
+        List<CompletableFuture<List<T>>> chunks = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i += MAX_BATCH_GET) {
+            ReadBatch.Builder<T> batch = ReadBatch.builder(table.tableSchema().itemType().rawClass())
+                    .mappedTableResource(table);
+            keys.subList(i, Math.min(i + MAX_BATCH_GET, keys.size())).forEach(batch::addGetItem);
+            chunks.add(collect(enhancedClient.batchGetItem(BatchGetItemEnhancedRequest.builder()
+                    .readBatches(batch.build())
+                    .build()).resultsForTable(table)));
+        }
+        return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).thenApply(done -> {
+            List<T> found = new ArrayList<>();
+            chunks.forEach(chunk -> found.addAll(chunk.join()));
+            return found;
+        });
+    }
+
+    // For exceptionally() after a conditional write: false when the condition failed, otherwise rethrows
+    public static boolean conditionFailed(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof ConditionalCheckFailedException) {
+            return false;
+        }
+        throw error instanceof CompletionException completion ? completion : new CompletionException(cause);
+    }
+
+    private <T> CompletableFuture<List<T>> putChunk(DynamoDbAsyncTable<T> table, List<T> chunk, int attempt) {
+        WriteBatch.Builder<T> batch = WriteBatch.builder(table.tableSchema().itemType().rawClass())
+                .mappedTableResource(table);
+        chunk.forEach(batch::addPutItem);
+        return enhancedClient.batchWriteItem(BatchWriteItemEnhancedRequest.builder()
+                        .writeBatches(batch.build())
+                        .build())
+                .thenCompose(result -> {
+                    List<T> unprocessed = result.unprocessedPutItemsForTable(table);
+                    if (unprocessed.isEmpty() || attempt + 1 >= maxAttempts) {
+                        return CompletableFuture.completedFuture(unprocessed);
+                    }
+                    return CompletableFuture.runAsync(() -> { }, backoff(attempt))
+                            .thenCompose(ready -> putChunk(table, unprocessed, attempt + 1));
+                });
+    }
+
+    private Executor backoff(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MS, baseBackoffMs << Math.min(attempt, 16));
+        return CompletableFuture.delayedExecutor(
+                ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1), TimeUnit.MILLISECONDS);
+    }
+}
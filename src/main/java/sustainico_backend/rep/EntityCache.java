@@ -0,0 +1,60 @@
+package sustainico_backend.rep;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperTableModel;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Function;
+
+// Bounded read-through cache for metadata rows that are read on nearly every request and rarely
+// written (devices, homes, users). The owning repository drops the entry on every save and delete;
+// other nodes pick up a change once the TTL runs out. Missing rows are not cached, so a device
+// registered elsewhere is found straight away.
+// Entries are kept as the row's attribute map and every get unconverts a fresh object, so a caller
+// that edits what it got (and maybe never saves it) cannot change what the next caller reads.
+// Hit/miss/eviction counts are published as cache.gets / cache.evictions tagged cache=<name>.
+public class EntityCache<T> {
+
+    private final Cache<String, Map<String, AttributeValue>> cache;
+
+    private final DynamoDBMapperTableModel<T> tableModel;
+
+    public EntityCache(String name, DynamoDBMapperTableModel<T> tableModel, long maxSize, Duration ttl,
+                       MeterRegistry meterRegistry) {
+        this.tableModel = tableModel;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+    }
+
+    // loader may return null for a missing row; that result goes back to the caller uncached
+    public T get(String key, Function<String, T> loader) {
+        if (key == null) {
+            return loader.apply(null);
+        }
+        Map<String, AttributeValue> snapshot = cache.get(key, missing -> {
+            T loaded = loader.apply(missing);
+            return loaded != null ? Collections.unmodifiableMap(tableModel.convert(loaded)) : null;
+        });
+        return snapshot != null ? tableModel.unconvert(snapshot) : null;
+    }
+
+    public void invalidate(String key) {
+        if (key != null) {
+            cache.invalidate(key);
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,236 @@
+package sustainico_backend.rep;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.amazonaws.services.dynamodbv2.model.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import sustainico_backend.Models.Device;
+import sustainico_backend.Models.DeviceArray;
+import sustainico_backend.Models.DeviceArrayListConverter;
+import sustainico_backend.Models.Home;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.UnaryOperator;
+import java.util.logging.Logger;
+
+// Writes that change a device together with the devices lists of its homes (rename, move, delete).
+// Home.devices is one Gson JSON string, so an entry cannot be updated in place: each attempt reads
+// the homes in one consistent BatchGetItem, edits the lists, and writes every changed home plus the
+// device row in one TransactWriteItems, each home conditioned on still holding the JSON that was read.
+// A concurrent edit cancels the transaction and the attempt is redone on fresh data, so nothing is
+// lost and nothing is half applied. Two round trips for a device in up to 99 homes. Beyond that the
+// reads go in BatchGetItem chunks of 100 keys and the writes in transactions of 100 actions; each chunk
+// is still all or nothing, and as every edit is idempotent a conflict in a later chunk just redoes the
+// attempt, where the homes an earlier chunk already changed come out unchanged and are skipped.
+@Repository
+public class HomeDevicesRepository {
+
+    private static final int MAX_ATTEMPTS = 5;
+
+    private static final int MAX_TRANSACTION_ITEMS = 100;
+    private static final int MAX_BATCH_GET_KEYS = 100;
+    private static final long MAX_BACKOFF_MS = 2000;
+
+    private static final String HOME_TABLE = Home.class.getAnnotation(DynamoDBTable.class).tableName();
+    private static final String DEVICE_TABLE = Device.class.getAnnotation(DynamoDBTable.class).tableName();
+
+    private static final DeviceArrayListConverter DEVICES_CONVERTER = new DeviceArrayListConverter();
+
+    private static final Logger logger = Logger.getLogger(HomeDevicesRepository.class.getName());
+
+    private final AmazonDynamoDB amazonDynamoDB;
+
+    private final DynamoDBMapper dynamoDBMapper;
+
+    @Autowired
+    private EntityCache<Device> deviceCache;
+
+    @Autowired
+    private EntityCache<Home> homeCache;
+
+    // Same retry budget as DynamoDbBatchWriter, for keys BatchGetItem hands back unprocessed
+    @Value("${dynamodb.batch.max-attempts:5}")
+    private int maxBatchAttempts;
+
+    @Value("${dynamodb.batch.base-backoff-ms:50}")
+    private long baseBackoffMs;
+
+    @Autowired
+    public HomeDevicesRepository(AmazonDynamoDB amazonDynamoDB, DynamoDBMapper dynamoDBMapper) {
+        this.amazonDynamoDB = amazonDynamoDB;
+        this.dynamoDBMapper = dynamoDBMapper;
+    }
+
+    // How one home's devices list changes; the edit may throw IllegalArgumentException to abort
+    private record HomeEdit(String notFoundMessage, UnaryOperator<List<DeviceArray>> edit) {}
+
+    public void renameDevice(String deviceId, Collection<String> homeIds, String newName) {
+        Map<String, HomeEdit> edits = new LinkedHashMap<>();
+        for (String homeId : homeIds) {
+            edits.put(homeId, new HomeEdit("Home not found", devices -> {
+                devices.stream()
+                        .filter(device -> deviceId.equals(device.getDeviceId()))
+                        .findFirst()
+                        .ifPresent(device -> device.setDeviceName(newName));
+                return devices;
+            }));
+        }
+        // A null name removes the attribute, as a mapper save would
+        Update rename = new Update()
+                .withTableName(DEVICE_TABLE)
+                .withKey(Map.of("deviceId", new AttributeValue(deviceId)))
+                .withConditionExpression("attribute_exists(deviceId)")
+                .withExpressionAttributeNames(Map.of("#name", "deviceName"));
+        if (newName != null) {
+            rename.withUpdateExpression("SET #name = :name")
+                    .withExpressionAttributeValues(Map.of(":name", new AttributeValue(newName)));
+        } else {
+            rename.withUpdateExpression("REMOVE #name");
+        }
+        write(deviceId, edits, new TransactWriteItem().withUpdate(rename));
+    }
+
+    public void moveDevice(String deviceId, String currentHomeId, String newHomeId, String deviceName) {
+        Map<String, HomeEdit> edits = new LinkedHashMap<>();
+        edits.put(currentHomeId, new HomeEdit("Current home not found", devices -> {
+            if (!devices.removeIf(device -> deviceId.equals(device.getDeviceId()))) {
+                throw new IllegalArgumentException("Device not found in the current home");
+            }
+            return devices;
+        }));
+        UnaryOperator<List<DeviceArray>> add = devices -> {
+            devices.add(new DeviceArray(deviceId, deviceName));
+            return devices;
+        };
+        // A transaction may touch an item only once, so a move within one home is a single edit
+        edits.merge(newHomeId, new HomeEdit("New home not found", add),
+                (remove, ignored) -> new HomeEdit(remove.notFoundMessage(), devices -> add.apply(remove.edit().apply(devices))));
+        write(deviceId, edits, null);
+    }
+
+    // Saves the device as given and drops it from the devices list of each of homeIds
+    public void detachDevice(Device device, Collection<String> homeIds) {
+        Map<String, HomeEdit> edits = new LinkedHashMap<>();
+        for (String homeId : homeIds) {
+            edits.put(homeId, new HomeEdit("Home not found", devices -> {
+                devices.removeIf(entry -> device.getDeviceId().equals(entry.getDeviceId()));
+                return devices;
+            }));
+        }
+        Put save = new Put()
+                .withTableName(DEVICE_TABLE)
+                .withItem(dynamoDBMapper.getTableModel(Device.class).convert(device))
+                .withConditionExpression("attribute_exists(deviceId)");
+        write(device.getDeviceId(), edits, new TransactWriteItem().withPut(save));
+    }
+
+    private void write(String deviceId, Map<String, HomeEdit> edits, TransactWriteItem deviceWrite) {
+        try {
+            for (int attempt = 1; ; attempt++) {
+                List<TransactWriteItem> items = new ArrayList<>();
+                if (deviceWrite != null) {
+                    items.add(deviceWrite);
+                }
+                Map<String, Map<String, AttributeValue>> homes = loadHomes(edits.keySet());
+                for (Map.Entry<String, HomeEdit> edit : edits.entrySet()) {
+                    Map<String, AttributeValue> home = homes.get(edit.getKey());
+                    if (home == null) {
+                        throw new IllegalArgumentException(edit.getValue().notFoundMessage());
+                    }
+                    TransactWriteItem update = homeUpdate(edit.getKey(), home.get("devices"), edit.getValue().edit());
+                    if (update != null) {
+                        items.add(update);
+                    }
+                }
+                if (items.isEmpty()) {
+                    return;
+                }
+                try {
+                    for (int i = 0; i < items.size(); i += MAX_TRANSACTION_ITEMS) {
+                        amazonDynamoDB.transactWriteItems(new TransactWriteItemsRequest()
+                                .withTransactItems(items.subList(i, Math.min(i + MAX_TRANSACTION_ITEMS, items.size()))));
+                    }
+                    return;
+                } catch (TransactionCanceledException e) {
+                    boolean conflict = e.getCancellationReasons() != null && e.getCancellationReasons().stream()
+                            .anyMatch(reason -> "ConditionalCheckFailed".equals(reason.getCode())
+                                    || "TransactionConflict".equals(reason.getCode()));
+                    if (!conflict || attempt >= MAX_ATTEMPTS) {
+                        throw e;
+                    }
+                    logger.info("Homes of device " + deviceId + " changed concurrently, retrying (attempt " + attempt + ")");
+                }
+            }
+        } finally {
+            deviceCache.invalidate(deviceId);
+            edits.keySet().forEach(homeCache::invalidate);
+        }
+    }
+
+    // null when the edit leaves the list as it was
+    private TransactWriteItem homeUpdate(String homeId, AttributeValue current, UnaryOperator<List<DeviceArray>> edit) {
+        String currentJson = current != null ? current.getS() : null;
+        List<DeviceArray> devices = currentJson != null ? DEVICES_CONVERTER.unconvert(currentJson) : null;
+        String editedJson = DEVICES_CONVERTER.convert(edit.apply(devices != null ? devices : new ArrayList<>()));
+        if (editedJson.equals(currentJson)) {
+            return null;
+        }
+
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":devices", new AttributeValue(editedJson));
+        String condition = "attribute_exists(homeId) AND attribute_not_exists(devices)";
+        if (currentJson != null) {
+            condition = "attribute_exists(homeId) AND devices = :read";
+            values.put(":read", new AttributeValue(currentJson));
+        }
+        return new TransactWriteItem().withUpdate(new Update()
+                .withTableName(HOME_TABLE)
+                .withKey(Map.of("homeId", new AttributeValue(homeId)))
+                .withUpdateExpression("SET devices = :devices")
+                .withConditionExpression(condition)
+                .withExpressionAttributeValues(values));
+    }
+
+    // Consistent reads straight from the table: the metadata cache may be behind another node's write
+    private Map<String, Map<String, AttributeValue>> loadHomes(Collection<String> homeIds) {
+        Map<String, Map<String, AttributeValue>> homes = new HashMap<>();
+        List<Map<String, AttributeValue>> keys = new ArrayList<>();
+        homeIds.forEach(homeId -> keys.add(Map.of("homeId", new AttributeValue(homeId))));
+        for (int i = 0; i < keys.size(); i += MAX_BATCH_GET_KEYS) {
+            Map<String, KeysAndAttributes> request = new HashMap<>();
+            request.put(HOME_TABLE, new KeysAndAttributes()
+                    .withKeys(keys.subList(i, Math.min(i + MAX_BATCH_GET_KEYS, keys.size())))
+                    .withProjectionExpression("homeId, devices")
+                    .withConsistentRead(true));
+
+            for (int attempt = 0; !request.isEmpty(); attempt++) {
+                if (attempt > 0) {
+                    if (attempt >= maxBatchAttempts) {
+                        throw new IllegalStateException("Homes still unread after " + attempt + " attempts: "
+                                + request.get(HOME_TABLE).getKeys().size() + " keys left unprocessed");
+                    }
+                    sleepBackoff(attempt - 1);
+                }
+                BatchGetItemResult result = amazonDynamoDB.batchGetItem(new BatchGetItemRequest().withRequestItems(request));
+                result.getResponses().getOrDefault(HOME_TABLE, List.of())
+                        .forEach(item -> homes.put(item.get("homeId").getS(), item));
+                request = result.getUnprocessedKeys() != null ? result.getUnprocessedKeys() : Map.of();
+            }
+        }
+        return homes;
+    }
+
+    private void sleepBackoff(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MS, baseBackoffMs << Math.min(attempt, 16));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading homes", e);
+        }
+    }
+}
@@ -11,7 +11,6 @@ import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import sustainico_backend.Models.Home;
-import sustainico_backend.Models.UserHomes;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -33,6 +32,12 @@ public class HomeRepository {
     @Autowired
     public WaterReadingRepository waterReadingRepository;
 
+    @Autowired
+    private EntityCache<Home> homeCache;
+
+    @Autowired
+    private UserHomesRepository userHomesRepository;
+
 
 //    public Home save(Home home) {
 //        home.calculateBaselineUsage();
@@ -40,58 +45,37 @@ public class HomeRepository {
 //        return home;
 //    }
 
+    // The cache entry is dropped even when the write fails, since callers edit the cached instance before saving
     public Home save(Home home) {
         home.calculateBaselineUsage();
-        dynamoDBMapper.save(home);
-
-        String userId = home.getUserId(); // Assuming Home object has getUserId method
-        String homeId = home.getHomeId(); // Assuming Home object has getHomeId method
-
-        // Retrieve the existing UserHomes object
-        UserHomes userHomes = dynamoDBMapper.load(UserHomes.class, userId);
-
-        // If the UserHomes object doesn't exist, create a new one
-        if (userHomes == null) {
-            userHomes = new UserHomes();
-            userHomes.setUserId(userId);
-            userHomes.setHomes(new ArrayList<>());
-        }
-
-        // Add the homeId to the homes list
-        List<String> homes = userHomes.getHomes();
-        if (homes == null) {
-            homes = new ArrayList<>();
+        try {
+            dynamoDBMapper.save(home);
+        } finally {
+            homeCache.invalidate(home.getHomeId());
         }
-        homes.add(homeId);
-
-        userHomes.setHomes(homes);
-
-        // Save the updated UserHomes object
-        dynamoDBMapper.save(userHomes);
+        return home;
+    }
 
+    // Saves a new home and lists it under its user; plain updates go through save and leave UserHomes alone
+    public Home create(Home home) {
+        save(home);
+        userHomesRepository.addHome(home.getUserId(), home.getHomeId());
         return home;
     }
 
     public Home findByHomeId(String homeId) {
-        return dynamoDBMapper.load(Home.class, homeId);
+        return homeCache.get(homeId, id -> dynamoDBMapper.load(Home.class, id));
     }
 
     public void delete(Home home) {
-        // Fetch the UserHomes object for the given userId
-        UserHomes userHomes = dynamoDBMapper.load(UserHomes.class, home.getUserId());
-
-        if (userHomes != null && userHomes.getHomes() != null) {
-            // Remove the homeId from the homes array
-            List<String> homes = userHomes.getHomes();
-            homes.remove(home.getHomeId());
-
-            // Save the updated UserHomes object
-            userHomes.setHomes(homes);
-            dynamoDBMapper.save(userHomes);
-        }
+        userHomesRepository.removeHome(home.getUserId(), home.getHomeId());
 
         // Delete the home from the Home table
-        dynamoDBMapper.delete(home);
+        try {
+            dynamoDBMapper.delete(home);
+        } finally {
+            homeCache.invalidate(home.getHomeId());
+        }
     }
 
 //    public List<Home> findHomeByUserId(String userId) {
@@ -0,0 +1,884 @@
+package sustainico_backend.rep;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.HandlerBeforeAttemptContext;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.*;
+import sustainico_backend.util.DynamoDbExpression;
+import sustainico_backend.util.DynamoDbExpression.Between;
+import sustainico_backend.util.DynamoDbExpression.Compare;
+import sustainico_backend.util.DynamoDbExpression.PathOperand;
+import sustainico_backend.util.DynamoDbExpression.Predicate;
+import sustainico_backend.util.DynamoDbExpression.UpdateAction;
+import sustainico_backend.util.DynamoDbExpression.ValueOperand;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// AmazonDynamoDB client backed by in-process tables, selected with aws.dynamodb.mode=memory so the
+// mapper and every repository run unchanged without a network. Supports the calls this code base
+// makes: item reads and (conditional) writes, key-condition queries on tables and indexes, scans
+// (including parallel segments), batch get/write and transactions, with DynamoDB's paging rules
+// (Limit, 1 MB pages, LastEvaluatedKey). Latency, throttling and unprocessed batch items can be
+// injected to see how the service layer behaves under a slow or overloaded table. Consumed capacity
+// is reported with DynamoDB's billing rules, so capacity hot spots show up without a real table.
+public class InMemoryDynamoDB extends AbstractAmazonDynamoDB {
+
+    private static final long MAX_PAGE_BYTES = 1024 * 1024;
+    private static final long MAX_ITEM_BYTES = 400 * 1024;
+    private static final int MAX_BATCH_GET_KEYS = 100;
+    private static final int MAX_BATCH_WRITE_REQUESTS = 25;
+    private static final int MAX_TRANSACTION_ITEMS = 100;
+
+    private final Map<String, InMemoryTable> tables = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> callCounts = new ConcurrentHashMap<>();
+    private final List<RequestHandler2> requestHandlers = new CopyOnWriteArrayList<>();
+
+    private final long latencyMs;
+    private final long latencyJitterMs;
+    private final double throttleRate;
+    private final double unprocessedRate;
+
+    public InMemoryDynamoDB() {
+        this(0, 0, 0, 0);
+    }
+
+    // throttleRate: share of single-item, query and scan calls failing with
+    // ProvisionedThroughputExceededException; unprocessedRate: share of batch items handed back
+    public InMemoryDynamoDB(long latencyMs, long latencyJitterMs, double throttleRate, double unprocessedRate) {
+        this.latencyMs = latencyMs;
+        this.latencyJitterMs = latencyJitterMs;
+        this.throttleRate = throttleRate;
+        this.unprocessedRate = unprocessedRate;
+    }
+
+    // Same hook as AmazonDynamoDBClientBuilder.withRequestHandlers, so client instrumentation works in memory mode
+    public InMemoryDynamoDB withRequestHandlers(RequestHandler2... handlers) {
+        requestHandlers.addAll(Arrays.asList(handlers));
+        return this;
+    }
+
+    public Map<String, Long> getCallCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        callCounts.forEach((operation, count) -> counts.put(operation, count.sum()));
+        return counts;
+    }
+
+    // ---- tables ----
+
+    @Override
+    public CreateTableResult createTable(CreateTableRequest originalRequest) {
+        return execute("CreateTable", originalRequest, false, request -> {
+            InMemoryTable table = new InMemoryTable(request);
+            if (tables.putIfAbsent(table.name, table) != null) {
+                throw error(new ResourceInUseException("Table already exists: " + table.name));
+            }
+            return new CreateTableResult().withTableDescription(describe(table));
+        });
+    }
+
+    @Override
+    public DescribeTableResult describeTable(DescribeTableRequest originalRequest) {
+        return execute("DescribeTable", originalRequest, false, request -> {
+            return new DescribeTableResult().withTable(describe(table(request.getTableName())));
+        });
+    }
+
+    @Override
+    public ListTablesResult listTables(ListTablesRequest originalRequest) {
+        return execute("ListTables", originalRequest, false, request -> {
+            List<String> names = new ArrayList<>(new TreeSet<>(tables.keySet()));
+            if (request.getExclusiveStartTableName() != null) {
+                names.removeIf(name -> name.compareTo(request.getExclusiveStartTableName()) <= 0);
+            }
+            int limit = request.getLimit() != null ? request.getLimit() : 100;
+            ListTablesResult result = new ListTablesResult().withTableNames(names.subList(0, Math.min(limit, names.size())));
+            if (names.size() > limit) {
+                result.setLastEvaluatedTableName(names.get(limit - 1));
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public DeleteTableResult deleteTable(DeleteTableRequest originalRequest) {
+        return execute("DeleteTable", originalRequest, false, request -> {
+            InMemoryTable table = tables.remove(request.getTableName());
+            if (table == null) {
+                throw notFound(request.getTableName());
+            }
+            return new DeleteTableResult().withTableDescription(describe(table).withTableStatus(TableStatus.DELETING));
+        });
+    }
+
+    // ---- single items ----
+
+    @Override
+    public GetItemResult getItem(GetItemRequest originalRequest) {
+        return execute("GetItem", originalRequest, true, request -> {
+            InMemoryTable table = table(request.getTableName());
+            Map<String, AttributeValue> item = table.get(request.getKey());
+            return new GetItemResult()
+                    .withItem(copyOut(item, projection(request.getProjectionExpression(),
+                            request.getExpressionAttributeNames(), request.getAttributesToGet())))
+                    .withConsumedCapacity(consumed(request.getReturnConsumedCapacity(), table.name,
+                            readUnits(sizeOf(item), request.getConsistentRead())));
+        });
+    }
+
+    @Override
+    public PutItemResult putItem(PutItemRequest originalRequest) {
+        return execute("PutItem", originalRequest, true, request -> {
+            InMemoryTable table = table(request.getTableName());
+            checkItemSize(request.getItem());
+            Predicate condition = condition(request.getConditionExpression(), request.getExpressionAttributeNames(),
+                    request.getExpressionAttributeValues(), request.getExpected(), request.getConditionalOperator());
+            Map<String, AttributeValue> previous = locked(table, () -> {
+                Map<String, AttributeValue> existing = table.get(table.keyOf(request.getItem()));
+                checkCondition(condition, existing);
+                return table.put(request.getItem());
+            });
+            PutItemResult result = new PutItemResult().withConsumedCapacity(consumed(request.getReturnConsumedCapacity(),
+                    table.name, writeUnits(Math.max(sizeOf(previous), sizeOf(request.getItem())))));
+            if (ReturnValue.ALL_OLD.toString().equals(request.getReturnValues())) {
+                result.setAttributes(copyOut(previous, null));
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public UpdateItemResult updateItem(UpdateItemRequest originalRequest) {
+        return execute("UpdateItem", originalRequest, true, request -> {
+            InMemoryTable table = table(request.getTableName());
+            table.validateKey(request.getKey());
+            Predicate condition = condition(request.getConditionExpression(), request.getExpressionAttributeNames(),
+                    request.getExpressionAttributeValues(), request.getExpected(), request.getConditionalOperator());
+            List<UpdateAction> actions = request.getUpdateExpression() != null
+                    ? DynamoDbExpression.parseUpdate(request.getUpdateExpression(), request.getExpressionAttributeNames(),
+                            request.getExpressionAttributeValues())
+                    : DynamoDbExpression.fromAttributeUpdates(
+                            request.getAttributeUpdates() != null ? request.getAttributeUpdates() : Map.of());
+
+            Map<String, AttributeValue>[] oldAndNew = locked(table, () -> {
+                Map<String, AttributeValue> existing = table.get(request.getKey());
+                checkCondition(condition, existing);
+                Map<String, AttributeValue> updated = applyUpdate(table, request.getKey(), existing, actions);
+                table.put(updated);
+                @SuppressWarnings("unchecked")
+                Map<String, AttributeValue>[] pair = new Map[]{existing, updated};
+                return pair;
+            });
+
+            UpdateItemResult result = new UpdateItemResult().withConsumedCapacity(consumed(request.getReturnConsumedCapacity(),
+                    table.name, writeUnits(Math.max(sizeOf(oldAndNew[0]), sizeOf(oldAndNew[1])))));
+            String returnValues = request.getReturnValues() != null ? request.getReturnValues() : ReturnValue.NONE.toString();
+            Set<String> touched = touchedAttributes(actions);
+            switch (ReturnValue.fromValue(returnValues)) {
+                case ALL_OLD -> result.setAttributes(copyOut(oldAndNew[0], null));
+                case ALL_NEW -> result.setAttributes(copyOut(oldAndNew[1], null));
+                case UPDATED_OLD -> result.setAttributes(onlyAttributes(oldAndNew[0], touched));
+                case UPDATED_NEW -> result.setAttributes(onlyAttributes(oldAndNew[1], touched));
+                default -> { }
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public DeleteItemResult deleteItem(DeleteItemRequest originalRequest) {
+        return execute("DeleteItem", originalRequest, true, request -> {
+            InMemoryTable table = table(request.getTableName());
+            Predicate condition = condition(request.getConditionExpression(), request.getExpressionAttributeNames(),
+                    request.getExpressionAttributeValues(), request.getExpected(), request.getConditionalOperator());
+            Map<String, AttributeValue> removed = locked(table, () -> {
+                checkCondition(condition, table.get(request.getKey()));
+                return table.remove(request.getKey());
+            });
+            DeleteItemResult result = new DeleteItemResult().withConsumedCapacity(consumed(request.getReturnConsumedCapacity(),
+                    table.name, writeUnits(sizeOf(removed))));
+            if (ReturnValue.ALL_OLD.toString().equals(request.getReturnValues())) {
+                result.setAttributes(copyOut(removed, null));
+            }
+            return result;
+        });
+    }
+
+    // ---- reads over many items ----
+
+    @Override
+    public QueryResult query(QueryRequest originalRequest) {
+        return execute("Query", originalRequest, true, request -> {
+            InMemoryTable table = table(request.getTableName());
+            InMemoryTable.Index index = table.index(request.getIndexName());
+            Predicate keyCondition = request.getKeyConditionExpression() != null
+                    ? DynamoDbExpression.parseCondition(request.getKeyConditionExpression(),
+                            request.getExpressionAttributeNames(), request.getExpressionAttributeValues())
+                    : DynamoDbExpression.fromConditions(request.getKeyConditions() != null ? request.getKeyConditions() : Map.of(), "AND");
+            AttributeValue hashValue = equalityOn(keyCondition, index.hashKey());
+            if (hashValue == null) {
+                throw DynamoDbExpression.validation("Query condition missed key schema element: " + index.hashKey());
+            }
+            Predicate filter = request.getFilterExpression() != null
+                    ? DynamoDbExpression.parseCondition(request.getFilterExpression(),
+                            request.getExpressionAttributeNames(), request.getExpressionAttributeValues())
+                    : request.getQueryFilter() != null
+                            ? DynamoDbExpression.fromConditions(request.getQueryFilter(), request.getConditionalOperator())
+                            : null;
+            boolean forward = !Boolean.FALSE.equals(request.getScanIndexForward());
+
+            Iterator<Map<String, AttributeValue>> candidates = index.name() == null
+                    ? tableCandidates(table, hashValue, keyCondition, forward, request.getExclusiveStartKey())
+                    : indexCandidates(table, index, hashValue, forward, request.getExclusiveStartKey());
+
+            Page page = readPage(table, index, candidates, keyCondition, filter, request.getLimit(),
+                    projection(request.getProjectionExpression(), request.getExpressionAttributeNames(), request.getAttributesToGet()));
+            QueryResult result = new QueryResult()
+                    .withCount(page.items.size())
+                    .withScannedCount(page.scanned)
+                    .withLastEvaluatedKey(page.lastEvaluatedKey)
+                    .withConsumedCapacity(consumed(request.getReturnConsumedCapacity(), table.name,
+                            readUnits(page.bytes, request.getConsistentRead())));
+            if (!Select.COUNT.toString().equals(request.getSelect())) {
+                result.setItems(page.items);
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public ScanResult scan(ScanRequest originalRequest) {
+        return execute("Scan", originalRequest, true, request -> {
+            InMemoryTable table = table(request.getTableName());
+            InMemoryTable.Index index = table.index(request.getIndexName());
+            Predicate filter = request.getFilterExpression() != null
+                    ? DynamoDbExpression.parseCondition(request.getFilterExpression(),
+                            request.getExpressionAttributeNames(), request.getExpressionAttributeValues())
+                    : request.getScanFilter() != null
+                            ? DynamoDbExpression.fromConditions(request.getScanFilter(), request.getConditionalOperator())
+                            : null;
+            int totalSegments = request.getTotalSegments() != null ? request.getTotalSegments() : 1;
+            int segment = request.getSegment() != null ? request.getSegment() : 0;
+
+            Iterator<Map<String, AttributeValue>> candidates = scanCandidates(table, index, request.getExclusiveStartKey(), segment, totalSegments);
+            Page page = readPage(table, index, candidates, null, filter, request.getLimit(),
+                    projection(request.getProjectionExpression(), request.getExpressionAttributeNames(), request.getAttributesToGet()));
+            ScanResult result = new ScanResult()
+                    .withCount(page.items.size())
+                    .withScannedCount(page.scanned)
+                    .withLastEvaluatedKey(page.lastEvaluatedKey)
+                    .withConsumedCapacity(consumed(request.getReturnConsumedCapacity(), table.name,
+                            readUnits(page.bytes, request.getConsistentRead())));
+            if (!Select.COUNT.toString().equals(request.getSelect())) {
+                result.setItems(page.items);
+            }
+            return result;
+        });
+    }
+
+    // ---- batches ----
+
+    @Override
+    public BatchGetItemResult batchGetItem(BatchGetItemRequest originalRequest) {
+        return execute("BatchGetItem", originalRequest, false, request -> {
+            int keys = request.getRequestItems().values().stream().mapToInt(keysAndAttributes -> keysAndAttributes.getKeys().size()).sum();
+            if (keys > MAX_BATCH_GET_KEYS) {
+                throw DynamoDbExpression.validation("Too many items requested for the BatchGetItem call");
+            }
+            Map<String, List<Map<String, AttributeValue>>> responses = new HashMap<>();
+            Map<String, KeysAndAttributes> unprocessed = new HashMap<>();
+            Map<String, Double> units = new HashMap<>();
+            request.getRequestItems().forEach((tableName, keysAndAttributes) -> {
+                InMemoryTable table = table(tableName);
+                List<PathOperand> projection = projection(keysAndAttributes.getProjectionExpression(),
+                        keysAndAttributes.getExpressionAttributeNames(), keysAndAttributes.getAttributesToGet());
+                List<Map<String, AttributeValue>> found = responses.computeIfAbsent(tableName, name -> new ArrayList<>());
+                for (Map<String, AttributeValue> key : keysAndAttributes.getKeys()) {
+                    if (leaveUnprocessed()) {
+                        unprocessed.computeIfAbsent(tableName, name -> new KeysAndAttributes()
+                                .withProjectionExpression(keysAndAttributes.getProjectionExpression())
+                                .withExpressionAttributeNames(keysAndAttributes.getExpressionAttributeNames())
+                                .withAttributesToGet(keysAndAttributes.getAttributesToGet())
+                                .withConsistentRead(keysAndAttributes.getConsistentRead())
+                                .withKeys(new ArrayList<>())).getKeys().add(key);
+                        continue;
+                    }
+                    Map<String, AttributeValue> item = table.get(key);
+                    units.merge(tableName, readUnits(sizeOf(item), keysAndAttributes.getConsistentRead()), Double::sum);
+                    if (item != null) {
+                        found.add(copyOut(item, projection));
+                    }
+                }
+            });
+            return new BatchGetItemResult().withResponses(responses).withUnprocessedKeys(unprocessed)
+                    .withConsumedCapacity(consumed(request.getReturnConsumedCapacity(), units));
+        });
+    }
+
+    @Override
+    public BatchWriteItemResult batchWriteItem(BatchWriteItemRequest originalRequest) {
+        return execute("BatchWriteItem", originalRequest, false, request -> {
+            int requests = request.getRequestItems().values().stream().mapToInt(List::size).sum();
+            if (requests > MAX_BATCH_WRITE_REQUESTS) {
+                throw DynamoDbExpression.validation("Too many items requested for the BatchWriteItem call");
+            }
+            Map<String, List<WriteRequest>> unprocessed = new HashMap<>();
+            Map<String, Double> units = new HashMap<>();
+            request.getRequestItems().forEach((tableName, writeRequests) -> {
+                InMemoryTable table = table(tableName);
+                Set<List<InMemoryTable.KeyValue>> seen = new HashSet<>();
+                for (WriteRequest writeRequest : writeRequests) {
+                    Map<String, AttributeValue> key = writeRequest.getPutRequest() != null
+                            ? table.keyOf(writeRequest.getPutRequest().getItem())
+                            : writeRequest.getDeleteRequest().getKey();
+                    table.validateKey(key);
+                    if (!seen.add(List.of(new InMemoryTable.KeyValue(key.get(table.hashKey)), table.rangeOf(key)))) {
+                        throw DynamoDbExpression.validation("Provided list of item keys contains duplicates");
+                    }
+                    if (writeRequest.getPutRequest() != null) {
+                        checkItemSize(writeRequest.getPutRequest().getItem());
+                    }
+                }
+                for (WriteRequest writeRequest : writeRequests) {
+                    if (leaveUnprocessed()) {
+                        unprocessed.computeIfAbsent(tableName, name -> new ArrayList<>()).add(writeRequest);
+                        continue;
+                    }
+                    Map<String, AttributeValue> previous = locked(table, () -> writeRequest.getPutRequest() != null
+                            ? table.put(writeRequest.getPutRequest().getItem())
+                            : table.remove(writeRequest.getDeleteRequest().getKey()));
+                    long written = writeRequest.getPutRequest() != null ? sizeOf(writeRequest.getPutRequest().getItem()) : 0;
+                    units.merge(tableName, writeUnits(Math.max(sizeOf(previous), written)), Double::sum);
+                }
+            });
+            return new BatchWriteItemResult().withUnprocessedItems(unprocessed)
+                    .withConsumedCapacity(consumed(request.getReturnConsumedCapacity(), units));
+        });
+    }
+
+    // ---- transactions ----
+
+    @Override
+    public TransactWriteItemsResult transactWriteItems(TransactWriteItemsRequest originalRequest) {
+        return execute("TransactWriteItems", originalRequest, true, request -> {
+            List<TransactWriteItem> items = request.getTransactItems();
+            if (items.isEmpty() || items.size() > MAX_TRANSACTION_ITEMS) {
+                throw DynamoDbExpression.validation("Member must have length between 1 and " + MAX_TRANSACTION_ITEMS);
+            }
+
+            List<PreparedWrite> writes = new ArrayList<>();
+            Set<List<Object>> targets = new HashSet<>();
+            for (TransactWriteItem item : items) {
+                PreparedWrite write = prepare(item);
+                if (!targets.add(List.of(write.table.name, new InMemoryTable.KeyValue(write.key.get(write.table.hashKey)),
+                        write.table.rangeOf(write.key)))) {
+                    throw DynamoDbExpression.validation("Transaction request cannot include multiple operations on one item");
+                }
+                writes.add(write);
+            }
+
+            // Lock every table involved in name order so concurrent transactions cannot deadlock
+            List<InMemoryTable> locks = writes.stream().map(write -> write.table).distinct()
+                    .sorted(Comparator.comparing(table -> table.name)).toList();
+            locks.forEach(table -> table.lock.lock());
+            try {
+                List<CancellationReason> reasons = new ArrayList<>();
+                boolean cancelled = false;
+                for (PreparedWrite write : writes) {
+                    Map<String, AttributeValue> existing = write.table.get(write.key);
+                    if (DynamoDbExpression.test(write.condition, existing != null ? existing : Map.of())) {
+                        reasons.add(new CancellationReason().withCode("None"));
+                    } else {
+                        cancelled = true;
+                        reasons.add(new CancellationReason().withCode("ConditionalCheckFailed")
+                                .withMessage("The conditional request failed"));
+                    }
+                }
+                if (cancelled) {
+                    TransactionCanceledException exception = new TransactionCanceledException(
+                            "Transaction cancelled, please refer cancellation reasons for specific reasons "
+                                    + reasons.stream().map(CancellationReason::getCode).toList());
+                    exception.setCancellationReasons(reasons);
+                    throw error(exception);
+                }
+                for (PreparedWrite write : writes) {
+                    switch (write.kind) {
+                        case "Put" -> write.table.put(write.item);
+                        case "Delete" -> write.table.remove(write.key);
+                        case "Update" -> write.table.put(applyUpdate(write.table, write.key, write.table.get(write.key), write.actions));
+                        default -> { }
+                    }
+                }
+            } finally {
+                locks.forEach(table -> table.lock.unlock());
+            }
+            return new TransactWriteItemsResult();
+        });
+    }
+
+    @Override
+    public TransactGetItemsResult transactGetItems(TransactGetItemsRequest originalRequest) {
+        return execute("TransactGetItems", originalRequest, true, request -> {
+            List<ItemResponse> responses = new ArrayList<>();
+            for (TransactGetItem item : request.getTransactItems()) {
+                Get get = item.getGet();
+                Map<String, AttributeValue> found = table(get.getTableName()).get(get.getKey());
+                responses.add(new ItemResponse().withItem(copyOut(found,
+                        projection(get.getProjectionExpression(), get.getExpressionAttributeNames(), null))));
+            }
+            return new TransactGetItemsResult().withResponses(responses);
+        });
+    }
+
+    @Override
+    public void shutdown() {
+        // Nothing to release
+    }
+
+    // ---- internals ----
+
+    private static final class Page {
+        private final List<Map<String, AttributeValue>> items = new ArrayList<>();
+        private int scanned;
+        private long bytes;
+        private Map<String, AttributeValue> lastEvaluatedKey;
+    }
+
+    private record PreparedWrite(String kind, InMemoryTable table, Map<String, AttributeValue> key,
+                                 Map<String, AttributeValue> item, List<UpdateAction> actions, Predicate condition) {}
+
+    private PreparedWrite prepare(TransactWriteItem item) {
+        if (item.getPut() != null) {
+            Put put = item.getPut();
+            InMemoryTable table = table(put.getTableName());
+            checkItemSize(put.getItem());
+            return new PreparedWrite("Put", table, table.keyOf(put.getItem()), put.getItem(), null,
+                    condition(put.getConditionExpression(), put.getExpressionAttributeNames(), put.getExpressionAttributeValues(), null, null));
+        }
+        if (item.getDelete() != null) {
+            Delete delete = item.getDelete();
+            InMemoryTable table = table(delete.getTableName());
+            table.validateKey(delete.getKey());
+            return new PreparedWrite("Delete", table, delete.getKey(), null, null,
+                    condition(delete.getConditionExpression(), delete.getExpressionAttributeNames(), delete.getExpressionAttributeValues(), null, null));
+        }
+        if (item.getUpdate() != null) {
+            Update update = item.getUpdate();
+            InMemoryTable table = table(update.getTableName());
+            table.validateKey(update.getKey());
+            return new PreparedWrite("Update", table, update.getKey(), null,
+                    DynamoDbExpression.parseUpdate(update.getUpdateExpression(), update.getExpressionAttributeNames(), update.getExpressionAttributeValues()),
+                    condition(update.getConditionExpression(), update.getExpressionAttributeNames(), update.getExpressionAttributeValues(), null, null));
+        }
+        ConditionCheck check = item.getConditionCheck();
+        InMemoryTable table = table(check.getTableName());
+        table.validateKey(check.getKey());
+        return new PreparedWrite("ConditionCheck", table, check.getKey(), null, null,
+                condition(check.getConditionExpression(), check.getExpressionAttributeNames(), check.getExpressionAttributeValues(), null, null));
+    }
+
+    private Map<String, AttributeValue> applyUpdate(InMemoryTable table, Map<String, AttributeValue> key,
+                                                    Map<String, AttributeValue> existing, List<UpdateAction> actions) {
+        for (String attribute : touchedAttributes(actions)) {
+            if (attribute.equals(table.hashKey) || attribute.equals(table.rangeKey)) {
+                throw DynamoDbExpression.validation("Cannot update attribute " + attribute + ". This attribute is part of the key");
+            }
+        }
+        Map<String, AttributeValue> updated = DynamoDbExpression.apply(actions, existing != null ? existing : key);
+        updated.putAll(key);
+        checkItemSize(updated);
+        return updated;
+    }
+
+    private Iterator<Map<String, AttributeValue>> tableCandidates(InMemoryTable table, AttributeValue hashValue, Predicate keyCondition,
+                                                                  boolean forward, Map<String, AttributeValue> exclusiveStartKey) {
+        NavigableMap<InMemoryTable.KeyValue, Map<String, AttributeValue>> partition = table.partitions.get(new InMemoryTable.KeyValue(hashValue));
+        if (partition == null) {
+            return Collections.emptyIterator();
+        }
+        // Narrow to the range key bounds so a query does not walk the whole partition
+        if (table.rangeKey != null) {
+            for (Predicate predicate : conjuncts(keyCondition)) {
+                partition = narrow(partition, predicate, table.rangeKey);
+            }
+            if (exclusiveStartKey != null) {
+                InMemoryTable.KeyValue start = table.rangeOf(exclusiveStartKey);
+                partition = forward ? partition.tailMap(start, false) : partition.headMap(start, false);
+            }
+        } else if (exclusiveStartKey != null) {
+            return Collections.emptyIterator();
+        }
+        return (forward ? partition : partition.descendingMap()).values().iterator();
+    }
+
+    private NavigableMap<InMemoryTable.KeyValue, Map<String, AttributeValue>> narrow(
+            NavigableMap<InMemoryTable.KeyValue, Map<String, AttributeValue>> partition, Predicate predicate, String rangeKey) {
+        if (predicate instanceof Between between && isPath(between.operand(), rangeKey)
+                && between.lower() instanceof ValueOperand lower && between.upper() instanceof ValueOperand upper) {
+            InMemoryTable.KeyValue from = new InMemoryTable.KeyValue(lower.value());
+            InMemoryTable.KeyValue to = new InMemoryTable.KeyValue(upper.value());
+            if (from.compareTo(to) > 0) {
+                throw DynamoDbExpression.validation("Invalid KeyConditionExpression: The BETWEEN operator requires upper bound to be greater than or equal to lower bound");
+            }
+            return partition.subMap(from, true, to, true);
+        }
+        if (predicate instanceof Compare compare) {
+            String operator = compare.operator();
+            ValueOperand value;
+            if (isPath(compare.left(), rangeKey) && compare.right() instanceof ValueOperand right) {
+                value = right;
+            } else if (isPath(compare.right(), rangeKey) && compare.left() instanceof ValueOperand left) {
+                value = left;
+                operator = switch (operator) {
+                    case "<" -> ">";
+                    case "<=" -> ">=";
+                    case ">" -> "<";
+                    case ">=" -> "<=";
+                    default -> operator;
+                };
+            } else {
+                return partition;
+            }
+            InMemoryTable.KeyValue bound = new InMemoryTable.KeyValue(value.value());
+            return switch (operator) {
+                case "=" -> partition.subMap(bound, true, bound, true);
+                case "<" -> partition.headMap(bound, false);
+                case "<=" -> partition.headMap(bound, true);
+                case ">" -> partition.tailMap(bound, false);
+                case ">=" -> partition.tailMap(bound, true);
+                default -> partition;
+            };
+        }
+        if (predicate instanceof DynamoDbExpression.Function function && function.name().equals("begins_with")
+                && isPath(function.arguments().get(0), rangeKey) && function.arguments().get(1) instanceof ValueOperand prefix) {
+            return partition.tailMap(new InMemoryTable.KeyValue(prefix.value()), true);
+        }
+        return partition;
+    }
+
+    // Index reads sort the matching items by the index range key; O(table) per call, which is fine
+    // for the lookup-style indexes this schema has
+    private Iterator<Map<String, AttributeValue>> indexCandidates(InMemoryTable table, InMemoryTable.Index index, AttributeValue hashValue,
+                                                                  boolean forward, Map<String, AttributeValue> exclusiveStartKey) {
+        List<Map<String, AttributeValue>> matches = new ArrayList<>();
+        for (Map<String, AttributeValue> item : table.allItems()) {
+            AttributeValue itemHash = item.get(index.hashKey());
+            if (itemHash != null && DynamoDbExpression.valuesEqual(itemHash, hashValue)
+                    && (index.rangeKey() == null || item.get(index.rangeKey()) != null)) {
+                matches.add(item);
+            }
+        }
+        Comparator<Map<String, AttributeValue>> order = indexOrder(table, index);
+        matches.sort(forward ? order : order.reversed());
+        if (exclusiveStartKey != null) {
+            int start = 0;
+            while (start < matches.size() && (forward ? 1 : -1) * order.compare(matches.get(start), exclusiveStartKey) <= 0) {
+                start++;
+            }
+            return matches.subList(start, matches.size()).iterator();
+        }
+        return matches.iterator();
+    }
+
+    private Comparator<Map<String, AttributeValue>> indexOrder(InMemoryTable table, InMemoryTable.Index index) {
+        Comparator<Map<String, AttributeValue>> byTableKey = Comparator
+                .<Map<String, AttributeValue>, InMemoryTable.KeyValue>comparing(item -> new InMemoryTable.KeyValue(item.get(table.hashKey)))
+                .thenComparing(table::rangeOf);
+        if (index.rangeKey() == null) {
+            return byTableKey;
+        }
+        return Comparator.<Map<String, AttributeValue>, InMemoryTable.KeyValue>comparing(
+                item -> new InMemoryTable.KeyValue(item.get(index.rangeKey()))).thenComparing(byTableKey);
+    }
+
+    private Iterator<Map<String, AttributeValue>> scanCandidates(InMemoryTable table, InMemoryTable.Index index,
+                                                                 Map<String, AttributeValue> exclusiveStartKey,
+                                                                 int segment, int totalSegments) {
+        if (segment < 0 || totalSegments < 1 || segment >= totalSegments) {
+            throw DynamoDbExpression.validation("Segment must be between 0 and TotalSegments - 1");
+        }
+        NavigableMap<InMemoryTable.KeyValue, ConcurrentSkipListMap<InMemoryTable.KeyValue, Map<String, AttributeValue>>> partitions = table.partitions;
+        InMemoryTable.KeyValue startHash = null;
+        InMemoryTable.KeyValue startRange = null;
+        if (exclusiveStartKey != null) {
+            startHash = new InMemoryTable.KeyValue(exclusiveStartKey.get(table.hashKey));
+            startRange = table.rangeOf(exclusiveStartKey);
+            partitions = partitions.tailMap(startHash, true);
+        }
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        for (Map.Entry<InMemoryTable.KeyValue, ConcurrentSkipListMap<InMemoryTable.KeyValue, Map<String, AttributeValue>>> partition : partitions.entrySet()) {
+            if (Math.floorMod(partition.getKey().hashCode(), totalSegments) != segment) {
+                continue;
+            }
+            NavigableMap<InMemoryTable.KeyValue, Map<String, AttributeValue>> rows = partition.getValue();
+            if (partition.getKey().equals(startHash)) {
+                rows = rows.tailMap(startRange, false);
+            }
+            for (Map<String, AttributeValue> item : rows.values()) {
+                if (index.name() == null || (item.get(index.hashKey()) != null
+                        && (index.rangeKey() == null || item.get(index.rangeKey()) != null))) {
+                    items.add(item);
+                }
+            }
+            if (items.size() > 10_000) {
+                // Enough for one page; the caller continues from LastEvaluatedKey
+                break;
+            }
+        }
+        return items.iterator();
+    }
+
+    private Page readPage(InMemoryTable table, InMemoryTable.Index index, Iterator<Map<String, AttributeValue>> candidates,
+                          Predicate keyCondition, Predicate filter, Integer limit, List<PathOperand> projection) {
+        Page page = new Page();
+        while (candidates.hasNext()) {
+            Map<String, AttributeValue> item = candidates.next();
+            if (keyCondition != null && !DynamoDbExpression.test(keyCondition, item)) {
+                continue;
+            }
+            page.scanned++;
+            page.bytes += DynamoDbExpression.sizeOf(item);
+            if (DynamoDbExpression.test(filter, item)) {
+                page.items.add(copyOut(item, projection));
+            }
+            if ((limit != null && page.scanned >= limit) || page.bytes >= MAX_PAGE_BYTES) {
+                page.lastEvaluatedKey = copyOut(table.keyOf(item, index), null);
+                break;
+            }
+        }
+        return page;
+    }
+
+    private List<Predicate> conjuncts(Predicate predicate) {
+        return predicate instanceof DynamoDbExpression.And and ? and.predicates() : List.of(predicate);
+    }
+
+    private AttributeValue equalityOn(Predicate keyCondition, String attribute) {
+        for (Predicate predicate : conjuncts(keyCondition)) {
+            if (predicate instanceof Compare compare && compare.operator().equals("=")) {
+                if (isPath(compare.left(), attribute) && compare.right() instanceof ValueOperand value) {
+                    return value.value();
+                }
+                if (isPath(compare.right(), attribute) && compare.left() instanceof ValueOperand value) {
+                    return value.value();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isPath(DynamoDbExpression.Operand operand, String attribute) {
+        return operand instanceof PathOperand path && path.path().size() == 1 && path.topLevelName().equals(attribute);
+    }
+
+    private Predicate condition(String expression, Map<String, String> names, Map<String, AttributeValue> values,
+                                Map<String, ExpectedAttributeValue> expected, String conditionalOperator) {
+        if (expression != null) {
+            return DynamoDbExpression.parseCondition(expression, names, values);
+        }
+        if (expected != null && !expected.isEmpty()) {
+            return DynamoDbExpression.fromExpected(expected, conditionalOperator);
+        }
+        return null;
+    }
+
+    private void checkCondition(Predicate condition, Map<String, AttributeValue> existing) {
+        if (condition != null && !DynamoDbExpression.test(condition, existing != null ? existing : Map.of())) {
+            throw error(new ConditionalCheckFailedException("The conditional request failed"));
+        }
+    }
+
+    private List<PathOperand> projection(String expression, Map<String, String> names, List<String> attributesToGet) {
+        if (expression != null) {
+            return DynamoDbExpression.parseProjection(expression, names);
+        }
+        if (attributesToGet != null && !attributesToGet.isEmpty()) {
+            return attributesToGet.stream().map(name -> new PathOperand(List.<Object>of(name))).toList();
+        }
+        return null;
+    }
+
+    private Set<String> touchedAttributes(List<UpdateAction> actions) {
+        Set<String> touched = new HashSet<>();
+        for (UpdateAction action : actions) {
+            if (action instanceof DynamoDbExpression.SetAction set) touched.add(set.path().topLevelName());
+            else if (action instanceof DynamoDbExpression.RemoveAction remove) touched.add(remove.path().topLevelName());
+            else if (action instanceof DynamoDbExpression.AddAction add) touched.add(add.path().topLevelName());
+            else if (action instanceof DynamoDbExpression.DeleteAction delete) touched.add(delete.path().topLevelName());
+        }
+        return touched;
+    }
+
+    private Map<String, AttributeValue> onlyAttributes(Map<String, AttributeValue> item, Set<String> names) {
+        if (item == null) {
+            return null;
+        }
+        Map<String, AttributeValue> selected = new HashMap<>();
+        for (String name : names) {
+            if (item.containsKey(name)) {
+                selected.put(name, DynamoDbExpression.deepCopy(item.get(name)));
+            }
+        }
+        return selected;
+    }
+
+    private Map<String, AttributeValue> copyOut(Map<String, AttributeValue> item, List<PathOperand> projection) {
+        return item == null ? null : DynamoDbExpression.deepCopy(DynamoDbExpression.project(item, projection));
+    }
+
+    private void checkItemSize(Map<String, AttributeValue> item) {
+        if (DynamoDbExpression.sizeOf(item) > MAX_ITEM_BYTES) {
+            throw DynamoDbExpression.validation("Item size has exceeded the maximum allowed size");
+        }
+    }
+
+    private <T> T locked(InMemoryTable table, Supplier<T> write) {
+        table.lock.lock();
+        try {
+            return write.get();
+        } finally {
+            table.lock.unlock();
+        }
+    }
+
+    private InMemoryTable table(String name) {
+        InMemoryTable table = tables.get(name);
+        if (table == null) {
+            throw notFound(name);
+        }
+        return table;
+    }
+
+    private TableDescription describe(InMemoryTable table) {
+        CreateTableRequest definition = table.definition;
+        TableDescription description = new TableDescription()
+                .withTableName(table.name)
+                .withTableStatus(TableStatus.ACTIVE)
+                .withKeySchema(definition.getKeySchema())
+                .withAttributeDefinitions(definition.getAttributeDefinitions())
+                .withItemCount(table.itemCount.get())
+                .withCreationDateTime(new Date(table.createdAt));
+        if (definition.getGlobalSecondaryIndexes() != null) {
+            description.setGlobalSecondaryIndexes(definition.getGlobalSecondaryIndexes().stream()
+                    .map(index -> new GlobalSecondaryIndexDescription()
+                            .withIndexName(index.getIndexName())
+                            .withKeySchema(index.getKeySchema())
+                            .withProjection(index.getProjection())
+                            .withIndexStatus(IndexStatus.ACTIVE))
+                    .toList());
+        }
+        return description;
+    }
+
+    // Runs one operation through the request handlers in the order the SDK pipeline calls them
+    @SuppressWarnings("unchecked")
+    private <R extends AmazonWebServiceRequest, T> T execute(String operation, R originalRequest, boolean throttleable,
+                                                            Function<R, T> body) {
+        callCounts.computeIfAbsent(operation, name -> new LongAdder()).increment();
+        if (requestHandlers.isEmpty()) {
+            injectFaults(throttleable);
+            return body.apply(originalRequest);
+        }
+
+        R request = originalRequest;
+        for (RequestHandler2 handler : requestHandlers) {
+            request = (R) handler.beforeExecution(request);
+        }
+        DefaultRequest<R> sdkRequest = new DefaultRequest<>(request, "AmazonDynamoDBv2");
+        sdkRequest.addHandlerContext(HandlerContextKey.OPERATION_NAME, operation);
+        for (RequestHandler2 handler : requestHandlers) {
+            handler.beforeRequest(sdkRequest);
+            handler.beforeAttempt(HandlerBeforeAttemptContext.builder().withRequest(sdkRequest).build());
+        }
+
+        T result;
+        try {
+            injectFaults(throttleable);
+            result = body.apply(request);
+        } catch (RuntimeException e) {
+            for (RequestHandler2 handler : requestHandlers) {
+                handler.afterAttempt(HandlerAfterAttemptContext.builder().withRequest(sdkRequest).withException(e).build());
+                handler.afterError(sdkRequest, null, e);
+            }
+            throw e;
+        }
+        Response<T> response = new Response<>(result, null);
+        for (RequestHandler2 handler : requestHandlers) {
+            handler.afterAttempt(HandlerAfterAttemptContext.builder().withRequest(sdkRequest).withResponse(response).build());
+            handler.afterResponse(sdkRequest, response);
+        }
+        return result;
+    }
+
+    private void injectFaults(boolean throttleable) {
+        long delay = latencyMs + (latencyJitterMs > 0 ? ThreadLocalRandom.current().nextLong(latencyJitterMs + 1) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (throttleable && throttleRate > 0 && ThreadLocalRandom.current().nextDouble() < throttleRate) {
+            throw error(new ProvisionedThroughputExceededException(
+                    "The level of configured provisioned throughput for the table was exceeded"));
+        }
+    }
+
+    // Capacity the way DynamoDB bills it: reads per 4 KB (half for eventually consistent), writes per 1 KB
+    private static double readUnits(long bytes, Boolean consistentRead) {
+        return Math.max(1, Math.ceil(bytes / 4096.0)) * (Boolean.TRUE.equals(consistentRead) ? 1 : 0.5);
+    }
+
+    private static double writeUnits(long bytes) {
+        return Math.max(1, Math.ceil(bytes / 1024.0));
+    }
+
+    private static long sizeOf(Map<String, AttributeValue> item) {
+        return item != null ? DynamoDbExpression.sizeOf(item) : 0;
+    }
+
+    private static ConsumedCapacity consumed(String returnConsumedCapacity, String tableName, double units) {
+        if (returnConsumedCapacity == null || ReturnConsumedCapacity.NONE.toString().equals(returnConsumedCapacity)) {
+            return null;
+        }
+        return new ConsumedCapacity().withTableName(tableName).withCapacityUnits(units);
+    }
+
+    private static List<ConsumedCapacity> consumed(String returnConsumedCapacity, Map<String, Double> unitsByTable) {
+        if (returnConsumedCapacity == null || ReturnConsumedCapacity.NONE.toString().equals(returnConsumedCapacity)) {
+            return null;
+        }
+        List<ConsumedCapacity> consumed = new ArrayList<>();
+        unitsByTable.forEach((tableName, units) -> consumed.add(consumed(returnConsumedCapacity, tableName, units)));
+        return consumed;
+    }
+
+    private boolean leaveUnprocessed() {
+        return unprocessedRate > 0 && ThreadLocalRandom.current().nextDouble() < unprocessedRate;
+    }
+
+    private ResourceNotFoundException notFound(String tableName) {
+        return error(new ResourceNotFoundException("Requested resource not found: Table: " + tableName + " not found"));
+    }
+
+    // Fills in what the HTTP client would, so retry and error handling code sees the usual shape
+    private static <E extends AmazonDynamoDBException> E error(E exception) {
+        exception.setErrorCode(exception.getClass().getSimpleName());
+        exception.setStatusCode(400);
+        exception.setErrorType(AmazonDynamoDBException.ErrorType.Client);
+        exception.setServiceName("AmazonDynamoDBv2");
+        return exception;
+    }
+}
@@ -0,0 +1,199 @@
+package sustainico_backend.rep;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndex;
+import sustainico_backend.util.DynamoDbExpression;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// One table of the in-memory DynamoDB backend: partitions keyed by hash key, each a sorted map of
+// range key to item, ordered the way DynamoDB orders keys. Items are stored as private deep copies.
+// Reads are lock-free; anything that checks a condition before writing holds the table lock.
+final class InMemoryTable {
+
+    record Index(String name, String hashKey, String rangeKey) {}
+
+    // S, N or B key value with DynamoDB ordering; NONE is the range key of hash-only tables
+    static final class KeyValue implements Comparable<KeyValue> {
+        static final KeyValue NONE = new KeyValue(null);
+
+        final AttributeValue value;
+
+        KeyValue(AttributeValue value) {
+            this.value = value;
+        }
+
+        @Override
+        public int compareTo(KeyValue other) {
+            if (value == null || other.value == null) {
+                return value == other.value ? 0 : value == null ? -1 : 1;
+            }
+            Integer order = DynamoDbExpression.compareOrdered(value, other.value);
+            if (order == null) {
+                throw DynamoDbExpression.validation("Key attribute types do not match the table schema");
+            }
+            return order;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof KeyValue key && compareTo(key) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            if (value == null) return 0;
+            if (value.getN() != null) return new BigDecimal(value.getN()).stripTrailingZeros().hashCode();
+            if (value.getS() != null) return value.getS().hashCode();
+            return value.getB().hashCode();
+        }
+    }
+
+    final String name;
+    final String hashKey;
+    final String rangeKey;
+    final Map<String, Index> indexes = new HashMap<>();
+    final CreateTableRequest definition;
+    final long createdAt = System.currentTimeMillis();
+    final ReentrantLock lock = new ReentrantLock();
+    final AtomicLong itemCount = new AtomicLong();
+    final ConcurrentSkipListMap<KeyValue, ConcurrentSkipListMap<KeyValue, Map<String, AttributeValue>>> partitions =
+            new ConcurrentSkipListMap<>();
+
+    InMemoryTable(CreateTableRequest definition) {
+        this.definition = definition;
+        this.name = definition.getTableName();
+        this.hashKey = keyName(definition.getKeySchema(), KeyType.HASH);
+        this.rangeKey = keyName(definition.getKeySchema(), KeyType.RANGE);
+        if (hashKey == null) {
+            throw DynamoDbExpression.validation("Table " + name + " needs a HASH key");
+        }
+        if (definition.getGlobalSecondaryIndexes() != null) {
+            for (GlobalSecondaryIndex index : definition.getGlobalSecondaryIndexes()) {
+                indexes.put(index.getIndexName(), new Index(index.getIndexName(),
+                        keyName(index.getKeySchema(), KeyType.HASH), keyName(index.getKeySchema(), KeyType.RANGE)));
+            }
+        }
+        if (definition.getLocalSecondaryIndexes() != null) {
+            for (LocalSecondaryIndex index : definition.getLocalSecondaryIndexes()) {
+                indexes.put(index.getIndexName(), new Index(index.getIndexName(),
+                        keyName(index.getKeySchema(), KeyType.HASH), keyName(index.getKeySchema(), KeyType.RANGE)));
+            }
+        }
+    }
+
+    Index index(String indexName) {
+        if (indexName == null) {
+            return new Index(null, hashKey, rangeKey);
+        }
+        Index index = indexes.get(indexName);
+        if (index == null) {
+            throw DynamoDbExpression.validation("The table does not have the specified index: " + indexName);
+        }
+        return index;
+    }
+
+    Map<String, AttributeValue> get(Map<String, AttributeValue> key) {
+        validateKey(key);
+        NavigableMap<KeyValue, Map<String, AttributeValue>> partition = partitions.get(new KeyValue(key.get(hashKey)));
+        return partition != null ? partition.get(rangeOf(key)) : null;
+    }
+
+    // Caller holds the lock; returns the previous item
+    Map<String, AttributeValue> put(Map<String, AttributeValue> item) {
+        Map<String, AttributeValue> key = keyOf(item);
+        validateKey(key);
+        Map<String, AttributeValue> previous = partitions
+                .computeIfAbsent(new KeyValue(item.get(hashKey)), hash -> new ConcurrentSkipListMap<>())
+                .put(rangeOf(item), DynamoDbExpression.deepCopy(item));
+        if (previous == null) {
+            itemCount.incrementAndGet();
+        }
+        return previous;
+    }
+
+    // Caller holds the lock; returns the removed item
+    Map<String, AttributeValue> remove(Map<String, AttributeValue> key) {
+        validateKey(key);
+        KeyValue hash = new KeyValue(key.get(hashKey));
+        ConcurrentSkipListMap<KeyValue, Map<String, AttributeValue>> partition = partitions.get(hash);
+        if (partition == null) {
+            return null;
+        }
+        Map<String, AttributeValue> removed = partition.remove(rangeOf(key));
+        if (removed != null) {
+            itemCount.decrementAndGet();
+            if (partition.isEmpty()) {
+                partitions.remove(hash, partition);
+            }
+        }
+        return removed;
+    }
+
+    Map<String, AttributeValue> keyOf(Map<String, AttributeValue> item) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put(hashKey, item.get(hashKey));
+        if (rangeKey != null) {
+            key.put(rangeKey, item.get(rangeKey));
+        }
+        return key;
+    }
+
+    // Table key plus the index key, as DynamoDB returns in LastEvaluatedKey for index reads
+    Map<String, AttributeValue> keyOf(Map<String, AttributeValue> item, Index index) {
+        Map<String, AttributeValue> key = keyOf(item);
+        if (index.name() != null) {
+            key.put(index.hashKey(), item.get(index.hashKey()));
+            if (index.rangeKey() != null) {
+                key.put(index.rangeKey(), item.get(index.rangeKey()));
+            }
+        }
+        return key;
+    }
+
+    KeyValue rangeOf(Map<String, AttributeValue> item) {
+        return rangeKey == null ? KeyValue.NONE : new KeyValue(item.get(rangeKey));
+    }
+
+    void validateKey(Map<String, AttributeValue> key) {
+        if (key == null || !isKeyValue(key.get(hashKey)) || (rangeKey != null && !isKeyValue(key.get(rangeKey)))
+                || key.size() > (rangeKey == null ? 1 : 2)) {
+            throw DynamoDbExpression.validation("The provided key element does not match the schema");
+        }
+    }
+
+    List<Map<String, AttributeValue>> allItems() {
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        partitions.values().forEach(partition -> items.addAll(partition.values()));
+        return items;
+    }
+
+    private static boolean isKeyValue(AttributeValue value) {
+        return value != null && (value.getS() != null || value.getN() != null || value.getB() != null)
+                && (value.getS() == null || !value.getS().isEmpty());
+    }
+
+    private static String keyName(List<KeySchemaElement> schema, KeyType type) {
+        if (schema == null) {
+            return null;
+        }
+        for (KeySchemaElement element : schema) {
+            if (type.toString().equals(element.getKeyType())) {
+                return element.getAttributeName();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,73 @@
+package sustainico_backend.rep;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.StaticTableSchema;
+import sustainico_backend.Models.LatestWaterReading;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags.primaryPartitionKey;
+
+// Non-blocking access to latestWaterReading on the SDK v2 client; same items as LatestWaterReadingRepository
+@Repository
+@ConditionalOnProperty(name = "aws.dynamodb.mode", havingValue = "remote", matchIfMissing = true)
+public class LatestWaterReadingAsyncRepository {
+
+    static final StaticTableSchema<LatestWaterReading> SCHEMA = StaticTableSchema.builder(LatestWaterReading.class)
+            .newItemSupplier(LatestWaterReading::new)
+            .addAttribute(String.class, a -> a.name("deviceId")
+                    .getter(LatestWaterReading::getDeviceId).setter(LatestWaterReading::setDeviceId)
+                    .tags(primaryPartitionKey()))
+            .addAttribute(String.class, a -> a.name("latestFlowReading")
+                    .getter(LatestWaterReading::getLatestFlowReading).setter(LatestWaterReading::setLatestFlowReading))
+            .addAttribute(String.class, a -> a.name("firstFlowReading")
+                    .getter(LatestWaterReading::getFirstFlowReading).setter(LatestWaterReading::setFirstFlowReading))
+            .addAttribute(String.class, a -> a.name("firstReadingOfMonth")
+                    .getter(LatestWaterReading::getFirstReadingOfMonth).setter(LatestWaterReading::setFirstReadingOfMonth))
+            .addAttribute(String.class, a -> a.name("lastReadingOfMonth")
+                    .getter(LatestWaterReading::getLastReadingOfMonth).setter(LatestWaterReading::setLastReadingOfMonth))
+            .addAttribute(String.class, a -> a.name("timestamp")
+                    .getter(LatestWaterReading::getTimestamp).setter(LatestWaterReading::setTimestamp))
+            .addAttribute(String.class, a -> a.name("timestampOfMonth")
+                    .getter(LatestWaterReading::getTimestampOfMonth).setter(LatestWaterReading::setTimestampOfMonth))
+            .build();
+
+    private final DynamoDbAsyncSupport support;
+    private final DynamoDbAsyncTable<LatestWaterReading> table;
+
+    @Autowired
+    public LatestWaterReadingAsyncRepository(DynamoDbAsyncSupport support) {
+        this.support = support;
+        this.table = support.client().table("latestWaterReading", SCHEMA);
+    }
+
+    public CompletableFuture<Void> save(LatestWaterReading latestWaterReading) {
+        return table.putItem(latestWaterReading);
+    }
+
+    // Completes with null when the device has never reported
+    public CompletableFuture<LatestWaterReading> findByDeviceId(String deviceId) {
+        return table.getItem(Key.builder().partitionValue(deviceId).build());
+    }
+
+    // One BatchGetItem per 100 devices, all in flight together; devices without a row are absent from the map
+    public CompletableFuture<Map<String, LatestWaterReading>> findByDeviceIds(Collection<String> deviceIds) {
+        List<Key> keys = deviceIds.stream()
+                .distinct()
+                .map(deviceId -> Key.builder().partitionValue(deviceId).build())
+                .toList();
+        return support.getAll(table, keys).thenApply(readings -> {
+            Map<String, LatestWaterReading> byDevice = new HashMap<>();
+            readings.forEach(reading -> byDevice.put(reading.getDeviceId(), reading));
+            return byDevice;
+        });
+    }
+}
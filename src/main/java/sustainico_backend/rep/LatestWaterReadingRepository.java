@@ -1,7 +1,13 @@
 package sustainico_backend.rep;
 
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -13,6 +19,10 @@ import java.util.List;
 @Repository
 public class LatestWaterReadingRepository {
 
+    private static final DynamoDBMapperConfig CONSISTENT_READS = DynamoDBMapperConfig.builder()
+            .withConsistentReads(DynamoDBMapperConfig.ConsistentReads.CONSISTENT)
+            .build();
+
     private final DynamoDBMapper dynamoDBMapper;
 
     @Autowired
@@ -24,6 +34,27 @@ public class LatestWaterReadingRepository {
         dynamoDBMapper.save(latestWaterReading);
     }
 
+    // Strongly consistent read for a read-modify-write followed by saveIfUnchanged
+    public LatestWaterReading findByDeviceIdConsistent(String deviceId) {
+        return dynamoDBMapper.load(LatestWaterReading.class, deviceId, CONSISTENT_READS);
+    }
+
+    // Saves only if the stored row still has expectedTimestamp, or does not exist yet when that is null;
+    // false when another writer changed it in between
+    public boolean saveIfUnchanged(LatestWaterReading latestWaterReading, String expectedTimestamp) {
+        ExpectedAttributeValue expected = expectedTimestamp == null
+                ? new ExpectedAttributeValue(false)
+                : new ExpectedAttributeValue(new AttributeValue(expectedTimestamp));
+        DynamoDBSaveExpression saveExpression = new DynamoDBSaveExpression()
+                .withExpectedEntry(expectedTimestamp == null ? "deviceId" : "timestamp", expected);
+        try {
+            dynamoDBMapper.save(latestWaterReading, saveExpression);
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
     public LatestWaterReading findByDeviceId(String deviceId) {
         LatestWaterReading latestWaterReading = new LatestWaterReading();
         latestWaterReading.setDeviceId(deviceId);
@@ -36,6 +67,11 @@ public class LatestWaterReadingRepository {
         return result.isEmpty() ? null : result.get(0);
     }
 
+    // One row per device, so this scan stays small compared to the raw reading tables
+    public List<LatestWaterReading> findAll() {
+        return dynamoDBMapper.scan(LatestWaterReading.class, new DynamoDBScanExpression());
+    }
+
     // Custom query to find all readings by a list of device IDs
     @Query("SELECT l FROM LatestWaterReading l WHERE l.deviceId IN :deviceIds")
     List<LatestWaterReading> findAllByDeviceIds(@Param("deviceIds") List<String> deviceIds) {
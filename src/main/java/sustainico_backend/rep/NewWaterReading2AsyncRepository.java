@@ -0,0 +1,138 @@
+package sustainico_backend.rep;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.enhanced.dynamodb.AttributeConverter;
+import software.amazon.awssdk.enhanced.dynamodb.AttributeValueType;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.EnhancedType;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.StaticTableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.PutItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import sustainico_backend.Models.NewWaterReading2;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags.primaryPartitionKey;
+import static software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags.primarySortKey;
+
+// Non-blocking access to newWaterReading2 on the SDK v2 client. Hot rows only: archived segments
+// are still merged in by NewWaterReading2Repository.
+@Repository
+@ConditionalOnProperty(name = "aws.dynamodb.mode", havingValue = "remote", matchIfMissing = true)
+public class NewWaterReading2AsyncRepository {
+
+    static final StaticTableSchema<NewWaterReading2> SCHEMA = StaticTableSchema.builder(NewWaterReading2.class)
+            .newItemSupplier(NewWaterReading2::new)
+            .addAttribute(String.class, a -> a.name("deviceId")
+                    .getter(NewWaterReading2::getDeviceId).setter(NewWaterReading2::setDeviceId)
+                    .tags(primaryPartitionKey()))
+            .addAttribute(String.class, a -> a.name("timestamp")
+                    .getter(NewWaterReading2::getTimestamp).setter(NewWaterReading2::setTimestamp)
+                    .tags(primarySortKey()))
+            .addAttribute(EnhancedType.mapOf(String.class, Boolean.class), a -> a.name("status")
+                    .getter(NewWaterReading2::getStatus).setter(NewWaterReading2::setStatus)
+                    .attributeConverter(new StatusConverter()))
+            .addAttribute(Long.class, a -> a.name("liters")
+                    .getter(NewWaterReading2::getLiters).setter((reading, liters) -> reading.setLiters(liters != null ? liters : 0)))
+            .addAttribute(Long.class, a -> a.name("milliliters")
+                    .getter(NewWaterReading2::getMilliliters).setter((reading, ml) -> reading.setMilliliters(ml != null ? ml : 0)))
+            .addAttribute(String.class, a -> a.name("readingId")
+                    .getter(NewWaterReading2::getReadingId).setter(NewWaterReading2::setReadingId))
+            .build();
+
+    private final DynamoDbAsyncSupport support;
+    private final DynamoDbAsyncTable<NewWaterReading2> table;
+
+    @Autowired
+    public NewWaterReading2AsyncRepository(DynamoDbAsyncSupport support) {
+        this.support = support;
+        this.table = support.client().table("newWaterReading2", SCHEMA);
+    }
+
+    public CompletableFuture<Void> save(NewWaterReading2 newWaterReading) {
+        return table.putItem(newWaterReading);
+    }
+
+    // Conditional put for ingest dedup; completes with false if the reading already exists
+    public CompletableFuture<Boolean> saveIfAbsent(NewWaterReading2 newWaterReading) {
+        return table.putItem(PutItemEnhancedRequest.builder(NewWaterReading2.class)
+                        .item(newWaterReading)
+                        .conditionExpression(Expression.builder()
+                                .expression("attribute_not_exists(#timestamp)")
+                                .putExpressionName("#timestamp", "timestamp")
+                                .build())
+                        .build())
+                .thenApply(done -> true)
+                .exceptionally(DynamoDbAsyncSupport::conditionFailed);
+    }
+
+    // Completes with the readings left unwritten after retries
+    public CompletableFuture<List<NewWaterReading2>> saveAll(List<NewWaterReading2> newWaterReadings) {
+        return support.putAll(table, newWaterReadings);
+    }
+
+    public CompletableFuture<List<NewWaterReading2>> findHotReadingsBetweenTimestamps(String deviceId, String startTimestamp,
+                                                                                     String endTimestamp) {
+        return DynamoDbAsyncSupport.collect(streamHotReadingsBetweenTimestamps(deviceId, startTimestamp, endTimestamp));
+    }
+
+    // Oldest first; the next query page is only requested once the subscriber has asked for more items
+    public SdkPublisher<NewWaterReading2> streamHotReadingsBetweenTimestamps(String deviceId, String startTimestamp,
+                                                                            String endTimestamp) {
+        return table.query(QueryEnhancedRequest.builder()
+                .queryConditional(QueryConditional.sortBetween(
+                        Key.builder().partitionValue(deviceId).sortValue(startTimestamp).build(),
+                        Key.builder().partitionValue(deviceId).sortValue(endTimestamp).build()))
+                .build()).items();
+    }
+
+    // Completes with null when the device has no readings
+    public CompletableFuture<NewWaterReading2> findLatestByDeviceId(String deviceId) {
+        return DynamoDbAsyncSupport.collect(table.query(QueryEnhancedRequest.builder()
+                        .queryConditional(QueryConditional.keyEqualTo(Key.builder().partitionValue(deviceId).build()))
+                        .scanIndexForward(false)
+                        .limit(1)
+                        .build()).items().limit(1))
+                .thenApply(readings -> readings.isEmpty() ? null : readings.get(0));
+    }
+
+    // The v1 mapper (V2_COMPATIBLE conversion) stores the flags as numbers 1/0; keep writing that
+    // and accept native booleans too, so rows written by either client read the same
+    static class StatusConverter implements AttributeConverter<Map<String, Boolean>> {
+
+        @Override
+        public AttributeValue transformFrom(Map<String, Boolean> status) {
+            Map<String, AttributeValue> flags = new LinkedHashMap<>();
+            status.forEach((flag, set) -> flags.put(flag, AttributeValue.fromN(Boolean.TRUE.equals(set) ? "1" : "0")));
+            return AttributeValue.fromM(flags);
+        }
+
+        @Override
+        public Map<String, Boolean> transformTo(AttributeValue value) {
+            Map<String, Boolean> status = new LinkedHashMap<>();
+            value.m().forEach((flag, set) -> status.put(flag,
+                    set.bool() != null ? set.bool() : "1".equals(set.n())));
+            return status;
+        }
+
+        @Override
+        public EnhancedType<Map<String, Boolean>> type() {
+            return EnhancedType.mapOf(String.class, Boolean.class);
+        }
+
+        @Override
+        public AttributeValueType attributeValueType() {
+            return AttributeValueType.M;
+        }
+    }
+}
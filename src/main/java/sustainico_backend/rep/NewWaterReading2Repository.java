@@ -1,10 +1,19 @@
 package sustainico_backend.rep;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.QueryResultPage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.List;
+import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import sustainico_backend.Models.NewWaterReading2;
@@ -14,11 +23,26 @@ public class NewWaterReading2Repository {
     @Autowired
     private DynamoDBMapper dynamoDBMapper;
 
+    @Autowired
+    private ColdSegmentStore coldSegmentStore;
+
     public NewWaterReading2 save(NewWaterReading2 newWaterReading) {
         dynamoDBMapper.save(newWaterReading);
         return newWaterReading;
     }
 
+    // Conditional put used as the correctness backstop for ingest dedup; returns false if the reading already exists
+    public boolean saveIfAbsent(NewWaterReading2 newWaterReading) {
+        DynamoDBSaveExpression saveExpression = new DynamoDBSaveExpression()
+                .withExpectedEntry("timestamp", new ExpectedAttributeValue(false));
+        try {
+            dynamoDBMapper.save(newWaterReading, saveExpression);
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
     public NewWaterReading2 findLatestByDeviceId(String deviceId) {
         Map<String, AttributeValue> eav = new HashMap<>();
         eav.put(":deviceId", new AttributeValue().withS(deviceId));
@@ -32,7 +56,71 @@ public class NewWaterReading2Repository {
         List<NewWaterReading2> readings = dynamoDBMapper.query(NewWaterReading2.class, queryExpression);
         return readings.isEmpty() ? null : readings.get(0);
     }
-public List<NewWaterReading2> findReadingsBetweenTimestamps(String deviceId, String startTimestamp, String endTimestamp) {
+    // Merges the hot table with archived segments; a reading present in both comes from DynamoDB
+    public List<NewWaterReading2> findReadingsBetweenTimestamps(String deviceId, String startTimestamp, String endTimestamp) {
+        List<NewWaterReading2> hot = findHotReadingsBetweenTimestamps(deviceId, startTimestamp, endTimestamp);
+        if (!coldSegmentStore.hasSegments(ColdSegmentStore.NEW_WATER_READING_2, deviceId)) {
+            return hot;
+        }
+        List<NewWaterReading2> cold;
+        try {
+            cold = coldSegmentStore.findNewWaterReading2(deviceId, Long.parseLong(startTimestamp), Long.parseLong(endTimestamp));
+        } catch (NumberFormatException e) {
+            // Only epoch-second timestamps are ever archived
+            return hot;
+        }
+        if (cold.isEmpty()) {
+            return hot;
+        }
+
+        Set<String> hotTimestamps = new HashSet<>();
+        hot.forEach(reading -> hotTimestamps.add(reading.getTimestamp()));
+        List<NewWaterReading2> merged = new ArrayList<>(hot);
+        for (NewWaterReading2 reading : cold) {
+            if (!hotTimestamps.contains(reading.getTimestamp())) {
+                merged.add(reading);
+            }
+        }
+        merged.sort(Comparator.comparingLong(reading -> Long.parseLong(reading.getTimestamp())));
+        return merged;
+    }
+
+    // One page of a device's DynamoDB rows older than endTimestamp (inclusive), newest first; used by the archiver
+    public QueryResultPage<NewWaterReading2> findHotReadingPageBefore(String deviceId, String endTimestamp, int limit,
+                                                                     Map<String, AttributeValue> exclusiveStartKey) {
+        Map<String, AttributeValue> eav = new HashMap<>();
+        eav.put(":deviceId", new AttributeValue().withS(deviceId));
+        eav.put(":endTime", new AttributeValue().withS(endTimestamp));
+
+        DynamoDBQueryExpression<NewWaterReading2> queryExpression = new DynamoDBQueryExpression<NewWaterReading2>()
+                .withKeyConditionExpression("deviceId = :deviceId and #ts <= :endTime")
+                .withExpressionAttributeValues(eav)
+                .withExpressionAttributeNames(Collections.singletonMap("#ts", "timestamp"))
+                .withScanIndexForward(false)
+                .withLimit(limit)
+                .withExclusiveStartKey(exclusiveStartKey);
+
+        return dynamoDBMapper.queryPage(NewWaterReading2.class, queryExpression);
+    }
+
+    // Latest reading strictly before the given timestamp, or null
+    public NewWaterReading2 findLatestBefore(String deviceId, String timestamp) {
+        Map<String, AttributeValue> eav = new HashMap<>();
+        eav.put(":deviceId", new AttributeValue().withS(deviceId));
+        eav.put(":ts", new AttributeValue().withS(timestamp));
+
+        DynamoDBQueryExpression<NewWaterReading2> queryExpression = new DynamoDBQueryExpression<NewWaterReading2>()
+                .withKeyConditionExpression("deviceId = :deviceId and #ts < :ts")
+                .withExpressionAttributeValues(eav)
+                .withExpressionAttributeNames(Collections.singletonMap("#ts", "timestamp"))
+                .withScanIndexForward(false)
+                .withLimit(1);
+
+        QueryResultPage<NewWaterReading2> page = dynamoDBMapper.queryPage(NewWaterReading2.class, queryExpression);
+        return page.getResults().isEmpty() ? null : page.getResults().get(0);
+    }
+
+public List<NewWaterReading2> findHotReadingsBetweenTimestamps(String deviceId, String startTimestamp, String endTimestamp) {
     Map<String, AttributeValue> eav = new HashMap<>();
         eav.put(":deviceId", new AttributeValue().withS(deviceId));
         eav.put(":startTime", new AttributeValue().withS(startTimestamp));
@@ -1,6 +1,9 @@
 package sustainico_backend.rep;
 
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import sustainico_backend.Models.NewWaterReading;
@@ -21,6 +24,18 @@ public class NewWaterReadingRepository {
         dynamoDBMapper.save(newWaterReading);
     }
 
+    // Conditional put used as the correctness backstop for ingest dedup; returns false if the reading already exists
+    public boolean saveIfAbsent(NewWaterReading newWaterReading) {
+        DynamoDBSaveExpression saveExpression = new DynamoDBSaveExpression()
+                .withExpectedEntry("timestamp", new ExpectedAttributeValue(false));
+        try {
+            dynamoDBMapper.save(newWaterReading, saveExpression);
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
     public Optional<NewWaterReading> findById(String deviceId, String timestamp) {
         NewWaterReading newWaterReading = dynamoDBMapper.load(NewWaterReading.class, deviceId, timestamp);
         return Optional.ofNullable(newWaterReading);
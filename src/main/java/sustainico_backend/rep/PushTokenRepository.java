@@ -0,0 +1,38 @@
+package sustainico_backend.rep;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import sustainico_backend.Models.PushToken;
+
+import java.util.List;
+
+@Repository
+public class PushTokenRepository {
+
+    private final DynamoDBMapper dynamoDBMapper;
+
+    @Autowired
+    public PushTokenRepository(DynamoDBMapper dynamoDBMapper) {
+        this.dynamoDBMapper = dynamoDBMapper;
+    }
+
+    public PushToken save(PushToken pushToken) {
+        dynamoDBMapper.save(pushToken);
+        return pushToken;
+    }
+
+    public List<PushToken> findByUserId(String userId) {
+        PushToken hashKey = new PushToken();
+        hashKey.setUserId(userId);
+        return dynamoDBMapper.query(PushToken.class, new DynamoDBQueryExpression<PushToken>().withHashKeyValues(hashKey));
+    }
+
+    public void delete(String userId, String token) {
+        PushToken pushToken = new PushToken();
+        pushToken.setUserId(userId);
+        pushToken.setToken(token);
+        dynamoDBMapper.delete(pushToken);
+    }
+}
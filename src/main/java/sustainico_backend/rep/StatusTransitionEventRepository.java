@@ -0,0 +1,51 @@
+package sustainico_backend.rep;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import sustainico_backend.Models.StatusTransitionEvent;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class StatusTransitionEventRepository {
+
+    // Sorts after every "<timestamp>#<status>" key, so it never shows up in time-range queries
+    private static final String BACKFILL_MARKER_KEY = "~backfilled";
+
+    @Autowired
+    private DynamoDBMapper dynamoDBMapper;
+
+    public void save(StatusTransitionEvent event) {
+        dynamoDBMapper.save(event);
+    }
+
+    // Events with startTimestamp <= timestamp <= endTimestamp, oldest first
+    public List<StatusTransitionEvent> findBetween(String deviceId, long startTimestamp, long endTimestamp) {
+        Map<String, AttributeValue> eav = new HashMap<>();
+        eav.put(":v1", new AttributeValue().withS(deviceId));
+        eav.put(":from", new AttributeValue().withS(startTimestamp + "#"));
+        eav.put(":to", new AttributeValue().withS(endTimestamp + "#\uffff"));
+
+        DynamoDBQueryExpression<StatusTransitionEvent> queryExpression = new DynamoDBQueryExpression<StatusTransitionEvent>()
+                .withKeyConditionExpression("deviceId = :v1 and eventKey between :from and :to")
+                .withExpressionAttributeValues(eav);
+
+        return dynamoDBMapper.query(StatusTransitionEvent.class, queryExpression);
+    }
+
+    public boolean isBackfilled(String deviceId) {
+        return dynamoDBMapper.load(StatusTransitionEvent.class, deviceId, BACKFILL_MARKER_KEY) != null;
+    }
+
+    public void markBackfilled(String deviceId) {
+        StatusTransitionEvent marker = new StatusTransitionEvent();
+        marker.setDeviceId(deviceId);
+        marker.setEventKey(BACKFILL_MARKER_KEY);
+        dynamoDBMapper.save(marker);
+    }
+}
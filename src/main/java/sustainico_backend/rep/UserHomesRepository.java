@@ -0,0 +1,131 @@
+package sustainico_backend.rep;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.amazonaws.services.dynamodbv2.model.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import sustainico_backend.Models.UserHomes;
+
+import java.util.*;
+
+// UserHomes.homes maintained with update expressions instead of load-modify-save, so concurrent
+// home creation and deletion for one user cannot overwrite each other and no homeId is added twice.
+// homes is stored as a list (L) of strings, the mapper's mapping for List<String>.
+@Repository
+public class UserHomesRepository {
+
+    private static final String TABLE = UserHomes.class.getAnnotation(DynamoDBTable.class).tableName();
+
+    private static final int MAX_REMOVE_ATTEMPTS = 5;
+
+    private final AmazonDynamoDB amazonDynamoDB;
+
+    @Autowired
+    public UserHomesRepository(AmazonDynamoDB amazonDynamoDB) {
+        this.amazonDynamoDB = amazonDynamoDB;
+    }
+
+    // One conditional write, creating the row if needed; false when homeId was already listed
+    public boolean addHome(String userId, String homeId) {
+        try {
+            amazonDynamoDB.updateItem(new UpdateItemRequest()
+                    .withTableName(TABLE)
+                    .withKey(key(userId))
+                    .withUpdateExpression("SET homes = list_append(if_not_exists(homes, :empty), :home)")
+                    .withConditionExpression("NOT contains(homes, :homeId)")
+                    .withExpressionAttributeValues(Map.of(
+                            ":empty", new AttributeValue().withL(List.of()),
+                            ":home", new AttributeValue().withL(new AttributeValue(homeId)),
+                            ":homeId", new AttributeValue(homeId))));
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    // Removes every occurrence of homeId by index, conditioned on those positions still holding it;
+    // a concurrent change to the list means reading the positions again
+    public void removeHome(String userId, String homeId) {
+        for (int attempt = 1; ; attempt++) {
+            List<AttributeValue> homes = loadHomes(userId);
+            List<String> paths = new ArrayList<>();
+            List<String> conditions = new ArrayList<>();
+            for (int i = 0; homes != null && i < homes.size(); i++) {
+                if (homeId.equals(homes.get(i).getS())) {
+                    paths.add("homes[" + i + "]");
+                    conditions.add("homes[" + i + "] = :homeId");
+                }
+            }
+            if (paths.isEmpty()) {
+                return;
+            }
+            try {
+                amazonDynamoDB.updateItem(new UpdateItemRequest()
+                        .withTableName(TABLE)
+                        .withKey(key(userId))
+                        .withUpdateExpression("REMOVE " + String.join(", ", paths))
+                        .withConditionExpression(String.join(" AND ", conditions))
+                        .withExpressionAttributeValues(Map.of(":homeId", new AttributeValue(homeId))));
+                return;
+            } catch (ConditionalCheckFailedException e) {
+                if (attempt >= MAX_REMOVE_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Rewrites homes without repeats, keeping the first occurrence of each homeId. Returns false when the
+    // row had nothing to drop or changed since it was read; the next compaction run picks it up again
+    public boolean compact(Map<String, AttributeValue> item) {
+        AttributeValue homes = item.get("homes");
+        if (homes == null || homes.getL() == null) {
+            return false;
+        }
+        Set<String> seen = new LinkedHashSet<>();
+        List<AttributeValue> distinct = new ArrayList<>();
+        for (AttributeValue home : homes.getL()) {
+            if (home.getS() == null || seen.add(home.getS())) {
+                distinct.add(home);
+            }
+        }
+        if (distinct.size() == homes.getL().size()) {
+            return false;
+        }
+        try {
+            amazonDynamoDB.updateItem(new UpdateItemRequest()
+                    .withTableName(TABLE)
+                    .withKey(key(item.get("userId").getS()))
+                    .withUpdateExpression("SET homes = :distinct")
+                    .withConditionExpression("homes = :read")
+                    .withExpressionAttributeValues(Map.of(
+                            ":distinct", new AttributeValue().withL(distinct),
+                            ":read", homes)));
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    // One page of raw rows for compaction; pass the returned LastEvaluatedKey back in until it is null
+    public ScanResult scanPage(Map<String, AttributeValue> exclusiveStartKey, int limit) {
+        return amazonDynamoDB.scan(new ScanRequest()
+                .withTableName(TABLE)
+                .withLimit(limit)
+                .withExclusiveStartKey(exclusiveStartKey));
+    }
+
+    private List<AttributeValue> loadHomes(String userId) {
+        Map<String, AttributeValue> item = amazonDynamoDB.getItem(new GetItemRequest()
+                .withTableName(TABLE)
+                .withKey(key(userId))
+                .withProjectionExpression("homes")
+                .withConsistentRead(true)).getItem();
+        return item != null && item.get("homes") != null ? item.get("homes").getL() : null;
+    }
+
+    private static Map<String, AttributeValue> key(String userId) {
+        return Map.of("userId", new AttributeValue(userId));
+    }
+}
@@ -29,13 +29,21 @@ public class UserRepository{
         this.buildAmazonDynamoDB = buildAmazonDynamoDB;
     }
 
+    @Autowired
+    private EntityCache<User> userCache;
+
+    // Invalidated even when the write fails, since callers edit the cached instance before saving
     public User save(User user){
-        dynamoDBMapper.save(user);
+        try {
+            dynamoDBMapper.save(user);
+        } finally {
+            userCache.invalidate(user.getUserId());
+        }
         return user;
     }
 
     public User findByUserId(String userId) {
-        return dynamoDBMapper.load(User.class, userId);
+        return userCache.get(userId, id -> dynamoDBMapper.load(User.class, id));
     }
 
     public Optional<User> findByContactNo(String contactNo) {
@@ -52,7 +60,11 @@ public class UserRepository{
 
 
     public void delete(User user) {
-        dynamoDBMapper.delete(user);
+        try {
+            dynamoDBMapper.delete(user);
+        } finally {
+            userCache.invalidate(user.getUserId());
+        }
     }
 
     public long count(){
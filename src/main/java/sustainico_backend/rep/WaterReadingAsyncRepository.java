@@ -0,0 +1,108 @@
+package sustainico_backend.rep;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.StaticTableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.PutItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import sustainico_backend.Models.ReadingStorageMode;
+import sustainico_backend.Models.WaterReading;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags.primaryPartitionKey;
+import static software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags.primarySortKey;
+
+// Non-blocking access to waterReading on the SDK v2 client; same items as WaterReadingRepository
+@Repository
+@ConditionalOnProperty(name = "aws.dynamodb.mode", havingValue = "remote", matchIfMissing = true)
+public class WaterReadingAsyncRepository {
+
+    static final StaticTableSchema<WaterReading> SCHEMA = StaticTableSchema.builder(WaterReading.class)
+            .newItemSupplier(WaterReading::new)
+            .addAttribute(String.class, a -> a.name("deviceId")
+                    .getter(WaterReading::getDeviceId).setter(WaterReading::setDeviceId)
+                    .tags(primaryPartitionKey()))
+            .addAttribute(String.class, a -> a.name("timestamp")
+                    .getter(WaterReading::getTimestamp).setter(WaterReading::setTimestamp)
+                    .tags(primarySortKey()))
+            .addAttribute(String.class, a -> a.name("flowReading")
+                    .getter(WaterReading::getFlowReading).setter(WaterReading::setFlowReading))
+            .addAttribute(String.class, a -> a.name("readingId")
+                    .getter(WaterReading::getReadingId).setter(WaterReading::setReadingId))
+            .build();
+
+    private final DynamoDbAsyncSupport support;
+    private final DynamoDbAsyncTable<WaterReading> table;
+
+    @Value("${water.storage.mode:ITEMS}")
+    private ReadingStorageMode storageMode;
+
+    @Autowired
+    public WaterReadingAsyncRepository(DynamoDbAsyncSupport support) {
+        this.support = support;
+        this.table = support.client().table("waterReading", SCHEMA);
+    }
+
+    // BLOCKS mode keeps no item rows, so single puts fail here; WaterReadingRepository appends them to day blocks
+    public CompletableFuture<Void> save(WaterReading waterReading) {
+        if (!storageMode.writesItems()) {
+            return CompletableFuture.failedFuture(itemsNotWritten());
+        }
+        return table.putItem(waterReading);
+    }
+
+    // Conditional put for ingest dedup; completes with false if the reading already exists
+    public CompletableFuture<Boolean> saveIfAbsent(WaterReading waterReading) {
+        if (!storageMode.writesItems()) {
+            return CompletableFuture.failedFuture(itemsNotWritten());
+        }
+        return table.putItem(PutItemEnhancedRequest.builder(WaterReading.class)
+                        .item(waterReading)
+                        .conditionExpression(Expression.builder()
+                                .expression("attribute_not_exists(#timestamp)")
+                                .putExpressionName("#timestamp", "timestamp")
+                                .build())
+                        .build())
+                .thenApply(done -> true)
+                .exceptionally(DynamoDbAsyncSupport::conditionFailed);
+    }
+
+    // Completes with the readings left unwritten after retries. Like NewWaterReadingService.expandAndWrite,
+    // the item rows are skipped in BLOCKS mode; the caller appends the batch to day blocks
+    public CompletableFuture<List<WaterReading>> saveAll(List<WaterReading> waterReadings) {
+        if (!storageMode.writesItems()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        return support.putAll(table, waterReadings);
+    }
+
+    private IllegalStateException itemsNotWritten() {
+        return new IllegalStateException("water.storage.mode=" + storageMode + " keeps no waterReading items");
+    }
+
+    public CompletableFuture<List<WaterReading>> findByDeviceIdAndTimestampBetween(String deviceId, String start, String end) {
+        return DynamoDbAsyncSupport.collect(table.query(QueryEnhancedRequest.builder()
+                .queryConditional(QueryConditional.sortBetween(
+                        Key.builder().partitionValue(deviceId).sortValue(start).build(),
+                        Key.builder().partitionValue(deviceId).sortValue(end).build()))
+                .build()).items());
+    }
+
+    // Completes with null when the device has no readings
+    public CompletableFuture<WaterReading> findLatestByDeviceId(String deviceId) {
+        return DynamoDbAsyncSupport.collect(table.query(QueryEnhancedRequest.builder()
+                        .queryConditional(QueryConditional.keyEqualTo(Key.builder().partitionValue(deviceId).build()))
+                        .scanIndexForward(false)
+                        .limit(1)
+                        .build()).items().limit(1))
+                .thenApply(readings -> readings.isEmpty() ? null : readings.get(0));
+    }
+}
@@ -0,0 +1,236 @@
+package sustainico_backend.rep;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.QueryResultPage;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import sustainico_backend.Models.WaterReading;
+import sustainico_backend.Models.WaterReadingDayBlock;
+import sustainico_backend.util.ReadingBlockCodec;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.logging.Logger;
+
+@Repository
+public class WaterReadingDayBlockRepository {
+
+    private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+
+    private static final int MAX_APPEND_ATTEMPTS = 5;
+
+    // Day blocks fetched per query while paging; one block already holds a full day of readings
+    private static final int DAYS_PER_QUERY = 7;
+
+    private static final Logger logger = Logger.getLogger(WaterReadingDayBlockRepository.class.getName());
+
+    private final DynamoDBMapper dynamoDBMapper;
+
+    @Autowired
+    public WaterReadingDayBlockRepository(DynamoDBMapper dynamoDBMapper) {
+        this.dynamoDBMapper = dynamoDBMapper;
+    }
+
+    public WaterReadingDayBlock findByDay(String deviceId, String day) {
+        return dynamoDBMapper.load(WaterReadingDayBlock.class, deviceId, day,
+                DynamoDBMapperConfig.ConsistentReads.CONSISTENT.config());
+    }
+
+    // Blocks for days strictly before the given yyyy-MM-dd day
+    public List<WaterReadingDayBlock> findBlocksBefore(String deviceId, String day) {
+        Map<String, AttributeValue> eav = new HashMap<>();
+        eav.put(":v1", new AttributeValue().withS(deviceId));
+        eav.put(":day", new AttributeValue().withS(day));
+
+        DynamoDBQueryExpression<WaterReadingDayBlock> queryExpression = new DynamoDBQueryExpression<WaterReadingDayBlock>()
+                .withKeyConditionExpression("deviceId = :v1 and #day < :day")
+                .withExpressionAttributeNames(Collections.singletonMap("#day", "day"))
+                .withExpressionAttributeValues(eav);
+
+        return dynamoDBMapper.query(WaterReadingDayBlock.class, queryExpression);
+    }
+
+    // Deletes the block unless another append bumped its version since it was loaded
+    public boolean deleteIfUnchanged(WaterReadingDayBlock block) {
+        try {
+            dynamoDBMapper.delete(block);
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    // Oldest first
+    public static List<WaterReading> readingsOf(WaterReadingDayBlock block) {
+        ReadingBlockCodec.Block decoded = ReadingBlockCodec.decode(block.getBlock());
+        List<WaterReading> readings = new ArrayList<>(decoded.size());
+        for (int i = 0; i < decoded.size(); i++) {
+            long timestamp = decoded.getTimestamps()[i];
+            readings.add(new WaterReading(block.getDeviceId(), ReadingBlockCodec.fromMilliUnits(decoded.getValues()[i]),
+                    String.valueOf(timestamp), block.getDeviceId() + "-" + timestamp));
+        }
+        return readings;
+    }
+
+    // Blocks need epoch-second timestamps and totalizers with at most three decimals
+    public static boolean isPackable(WaterReading waterReading) {
+        try {
+            Long.parseLong(waterReading.getTimestamp());
+            ReadingBlockCodec.toMilliUnits(waterReading.getFlowReading());
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    public static String dayOf(long epochSeconds) {
+        return Instant.ofEpochSecond(epochSeconds).atZone(IST).toLocalDate().toString();
+    }
+
+    // Merges the readings into their device-day blocks and returns how many were not stored yet.
+    // An existing reading for the same timestamp is kept, matching the conditional item puts.
+    public int append(List<WaterReading> waterReadings) {
+        Map<String, Map<String, TreeMap<Long, Long>>> byDeviceAndDay = new HashMap<>();
+        for (WaterReading waterReading : waterReadings) {
+            if (!isPackable(waterReading)) {
+                logger.warning("Skipping unpackable reading " + waterReading.getDeviceId() + " @ " + waterReading.getTimestamp());
+                continue;
+            }
+            long timestamp = Long.parseLong(waterReading.getTimestamp());
+            byDeviceAndDay.computeIfAbsent(waterReading.getDeviceId(), id -> new HashMap<>())
+                    .computeIfAbsent(dayOf(timestamp), day -> new TreeMap<>())
+                    .putIfAbsent(timestamp, ReadingBlockCodec.toMilliUnits(waterReading.getFlowReading()));
+        }
+
+        int added = 0;
+        for (Map.Entry<String, Map<String, TreeMap<Long, Long>>> device : byDeviceAndDay.entrySet()) {
+            for (Map.Entry<String, TreeMap<Long, Long>> day : device.getValue().entrySet()) {
+                added += appendToDay(device.getKey(), day.getKey(), day.getValue());
+            }
+        }
+        return added;
+    }
+
+    private int appendToDay(String deviceId, String day, TreeMap<Long, Long> incoming) {
+        for (int attempt = 1; ; attempt++) {
+            WaterReadingDayBlock block = findByDay(deviceId, day);
+            TreeMap<Long, Long> merged = new TreeMap<>();
+            if (block != null) {
+                ReadingBlockCodec.Block decoded = ReadingBlockCodec.decode(block.getBlock());
+                for (int i = 0; i < decoded.size(); i++) {
+                    merged.put(decoded.getTimestamps()[i], decoded.getValues()[i]);
+                }
+            } else {
+                block = new WaterReadingDayBlock(deviceId, day, null, null, null, null, null);
+            }
+
+            int before = merged.size();
+            incoming.forEach(merged::putIfAbsent);
+            int added = merged.size() - before;
+            if (added == 0) {
+                return 0;
+            }
+
+            long[] timestamps = new long[merged.size()];
+            long[] values = new long[merged.size()];
+            int i = 0;
+            for (Map.Entry<Long, Long> entry : merged.entrySet()) {
+                timestamps[i] = entry.getKey();
+                values[i++] = entry.getValue();
+            }
+            block.setBlock(ReadingBlockCodec.encode(timestamps, values, timestamps.length));
+            block.setReadingCount(timestamps.length);
+            block.setFirstTimestamp(timestamps[0]);
+            block.setLastTimestamp(timestamps[timestamps.length - 1]);
+
+            try {
+                // The version attribute turns this into a conditional put
+                dynamoDBMapper.save(block);
+                return added;
+            } catch (ConditionalCheckFailedException e) {
+                if (attempt >= MAX_APPEND_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Same contract as WaterReadingRepository.findWaterReadingPage (newest first, cursor holds the
+    // last returned deviceId/timestamp) so callers and cursors work with either storage layout
+    public QueryResultPage<WaterReading> findReadingPage(String deviceId, String startTimestamp, String endTimestamp,
+                                                         int limit, Map<String, AttributeValue> exclusiveStartKey) {
+        long lower = startTimestamp != null ? Long.parseLong(startTimestamp) : Long.MIN_VALUE;
+        long upper = endTimestamp != null ? Long.parseLong(endTimestamp) : Long.MAX_VALUE;
+        if (exclusiveStartKey != null) {
+            AttributeValue cursorTimestamp = exclusiveStartKey.get("timestamp");
+            if (cursorTimestamp == null) {
+                throw new IllegalArgumentException("Invalid page cursor");
+            }
+            upper = Math.min(upper, Long.parseLong(cursorTimestamp.getS()) - 1);
+        }
+
+        QueryResultPage<WaterReading> page = new QueryResultPage<>();
+        List<WaterReading> results = new ArrayList<>();
+        page.setResults(results);
+        if (lower > upper) {
+            return page;
+        }
+
+        Map<String, AttributeValue> eav = new HashMap<>();
+        eav.put(":v1", new AttributeValue().withS(deviceId));
+        String keyCondition = "deviceId = :v1";
+        if (lower != Long.MIN_VALUE && upper != Long.MAX_VALUE) {
+            keyCondition += " and #day between :from and :to";
+            eav.put(":from", new AttributeValue().withS(dayOf(lower)));
+            eav.put(":to", new AttributeValue().withS(dayOf(upper)));
+        } else if (lower != Long.MIN_VALUE) {
+            keyCondition += " and #day >= :from";
+            eav.put(":from", new AttributeValue().withS(dayOf(lower)));
+        } else if (upper != Long.MAX_VALUE) {
+            keyCondition += " and #day <= :to";
+            eav.put(":to", new AttributeValue().withS(dayOf(upper)));
+        }
+
+        DynamoDBQueryExpression<WaterReadingDayBlock> queryExpression = new DynamoDBQueryExpression<WaterReadingDayBlock>()
+                .withKeyConditionExpression(keyCondition)
+                .withExpressionAttributeValues(eav)
+                .withScanIndexForward(false)
+                .withLimit(DAYS_PER_QUERY);
+        if (!keyCondition.equals("deviceId = :v1")) {
+            queryExpression.withExpressionAttributeNames(Collections.singletonMap("#day", "day"));
+        }
+
+        Map<String, AttributeValue> lastKey = null;
+        do {
+            QueryResultPage<WaterReadingDayBlock> blocks = dynamoDBMapper.queryPage(
+                    WaterReadingDayBlock.class, queryExpression.withExclusiveStartKey(lastKey));
+            for (WaterReadingDayBlock block : blocks.getResults()) {
+                ReadingBlockCodec.Block decoded = ReadingBlockCodec.decode(block.getBlock());
+                for (int i = decoded.size() - 1; i >= 0 && results.size() < limit; i--) {
+                    long timestamp = decoded.getTimestamps()[i];
+                    if (timestamp >= lower && timestamp <= upper) {
+                        results.add(new WaterReading(deviceId, ReadingBlockCodec.fromMilliUnits(decoded.getValues()[i]),
+                                String.valueOf(timestamp), deviceId + "-" + timestamp));
+                    }
+                }
+                if (results.size() >= limit) {
+                    break;
+                }
+            }
+            lastKey = blocks.getLastEvaluatedKey();
+        } while (lastKey != null && results.size() < limit);
+
+        if (results.size() >= limit) {
+            Map<String, AttributeValue> nextKey = new HashMap<>();
+            nextKey.put("deviceId", new AttributeValue().withS(deviceId));
+            nextKey.put("timestamp", new AttributeValue().withS(results.get(results.size() - 1).getTimestamp()));
+            page.setLastEvaluatedKey(nextKey);
+        }
+        return page;
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.stereotype.Repository;
 import sustainico_backend.Models.WaterReadingPerDay;
 import sustainico_backend.Models.WaterReadingPerHour;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -40,4 +41,22 @@ public class WaterReadingPerDayRepository {
         return dynamoDBMapper.query(WaterReadingPerDay.class, queryExpression);
     }
 
+    // fetchTimestamps up to endFetchTimestamp (inclusive), only the key is read; used by retention to verify rollup coverage
+    public List<String> findFetchTimestampsUpTo(String deviceId, String endFetchTimestamp) {
+        Map<String, AttributeValue> eav = new HashMap<>();
+        eav.put(":v1", new AttributeValue().withS(deviceId));
+        eav.put(":end", new AttributeValue().withS(endFetchTimestamp));
+
+        DynamoDBQueryExpression<WaterReadingPerDay> queryExpression = new DynamoDBQueryExpression<WaterReadingPerDay>()
+                .withKeyConditionExpression("deviceId = :v1 and fetchTimestamp <= :end")
+                .withExpressionAttributeValues(eav)
+                .withProjectionExpression("deviceId, fetchTimestamp");
+
+        List<String> fetchTimestamps = new ArrayList<>();
+        for (WaterReadingPerDay reading : dynamoDBMapper.query(WaterReadingPerDay.class, queryExpression)) {
+            fetchTimestamps.add(reading.getFetchTimestamp());
+        }
+        return fetchTimestamps;
+    }
+
 }
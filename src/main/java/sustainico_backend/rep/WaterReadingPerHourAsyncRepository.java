@@ -0,0 +1,77 @@
+package sustainico_backend.rep;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.StaticTableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import sustainico_backend.Models.WaterReadingPerHour;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags.primaryPartitionKey;
+import static software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags.primarySortKey;
+
+// Non-blocking access to waterReadingPerHour on the SDK v2 client; same items as WaterReadingPerHourRepository
+@Repository
+@ConditionalOnProperty(name = "aws.dynamodb.mode", havingValue = "remote", matchIfMissing = true)
+public class WaterReadingPerHourAsyncRepository {
+
+    static final StaticTableSchema<WaterReadingPerHour> SCHEMA = StaticTableSchema.builder(WaterReadingPerHour.class)
+            .newItemSupplier(WaterReadingPerHour::new)
+            .addAttribute(String.class, a -> a.name("deviceId")
+                    .getter(WaterReadingPerHour::getDeviceId).setter(WaterReadingPerHour::setDeviceId)
+                    .tags(primaryPartitionKey()))
+            .addAttribute(String.class, a -> a.name("fetchTimestamp")
+                    .getter(WaterReadingPerHour::getFetchTimestamp).setter(WaterReadingPerHour::setFetchTimestamp)
+                    .tags(primarySortKey()))
+            .addAttribute(String.class, a -> a.name("flowReading")
+                    .getter(WaterReadingPerHour::getFlowReading).setter(WaterReadingPerHour::setFlowReading))
+            .addAttribute(String.class, a -> a.name("timestamp")
+                    .getter(WaterReadingPerHour::getTimestamp).setter(WaterReadingPerHour::setTimestamp))
+            .addAttribute(String.class, a -> a.name("readingId")
+                    .getter(WaterReadingPerHour::getReadingId).setter(WaterReadingPerHour::setReadingId))
+            .build();
+
+    private final DynamoDbAsyncSupport support;
+    private final DynamoDbAsyncTable<WaterReadingPerHour> table;
+
+    @Autowired
+    public WaterReadingPerHourAsyncRepository(DynamoDbAsyncSupport support) {
+        this.support = support;
+        this.table = support.client().table("waterReadingPerHour", SCHEMA);
+    }
+
+    public CompletableFuture<Void> save(WaterReadingPerHour waterReadingPerHour) {
+        return table.putItem(waterReadingPerHour);
+    }
+
+    // Completes with the rollups left unwritten after retries
+    public CompletableFuture<List<WaterReadingPerHour>> saveAll(List<WaterReadingPerHour> waterReadingsPerHour) {
+        return support.putAll(table, waterReadingsPerHour);
+    }
+
+    public CompletableFuture<List<WaterReadingPerHour>> findByDeviceIdAndFetchTimestampBetween(String deviceId, String start,
+                                                                                              String end) {
+        return DynamoDbAsyncSupport.collect(table.query(QueryEnhancedRequest.builder()
+                .queryConditional(QueryConditional.sortBetween(
+                        Key.builder().partitionValue(deviceId).sortValue(start).build(),
+                        Key.builder().partitionValue(deviceId).sortValue(end).build()))
+                .build()).items());
+    }
+
+    // Latest rollup at or before fetchTimestamp; completes with null if there is none
+    public CompletableFuture<WaterReadingPerHour> findLastReadingBefore(String deviceId, String fetchTimestamp) {
+        return DynamoDbAsyncSupport.collect(table.query(QueryEnhancedRequest.builder()
+                        .queryConditional(QueryConditional.sortLessThanOrEqualTo(
+                                Key.builder().partitionValue(deviceId).sortValue(fetchTimestamp).build()))
+                        .scanIndexForward(false)
+                        .limit(1)
+                        .build()).items().limit(1))
+                .thenApply(readings -> readings.isEmpty() ? null : readings.get(0));
+    }
+}
@@ -4,6 +4,7 @@ package sustainico_backend.rep;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.QueryResultPage;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
 import com.amazonaws.services.dynamodbv2.model.Condition;
@@ -12,6 +13,7 @@ import org.springframework.stereotype.Repository;
 import sustainico_backend.Models.WaterReading;
 import sustainico_backend.Models.WaterReadingPerHour;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -93,4 +95,38 @@ public class WaterReadingPerHourRepository {
         return result.isEmpty() ? null : result.get(0);
     }
 
+    // fetchTimestamps up to endFetchTimestamp (inclusive), only the key is read; used by retention to verify rollup coverage
+    public List<String> findFetchTimestampsUpTo(String deviceId, String endFetchTimestamp) {
+        Map<String, AttributeValue> eav = new HashMap<>();
+        eav.put(":v1", new AttributeValue().withS(deviceId));
+        eav.put(":end", new AttributeValue().withS(endFetchTimestamp));
+
+        DynamoDBQueryExpression<WaterReadingPerHour> queryExpression = new DynamoDBQueryExpression<WaterReadingPerHour>()
+                .withKeyConditionExpression("deviceId = :v1 and fetchTimestamp <= :end")
+                .withExpressionAttributeValues(eav)
+                .withProjectionExpression("deviceId, fetchTimestamp");
+
+        List<String> fetchTimestamps = new ArrayList<>();
+        for (WaterReadingPerHour reading : dynamoDBMapper.query(WaterReadingPerHour.class, queryExpression)) {
+            fetchTimestamps.add(reading.getFetchTimestamp());
+        }
+        return fetchTimestamps;
+    }
+
+    // One page of rows fetched before endFetchTimestamp (inclusive), oldest first
+    public QueryResultPage<WaterReadingPerHour> findPageByFetchTimestampUpTo(String deviceId, String endFetchTimestamp, int limit,
+                                                                            Map<String, AttributeValue> exclusiveStartKey) {
+        Map<String, AttributeValue> eav = new HashMap<>();
+        eav.put(":v1", new AttributeValue().withS(deviceId));
+        eav.put(":end", new AttributeValue().withS(endFetchTimestamp));
+
+        DynamoDBQueryExpression<WaterReadingPerHour> queryExpression = new DynamoDBQueryExpression<WaterReadingPerHour>()
+                .withKeyConditionExpression("deviceId = :v1 and fetchTimestamp <= :end")
+                .withExpressionAttributeValues(eav)
+                .withLimit(limit)
+                .withExclusiveStartKey(exclusiveStartKey);
+
+        return dynamoDBMapper.queryPage(WaterReadingPerHour.class, queryExpression);
+    }
+
 }
@@ -3,13 +3,18 @@ package sustainico_backend.rep;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
 import com.amazonaws.services.dynamodbv2.datamodeling.PaginatedQueryList;
+import com.amazonaws.services.dynamodbv2.datamodeling.QueryResultPage;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
 import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
 import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import sustainico_backend.Models.*;
 
@@ -38,6 +43,15 @@ public class WaterReadingRepository {
     @Autowired
     public LatestWaterReadingRepository latestWaterReadingRepository;
 
+    @Autowired
+    private WaterReadingDayBlockRepository waterReadingDayBlockRepository;
+
+    @Autowired
+    private ColdSegmentStore coldSegmentStore;
+
+    @Value("${water.storage.mode:ITEMS}")
+    private ReadingStorageMode storageMode;
+
     //    @Autowired
     public Home home;
 
@@ -46,6 +60,47 @@ public class WaterReadingRepository {
         return waterReading;
     }
 
+    public ReadingStorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    // Conditional put used as the correctness backstop for ingest dedup; returns false if the reading already exists.
+    // BLOCKS mode reads nothing but blocks, so a reading that cannot be packed is rejected with
+    // IllegalArgumentException instead of being stored where no read would find it
+    public boolean saveIfAbsent(WaterReading waterReading) {
+        boolean packable = WaterReadingDayBlockRepository.isPackable(waterReading);
+        if (storageMode == ReadingStorageMode.BLOCKS) {
+            if (!packable) {
+                throw new IllegalArgumentException("Reading needs an epoch-second timestamp and a flowReading with at most "
+                        + "three decimals: " + waterReading.getTimestamp() + " / " + waterReading.getFlowReading());
+            }
+            return waterReadingDayBlockRepository.append(Collections.singletonList(waterReading)) > 0;
+        }
+        if (!saveItemIfAbsent(waterReading)) {
+            return false;
+        }
+        if (storageMode.writesBlocks() && packable) {
+            waterReadingDayBlockRepository.append(Collections.singletonList(waterReading));
+        }
+        return true;
+    }
+
+    // Used for batches that already went through dedup; the item rows are written by the caller
+    public int appendToDayBlocks(List<WaterReading> waterReadings) {
+        return waterReadingDayBlockRepository.append(waterReadings);
+    }
+
+    private boolean saveItemIfAbsent(WaterReading waterReading) {
+        DynamoDBSaveExpression saveExpression = new DynamoDBSaveExpression()
+                .withExpectedEntry("timestamp", new ExpectedAttributeValue(false));
+        try {
+            dynamoDBMapper.save(waterReading, saveExpression);
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
     public WaterReading findById(String id) {
         return dynamoDBMapper.load(WaterReading.class, id);
     }
@@ -59,15 +114,136 @@ public class WaterReadingRepository {
     }
 
     public List<WaterReading> findWaterReadingByDeviceId(String deviceId) {
+        List<WaterReading> hot;
+        if (storageMode.readsBlocks()) {
+            hot = waterReadingDayBlockRepository.findReadingPage(deviceId, null, null, Integer.MAX_VALUE, null).getResults();
+        } else {
+            Map<String, AttributeValue> eav = new HashMap<>();
+            eav.put(":v1", new AttributeValue().withS(deviceId));
+
+            DynamoDBQueryExpression<WaterReading> queryExpression = new DynamoDBQueryExpression<WaterReading>()
+                    .withKeyConditionExpression("deviceId = :v1")
+                    .withExpressionAttributeValues(eav)
+                    .withScanIndexForward(false);
+
+            hot = dynamoDBMapper.query(WaterReading.class, queryExpression);
+        }
+        if (!coldSegmentStore.hasSegments(ColdSegmentStore.WATER_READING, deviceId)) {
+            return hot;
+        }
+
+        // Archived readings are all older than anything still hot
+        Set<String> hotTimestamps = hot.stream().map(WaterReading::getTimestamp).collect(Collectors.toSet());
+        List<WaterReading> merged = new ArrayList<>(hot);
+        for (WaterReading reading : coldSegmentStore.findWaterReadings(deviceId, Long.MIN_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE, true)) {
+            if (!hotTimestamps.contains(reading.getTimestamp())) {
+                merged.add(reading);
+            }
+        }
+        return merged;
+    }
+
+    // Fetches a single page of a device's readings, newest first. Start and end timestamps are optional.
+    public QueryResultPage<WaterReading> findWaterReadingPage(String deviceId, String startTimestamp, String endTimestamp,
+                                                              int limit, Map<String, AttributeValue> exclusiveStartKey) {
+        if (exclusiveStartKey != null) {
+            AttributeValue cursorDeviceId = exclusiveStartKey.get("deviceId");
+            if (cursorDeviceId == null || !deviceId.equals(cursorDeviceId.getS())) {
+                throw new IllegalArgumentException("Page cursor does not belong to device " + deviceId);
+            }
+        }
+
+        // Once the hot tier is exhausted the page continues into the archived segments; a cursor
+        // tagged with tier=cold skips DynamoDB entirely
+        boolean coldCursor = exclusiveStartKey != null && exclusiveStartKey.containsKey("tier");
+        QueryResultPage<WaterReading> page;
+        if (coldCursor) {
+            page = new QueryResultPage<>();
+            page.setResults(new ArrayList<>());
+        } else if (storageMode.readsBlocks()) {
+            page = waterReadingDayBlockRepository.findReadingPage(deviceId, startTimestamp, endTimestamp, limit, exclusiveStartKey);
+        } else {
+            page = findWaterReadingItemPage(deviceId, startTimestamp, endTimestamp, limit, exclusiveStartKey);
+        }
+        if (page.getLastEvaluatedKey() != null || !coldSegmentStore.hasSegments(ColdSegmentStore.WATER_READING, deviceId)) {
+            return page;
+        }
+
+        List<WaterReading> results = new ArrayList<>(page.getResults());
+        long lower = parseEpochSeconds(startTimestamp, Long.MIN_VALUE);
+        long upper = parseEpochSeconds(endTimestamp, Long.MAX_VALUE);
+        if (exclusiveStartKey != null) {
+            AttributeValue cursorTimestamp = exclusiveStartKey.get("timestamp");
+            if (cursorTimestamp == null) {
+                throw new IllegalArgumentException("Invalid page cursor");
+            }
+            upper = Math.min(upper, parseEpochSeconds(cursorTimestamp.getS(), Long.MAX_VALUE) - 1);
+        }
+        if (!results.isEmpty()) {
+            try {
+                upper = Math.min(upper, Long.parseLong(results.get(results.size() - 1).getTimestamp()) - 1);
+            } catch (NumberFormatException e) {
+                // Legacy non-epoch rows are never archived, so there is nothing older to merge
+                return page;
+            }
+        }
+        if (results.size() < limit) {
+            results.addAll(coldSegmentStore.findWaterReadings(deviceId, lower, upper, limit - results.size(), true));
+        }
+        page.setResults(results);
+        if (results.size() >= limit) {
+            Map<String, AttributeValue> nextKey = new HashMap<>();
+            nextKey.put("deviceId", new AttributeValue().withS(deviceId));
+            nextKey.put("timestamp", new AttributeValue().withS(results.get(results.size() - 1).getTimestamp()));
+            nextKey.put("tier", new AttributeValue().withS("cold"));
+            page.setLastEvaluatedKey(nextKey);
+        }
+        return page;
+    }
+
+    private long parseEpochSeconds(String timestamp, long fallback) {
+        if (timestamp == null) {
+            return fallback;
+        }
+        try {
+            return Long.parseLong(timestamp);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Timestamps must be epoch seconds to page into archived readings");
+        }
+    }
+
+    // Item-table page regardless of storage mode, used by the block migration
+    public QueryResultPage<WaterReading> findWaterReadingItemPage(String deviceId, String startTimestamp, String endTimestamp,
+                                                                  int limit, Map<String, AttributeValue> exclusiveStartKey) {
+
         Map<String, AttributeValue> eav = new HashMap<>();
         eav.put(":v1", new AttributeValue().withS(deviceId));
 
+        String keyCondition = "deviceId = :v1";
+        if (startTimestamp != null && endTimestamp != null) {
+            keyCondition += " and #ts between :start and :end";
+            eav.put(":start", new AttributeValue().withS(startTimestamp));
+            eav.put(":end", new AttributeValue().withS(endTimestamp));
+        } else if (startTimestamp != null) {
+            keyCondition += " and #ts >= :start";
+            eav.put(":start", new AttributeValue().withS(startTimestamp));
+        } else if (endTimestamp != null) {
+            keyCondition += " and #ts <= :end";
+            eav.put(":end", new AttributeValue().withS(endTimestamp));
+        }
+
         DynamoDBQueryExpression<WaterReading> queryExpression = new DynamoDBQueryExpression<WaterReading>()
-                .withKeyConditionExpression("deviceId = :v1")
+                .withKeyConditionExpression(keyCondition)
                 .withExpressionAttributeValues(eav)
-                .withScanIndexForward(false);
+                .withScanIndexForward(false)
+                .withLimit(limit)
+                .withExclusiveStartKey(exclusiveStartKey);
+
+        if (startTimestamp != null || endTimestamp != null) {
+            queryExpression.withExpressionAttributeNames(Collections.singletonMap("#ts", "timestamp"));
+        }
 
-        return dynamoDBMapper.query(WaterReading.class, queryExpression);
+        return dynamoDBMapper.queryPage(WaterReading.class, queryExpression);
     }
 
     public String updateTodaysUsage(Home home) {
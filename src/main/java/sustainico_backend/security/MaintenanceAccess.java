@@ -0,0 +1,41 @@
+package sustainico_backend.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sustainico_backend.util.JwtUtil;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Gate for the endpoints that start table-wide maintenance jobs (retention, UserHomes compaction, block
+// migration). There is no admin role, so operators are listed by contact number; the empty default
+// refuses every caller and leaves the jobs to their schedules.
+@Component
+public class MaintenanceAccess {
+
+    private final Set<String> adminContactNumbers;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    public MaintenanceAccess(@Value("${maintenance.admin-contact-numbers:}") String adminContactNumbers) {
+        this.adminContactNumbers = Arrays.stream(adminContactNumbers.split(","))
+                .map(String::trim)
+                .filter(contactNo -> !contactNo.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    // authorization is the raw "Bearer <jwt>" header
+    public boolean allows(String authorization) {
+        if (adminContactNumbers.isEmpty() || authorization == null || !authorization.startsWith("Bearer ")) {
+            return false;
+        }
+        try {
+            return adminContactNumbers.contains(jwtUtil.extractContactNo(authorization.substring(7)));
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
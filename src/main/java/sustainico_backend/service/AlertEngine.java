@@ -0,0 +1,316 @@
+package sustainico_backend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import sustainico_backend.Models.Alert;
+import sustainico_backend.Models.AlertRule;
+import sustainico_backend.Models.AlertRuleType;
+import sustainico_backend.Models.NewWaterReading;
+import sustainico_backend.Models.NewWaterReading2;
+import sustainico_backend.Models.WaterReading;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+// Evaluates the configured alert rules against every ingested reading. Rules are parsed once at
+// startup; each device keeps one slot per rule (when its condition started holding and the alert it
+// raised), so a reading costs O(rules) regardless of history. Sinks only hear about state changes:
+// an alert is emitted once when raised and once when it clears.
+@Service
+public class AlertEngine {
+
+    private static final long NOT_HOLDING = Long.MIN_VALUE;
+
+    private static final Logger logger = Logger.getLogger(AlertEngine.class.getName());
+
+    private static final class DeviceAlertState {
+        private final long[] conditionSince;
+        private final Alert[] active;
+        private long lastFlowTimestamp = NOT_HOLDING;
+        private double lastTotal;
+        private long lastFlagTimestamp = NOT_HOLDING;
+        private long lastSeen;
+
+        private DeviceAlertState(int rules) {
+            conditionSince = new long[rules];
+            active = new Alert[rules];
+            Arrays.fill(conditionSince, NOT_HOLDING);
+        }
+    }
+
+    private final Map<String, DeviceAlertState> states = new ConcurrentHashMap<>();
+
+    private List<AlertRule> rules = Collections.emptyList();
+
+    private volatile boolean seeded;
+
+    @Autowired
+    private List<AlertSink> alertSinks;
+
+    @Autowired
+    private LatestReadingView latestReadingView;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Opt-in, e.g. no-data:nodata/24h,high-flow:flow>500/15m; empty evaluates nothing
+    @Value("${alerts.rules:}")
+    private String ruleDefinitions;
+
+    // Totalizer readings further apart than this don't produce a flow rate
+    @Value("${alerts.flow.max-gap-seconds:7200}")
+    private long maxGapSeconds;
+
+    @PostConstruct
+    public void compileRules() {
+        rules = List.copyOf(AlertRule.parseAll(ruleDefinitions));
+        logger.info("Loaded " + rules.size() + " alert rules");
+    }
+
+    public List<AlertRule> getRules() {
+        return rules;
+    }
+
+    // intraDay expansions arrive newest first
+    public void onWaterReadings(List<WaterReading> readings) {
+        List<WaterReading> ordered = new ArrayList<>(readings);
+        ordered.sort(Comparator.comparingLong(reading -> parseEpochSeconds(reading.getTimestamp())));
+        ordered.forEach(this::onWaterReading);
+    }
+
+    public void onWaterReading(WaterReading reading) {
+        double total;
+        try {
+            total = Double.parseDouble(reading.getFlowReading());
+        } catch (NumberFormatException | NullPointerException e) {
+            return;
+        }
+        evaluateFlow(reading.getDeviceId(), parseEpochSeconds(reading.getTimestamp()), total);
+    }
+
+    // The totalizer is expanded into waterReading rows separately; only the flags are read here
+    public void onNewWaterReading(NewWaterReading reading) {
+        long timestamp = parseEpochSeconds(reading.getTimestamp());
+        evaluateFlags(reading.getDeviceId(), timestamp, reading.getAlerts(), reading.getStatus());
+    }
+
+    public void onNewWaterReading2(NewWaterReading2 reading) {
+        long timestamp = parseEpochSeconds(reading.getTimestamp());
+        evaluateFlow(reading.getDeviceId(), timestamp, reading.getLiters() + reading.getMilliliters() / 1000.0);
+        evaluateFlags(reading.getDeviceId(), timestamp, null, reading.getStatus());
+    }
+
+    public List<Alert> getActiveAlerts(String deviceId) {
+        List<Alert> alerts = new ArrayList<>();
+        states.forEach((id, state) -> {
+            if (deviceId == null || deviceId.equals(id)) {
+                synchronized (state) {
+                    for (Alert alert : state.active) {
+                        if (alert != null) {
+                            alerts.add(alert);
+                        }
+                    }
+                }
+            }
+        });
+        return alerts;
+    }
+
+    // NO_DATA rules can only fire on a clock, so devices are swept periodically
+    @Scheduled(fixedDelayString = "${alerts.no-data.check-interval-ms:60000}")
+    public void checkSilentDevices() {
+        if (rules.stream().noneMatch(rule -> rule.getType() == AlertRuleType.NO_DATA)) {
+            return;
+        }
+        seedFromLatestReadings();
+        long now = System.currentTimeMillis() / 1000;
+        List<Alert> emitted = new ArrayList<>();
+        states.forEach((deviceId, state) -> {
+            synchronized (state) {
+                for (int i = 0; i < rules.size(); i++) {
+                    AlertRule rule = rules.get(i);
+                    if (rule.getType() == AlertRuleType.NO_DATA && now - state.lastSeen >= rule.getDurationSeconds()) {
+                        raise(deviceId, state, i, now, "No data for " + (now - state.lastSeen) / 3600 + "h", emitted);
+                    }
+                }
+            }
+        });
+        emit(emitted);
+    }
+
+    private void evaluateFlow(String deviceId, long timestamp, double total) {
+        if (deviceId == null || timestamp == NOT_HOLDING) {
+            return;
+        }
+        List<Alert> emitted = new ArrayList<>();
+        DeviceAlertState state = stateOf(deviceId);
+        synchronized (state) {
+            applyFlow(deviceId, state, timestamp, total, emitted);
+        }
+        emit(emitted);
+    }
+
+    private void applyFlow(String deviceId, DeviceAlertState state, long timestamp, double total, List<Alert> emitted) {
+        markSeen(deviceId, state, timestamp, emitted);
+        if (timestamp <= state.lastFlowTimestamp) {
+            // Late or repeated reading
+            return;
+        }
+        long previousTimestamp = state.lastFlowTimestamp;
+        long gap = timestamp - previousTimestamp;
+        double delta = total - state.lastTotal;
+        boolean measurable = previousTimestamp != NOT_HOLDING && gap <= maxGapSeconds && delta >= 0;
+        double flowPerHour = measurable ? delta * 3600.0 / gap : 0;
+
+        for (int i = 0; i < rules.size(); i++) {
+            AlertRule rule = rules.get(i);
+            if (rule.getType() != AlertRuleType.FLOW_ABOVE) {
+                continue;
+            }
+            if (measurable && flowPerHour > rule.getThreshold()) {
+                if (state.conditionSince[i] == NOT_HOLDING) {
+                    state.conditionSince[i] = previousTimestamp;
+                }
+                if (timestamp - state.conditionSince[i] >= rule.getDurationSeconds()) {
+                    raise(deviceId, state, i, timestamp, String.format("Flow %.1f L/h above %.1f L/h for %d min",
+                            flowPerHour, rule.getThreshold(), (timestamp - state.conditionSince[i]) / 60), emitted);
+                }
+            } else {
+                // A gap or meter reset also ends the run; nothing is known about the time in between
+                state.conditionSince[i] = NOT_HOLDING;
+                clear(state, i, timestamp, emitted);
+            }
+        }
+        state.lastFlowTimestamp = timestamp;
+        state.lastTotal = total;
+    }
+
+    private void evaluateFlags(String deviceId, long timestamp, Map<String, Boolean> alerts, Map<String, Boolean> status) {
+        if (deviceId == null || timestamp == NOT_HOLDING) {
+            return;
+        }
+        List<Alert> emitted = new ArrayList<>();
+        DeviceAlertState state = stateOf(deviceId);
+        synchronized (state) {
+            markSeen(deviceId, state, timestamp, emitted);
+            if (timestamp > state.lastFlagTimestamp) {
+                state.lastFlagTimestamp = timestamp;
+                for (int i = 0; i < rules.size(); i++) {
+                    AlertRule rule = rules.get(i);
+                    if (rule.getType() != AlertRuleType.FLAG_SET) {
+                        continue;
+                    }
+                    Map<String, Boolean> flags = rule.getFlagSource().equals("alerts") ? alerts : status;
+                    if (flags == null) {
+                        // This uplink type doesn't carry the map; leave the alert as it is
+                        continue;
+                    }
+                    String setFlags = setFlags(flags, rule.getFlagKey());
+                    if (!setFlags.isEmpty()) {
+                        raise(deviceId, state, i, timestamp, rule.getFlagSource() + "." + setFlags + " set", emitted);
+                    } else {
+                        clear(state, i, timestamp, emitted);
+                    }
+                }
+            }
+        }
+        emit(emitted);
+    }
+
+    private String setFlags(Map<String, Boolean> flags, String key) {
+        if (!AlertRule.ANY_FLAG.equals(key)) {
+            return Boolean.TRUE.equals(flags.get(key)) ? key : "";
+        }
+        StringBuilder set = new StringBuilder();
+        flags.forEach((name, value) -> {
+            if (Boolean.TRUE.equals(value)) {
+                set.append(set.length() == 0 ? "" : ",").append(name);
+            }
+        });
+        return set.toString();
+    }
+
+    private void markSeen(String deviceId, DeviceAlertState state, long timestamp, List<Alert> emitted) {
+        state.lastSeen = Math.max(state.lastSeen, System.currentTimeMillis() / 1000);
+        for (int i = 0; i < rules.size(); i++) {
+            if (rules.get(i).getType() == AlertRuleType.NO_DATA) {
+                clear(state, i, timestamp, emitted);
+            }
+        }
+    }
+
+    private void raise(String deviceId, DeviceAlertState state, int rule, long timestamp, String message, List<Alert> emitted) {
+        if (state.active[rule] != null) {
+            return;
+        }
+        AlertRule alertRule = rules.get(rule);
+        Alert alert = new Alert(deviceId, alertRule.getName(), alertRule.getType(), Alert.RAISED, message, timestamp);
+        state.active[rule] = alert;
+        emitted.add(alert);
+        meterRegistry.counter("alerts.raised", "rule", alertRule.getName()).increment();
+    }
+
+    private void clear(DeviceAlertState state, int rule, long timestamp, List<Alert> emitted) {
+        Alert active = state.active[rule];
+        if (active == null) {
+            return;
+        }
+        state.active[rule] = null;
+        emitted.add(new Alert(active.getDeviceId(), active.getRuleName(), active.getType(), Alert.CLEARED,
+                "Cleared: " + active.getMessage(), timestamp));
+    }
+
+    private void emit(List<Alert> alerts) {
+        for (Alert alert : alerts) {
+            for (AlertSink sink : alertSinks) {
+                try {
+                    sink.emit(alert);
+                } catch (RuntimeException err) {
+                    logger.warning("Alert sink " + sink.getClass().getSimpleName() + " failed: " + err.getMessage());
+                }
+            }
+        }
+    }
+
+    private DeviceAlertState stateOf(String deviceId) {
+        return states.computeIfAbsent(deviceId, id -> new DeviceAlertState(rules.size()));
+    }
+
+    // Devices that went quiet before a restart are only known from the latest reading view. Alert state is
+    // not persisted, so their silence is counted from the seeding instead of from the last reading: a
+    // redeploy, or another node, would otherwise raise again every NO_DATA alert that was already raised
+    private void seedFromLatestReadings() {
+        if (seeded || latestReadingView.size() == 0) {
+            return;
+        }
+        long now = System.currentTimeMillis() / 1000;
+        for (WaterReading latest : latestReadingView.getLatestReadings()) {
+            if (latest.getDeviceId() != null) {
+                states.computeIfAbsent(latest.getDeviceId(), id -> {
+                    DeviceAlertState state = new DeviceAlertState(rules.size());
+                    state.lastSeen = now;
+                    return state;
+                });
+            }
+        }
+        seeded = true;
+    }
+
+    private static long parseEpochSeconds(String timestamp) {
+        try {
+            return Long.parseLong(timestamp);
+        } catch (NumberFormatException | NullPointerException e) {
+            return NOT_HOLDING;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package sustainico_backend.service;
+
+import sustainico_backend.Models.Alert;
+
+// Receives alerts when they are raised and when they clear. Every AlertSink bean is called in turn,
+// on the thread that evaluated the reading, so implementations should hand slow work off.
+public interface AlertSink {
+
+    void emit(Alert alert);
+}
@@ -0,0 +1,139 @@
+package sustainico_backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import sustainico_backend.Models.IngestFrameResult;
+import sustainico_backend.Models.NewWaterReading;
+import sustainico_backend.Models.NewWaterReading2;
+import sustainico_backend.Models.WaterReading;
+import sustainico_backend.util.IngestFrameCodec;
+import sustainico_backend.util.ReadingBlockCodec;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Stores the readings of one IngestFrameCodec frame through the same services as the JSON endpoints,
+// so dedup, status transitions, alerts and the intraDay expansion behave identically.
+// newWaterReading2 puts are issued together; waterReading samples and LoRa uplinks store their raw
+// row on the calling thread, as the webhooks do, and LoRa expansion continues on the ingest executor.
+@Service
+public class BinaryIngestService {
+
+    // Epoch second that LoRa period indexes count from
+    private static final long LORA_EPOCH = 1577817000L;
+
+    @Autowired
+    private WaterReadingService waterReadingService;
+
+    @Autowired
+    private NewWaterReading2Service newWaterReading2Service;
+
+    @Autowired
+    private NewWaterReadingService newWaterReadingService;
+
+    // The models of one frame, decoded and ready to store
+    public static final class DecodedFrame {
+        private final List<WaterReading> waterReadings = new ArrayList<>();
+        private final List<NewWaterReading2> newWaterReadings2 = new ArrayList<>();
+        private final List<NewWaterReading> uplinks = new ArrayList<>();
+        private int received;
+
+        public int getReceived() {
+            return received;
+        }
+    }
+
+    public CompletableFuture<IngestFrameResult> ingest(byte[] frame, int offset, int length) {
+        return store(decode(ByteBuffer.wrap(frame, offset, length)));
+    }
+
+    // Pure CPU and safe on an I/O thread; the buffer is not needed once this returns.
+    // Throws IllegalArgumentException for a malformed frame, before anything is stored
+    public DecodedFrame decode(ByteBuffer frame) {
+        long now = Instant.now().getEpochSecond();
+        DecodedFrame decoded = new DecodedFrame();
+        decoded.received = IngestFrameCodec.decode(frame, new IngestFrameCodec.Visitor() {
+            @Override
+            public void waterReading(String deviceId, long timestamp, long flowReadingMilliUnits) {
+                WaterReading reading = new WaterReading();
+                reading.setDeviceId(deviceId);
+                reading.setTimestamp(String.valueOf(timestamp != 0 ? timestamp : now));
+                reading.setFlowReading(ReadingBlockCodec.fromMilliUnits(flowReadingMilliUnits));
+                decoded.waterReadings.add(reading);
+            }
+
+            @Override
+            public void newWaterReading2(String deviceId, long timestamp, long liters, long milliliters,
+                                         Map<String, Boolean> status) {
+                NewWaterReading2 reading = new NewWaterReading2();
+                reading.setDeviceId(deviceId);
+                reading.setTimestamp(String.valueOf(timestamp != 0 ? timestamp : now));
+                reading.setLiters(liters);
+                reading.setMilliliters(milliliters);
+                reading.setStatus(status);
+                decoded.newWaterReadings2.add(reading);
+            }
+
+            @Override
+            public void loraUplink(String deviceId, long timestamp, int key, int index, int totalizer,
+                                   Map<String, Boolean> alerts, Map<String, Boolean> status, int[] intraDay) {
+                NewWaterReading uplink = new NewWaterReading();
+                uplink.setDeviceId(deviceId);
+                uplink.setTimestamp(timestamp != 0 ? String.valueOf(timestamp) : null);
+                uplink.setKey(key);
+                uplink.setIndex(index);
+                uplink.setTotalizer(totalizer);
+                uplink.setAlerts(alerts);
+                uplink.setStatus(status);
+                List<Integer> used = new ArrayList<>(intraDay.length);
+                for (int value : intraDay) {
+                    used.add(value);
+                }
+                uplink.setIntraDay(used);
+                decoded.uplinks.add(uplink);
+            }
+        });
+        return decoded;
+    }
+
+    // Blocks on the waterReading and LoRa puts; completes once every newWaterReading2 put has
+    public CompletableFuture<IngestFrameResult> store(DecodedFrame frame) {
+        long now = Instant.now().getEpochSecond();
+        AtomicInteger stored = new AtomicInteger();
+        AtomicInteger duplicates = new AtomicInteger();
+        int skipped = 0;
+
+        List<CompletableFuture<?>> pending = new ArrayList<>();
+        for (NewWaterReading2 reading : frame.newWaterReadings2) {
+            pending.add(newWaterReading2Service.saveReadingAsync(reading)
+                    .thenAccept(saved -> (saved ? stored : duplicates).incrementAndGet()));
+        }
+        for (WaterReading reading : frame.waterReadings) {
+            (waterReadingService.storeWaterReading(reading) ? stored : duplicates).incrementAndGet();
+        }
+        for (NewWaterReading uplink : frame.uplinks) {
+            // Same guard as NewWaterReadingController: no uplinks for periods that have not started
+            long startTimestamp = (uplink.getKey() * uplink.getIndex() * 3600L) + LORA_EPOCH;
+            if (startTimestamp >= now || uplink.getTotalizer() <= 0) {
+                skipped++;
+                continue;
+            }
+            if (newWaterReadingService.storeUplink(uplink)) {
+                stored.incrementAndGet();
+                // Not awaited, as on the webhook: the raw row is what the sender needs acknowledged
+                newWaterReadingService.expandInBackground(uplink);
+            } else {
+                duplicates.incrementAndGet();
+            }
+        }
+
+        int finalSkipped = skipped;
+        return CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new))
+                .thenApply(done -> new IngestFrameResult(frame.received, stored.get(), duplicates.get(), finalSkipped));
+    }
+}
@@ -0,0 +1,235 @@
+package sustainico_backend.service;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import sustainico_backend.Models.*;
+import sustainico_backend.rep.EntityCache;
+import sustainico_backend.rep.PushTokenRepository;
+import sustainico_backend.rep.UserHomesRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+// Deletes a home, or a user with all their homes, and releases every device listed in those homes.
+// All keys are collected up front (userId-index and the UserHomes row, then one consistent batch load
+// of homes and one of devices), and the writes go out as concurrent batch chunks: device releases
+// first, then homes and push tokens, then the UserHomes and user rows. A later step only runs once the
+// one before it fully landed, so a failed job leaves the account findable and can simply be started again.
+@Service
+public class CascadeDeleteService {
+
+    private static final Logger logger = Logger.getLogger(CascadeDeleteService.class.getName());
+
+    private static final DynamoDBMapperConfig CONSISTENT_READS = DynamoDBMapperConfig.builder()
+            .withConsistentReads(DynamoDBMapperConfig.ConsistentReads.CONSISTENT)
+            .build();
+
+    @Autowired
+    private DynamoDBMapper dynamoDBMapper;
+
+    @Autowired
+    private DynamoDbBatchWriter dynamoDbBatchWriter;
+
+    @Autowired
+    private UserHomesRepository userHomesRepository;
+
+    @Autowired
+    private PushTokenRepository pushTokenRepository;
+
+    @Autowired
+    private EntityCache<Device> deviceCache;
+
+    @Autowired
+    private EntityCache<Home> homeCache;
+
+    @Autowired
+    private EntityCache<User> userCache;
+
+    // Finished jobs stay queryable this long
+    @Value("${cascade-delete.job-retention-minutes:60}")
+    private long jobRetentionMinutes;
+
+    // One job at a time; the batch chunks of that job still run on the batch write pool
+    private final ExecutorService cascadeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cascade-delete");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, CascadeDeleteJob> jobs = new ConcurrentHashMap<>();
+
+    // Runs on the calling thread; check the returned job's status
+    public CascadeDeleteJob deleteHome(Home home) {
+        CascadeDeleteJob job = newJob("home", home.getHomeId(), home.getUserId());
+        run(job, null, home.getHomeId());
+        return job;
+    }
+
+    public CascadeDeleteJob deleteUser(User user) {
+        CascadeDeleteJob job = newUserJob(user);
+        run(job, user, null);
+        return job;
+    }
+
+    // Queues the delete and returns at once; poll getJob with the returned jobId
+    public CascadeDeleteJob startHomeDelete(Home home) {
+        CascadeDeleteJob job = newJob("home", home.getHomeId(), home.getUserId());
+        cascadeExecutor.execute(() -> run(job, null, home.getHomeId()));
+        return job;
+    }
+
+    public CascadeDeleteJob startUserDelete(User user) {
+        CascadeDeleteJob job = newUserJob(user);
+        cascadeExecutor.execute(() -> run(job, user, null));
+        return job;
+    }
+
+    public CascadeDeleteJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    private CascadeDeleteJob newUserJob(User user) {
+        CascadeDeleteJob job = newJob("user", user.getUserId(), user.getUserId());
+        job.setContactNo(user.getContactNo());
+        return job;
+    }
+
+    private CascadeDeleteJob newJob(String kind, String targetId, String userId) {
+        long cutoff = System.currentTimeMillis() - jobRetentionMinutes * 60_000;
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt() < cutoff);
+        CascadeDeleteJob job = new CascadeDeleteJob(UUID.randomUUID().toString(), kind, targetId, userId);
+        jobs.put(job.getJobId(), job);
+        return job;
+    }
+
+    // user is null for a single home delete, homeId is null for a user delete
+    private void run(CascadeDeleteJob job, User user, String homeId) {
+        job.setStatus("running");
+        String userId = job.getUserId();
+        Set<String> homeIds = new LinkedHashSet<>();
+        Set<String> deviceIds = new LinkedHashSet<>();
+        try {
+            if (homeId != null) {
+                homeIds.add(homeId);
+            } else {
+                homeIds.addAll(findHomeIds(userId));
+            }
+            List<Home> homes = load(Home.class, homeIds, id -> {
+                Home key = new Home();
+                key.setHomeId(id);
+                return key;
+            });
+            homes.stream()
+                    .filter(home -> home.getDevices() != null)
+                    .forEach(home -> home.getDevices().forEach(entry -> deviceIds.add(entry.getDeviceId())));
+            deviceIds.remove(null);
+            job.setHomes(homes.size());
+            job.setDevices(deviceIds.size());
+
+            List<Device> devices = load(Device.class, deviceIds, id -> {
+                Device key = new Device();
+                key.setDeviceId(id);
+                return key;
+            });
+            devices.forEach(device -> release(device, userId, homeIds));
+            if (!landed(job, dynamoDbBatchWriter.saveAll(devices), "device releases")) {
+                return;
+            }
+
+            List<Object> toDelete = new ArrayList<>(homes);
+            if (user != null) {
+                toDelete.addAll(pushTokenRepository.findByUserId(userId));
+            }
+            if (!landed(job, dynamoDbBatchWriter.deleteAll(toDelete), "home deletes")) {
+                return;
+            }
+
+            if (user == null) {
+                userHomesRepository.removeHome(userId, homeId);
+            } else if (!landed(job, dynamoDbBatchWriter.deleteAll(List.of(new UserHomes(userId, null), user)), "user deletes")) {
+                return;
+            }
+            job.setStatus("done");
+            logger.info("Cascade delete of " + job.getKind() + " " + job.getTargetId() + " removed "
+                    + homes.size() + " homes and released " + devices.size() + " devices");
+        } catch (RuntimeException err) {
+            logger.warning("Cascade delete of " + job.getKind() + " " + job.getTargetId() + " failed: " + err.getMessage());
+            job.setMessage(err.getMessage());
+            job.setStatus("failed");
+        } finally {
+            job.setFinishedAt(System.currentTimeMillis());
+            deviceIds.forEach(deviceCache::invalidate);
+            homeIds.forEach(homeCache::invalidate);
+            if (user != null) {
+                userCache.invalidate(userId);
+            }
+        }
+    }
+
+    private boolean landed(CascadeDeleteJob job, BatchWriteResult result, String step) {
+        if (result.isComplete()) {
+            return true;
+        }
+        job.setFailedItems(result.getFailedItems());
+        job.setMessage(result.getFailedItems() + " " + step + " were not written; later steps skipped");
+        job.setStatus("failed");
+        return false;
+    }
+
+    // Same reset as DeviceService.deleteDevice2, and the deleted homes are dropped from homeIds
+    private static void release(Device device, String userId, Set<String> deletedHomeIds) {
+        if (userId.equals(device.getOwnerId())) {
+            device.setDeviceName(null);
+            device.setStatus("NEW");
+            device.setBillAccNo(null);
+            device.setOwnerId(null);
+            device.setViewerId(null);
+            device.setInitialPin(null);
+            device.setDigitalPin(null);
+            device.setPinExpiryTimestamp(null);
+        } else if (device.getViewerId() != null) {
+            device.getViewerId().removeIf(userId::equals);
+        }
+        if (device.getHomeIds() != null) {
+            device.getHomeIds().removeIf(deletedHomeIds::contains);
+        }
+    }
+
+    // Homes listed on the user's UserHomes row plus any the index knows of that the row missed
+    private Set<String> findHomeIds(String userId) {
+        Set<String> homeIds = new LinkedHashSet<>();
+        UserHomes userHomes = dynamoDBMapper.load(UserHomes.class, userId, CONSISTENT_READS);
+        if (userHomes != null && userHomes.getHomes() != null) {
+            homeIds.addAll(userHomes.getHomes());
+        }
+        Home hashKey = new Home();
+        hashKey.setUserId(userId);
+        DynamoDBQueryExpression<Home> query = new DynamoDBQueryExpression<Home>()
+                .withIndexName("userId-index")
+                .withHashKeyValues(hashKey)
+                .withConsistentRead(false);
+        dynamoDBMapper.query(Home.class, query).forEach(home -> homeIds.add(home.getHomeId()));
+        homeIds.remove(null);
+        return homeIds;
+    }
+
+    // One consistent batch load; the mapper splits it into 100-key requests and retries unprocessed keys
+    private <T> List<T> load(Class<T> type, Collection<String> ids, Function<String, T> keyOf) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<T> keys = ids.stream().map(keyOf).toList();
+        List<T> items = new ArrayList<>();
+        dynamoDBMapper.batchLoad(keys, CONSISTENT_READS).values()
+                .forEach(loaded -> loaded.forEach(item -> items.add(type.cast(item))));
+        return items;
+    }
+}
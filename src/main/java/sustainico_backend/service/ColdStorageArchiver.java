@@ -0,0 +1,254 @@
+package sustainico_backend.service;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.QueryResultPage;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import sustainico_backend.Models.BatchWriteResult;
+import sustainico_backend.Models.Device;
+import sustainico_backend.Models.NewWaterReading2;
+import sustainico_backend.Models.ReadingStorageMode;
+import sustainico_backend.Models.WaterReading;
+import sustainico_backend.Models.WaterReadingDayBlock;
+import sustainico_backend.rep.ColdSegmentStore;
+import sustainico_backend.rep.DeviceRepository;
+import sustainico_backend.rep.NewWaterReading2Repository;
+import sustainico_backend.rep.WaterReadingDayBlockRepository;
+import sustainico_backend.rep.WaterReadingRepository;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+// Moves raw readings older than water.cold.after-days out of DynamoDB into the cold segment store,
+// from the item rows, the day blocks or both, depending on which layouts water.storage.mode writes.
+// Each device-month is written (and fsynced) before its rows are batch-deleted, so a crash between
+// the two steps only means the next run archives the same rows again, which the segment merge absorbs.
+// Enable it on exactly one node: two archivers would rewrite the same segment files and race on the
+// deletes. The segments are the only copy of archived rows, so startup fails when water.cold.dir is
+// on ephemeral storage, and every node that serves reads must see the same directory (a shared
+// volume, or a single-node deployment).
+@Service
+public class ColdStorageArchiver {
+
+    private static final int PAGE_SIZE = 1000;
+
+    private static final Logger logger = Logger.getLogger(ColdStorageArchiver.class.getName());
+
+    @Autowired
+    private ColdSegmentStore coldSegmentStore;
+
+    @Autowired
+    private WaterReadingRepository waterReadingRepository;
+
+    @Autowired
+    private WaterReadingDayBlockRepository waterReadingDayBlockRepository;
+
+    @Autowired
+    private NewWaterReading2Repository newWaterReading2Repository;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private DynamoDbBatchWriter dynamoDbBatchWriter;
+
+    @Value("${water.cold.enabled:false}")
+    private boolean enabled;
+
+    @Value("${water.cold.after-days:90}")
+    private int afterDays;
+
+    // Only for tests and local runs that archive into a throwaway directory
+    @Value("${water.cold.allow-ephemeral-dir:false}")
+    private boolean allowEphemeralDir;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @PostConstruct
+    public void checkColdDir() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        String reason = ColdSegmentStore.ephemeralReason(coldSegmentStore.getRoot());
+        if (reason == null) {
+            return;
+        }
+        if (!allowEphemeralDir) {
+            throw new IllegalStateException("water.cold.enabled is true but water.cold.dir " + reason
+                    + "; archived readings would be lost on restart. Point it at a persistent volume");
+        }
+        logger.warning("Cold segments are written to ephemeral storage: " + reason);
+    }
+
+    @Scheduled(cron = "${water.cold.archive-cron:0 30 2 * * ?}", zone = "Asia/Kolkata") // Every night at 02:30 IST by default
+    public void scheduledArchive() {
+        if (enabled) {
+            archiveAll();
+        }
+    }
+
+    // Returns the number of rows archived per table
+    public Map<String, Integer> archiveAll() {
+        Map<String, Integer> archived = new HashMap<>();
+        if (!running.compareAndSet(false, true)) {
+            logger.info("Cold storage archive already running");
+            return archived;
+        }
+        try {
+            long cutoff = Instant.now().minus(Duration.ofDays(afterDays)).getEpochSecond();
+            ReadingStorageMode storageMode = waterReadingRepository.getStorageMode();
+            for (Device device : deviceRepository.findAll()) {
+                String deviceId = device.getDeviceId();
+                try {
+                    if (storageMode.writesItems()) {
+                        archived.merge(ColdSegmentStore.WATER_READING, archiveWaterReadings(deviceId, cutoff), Integer::sum);
+                    }
+                    if (storageMode.writesBlocks()) {
+                        archived.merge(ColdSegmentStore.WATER_READING, archiveDayBlocks(deviceId, cutoff), Integer::sum);
+                    }
+                    archived.merge(ColdSegmentStore.NEW_WATER_READING_2, archiveNewWaterReading2(deviceId, cutoff), Integer::sum);
+                } catch (RuntimeException err) {
+                    logger.warning("Cold storage archive failed for " + deviceId + ": " + err.getMessage());
+                }
+            }
+            logger.info("Cold storage archive finished: " + archived);
+            return archived;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public int archiveWaterReadings(String deviceId, long cutoff) {
+        int archived = 0;
+        YearMonth currentMonth = null;
+        List<WaterReading> monthReadings = new ArrayList<>();
+        Map<String, AttributeValue> exclusiveStartKey = null;
+        do {
+            QueryResultPage<WaterReading> page = waterReadingRepository.findWaterReadingItemPage(
+                    deviceId, null, String.valueOf(cutoff - 1), PAGE_SIZE, exclusiveStartKey);
+            for (WaterReading reading : page.getResults()) {
+                // Rows the segment format cannot hold stay in DynamoDB
+                if (!WaterReadingDayBlockRepository.isPackable(reading)) {
+                    continue;
+                }
+                YearMonth month = ColdSegmentStore.monthOf(Long.parseLong(reading.getTimestamp()));
+                if (!month.equals(currentMonth)) {
+                    archived += flushWaterReadings(deviceId, currentMonth, monthReadings);
+                    currentMonth = month;
+                }
+                monthReadings.add(reading);
+            }
+            exclusiveStartKey = page.getLastEvaluatedKey();
+        } while (exclusiveStartKey != null);
+        return archived + flushWaterReadings(deviceId, currentMonth, monthReadings);
+    }
+
+    // Only whole days before the cutoff's IST day are archived, so every block is either hot or cold
+    public int archiveDayBlocks(String deviceId, long cutoff) {
+        int archived = 0;
+        YearMonth currentMonth = null;
+        List<WaterReadingDayBlock> monthBlocks = new ArrayList<>();
+        for (WaterReadingDayBlock block : waterReadingDayBlockRepository.findBlocksBefore(
+                deviceId, WaterReadingDayBlockRepository.dayOf(cutoff))) {
+            YearMonth month = YearMonth.parse(block.getDay().substring(0, 7));
+            if (!month.equals(currentMonth)) {
+                archived += flushDayBlocks(deviceId, currentMonth, monthBlocks);
+                currentMonth = month;
+            }
+            monthBlocks.add(block);
+        }
+        return archived + flushDayBlocks(deviceId, currentMonth, monthBlocks);
+    }
+
+    public int archiveNewWaterReading2(String deviceId, long cutoff) {
+        int archived = 0;
+        YearMonth currentMonth = null;
+        List<NewWaterReading2> monthReadings = new ArrayList<>();
+        Map<String, AttributeValue> exclusiveStartKey = null;
+        do {
+            QueryResultPage<NewWaterReading2> page = newWaterReading2Repository.findHotReadingPageBefore(
+                    deviceId, String.valueOf(cutoff - 1), PAGE_SIZE, exclusiveStartKey);
+            for (NewWaterReading2 reading : page.getResults()) {
+                YearMonth month;
+                try {
+                    month = ColdSegmentStore.monthOf(Long.parseLong(reading.getTimestamp()));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if (!month.equals(currentMonth)) {
+                    archived += flushNewWaterReading2(deviceId, currentMonth, monthReadings);
+                    currentMonth = month;
+                }
+                monthReadings.add(reading);
+            }
+            exclusiveStartKey = page.getLastEvaluatedKey();
+        } while (exclusiveStartKey != null);
+        return archived + flushNewWaterReading2(deviceId, currentMonth, monthReadings);
+    }
+
+    private int flushWaterReadings(String deviceId, YearMonth month, List<WaterReading> readings) {
+        if (readings.isEmpty()) {
+            return 0;
+        }
+        coldSegmentStore.archiveWaterReadings(deviceId, month, readings);
+        return deleteArchived(deviceId, month, readings);
+    }
+
+    // A block that took a late append after it was read keeps its version check from being deleted;
+    // the next run merges it into the segment again
+    private int flushDayBlocks(String deviceId, YearMonth month, List<WaterReadingDayBlock> blocks) {
+        if (blocks.isEmpty()) {
+            return 0;
+        }
+        List<WaterReading> readings = new ArrayList<>();
+        int[] blockSizes = new int[blocks.size()];
+        for (int i = 0; i < blocks.size(); i++) {
+            List<WaterReading> blockReadings = WaterReadingDayBlockRepository.readingsOf(blocks.get(i));
+            blockSizes[i] = blockReadings.size();
+            readings.addAll(blockReadings);
+        }
+        coldSegmentStore.archiveWaterReadings(deviceId, month, readings);
+        int archived = 0;
+        for (int i = 0; i < blocks.size(); i++) {
+            WaterReadingDayBlock block = blocks.get(i);
+            if (waterReadingDayBlockRepository.deleteIfUnchanged(block)) {
+                archived += blockSizes[i];
+            } else {
+                logger.warning("Day block " + deviceId + " " + block.getDay()
+                        + " changed while it was archived; it will be retried on the next run");
+            }
+        }
+        blocks.clear();
+        return archived;
+    }
+
+    private int flushNewWaterReading2(String deviceId, YearMonth month, List<NewWaterReading2> readings) {
+        if (readings.isEmpty()) {
+            return 0;
+        }
+        coldSegmentStore.archiveNewWaterReading2(deviceId, month, readings);
+        return deleteArchived(deviceId, month, readings);
+    }
+
+    private int deleteArchived(String deviceId, YearMonth month, List<?> readings) {
+        BatchWriteResult result = dynamoDbBatchWriter.deleteAll(new ArrayList<>(readings));
+        if (!result.isComplete()) {
+            logger.warning("Archived " + deviceId + " " + month + " but " + result.getFailedItems()
+                    + " rows are still in DynamoDB; they will be retried on the next run");
+        }
+        int archived = readings.size();
+        readings.clear();
+        return archived;
+    }
+}
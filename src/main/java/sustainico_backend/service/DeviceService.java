@@ -8,6 +8,7 @@ import sustainico_backend.Models.Home;
 import sustainico_backend.Models.DeviceArray;
 import sustainico_backend.Models.User;
 import sustainico_backend.rep.DeviceRepository;
+import sustainico_backend.rep.HomeDevicesRepository;
 import sustainico_backend.rep.HomeRepository;
 import sustainico_backend.rep.UserRepository;
 import sustainico_backend.util.ApiResponse;
@@ -27,6 +28,9 @@ public class DeviceService {
     @Autowired
     private HomeRepository homeRepository;
 
+    @Autowired
+    private HomeDevicesRepository homeDevicesRepository;
+
 
     @Autowired
     public DeviceService(DeviceRepository deviceRepository) {
@@ -171,56 +175,26 @@ public class DeviceService {
         Optional<Device> deviceOptional = getDeviceById(deviceId);
         if (deviceOptional.isPresent()) {
             Device device = deviceOptional.get();
-            device.setDeviceName(newName);
-
-            // Update device name in the device table
-            Device updatedDevice = deviceRepository.save(device);
 
-            // If the user is the owner, update the device name in all homes in homeIds
-            if (device.getHomeIds() != null) {
-                for (String id : device.getHomeIds()) {
-                    updateDeviceNameInHome(id, deviceId, newName);
-                }
-            }
-            return updatedDevice;
+            // Device row and the name in every home in homeIds, in one transaction
+            List<String> homeIds = device.getHomeIds() != null ? device.getHomeIds() : List.of();
+            homeDevicesRepository.renameDevice(deviceId, homeIds, newName);
+            device.setDeviceName(newName);
+            return device;
         } else {
             throw new IllegalArgumentException("Device not found");
         }
     }
 
-    // Helper method to update the device name in a specific home by homeId
-    private void updateDeviceNameInHome(String homeId, String deviceId, String newName) {
-        Home home = homeRepository.findByHomeId(homeId);
-        if (home != null) {
-            List<DeviceArray> deviceArray = home.getDevices();
-
-            if (deviceArray != null) {
-                for (DeviceArray device : deviceArray) {
-                    if (device.getDeviceId().equals(deviceId)) {
-                        device.setDeviceName(newName);
-                        break;
-                    }
-                }
-
-                // Save the updated home back to the repository
-                home.setDevices(deviceArray);
-                homeRepository.save(home);
-            }
-        } else {
-            throw new IllegalArgumentException("Home not found");
-        }
-    }
-
     public Device deleteDevice(String deviceId, String userId, String homeId) {
         Optional<Device> deviceOptional = getDeviceById(deviceId);
         if (deviceOptional.isPresent()) {
             Device device = deviceOptional.get();
+            List<String> detachFrom = new ArrayList<>();
             if (device.getOwnerId().equals(userId)) {
                 // Remove device from deviceArray of all homes in homeIds
                 if (device.getHomeIds() != null) {
-                    for (String id : device.getHomeIds()) {
-                        removeDeviceFromHome(id, deviceId);
-                    }
+                    detachFrom.addAll(device.getHomeIds());
                 }
 
                 // Reset device attributes
@@ -240,36 +214,18 @@ public class DeviceService {
 
                     // Remove device from the specific homeId provided
                     if (homeId != null) {
-                        removeDeviceFromHome(homeId, deviceId);
+                        detachFrom.add(homeId);
                     }
                 }
             }
-            return deviceRepository.save(device);
+            // Device row and the homes' device lists are written in one transaction
+            homeDevicesRepository.detachDevice(device, detachFrom);
+            return device;
         } else {
             throw new IllegalArgumentException("Device not found");
         }
     }
 
-    // Helper method to remove the device from the home by homeId
-    private void removeDeviceFromHome(String homeId, String deviceId) {
-        // Fetch the home object by homeId
-        Home home = homeRepository.findByHomeId(homeId);
-        if (home != null) {
-            List<DeviceArray> deviceArray = home.getDevices();
-
-            // If deviceArray is not null, iterate and remove the device
-            if (deviceArray != null) {
-                deviceArray.removeIf(device -> device.getDeviceId().equals(deviceId));
-
-                // Set the updated device list back to the home object
-                home.setDevices(deviceArray);
-                homeRepository.save(home);
-            }
-        } else {
-            throw new IllegalArgumentException("Home not found");
-        }
-    }
-
 
     public Device deleteDevice2(String deviceId, String userId) {
         Optional<Device> deviceOptional = getDeviceById(deviceId);
@@ -0,0 +1,177 @@
+package sustainico_backend.service;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMappingException;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import sustainico_backend.Models.BatchWriteResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+// Splits mapper objects into 25-item BatchWriteItem chunks, writes the chunks concurrently and
+// retries whatever DynamoDB leaves unprocessed with exponential backoff and jitter.
+@Service
+public class DynamoDbBatchWriter {
+
+    public static final int MAX_BATCH_SIZE = 25;
+
+    private static final long MAX_BACKOFF_MS = 2000;
+
+    private static final Logger logger = Logger.getLogger(DynamoDbBatchWriter.class.getName());
+
+    private final DynamoDBMapper dynamoDBMapper;
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final TaskExecutor batchWriteExecutor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${dynamodb.batch.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${dynamodb.batch.base-backoff-ms:50}")
+    private long baseBackoffMs;
+
+    @Autowired
+    public DynamoDbBatchWriter(DynamoDBMapper dynamoDBMapper, AmazonDynamoDB amazonDynamoDB,
+                               @Qualifier("batchWriteExecutor") TaskExecutor batchWriteExecutor,
+                               MeterRegistry meterRegistry) {
+        this.dynamoDBMapper = dynamoDBMapper;
+        this.amazonDynamoDB = amazonDynamoDB;
+        this.batchWriteExecutor = batchWriteExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public BatchWriteResult saveAll(List<?> toSave) {
+        return writeAll(toSave, Collections.emptyList());
+    }
+
+    public BatchWriteResult deleteAll(List<?> toDelete) {
+        return writeAll(Collections.emptyList(), toDelete);
+    }
+
+    public BatchWriteResult writeAll(List<?> toSave, List<?> toDelete) {
+        List<CompletableFuture<BatchWriteResult>> futures = new ArrayList<>();
+        for (int i = 0; i < toSave.size(); i += MAX_BATCH_SIZE) {
+            List<?> chunk = toSave.subList(i, Math.min(i + MAX_BATCH_SIZE, toSave.size()));
+            futures.add(CompletableFuture.supplyAsync(() -> writeChunk(chunk, Collections.emptyList()), batchWriteExecutor)
+                    .exceptionally(err -> chunkFailed(chunk.size(), err)));
+        }
+        for (int i = 0; i < toDelete.size(); i += MAX_BATCH_SIZE) {
+            List<?> chunk = toDelete.subList(i, Math.min(i + MAX_BATCH_SIZE, toDelete.size()));
+            futures.add(CompletableFuture.supplyAsync(() -> writeChunk(Collections.emptyList(), chunk), batchWriteExecutor)
+                    .exceptionally(err -> chunkFailed(chunk.size(), err)));
+        }
+
+        BatchWriteResult total = new BatchWriteResult(toSave.size() + toDelete.size(), 0, futures.size(), 0);
+        for (CompletableFuture<BatchWriteResult> future : futures) {
+            BatchWriteResult chunkResult = future.join();
+            total.setFailedItems(total.getFailedItems() + chunkResult.getFailedItems());
+            total.setRetries(total.getRetries() + chunkResult.getRetries());
+        }
+
+        if (!total.isComplete()) {
+            meterRegistry.counter("dynamodb.batch.write.failed.items").increment(total.getFailedItems());
+            logger.warning("Batch write left " + total.getFailedItems() + " of " + total.getRequestedItems()
+                    + " items unwritten after " + total.getRetries() + " retries");
+        }
+        return total;
+    }
+
+    private BatchWriteResult writeChunk(List<?> toSave, List<?> toDelete) {
+        int requested = toSave.size() + toDelete.size();
+        int retries = 0;
+        List<DynamoDBMapper.FailedBatch> failedBatches = null;
+        for (int attempt = 0; failedBatches == null; attempt++) {
+            try {
+                failedBatches = dynamoDBMapper.batchWrite(toSave, toDelete);
+            } catch (SdkClientException err) {
+                // Puts and deletes are idempotent, so a chunk cut off by a connection error or timeout is resent
+                // whole; a chunk that cannot be marshalled fails the same way every time
+                if (!isRetryable(err) || attempt + 1 >= maxAttempts) {
+                    logger.warning("Batch write chunk failed: " + err.getMessage());
+                    return new BatchWriteResult(requested, requested, 1, retries);
+                }
+                sleepBackoff(attempt);
+                retries++;
+            }
+        }
+
+        int failed = 0;
+        for (DynamoDBMapper.FailedBatch failedBatch : failedBatches) {
+            Map<String, List<WriteRequest>> unprocessed = failedBatch.getUnprocessedItems();
+            if (!isRetryable(failedBatch.getException())) {
+                logger.warning("Batch write chunk failed permanently: " + failedBatch.getException());
+                failed += countItems(unprocessed);
+                continue;
+            }
+
+            int attempt = 0;
+            while (unprocessed != null && !unprocessed.isEmpty() && attempt < maxAttempts) {
+                sleepBackoff(attempt++);
+                retries++;
+                try {
+                    BatchWriteItemResult result = amazonDynamoDB.batchWriteItem(
+                            new BatchWriteItemRequest().withRequestItems(unprocessed));
+                    unprocessed = result.getUnprocessedItems();
+                } catch (SdkClientException err) {
+                    if (!isRetryable(err)) {
+                        logger.warning("Batch write retry failed permanently: " + err.getMessage());
+                        break;
+                    }
+                }
+            }
+            failed += countItems(unprocessed);
+        }
+        return new BatchWriteResult(requested, failed, 1, retries);
+    }
+
+    // An unexpected error in one chunk counts that chunk as unwritten instead of failing the whole write
+    private BatchWriteResult chunkFailed(int size, Throwable err) {
+        logger.warning("Batch write chunk threw: " + err);
+        return new BatchWriteResult(size, size, 1, 0);
+    }
+
+    private boolean isRetryable(Exception exception) {
+        if (exception == null) {
+            // The mapper gave up on unprocessed items without an error, i.e. throttling
+            return true;
+        }
+        if (exception instanceof AmazonServiceException serviceException) {
+            return RetryUtils.isRetryableServiceException(serviceException)
+                    || RetryUtils.isThrottlingException(serviceException);
+        }
+        return exception instanceof SdkClientException && !(exception instanceof DynamoDBMappingException);
+    }
+
+    private void sleepBackoff(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MS, baseBackoffMs << Math.min(attempt, 16));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int countItems(Map<String, List<WriteRequest>> unprocessed) {
+        if (unprocessed == null) {
+            return 0;
+        }
+        return unprocessed.values().stream().mapToInt(List::size).sum();
+    }
+}
@@ -0,0 +1,61 @@
+package sustainico_backend.service;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.MessagingErrorCode;
+import com.google.firebase.messaging.MulticastMessage;
+import com.google.firebase.messaging.Notification;
+import com.google.firebase.messaging.SendResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import sustainico_backend.Models.PushSendResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@ConditionalOnProperty(name = "notifications.transport", havingValue = "firebase")
+public class FirebasePushTransport implements PushTransport {
+
+    // FCM's limit for one multicast request
+    private static final int MAX_MULTICAST_TOKENS = 500;
+
+    private final FirebaseMessaging firebaseMessaging;
+
+    @Autowired
+    public FirebasePushTransport(FirebaseApp firebaseApp) {
+        this.firebaseMessaging = FirebaseMessaging.getInstance(firebaseApp);
+    }
+
+    @Override
+    public int maxTokensPerSend() {
+        return MAX_MULTICAST_TOKENS;
+    }
+
+    @Override
+    public PushSendResult send(List<String> tokens, String title, String body, Map<String, String> data) throws Exception {
+        MulticastMessage.Builder message = MulticastMessage.builder()
+                .addAllTokens(tokens)
+                .setNotification(Notification.builder().setTitle(title).setBody(body).build());
+        if (data != null && !data.isEmpty()) {
+            message.putAllData(data);
+        }
+        BatchResponse response = firebaseMessaging.sendMulticast(message.build());
+
+        List<String> invalidTokens = new ArrayList<>();
+        List<SendResponse> responses = response.getResponses();
+        for (int i = 0; i < responses.size(); i++) {
+            SendResponse sendResponse = responses.get(i);
+            if (!sendResponse.isSuccessful() && sendResponse.getException() != null) {
+                MessagingErrorCode errorCode = sendResponse.getException().getMessagingErrorCode();
+                if (errorCode == MessagingErrorCode.UNREGISTERED || errorCode == MessagingErrorCode.INVALID_ARGUMENT) {
+                    invalidTokens.add(tokens.get(i));
+                }
+            }
+        }
+        return new PushSendResult(response.getSuccessCount(), response.getFailureCount(), invalidTokens);
+    }
+}
@@ -3,9 +3,11 @@ package sustainico_backend.service;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import sustainico_backend.Models.CascadeDeleteJob;
 import sustainico_backend.Models.DeviceArray;
 import sustainico_backend.Models.Home;
 import sustainico_backend.Models.User;
+import sustainico_backend.rep.HomeDevicesRepository;
 import sustainico_backend.rep.HomeRepository;
 import sustainico_backend.rep.UserRepository;
 import sustainico_backend.rep.WaterReadingRepository;
@@ -27,6 +29,12 @@ public class HomeService {
     @Autowired
     private DeviceService deviceService;
 
+    @Autowired
+    private HomeDevicesRepository homeDevicesRepository;
+
+    @Autowired
+    private CascadeDeleteService cascadeDeleteService;
+
     private final HomeRepository homeRepository;
     private final UserRepository userRepository;
 
@@ -50,12 +58,12 @@ public class HomeService {
     }
 
     public Home createHome(Home home) throws Exception {
-        homeRepository.save(home);
+        homeRepository.create(home);
         return home; // Return the saved home entity with generated homeId
     }
 
     public Optional<Home> getHomeByHomeId(String homeId) {
-        Home home = dynamoDBMapper.load(Home.class, homeId);
+        Home home = homeRepository.findByHomeId(homeId);
         return Optional.ofNullable(home);
     }
 
@@ -91,18 +99,13 @@ public class HomeService {
 //    }
 
 
-    public void deleteHome(Home home) {
-        // Delete all devices associated with this home
-        if (home.getDevices() != null) {
-            for (DeviceArray deviceArray : home.getDevices()) {
-                String deviceId = deviceArray.getDeviceId();
-                String userId = home.getUserId();
-                deviceService.deleteDevice2(deviceId, userId);
-            }
-        }
+    // Releases the home's devices and deletes the home with batch writes; see CascadeDeleteService
+    public CascadeDeleteJob deleteHome(Home home) {
+        return cascadeDeleteService.deleteHome(home);
+    }
 
-        // Delete the home itself
-        homeRepository.delete(home);
+    public CascadeDeleteJob startDeleteHome(Home home) {
+        return cascadeDeleteService.startHomeDelete(home);
     }
 
     public List<Home> fetchAllHomesByUserId(String userId) {
@@ -110,40 +113,9 @@ public class HomeService {
         return homeRepository.findHomeByUserId(userId);
     }
 
+    // Both homes' device lists change in one transaction
     public void moveDevice(String deviceId, String currentHomeId, String newHomeId, String deviceName) {
-        // Find the current home
-        Optional<Home> currentHomeOptional = Optional.ofNullable(homeRepository.findByHomeId(currentHomeId));
-        if (!currentHomeOptional.isPresent()) {
-            throw new IllegalArgumentException("Current home not found");
-        }
-        Home currentHome = currentHomeOptional.get();
-
-        // Find the new home
-        Optional<Home> newHomeOptional = Optional.ofNullable(homeRepository.findByHomeId(newHomeId));
-        if (!newHomeOptional.isPresent()) {
-            throw new IllegalArgumentException("New home not found");
-        }
-        Home newHome = newHomeOptional.get();
-
-        // Find the device in the current home's device list and remove it
-        boolean deviceFound = false;
-        if (currentHome.getDevices() != null) {
-            deviceFound = currentHome.getDevices().removeIf(deviceArray -> deviceArray.getDeviceId().equals(deviceId));
-        }
-
-        if (!deviceFound) {
-            throw new IllegalArgumentException("Device not found in the current home");
-        }
-
-        // Add the device to the new home's device list
-        if (newHome.getDevices() == null) {
-            newHome.setDevices(new ArrayList<>());
-        }
-        newHome.getDevices().add(new DeviceArray(deviceId, deviceName));
-
-        // Save both homes
-        homeRepository.save(currentHome);
-        homeRepository.save(newHome);
+        homeDevicesRepository.moveDevice(deviceId, currentHomeId, newHomeId, deviceName);
     }
 
 }
@@ -0,0 +1,50 @@
+package sustainico_backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import sustainico_backend.Models.Alert;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Logger;
+
+// Logs every alert and keeps the most recent ones for /alerts/recent
+@Service
+public class InMemoryAlertSink implements AlertSink {
+
+    private static final Logger logger = Logger.getLogger(InMemoryAlertSink.class.getName());
+
+    private final Deque<Alert> recent = new ArrayDeque<>();
+
+    @Value("${alerts.sink.memory.capacity:1000}")
+    private int capacity;
+
+    @Override
+    public void emit(Alert alert) {
+        logger.info("Alert " + alert.getState() + " [" + alert.getRuleName() + "] " + alert.getDeviceId() + ": " + alert.getMessage());
+        synchronized (recent) {
+            recent.addFirst(alert);
+            while (recent.size() > capacity) {
+                recent.removeLast();
+            }
+        }
+    }
+
+    // Newest first; deviceId may be null for all devices
+    public List<Alert> getRecent(String deviceId, int limit) {
+        List<Alert> alerts = new ArrayList<>();
+        synchronized (recent) {
+            Iterator<Alert> iterator = recent.iterator();
+            while (iterator.hasNext() && alerts.size() < limit) {
+                Alert alert = iterator.next();
+                if (deviceId == null || deviceId.equals(alert.getDeviceId())) {
+                    alerts.add(alert);
+                }
+            }
+        }
+        return alerts;
+    }
+}
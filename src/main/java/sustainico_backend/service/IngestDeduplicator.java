@@ -0,0 +1,88 @@
+package sustainico_backend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Drops retransmitted readings before they reach DynamoDB. Each device keeps a small insertion-ordered
+// window of the reading keys it has seen recently; keys fall out after the window expires or when the
+// per-device cap is reached. The conditional puts in the repositories still catch anything that slips
+// past this filter (restarts, other nodes), so the window only needs to be large enough for bursts.
+@Service
+public class IngestDeduplicator {
+
+    private final Map<String, Map<String, Long>> recentKeysByDevice = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ingest.dedup.window-seconds:3600}")
+    private long windowSeconds;
+
+    @Value("${ingest.dedup.max-keys-per-device:128}")
+    private int maxKeysPerDevice;
+
+    @Autowired
+    public IngestDeduplicator(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Returns true the first time a key is seen for the device within the window
+    public boolean firstSighting(String source, String deviceId, String readingKey) {
+        long now = System.currentTimeMillis();
+        Map<String, Long> recentKeys = recentKeysByDevice.computeIfAbsent(deviceId, id -> new LinkedHashMap<>());
+        boolean first;
+        synchronized (recentKeys) {
+            evictExpired(recentKeys, now);
+            first = recentKeys.putIfAbsent(readingKey, now) == null;
+            if (first && recentKeys.size() > maxKeysPerDevice) {
+                Iterator<String> eldest = recentKeys.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        if (first) {
+            meterRegistry.counter("ingest.readings.accepted", "source", source).increment();
+        } else {
+            recordDuplicate(source, "window");
+        }
+        return first;
+    }
+
+    // Lets a retransmission through again when the first copy could not be stored
+    public void forget(String deviceId, String readingKey) {
+        Map<String, Long> recentKeys = recentKeysByDevice.get(deviceId);
+        if (recentKeys != null) {
+            synchronized (recentKeys) {
+                recentKeys.remove(readingKey);
+            }
+        }
+    }
+
+    // Called when a duplicate was only caught by a conditional put
+    public void recordConditionalDuplicate(String source) {
+        recordDuplicate(source, "conditional");
+    }
+
+    public double getSuppressedCount(String source) {
+        return meterRegistry.counter("ingest.duplicates.suppressed", "source", source, "stage", "window").count()
+                + meterRegistry.counter("ingest.duplicates.suppressed", "source", source, "stage", "conditional").count();
+    }
+
+    private void recordDuplicate(String source, String stage) {
+        meterRegistry.counter("ingest.duplicates.suppressed", "source", source, "stage", stage).increment();
+    }
+
+    private void evictExpired(Map<String, Long> recentKeys, long now) {
+        long cutoff = now - windowSeconds * 1000;
+        Iterator<Long> seenAt = recentKeys.values().iterator();
+        while (seenAt.hasNext() && seenAt.next() < cutoff) {
+            seenAt.remove();
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package sustainico_backend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.TooLongFrameException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import sustainico_backend.Models.IngestFrameResult;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Raw TCP/UDP listener for trusted meter gateways, skipping TLS, HTTP parsing and the security filter
+// chain of /ingest/binary. Off unless ingest.gateway.enabled=true; sources are limited to an IP allowlist.
+//   request  = u32 length, u64 sequence, IngestFrameCodec frame   (length counts sequence + frame)
+//   datagram = u32 length, u64 sequence, u64 sent at (epoch seconds), 32 byte tag, IngestFrameCodec frame
+//   ack      = u32 length, u64 sequence, u8 status, u32 received, stored, duplicates, skipped
+// TCP acks may come back out of order when several frames are in flight; the sequence matches them up.
+// UDP source addresses can be spoofed, so UDP is off unless ingest.gateway.udp.enabled=true and every
+// datagram carries an HMAC-SHA256 tag over sequence, sent at and frame, keyed with ingest.gateway.udp.key.
+// Datagrams that fail the tag or are sent more than max-skew-seconds away from now are dropped without a
+// reply, and an ack is always smaller than the datagram it answers, so the port cannot amplify traffic.
+// Frames are decoded straight off Netty's pooled direct buffers on the event loop and released before
+// the readings are stored on the gateway executor, so a slow DynamoDB call never holds a buffer.
+@Service
+@ConditionalOnProperty(name = "ingest.gateway.enabled", havingValue = "true")
+public class IngestGatewayServer {
+
+    private static final Logger logger = Logger.getLogger(IngestGatewayServer.class.getName());
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_INVALID = 1;
+    public static final byte STATUS_ERROR = 2;
+    // The gateway executor is full; resend the frame later
+    public static final byte STATUS_BUSY = 3;
+
+    private static final int SEQUENCE_BYTES = 8;
+    private static final int ACK_BYTES = SEQUENCE_BYTES + 1 + 4 * 4;
+
+    static final int TAG_BYTES = 32;
+    static final int DATAGRAM_HEADER_BYTES = 4 + SEQUENCE_BYTES + 8 + TAG_BYTES;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    // Largest UDP payload; bigger batches have to use TCP
+    private static final int MAX_DATAGRAM_BYTES = 65507;
+
+    @Autowired
+    private BinaryIngestService binaryIngestService;
+
+    @Autowired
+    @Qualifier("gatewayExecutor")
+    private Executor gatewayExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 0 turns a transport off
+    @Value("${ingest.gateway.tcp-port:9400}")
+    private int tcpPort;
+
+    @Value("${ingest.gateway.udp.enabled:false}")
+    private boolean udpEnabled;
+
+    @Value("${ingest.gateway.udp-port:9401}")
+    private int udpPort;
+
+    // Base64, at least 32 bytes once decoded; shared with the gateways
+    @Value("${ingest.gateway.udp.key:}")
+    private String udpKey;
+
+    @Value("${ingest.gateway.udp.max-skew-seconds:60}")
+    private long maxSkewSeconds;
+
+    @Value("${ingest.gateway.bind-address:0.0.0.0}")
+    private String bindAddress;
+
+    // Comma separated addresses or CIDR ranges, e.g. 10.20.0.0/16
+    @Value("${ingest.gateway.allowed-sources:127.0.0.1,::1}")
+    private String allowedSources;
+
+    @Value("${ingest.gateway.max-frame-bytes:${ingest.binary.max-frame-bytes:1048576}}")
+    private int maxFrameBytes;
+
+    // Frames per TCP connection being stored at once; the socket is not read beyond that
+    @Value("${ingest.gateway.max-in-flight:16}")
+    private int maxInFlight;
+
+    // 0 lets Netty pick (twice the cores)
+    @Value("${ingest.gateway.io-threads:0}")
+    private int ioThreads;
+
+    private final List<Channel> channels = new ArrayList<>();
+    private List<SourceRange> allowed;
+    private ThreadLocal<Mac> udpMac;
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+
+    @PostConstruct
+    public void start() throws InterruptedException {
+        allowed = parseSources(allowedSources);
+        if (udpEnabled && udpPort > 0) {
+            SecretKeySpec key = udpKey(udpKey);
+            udpMac = ThreadLocal.withInitial(() -> newMac(key));
+        }
+        bossGroup = new NioEventLoopGroup(1);
+        workerGroup = new NioEventLoopGroup(ioThreads);
+
+        if (tcpPort > 0) {
+            ServerBootstrap tcp = new ServerBootstrap()
+                    .group(bossGroup, workerGroup)
+                    .channel(NioServerSocketChannel.class)
+                    .childOption(ChannelOption.TCP_NODELAY, true)
+                    .childHandler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel channel) {
+                            if (!isAllowed(channel.remoteAddress())) {
+                                countFrame("tcp", "rejected_source");
+                                channel.close();
+                                return;
+                            }
+                            channel.pipeline()
+                                    .addLast(new LengthFieldBasedFrameDecoder(maxFrameBytes + SEQUENCE_BYTES, 0, 4, 0, 4))
+                                    .addLast(new TcpFrameHandler());
+                        }
+                    });
+            channels.add(tcp.bind(bindAddress, tcpPort).sync().channel());
+        }
+        if (udpMac != null) {
+            Bootstrap udp = new Bootstrap()
+                    .group(workerGroup)
+                    .channel(NioDatagramChannel.class)
+                    .option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(MAX_DATAGRAM_BYTES))
+                    .handler(new UdpFrameHandler());
+            channels.add(udp.bind(bindAddress, udpPort).sync().channel());
+        }
+        logger.info("Gateway ingest listening on " + bindAddress + " (tcp " + tcpPort + ", udp "
+                + (udpEnabled ? udpPort : 0) + "), allowed sources " + allowedSources);
+    }
+
+    @PreDestroy
+    public void stop() {
+        channels.forEach(channel -> channel.close().syncUninterruptibly());
+        if (bossGroup != null) {
+            bossGroup.shutdownGracefully();
+        }
+        if (workerGroup != null) {
+            workerGroup.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    // Decodes on the event loop, then stores on the gateway executor. Completes with null when the
+    // executor rejected the frame; throws IllegalArgumentException for a malformed frame
+    private CompletableFuture<IngestFrameResult> submit(ByteBuf frame) {
+        BinaryIngestService.DecodedFrame decoded = binaryIngestService.decode(frame.nioBuffer());
+        try {
+            return CompletableFuture.supplyAsync(() -> binaryIngestService.store(decoded), gatewayExecutor)
+                    .thenCompose(stored -> stored);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private ByteBuf ack(ByteBufAllocator alloc, long sequence, byte status, IngestFrameResult result) {
+        ByteBuf ack = alloc.buffer(4 + ACK_BYTES);
+        ack.writeInt(ACK_BYTES);
+        ack.writeLong(sequence);
+        ack.writeByte(status);
+        ack.writeInt(result != null ? result.getReceived() : 0);
+        ack.writeInt(result != null ? result.getStored() : 0);
+        ack.writeInt(result != null ? result.getDuplicates() : 0);
+        ack.writeInt(result != null ? result.getSkipped() : 0);
+        return ack;
+    }
+
+    private byte statusOf(String transport, IngestFrameResult result, Throwable error) {
+        if (error != null) {
+            logger.log(Level.WARNING, "Error storing gateway frame", error);
+            countFrame(transport, "error");
+            return STATUS_ERROR;
+        }
+        if (result == null) {
+            countFrame(transport, "busy");
+            return STATUS_BUSY;
+        }
+        countFrame(transport, "ok");
+        meterRegistry.counter("ingest.gateway.readings", "transport", transport).increment(result.getReceived());
+        return STATUS_OK;
+    }
+
+    private void countFrame(String transport, String outcome) {
+        meterRegistry.counter("ingest.gateway.frames", "transport", transport, "outcome", outcome).increment();
+    }
+
+    // One per connection, so inFlight is only touched on that connection's event loop
+    private class TcpFrameHandler extends SimpleChannelInboundHandler<ByteBuf> {
+
+        private int inFlight;
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf frame) {
+            if (frame.readableBytes() < SEQUENCE_BYTES) {
+                countFrame("tcp", "invalid");
+                ctx.writeAndFlush(ack(ctx.alloc(), 0, STATUS_INVALID, null));
+                return;
+            }
+            long sequence = frame.readLong();
+            CompletableFuture<IngestFrameResult> stored;
+            try {
+                stored = submit(frame);
+            } catch (IllegalArgumentException e) {
+                countFrame("tcp", "invalid");
+                ctx.writeAndFlush(ack(ctx.alloc(), sequence, STATUS_INVALID, null));
+                return;
+            }
+            if (++inFlight >= maxInFlight) {
+                ctx.channel().config().setAutoRead(false);
+            }
+            stored.whenComplete((result, error) -> ctx.executor().execute(() -> {
+                inFlight--;
+                ctx.writeAndFlush(ack(ctx.alloc(), sequence, statusOf("tcp", result, error), result));
+                if (!ctx.channel().config().isAutoRead() && inFlight < maxInFlight) {
+                    ctx.channel().config().setAutoRead(true);
+                }
+            }));
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            if (cause instanceof TooLongFrameException) {
+                countFrame("tcp", "too_large");
+            }
+            logger.warning("Closing gateway connection " + ctx.channel().remoteAddress() + ": " + cause.getMessage());
+            ctx.close();
+        }
+    }
+
+    // No backpressure over UDP: a full executor answers BUSY and the gateway resends
+    private class UdpFrameHandler extends SimpleChannelInboundHandler<DatagramPacket> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket packet) {
+            InetSocketAddress sender = packet.sender();
+            if (!isAllowed(sender)) {
+                countFrame("udp", "rejected_source");
+                return;
+            }
+            ByteBuf frame = packet.content();
+            // Nothing is sent back until the tag checks out, so a spoofed source never gets a reply
+            if (!authentic(frame, udpMac.get(), Instant.now().getEpochSecond(), maxSkewSeconds)) {
+                countFrame("udp", "unauthenticated");
+                return;
+            }
+            frame.skipBytes(4);
+            long sequence = frame.readLong();
+            frame.skipBytes(8 + TAG_BYTES);
+            CompletableFuture<IngestFrameResult> stored;
+            try {
+                stored = submit(frame);
+            } catch (IllegalArgumentException e) {
+                countFrame("udp", "invalid");
+                ctx.writeAndFlush(new DatagramPacket(ack(ctx.alloc(), sequence, STATUS_INVALID, null), sender));
+                return;
+            }
+            stored.whenComplete((result, error) -> ctx.writeAndFlush(new DatagramPacket(
+                    ack(ctx.alloc(), sequence, statusOf("udp", result, error), result), sender)));
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            // The datagram channel is shared by every gateway, so keep it open
+            logger.warning("Error reading gateway datagram: " + cause.getMessage());
+        }
+    }
+
+    // Checks the length, the send time and the tag of a datagram without moving its reader index
+    static boolean authentic(ByteBuf datagram, Mac mac, long nowSeconds, long maxSkewSeconds) {
+        int start = datagram.readerIndex();
+        int size = datagram.readableBytes();
+        if (size < DATAGRAM_HEADER_BYTES || datagram.getUnsignedInt(start) != size - 4) {
+            return false;
+        }
+        long sentAt = datagram.getLong(start + 4 + SEQUENCE_BYTES);
+        if (Math.abs(nowSeconds - sentAt) > maxSkewSeconds) {
+            return false;
+        }
+        int frameStart = start + DATAGRAM_HEADER_BYTES;
+        mac.reset();
+        mac.update(datagram.nioBuffer(start + 4, SEQUENCE_BYTES + 8));
+        mac.update(datagram.nioBuffer(frameStart, start + size - frameStart));
+        byte[] tag = new byte[TAG_BYTES];
+        datagram.getBytes(start + 4 + SEQUENCE_BYTES + 8, tag);
+        return MessageDigest.isEqual(mac.doFinal(), tag);
+    }
+
+    static SecretKeySpec udpKey(String base64) {
+        byte[] key;
+        try {
+            key = Base64.getDecoder().decode(base64.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("ingest.gateway.udp.key is not valid Base64", e);
+        }
+        if (key.length < TAG_BYTES) {
+            throw new IllegalStateException("ingest.gateway.udp.key must be at least " + TAG_BYTES
+                    + " bytes once decoded to enable UDP ingest");
+        }
+        return new SecretKeySpec(key, MAC_ALGORITHM);
+    }
+
+    static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot set up " + MAC_ALGORITHM, e);
+        }
+    }
+
+    private boolean isAllowed(InetSocketAddress source) {
+        if (source == null) {
+            return false;
+        }
+        for (SourceRange range : allowed) {
+            if (range.contains(source.getAddress())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<SourceRange> parseSources(String sources) {
+        List<SourceRange> ranges = new ArrayList<>();
+        for (String source : sources.split(",")) {
+            source = source.trim();
+            if (source.isEmpty()) {
+                continue;
+            }
+            int slash = source.indexOf('/');
+            try {
+                // Resolved once at startup; use literal addresses to keep DNS out of it
+                byte[] network = InetAddress.getByName(slash < 0 ? source : source.substring(0, slash)).getAddress();
+                int prefix = slash < 0 ? network.length * 8 : Integer.parseInt(source.substring(slash + 1));
+                if (prefix < 0 || prefix > network.length * 8) {
+                    throw new IllegalArgumentException("Bad prefix length in ingest.gateway.allowed-sources: " + source);
+                }
+                ranges.add(new SourceRange(network, prefix));
+            } catch (UnknownHostException | NumberFormatException e) {
+                throw new IllegalArgumentException("Bad entry in ingest.gateway.allowed-sources: " + source, e);
+            }
+        }
+        return ranges;
+    }
+
+    private record SourceRange(byte[] network, int prefix) {
+        boolean contains(InetAddress address) {
+            byte[] bytes = address.getAddress();
+            if (bytes.length != network.length) {
+                return false;
+            }
+            int bits = prefix;
+            for (int i = 0; i < bytes.length && bits > 0; i++, bits -= 8) {
+                int mask = bits >= 8 ? 0xFF : (0xFF << (8 - bits)) & 0xFF;
+                if ((bytes[i] & mask) != (network[i] & mask)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
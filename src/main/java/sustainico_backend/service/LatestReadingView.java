@@ -0,0 +1,115 @@
+package sustainico_backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import sustainico_backend.Models.LatestWaterReading;
+import sustainico_backend.Models.WaterReading;
+import sustainico_backend.rep.LatestWaterReadingRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Fleet-wide deviceId -> latest reading map. Hydrated from the latestWaterReading table at startup and
+// kept current by this node's ingest paths, so readers never touch the waterReading table. Readings
+// ingested on other nodes only reach the table, so it is re-read every water.latest-view.refresh-ms.
+@Service
+public class LatestReadingView {
+
+    private static final Logger logger = Logger.getLogger(LatestReadingView.class.getName());
+
+    private final ConcurrentHashMap<String, WaterReading> latestByDevice = new ConcurrentHashMap<>();
+
+    @Autowired
+    private LatestWaterReadingRepository latestWaterReadingRepository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void hydrate() {
+        if (refresh()) {
+            logger.info("Hydrated latest reading view with " + latestByDevice.size() + " devices");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${water.latest-view.refresh-ms:300000}",
+            initialDelayString = "${water.latest-view.refresh-ms:300000}")
+    public void scheduledRefresh() {
+        refresh();
+    }
+
+    // Merges the table into the view, keeping whichever reading is newer; returns false if the scan failed
+    public boolean refresh() {
+        try {
+            List<LatestWaterReading> latestReadings = latestWaterReadingRepository.findAll();
+            for (LatestWaterReading latest : latestReadings) {
+                if (latest.getDeviceId() == null || latest.getTimestamp() == null) {
+                    continue;
+                }
+                WaterReading reading = new WaterReading();
+                reading.setDeviceId(latest.getDeviceId());
+                reading.setFlowReading(latest.getLatestFlowReading());
+                reading.setTimestamp(latest.getTimestamp());
+                reading.generateReadingId();
+                record(reading);
+            }
+            return true;
+        } catch (Exception err) {
+            logger.warning("Failed to refresh latest reading view: " + err.getMessage());
+            return false;
+        }
+    }
+
+    // Keeps whichever of the stored and incoming readings is newer
+    public void record(WaterReading reading) {
+        if (reading == null || reading.getDeviceId() == null || reading.getTimestamp() == null) {
+            return;
+        }
+        WaterReading copy = new WaterReading(reading.getDeviceId(), reading.getFlowReading(),
+                reading.getTimestamp(), reading.getReadingId());
+        latestByDevice.merge(copy.getDeviceId(), copy,
+                (current, incoming) -> compareTimestamps(incoming.getTimestamp(), current.getTimestamp()) >= 0 ? incoming : current);
+    }
+
+    public Optional<WaterReading> getLatestReading(String deviceId) {
+        return Optional.ofNullable(latestByDevice.get(deviceId));
+    }
+
+    public List<WaterReading> getLatestReadings() {
+        return new ArrayList<>(latestByDevice.values());
+    }
+
+    // Filtered, deviceId-ordered slice of the view. Any filter may be null.
+    public List<WaterReading> getLatestReadings(String deviceIdPrefix, String sinceTimestamp, int offset, int limit) {
+        Stream<WaterReading> readings = latestByDevice.values().stream();
+        if (deviceIdPrefix != null && !deviceIdPrefix.isEmpty()) {
+            readings = readings.filter(reading -> reading.getDeviceId().startsWith(deviceIdPrefix));
+        }
+        if (sinceTimestamp != null && !sinceTimestamp.isEmpty()) {
+            readings = readings.filter(reading -> compareTimestamps(reading.getTimestamp(), sinceTimestamp) >= 0);
+        }
+        return readings
+                .sorted(Comparator.comparing(WaterReading::getDeviceId))
+                .skip(Math.max(offset, 0))
+                .limit(Math.max(limit, 0))
+                .collect(Collectors.toList());
+    }
+
+    public int size() {
+        return latestByDevice.size();
+    }
+
+    private int compareTimestamps(String left, String right) {
+        try {
+            return Long.compare(Long.parseLong(left), Long.parseLong(right));
+        } catch (NumberFormatException e) {
+            return left.compareTo(right);
+        }
+    }
+}
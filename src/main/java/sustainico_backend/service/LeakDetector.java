@@ -0,0 +1,302 @@
+package sustainico_backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import sustainico_backend.Models.DailyLeakMetrics;
+import sustainico_backend.Models.LeakSummary;
+import sustainico_backend.Models.WaterReading;
+import sustainico_backend.rep.DailyLeakMetricsRepository;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Logger;
+
+// Incremental leak and continuous-flow detection. Every ingested reading updates its device's running
+// day: flowing vs. idle intervals, the current and longest run of consecutive flowing intervals, and
+// the minimum flow rate in the night window. The minimum night flow is the classic leak estimate:
+// if water never stops between night-start-hour and night-end-hour, that rate is assumed to run all day.
+// Days are persisted as one dailyLeakMetrics row, so reports read a handful of items per range.
+@Service
+public class LeakDetector {
+
+    private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+
+    private static final Logger logger = Logger.getLogger(LeakDetector.class.getName());
+
+    private static final class DeviceState {
+        private DailyLeakMetrics metrics;
+        private boolean dirty;
+    }
+
+    private final Map<String, DeviceState> states = new ConcurrentHashMap<>();
+
+    // Days that rolled over since the last flush
+    private final Queue<DailyLeakMetrics> completedDays = new ConcurrentLinkedQueue<>();
+
+    @Autowired
+    private DailyLeakMetricsRepository dailyLeakMetricsRepository;
+
+    @Value("${water.leak.night-start-hour:1}")
+    private int nightStartHour;
+
+    @Value("${water.leak.night-end-hour:5}")
+    private int nightEndHour;
+
+    // Longer silences are treated as a data gap rather than one long interval
+    @Value("${water.leak.max-gap-seconds:7200}")
+    private long maxGapSeconds;
+
+    @Value("${water.leak.min-night-intervals:3}")
+    private int minNightIntervals;
+
+    // Totalizer movement per interval at or below this counts as no flow (meter jitter)
+    @Value("${water.leak.flow-threshold:0}")
+    private double flowThreshold;
+
+    // Batches are applied oldest first; the intraDay expansion produces them newest first
+    public void consume(List<WaterReading> readings) {
+        List<WaterReading> ordered = new ArrayList<>(readings);
+        ordered.sort(Comparator.comparingLong(reading -> parseEpochSeconds(reading.getTimestamp())));
+        ordered.forEach(this::consume);
+    }
+
+    public void consume(WaterReading reading) {
+        long timestamp = parseEpochSeconds(reading.getTimestamp());
+        double flowReading;
+        try {
+            flowReading = Double.parseDouble(reading.getFlowReading());
+        } catch (NumberFormatException | NullPointerException e) {
+            return;
+        }
+        if (timestamp == Long.MIN_VALUE) {
+            return;
+        }
+
+        String day = dayOf(timestamp);
+        // Loaded outside the map so the DynamoDB read never holds up other devices in the same bin
+        DeviceState state = states.get(reading.getDeviceId());
+        if (state == null) {
+            DeviceState loaded = load(reading.getDeviceId(), day);
+            DeviceState raced = states.putIfAbsent(reading.getDeviceId(), loaded);
+            state = raced != null ? raced : loaded;
+        }
+        synchronized (state) {
+            DailyLeakMetrics metrics = state.metrics;
+            if (metrics.getLastTimestamp() != null && timestamp <= metrics.getLastTimestamp()) {
+                // Late or repeated reading; the day it belongs to is already past this point
+                return;
+            }
+            if (!day.equals(metrics.getDay())) {
+                if (state.dirty) {
+                    completedDays.add(metrics);
+                }
+                metrics = startDay(reading.getDeviceId(), day, metrics);
+                state.metrics = metrics;
+            }
+            apply(metrics, timestamp, flowReading);
+            state.dirty = true;
+        }
+    }
+
+    // Leak metrics for the days touched by [startTimestamp, endTimestamp]; today comes from memory
+    public LeakSummary summarize(String deviceId, long startTimestamp, long endTimestamp) {
+        String fromDay = dayOf(startTimestamp);
+        String toDay = dayOf(endTimestamp);
+        Map<String, DailyLeakMetrics> byDay = new HashMap<>();
+        try {
+            for (DailyLeakMetrics metrics : dailyLeakMetricsRepository.findBetween(deviceId, fromDay, toDay)) {
+                byDay.put(metrics.getDay(), metrics);
+            }
+        } catch (RuntimeException err) {
+            // Leak figures are an extra on the usage reports, which must not fail for want of them
+            logger.warning("Could not load leak metrics for " + deviceId + ": " + err.getMessage());
+            byDay.clear();
+        }
+        DeviceState state = states.get(deviceId);
+        if (state != null) {
+            synchronized (state) {
+                String liveDay = state.metrics.getDay();
+                if (liveDay.compareTo(fromDay) >= 0 && liveDay.compareTo(toDay) <= 0) {
+                    byDay.put(liveDay, copyOf(state.metrics));
+                }
+            }
+        }
+
+        LeakSummary summary = new LeakSummary();
+        for (DailyLeakMetrics metrics : byDay.values()) {
+            summary = summary.add(new LeakSummary(valueOf(metrics.getIntervals()), valueOf(metrics.getFlowingIntervals()),
+                    metrics.getEstimatedLeakage() != null ? metrics.getEstimatedLeakage() : 0));
+        }
+        return summary;
+    }
+
+    public DailyLeakMetrics getLiveMetrics(String deviceId) {
+        DeviceState state = states.get(deviceId);
+        if (state == null) {
+            return null;
+        }
+        synchronized (state) {
+            return copyOf(state.metrics);
+        }
+    }
+
+    // Every row is a conditional put over an older lastTimestamp, so when several nodes hold state for a
+    // device the one that has seen the latest reading wins. A node that loses drops its state and reloads
+    // the stored row on the device's next reading. Rows that fail to write are queued for the next flush
+    @Scheduled(fixedDelayString = "${water.leak.flush-interval-ms:60000}")
+    public void flush() {
+        List<DailyLeakMetrics> rows = new ArrayList<>();
+        // The live state a row was copied from, or null for a completed day
+        List<DeviceState> owners = new ArrayList<>();
+        DailyLeakMetrics completed;
+        while ((completed = completedDays.poll()) != null) {
+            rows.add(completed);
+            owners.add(null);
+        }
+        for (DeviceState state : states.values()) {
+            synchronized (state) {
+                if (state.dirty) {
+                    rows.add(copyOf(state.metrics));
+                    owners.add(state);
+                    state.dirty = false;
+                }
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        String now = Instant.now().toString();
+        int failed = 0;
+        int superseded = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            DailyLeakMetrics row = rows.get(i);
+            DeviceState owner = owners.get(i);
+            row.setUpdatedAt(now);
+            try {
+                if (!dailyLeakMetricsRepository.saveIfNewer(row)) {
+                    superseded++;
+                    if (owner != null) {
+                        states.remove(row.getDeviceId(), owner);
+                    }
+                }
+            } catch (RuntimeException err) {
+                failed++;
+                if (owner == null) {
+                    completedDays.add(row);
+                } else {
+                    synchronized (owner) {
+                        owner.dirty = true;
+                    }
+                }
+            }
+        }
+        if (superseded > 0) {
+            logger.info("Leak metrics flush skipped " + superseded + " rows already written further by another node");
+        }
+        if (failed > 0) {
+            logger.warning("Leak metrics flush left " + failed + " of " + rows.size() + " rows unwritten, retrying next flush");
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void apply(DailyLeakMetrics metrics, long timestamp, double flowReading) {
+        if (metrics.getLastTimestamp() != null) {
+            long gap = timestamp - metrics.getLastTimestamp();
+            double delta = flowReading - metrics.getLastFlowReading();
+            if (gap <= maxGapSeconds && delta >= 0) {
+                metrics.setIntervals(metrics.getIntervals() + 1);
+                if (delta > flowThreshold) {
+                    metrics.setFlowingIntervals(metrics.getFlowingIntervals() + 1);
+                    metrics.setCurrentFlowRunSeconds(metrics.getCurrentFlowRunSeconds() + gap);
+                    metrics.setLongestFlowRunSeconds(Math.max(metrics.getLongestFlowRunSeconds(), metrics.getCurrentFlowRunSeconds()));
+                } else {
+                    metrics.setCurrentFlowRunSeconds(0L);
+                }
+                if (isNight(timestamp)) {
+                    double flowPerHour = delta * 3600.0 / Math.max(gap, 1);
+                    metrics.setNightIntervals(metrics.getNightIntervals() + 1);
+                    metrics.setNightMinFlowPerHour(metrics.getNightMinFlowPerHour() == null
+                            ? flowPerHour : Math.min(metrics.getNightMinFlowPerHour(), flowPerHour));
+                }
+            } else {
+                // Data gap or meter reset; don't guess what happened in between
+                metrics.setCurrentFlowRunSeconds(0L);
+            }
+        }
+        metrics.setLastTimestamp(timestamp);
+        metrics.setLastFlowReading(flowReading);
+
+        metrics.setContinuousFlowPercentage(metrics.getIntervals() == 0
+                ? 0.0 : metrics.getFlowingIntervals() * 100.0 / metrics.getIntervals());
+        boolean nightObserved = metrics.getNightIntervals() >= minNightIntervals && metrics.getNightMinFlowPerHour() != null;
+        metrics.setEstimatedLeakage(nightObserved ? Math.max(0, metrics.getNightMinFlowPerHour()) * 24 : 0.0);
+    }
+
+    private DeviceState load(String deviceId, String day) {
+        DeviceState state = new DeviceState();
+        DailyLeakMetrics persisted = null;
+        try {
+            persisted = dailyLeakMetricsRepository.findByDay(deviceId, day);
+        } catch (RuntimeException err) {
+            logger.warning("Could not load leak metrics for " + deviceId + ": " + err.getMessage());
+        }
+        state.metrics = persisted != null ? persisted : startDay(deviceId, day, null);
+        return state;
+    }
+
+    // Carries the last reading and the open flow run over midnight so runs are not cut at day boundaries
+    private DailyLeakMetrics startDay(String deviceId, String day, DailyLeakMetrics previous) {
+        return new DailyLeakMetrics(deviceId, day, 0, 0,
+                previous != null ? previous.getCurrentFlowRunSeconds() : 0L,
+                previous != null ? previous.getCurrentFlowRunSeconds() : 0L,
+                0, null, 0.0, 0.0,
+                previous != null ? previous.getLastTimestamp() : null,
+                previous != null ? previous.getLastFlowReading() : null,
+                null);
+    }
+
+    private DailyLeakMetrics copyOf(DailyLeakMetrics metrics) {
+        return new DailyLeakMetrics(metrics.getDeviceId(), metrics.getDay(), metrics.getIntervals(),
+                metrics.getFlowingIntervals(), metrics.getLongestFlowRunSeconds(), metrics.getCurrentFlowRunSeconds(),
+                metrics.getNightIntervals(), metrics.getNightMinFlowPerHour(), metrics.getContinuousFlowPercentage(),
+                metrics.getEstimatedLeakage(), metrics.getLastTimestamp(), metrics.getLastFlowReading(), metrics.getUpdatedAt());
+    }
+
+    private boolean isNight(long timestamp) {
+        int hour = Instant.ofEpochSecond(timestamp).atZone(IST).getHour();
+        return nightStartHour <= nightEndHour
+                ? hour >= nightStartHour && hour < nightEndHour
+                : hour >= nightStartHour || hour < nightEndHour;
+    }
+
+    private static String dayOf(long epochSeconds) {
+        return Instant.ofEpochSecond(epochSeconds).atZone(IST).toLocalDate().toString();
+    }
+
+    private static long valueOf(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    private static long parseEpochSeconds(String timestamp) {
+        try {
+            return Long.parseLong(timestamp);
+        } catch (NumberFormatException | NullPointerException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+}
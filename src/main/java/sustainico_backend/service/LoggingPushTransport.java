@@ -0,0 +1,47 @@
+package sustainico_backend.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import sustainico_backend.Models.PushSendResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+// Local stand-in for FCM: logs each send and keeps the last ones so tests can assert on them
+@Service
+@ConditionalOnProperty(name = "notifications.transport", havingValue = "log")
+public class LoggingPushTransport implements PushTransport {
+
+    private static final int KEEP_LAST = 500;
+
+    private static final Logger logger = Logger.getLogger(LoggingPushTransport.class.getName());
+
+    public record SentPush(List<String> tokens, String title, String body, Map<String, String> data) {}
+
+    private final List<SentPush> sent = new ArrayList<>();
+
+    @Override
+    public int maxTokensPerSend() {
+        return 500;
+    }
+
+    @Override
+    public PushSendResult send(List<String> tokens, String title, String body, Map<String, String> data) {
+        logger.info("Push to " + tokens.size() + " tokens: " + title + " - " + body);
+        synchronized (sent) {
+            sent.add(new SentPush(List.copyOf(tokens), title, body, data));
+            if (sent.size() > KEEP_LAST) {
+                sent.remove(0);
+            }
+        }
+        return new PushSendResult(tokens.size(), 0, new ArrayList<>());
+    }
+
+    public List<SentPush> getSent() {
+        synchronized (sent) {
+            return new ArrayList<>(sent);
+        }
+    }
+}
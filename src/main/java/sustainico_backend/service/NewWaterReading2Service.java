@@ -1,11 +1,19 @@
 package sustainico_backend.service;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
 import sustainico_backend.Models.NewWaterReading2;
+import sustainico_backend.Models.StatusTransitionEvent;
+import sustainico_backend.rep.ColdSegmentStore;
+import sustainico_backend.rep.NewWaterReading2AsyncRepository;
 import sustainico_backend.rep.NewWaterReading2Repository;
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @Service
 public class NewWaterReading2Service {
@@ -14,12 +22,108 @@ public class NewWaterReading2Service {
     @Autowired
     private NewWaterReading2Repository repository;
 
+    @Autowired
+    private IngestDeduplicator ingestDeduplicator;
+
+    @Autowired
+    private StatusTransitionLog statusTransitionLog;
+
+    @Autowired
+    private AlertEngine alertEngine;
+
+    // Absent in aws.dynamodb.mode=memory; the async methods then fall back to the blocking repository
+    @Autowired
+    private ObjectProvider<NewWaterReading2AsyncRepository> asyncRepository;
+
+    @Autowired
+    private ColdSegmentStore coldSegmentStore;
+
+    @Autowired
+    @Qualifier("ingestExecutor")
+    private TaskExecutor ingestExecutor;
+
+    private record ConsumptionWindow(String timeFilter, long startTime, long endTime, long extendedStartTime,
+                                     List<String> labels) {
+    }
+
     public NewWaterReading2 saveReading(NewWaterReading2 newWaterReading) {
         newWaterReading.generateReadingId();
-        return repository.save(newWaterReading);
+
+        // Meters retransmit; drop copies before any DynamoDB call
+        if (!ingestDeduplicator.firstSighting("newWaterReading2", newWaterReading.getDeviceId(), newWaterReading.getReadingId())) {
+            return newWaterReading;
+        }
+        try {
+            if (!repository.saveIfAbsent(newWaterReading)) {
+                ingestDeduplicator.recordConditionalDuplicate("newWaterReading2");
+                return newWaterReading;
+            }
+        } catch (RuntimeException err) {
+            ingestDeduplicator.forget(newWaterReading.getDeviceId(), newWaterReading.getReadingId());
+            throw err;
+        }
+        afterSave(newWaterReading);
+        return newWaterReading;
+    }
+
+    // Non-blocking saveReading for the reactive ingest: completes with false for duplicates. Status
+    // transitions and alerts can load from DynamoDB, so they run on the ingest executor afterwards.
+    public CompletableFuture<Boolean> saveReadingAsync(NewWaterReading2 newWaterReading) {
+        newWaterReading.generateReadingId();
+        if (!ingestDeduplicator.firstSighting("newWaterReading2", newWaterReading.getDeviceId(), newWaterReading.getReadingId())) {
+            return CompletableFuture.completedFuture(false);
+        }
+        NewWaterReading2AsyncRepository async = asyncRepository.getIfAvailable();
+        CompletableFuture<Boolean> saved = async != null
+                ? async.saveIfAbsent(newWaterReading)
+                : CompletableFuture.supplyAsync(() -> repository.saveIfAbsent(newWaterReading), ingestExecutor);
+        return saved.whenComplete((stored, err) -> {
+            if (err != null) {
+                ingestDeduplicator.forget(newWaterReading.getDeviceId(), newWaterReading.getReadingId());
+            } else if (!stored) {
+                ingestDeduplicator.recordConditionalDuplicate("newWaterReading2");
+            } else {
+                ingestExecutor.execute(() -> afterSave(newWaterReading));
+            }
+        });
+    }
+
+    private void afterSave(NewWaterReading2 newWaterReading) {
+        statusTransitionLog.record(newWaterReading);
+        alertEngine.onNewWaterReading2(newWaterReading);
     }
 
     public Map<String, Object> getWaterConsumptionData(String deviceId, String timeFilter, String targetDate) {
+        ConsumptionWindow window = consumptionWindow(timeFilter, targetDate);
+        List<NewWaterReading2> readings = repository.findReadingsBetweenTimestamps(
+            deviceId, 
+            String.valueOf(window.extendedStartTime()), 
+            String.valueOf(window.endTime())
+        );
+        return consumptionResponse(window, readings);
+    }
+
+    // Same chart without holding a thread on the read. Devices with archived segments still need the
+    // merged blocking read, which runs on blockingExecutor.
+    public CompletableFuture<Map<String, Object>> getWaterConsumptionDataAsync(String deviceId, String timeFilter,
+                                                                               String targetDate, Executor blockingExecutor) {
+        ConsumptionWindow window;
+        try {
+            window = consumptionWindow(timeFilter, targetDate);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        NewWaterReading2AsyncRepository async = asyncRepository.getIfAvailable();
+        if (async == null || coldSegmentStore.hasSegments(ColdSegmentStore.NEW_WATER_READING_2, deviceId)) {
+            return CompletableFuture.supplyAsync(() -> consumptionResponse(window, repository.findReadingsBetweenTimestamps(
+                    deviceId, String.valueOf(window.extendedStartTime()), String.valueOf(window.endTime()))), blockingExecutor);
+        }
+        return async.findHotReadingsBetweenTimestamps(deviceId, String.valueOf(window.extendedStartTime()),
+                        String.valueOf(window.endTime()))
+                .thenApply(readings -> consumptionResponse(window, readings));
+    }
+
+    private ConsumptionWindow consumptionWindow(String timeFilter, String targetDate) {
         // Parse the target date in Indian timezone
         LocalDateTime targetDateTime = LocalDate.parse(targetDate)
             .atStartOfDay(INDIA_ZONE)
@@ -61,20 +165,18 @@ public class NewWaterReading2Service {
             case "year" -> startTime - 86400 * 31L; // One month before (approximate)
             default -> startTime;
         };
+        return new ConsumptionWindow(timeFilter, startTime, endTime, extendedStartTime, labels);
+    }
 
-        List<NewWaterReading2> readings = new ArrayList<>(repository.findReadingsBetweenTimestamps(
-            deviceId, 
-            String.valueOf(extendedStartTime), 
-            String.valueOf(endTime)
-        ));
-
-        List<Double> consumptionData = calculateConsumption(readings, timeFilter, labels.size(), startTime, endTime);
+    private Map<String, Object> consumptionResponse(ConsumptionWindow window, List<NewWaterReading2> readings) {
+        List<Double> consumptionData = calculateConsumption(new ArrayList<>(readings), window.timeFilter(),
+            window.labels().size(), window.startTime(), window.endTime());
 
         Map<String, Object> response = new HashMap<>();
-        response.put("labels", labels);
+        response.put("labels", window.labels());
         response.put("data", consumptionData);
-        response.put("startTime", startTime);
-        response.put("endTime", endTime);
+        response.put("startTime", window.startTime());
+        response.put("endTime", window.endTime());
         return response;
     }
 
@@ -100,7 +202,8 @@ public class NewWaterReading2Service {
         };
     }
 
-    private List<Double> calculateHourlyConsumption(
+    // Package-private for the JMH benchmarks in src/jmh/java
+    List<Double> calculateHourlyConsumption(
         List<NewWaterReading2> readings,
         long startTime,
         long endTime
@@ -154,7 +257,7 @@ public class NewWaterReading2Service {
         return hourlyConsumption;
     }
 
-    private List<Double> calculateDailyConsumption(
+    List<Double> calculateDailyConsumption(
         List<NewWaterReading2> readings,
         long startTime,
         long endTime
@@ -207,7 +310,7 @@ public class NewWaterReading2Service {
         return dailyConsumption;
     }
 
-    private List<Double> calculateMonthlyConsumption(
+    List<Double> calculateMonthlyConsumption(
         List<NewWaterReading2> readings,
         long startTime,
         long endTime
@@ -281,61 +384,29 @@ public class NewWaterReading2Service {
         ));
     }
 
+    // Served from the status transition log: one keyed query instead of re-reading and diffing three days of readings
     public List<Map<String, Object>> getStatusChangesForPast3Days(String deviceId) {
-        NewWaterReading2 latestReading = repository.findLatestByDeviceId(deviceId);
-        if (latestReading == null) {
-            return new ArrayList<>();
+        Long latestTimestamp = statusTransitionLog.getLatestTimestamp(deviceId);
+        if (latestTimestamp == null) {
+            NewWaterReading2 latestReading = repository.findLatestByDeviceId(deviceId);
+            if (latestReading == null) {
+                return new ArrayList<>();
+            }
+            latestTimestamp = Long.parseLong(latestReading.getTimestamp());
         }
 
-        long endTime = Long.parseLong(latestReading.getTimestamp());
+        long endTime = latestTimestamp;
         long startTime = endTime - (3 * 24 * 60 * 60);
-
-        List<NewWaterReading2> readings = new ArrayList<>(repository.findReadingsBetweenTimestamps(
-            deviceId,
-            String.valueOf(startTime),
-            String.valueOf(endTime)
-        ));
-        
-        readings.sort(Comparator.comparingLong(reading -> Long.parseLong(reading.getTimestamp())));
+        statusTransitionLog.backfillIfNeeded(deviceId, startTime, endTime);
 
         List<Map<String, Object>> statusChanges = new ArrayList<>();
-        Map<String, Integer> previousStatus = new HashMap<>();
-
-        if (!readings.isEmpty()) {
-            Map<String, Boolean> firstStatus = readings.get(0).getStatus();
-            if (firstStatus != null) {
-                for (Map.Entry<String, Boolean> entry : firstStatus.entrySet()) {
-                    previousStatus.put(entry.getKey(), entry.getValue() ? 1 : 0);
-                }
-            }
+        for (StatusTransitionEvent event : statusTransitionLog.findEvents(deviceId, startTime, endTime)) {
+            Map<String, Object> change = new HashMap<>();
+            change.put("status", event.getStatus());
+            change.put("timestamp", event.getTimestamp());
+            change.put("dateTime", event.getDateTime());
+            statusChanges.add(change);
         }
-
-        for (NewWaterReading2 reading : readings) {
-            Map<String, Boolean> currentStatus = reading.getStatus();
-            if (currentStatus == null) continue;
-
-            long timestamp = Long.parseLong(reading.getTimestamp());
-            LocalDateTime dateTime = Instant.ofEpochSecond(timestamp)
-                .atZone(INDIA_ZONE)
-                .toLocalDateTime();
-
-            for (Map.Entry<String, Boolean> entry : currentStatus.entrySet()) {
-                String statusKey = entry.getKey();
-                int currentValue = entry.getValue() ? 1 : 0;
-                int previousValue = previousStatus.getOrDefault(statusKey, 0);
-
-                if (previousValue == 0 && currentValue == 1) {
-                    Map<String, Object> change = new HashMap<>();
-                    change.put("status", statusKey);
-                    change.put("timestamp", timestamp);
-                    change.put("dateTime", dateTime.toString());
-                    statusChanges.add(change);
-                }
-
-                previousStatus.put(statusKey, currentValue);
-            }
-        }
-
         return statusChanges;
     }
 }
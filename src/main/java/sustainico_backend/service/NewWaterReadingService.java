@@ -4,23 +4,29 @@ import com.amazonaws.services.dynamodbv2.datamodeling.AbstractDynamoDBMapper;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
+import sustainico_backend.Models.BatchWriteResult;
 import sustainico_backend.Models.LatestWaterReading;
 import sustainico_backend.Models.NewWaterReading;
+import sustainico_backend.Models.ReadingStorageMode;
 import sustainico_backend.Models.WaterReading;
 import sustainico_backend.rep.LatestWaterReadingRepository;
 import sustainico_backend.rep.NewWaterReadingRepository;
 import sustainico_backend.rep.WaterReadingRepository;
 
-import java.time.LocalDate;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.ZoneId;
-import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
 
 @Service
 public class NewWaterReadingService {
@@ -34,6 +40,28 @@ public class NewWaterReadingService {
         this.dynamoDBMapper = dynamoDBMapper;
     }
 
+    private static final Logger logger = Logger.getLogger(NewWaterReadingService.class.getName());
+
+    private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+    private static final DateTimeFormatter ISO_SECONDS = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+    private static final int LATEST_READING_ATTEMPTS = 3;
+
+    @Autowired
+    private DynamoDbBatchWriter dynamoDbBatchWriter;
+
+    @Autowired
+    private IngestDeduplicator ingestDeduplicator;
+
+    @Autowired
+    private LeakDetector leakDetector;
+
+    @Autowired
+    private AlertEngine alertEngine;
+
+    @Autowired
+    @Qualifier("ingestExecutor")
+    private TaskExecutor ingestExecutor;
+
     @Getter
     @Autowired
     private WaterReadingRepository waterReadingRepository;
@@ -41,11 +69,13 @@ public class NewWaterReadingService {
     @Autowired
     public LatestWaterReadingRepository latestWaterReadingRepository;
 
+    @Autowired
+    private LatestReadingView latestReadingView;
+
     public List<WaterReading> convertNewToWaterReadings(NewWaterReading newWaterReading) {
         List<WaterReading> waterReadings = new ArrayList<>();
 
-        // Calculate startTimestamp based on the given formula
-        long startTimestamp = (newWaterReading.getKey() * newWaterReading.getIndex() * 3600L) + 1577817000L;
+        long startTimestamp = periodStart(newWaterReading);
 
         // Get the list of flow readings (intraDay) and key (duration multiplier in minutes)
         List<Integer> intraDay = newWaterReading.getIntraDay();
@@ -76,75 +106,158 @@ public class NewWaterReadingService {
         return waterReadings;
     }
 
-    public void saveNewWaterReading(NewWaterReading newWaterReading) {
-        // Set the timestamp to the current epoch time in seconds (IST) if it's null
-        if (newWaterReading.getTimestamp() == null) {
-            ZonedDateTime now = ZonedDateTime.now(ZoneId.of("Asia/Kolkata"));
-            long epochSeconds = now.toEpochSecond();
-            newWaterReading.setTimestamp(String.valueOf(epochSeconds));
-        }
-        newWaterReading.generateReadingId();
-        newWaterReadingRepository.save(newWaterReading);
-
-        List<WaterReading> waterReadings = convertNewToWaterReadings(newWaterReading);
+    // Epoch seconds of the first intraDay interval, from the period key and index the device reports
+    private static long periodStart(NewWaterReading newWaterReading) {
+        return (newWaterReading.getKey() * newWaterReading.getIndex() * 3600L) + 1577817000L;
+    }
 
-        // Batch save all WaterReading objects
-        dynamoDBMapper.batchSave(waterReadings);
+    // Timestamp of the last intraDay interval, i.e. of the reading that carries the totalizer
+    private static long periodEnd(NewWaterReading newWaterReading) {
+        List<Integer> intraDay = newWaterReading.getIntraDay();
+        int intervals = intraDay == null ? 0 : intraDay.size();
+        return periodStart(newWaterReading) + Math.max(0, intervals - 1) * newWaterReading.getKey() * 5L * 60;
+    }
 
-        // Update LatestWaterReading
-        WaterReading waterReading = waterReadings.get(0);
-        LatestWaterReading latestWaterReading = latestWaterReadingRepository.findByDeviceId(waterReading.getDeviceId());
-        if (latestWaterReading == null) {
-            latestWaterReading = new LatestWaterReading();
-            latestWaterReading.setDeviceId(waterReading.getDeviceId());
-            latestWaterReading.setLatestFlowReading(waterReading.getFlowReading());
-            latestWaterReading.setTimestamp(waterReading.getTimestamp());
-            latestWaterReading.setFirstReadingOfMonth(waterReading.getFlowReading());
-            latestWaterReading.setFirstFlowReading(waterReading.getFlowReading());
-            latestWaterReading.setTimestampOfMonth(waterReading.getTimestamp());
+    // Persists the raw uplink on the calling (webhook) thread and hands the intraDay expansion, the
+    // batch write and the latest reading update to the ingest executor. The returned future completes
+    // with the batch outcome so partial failures are visible to callers that care.
+    public CompletableFuture<BatchWriteResult> saveNewWaterReading(NewWaterReading newWaterReading) {
+        if (!storeUplink(newWaterReading)) {
+            return CompletableFuture.completedFuture(new BatchWriteResult(0, 0, 0, 0));
         }
+        return expandInBackground(newWaterReading);
+    }
 
-        // Define the date format used in the timestamp string
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss"); // Adjust format if necessary
+    // Dedup and conditional put of the raw uplink on the calling thread; false for a retransmission
+    public boolean storeUplink(NewWaterReading newWaterReading) {
+        // Without a device timestamp the row is keyed by the newest reading of the period the uplink
+        // covers, so a retransmission that reaches another node (or arrives after the dedup window)
+        // hits the same key and the conditional put rejects it
+        if (newWaterReading.getTimestamp() == null) {
+            newWaterReading.setTimestamp(String.valueOf(periodEnd(newWaterReading)));
+        }
+        newWaterReading.generateReadingId();
 
-// Parse the timestamp strings into LocalDateTime objects
-        LocalDateTime latestTimestamp = LocalDateTime.parse(latestWaterReading.getTimestamp(), formatter);
-        LocalDateTime waterReadingTimestamp = LocalDateTime.parse(waterReading.getTimestamp(), formatter);
+        // The network server retransmits uplinks, usually without a device timestamp, so exact copies
+        // are recognised by the period they cover and the totalizer they carry
+        String uplinkKey = newWaterReading.getKey() + "-" + newWaterReading.getIndex() + "-" + newWaterReading.getTotalizer();
+        if (!ingestDeduplicator.firstSighting("newWaterReading", newWaterReading.getDeviceId(), uplinkKey)) {
+            return false;
+        }
+        try {
+            if (!newWaterReadingRepository.saveIfAbsent(newWaterReading)) {
+                ingestDeduplicator.recordConditionalDuplicate("newWaterReading");
+                return false;
+            }
+        } catch (RuntimeException err) {
+            ingestDeduplicator.forget(newWaterReading.getDeviceId(), uplinkKey);
+            throw err;
+        }
+        alertEngine.onNewWaterReading(newWaterReading);
+        return true;
+    }
 
-// Extract only the date (ignores the time)
-        LocalDate latestDate = latestTimestamp.toLocalDate();
-        LocalDate waterReadingDate = waterReadingTimestamp.toLocalDate();
+    // Expansion, batch write and latest reading update of a stored uplink, on the ingest executor
+    public CompletableFuture<BatchWriteResult> expandInBackground(NewWaterReading newWaterReading) {
+        return CompletableFuture.supplyAsync(() -> expandAndWrite(newWaterReading), ingestExecutor)
+                .whenComplete((result, err) -> {
+                    if (err != null) {
+                        logger.warning("Failed to expand reading " + newWaterReading.getReadingId() + ": " + err);
+                    } else if (!result.isComplete()) {
+                        logger.warning("Reading " + newWaterReading.getReadingId() + " expanded with "
+                                + result.getFailedItems() + " of " + result.getRequestedItems() + " rows unwritten");
+                    }
+                });
+    }
 
-// If the latestWaterReading is from a previous date
-        if (latestDate.isBefore(waterReadingDate)) {
-            // Update the firstFlowReading with the new waterReading's flow reading
-            latestWaterReading.setFirstFlowReading(waterReading.getFlowReading());
+    private BatchWriteResult expandAndWrite(NewWaterReading newWaterReading) {
+        List<WaterReading> waterReadings = convertNewToWaterReadings(newWaterReading);
+        if (waterReadings.isEmpty()) {
+            return new BatchWriteResult(0, 0, 0, 0);
         }
 
-// Update the latestFlowReading and timestamp with the latest waterReading values
-        latestWaterReading.setLatestFlowReading(waterReading.getFlowReading());
-        latestWaterReading.setTimestamp(waterReading.getTimestamp());
+        // One read-modify-write per device-day instead of one item per reading. A block that keeps
+        // losing its version race is reported, not thrown, so the item write and the feeds still happen
+        ReadingStorageMode storageMode = waterReadingRepository.getStorageMode();
+        int unwrittenToBlocks = 0;
+        if (storageMode.writesBlocks()) {
+            try {
+                waterReadingRepository.appendToDayBlocks(waterReadings);
+            } catch (RuntimeException err) {
+                logger.warning("Day block append failed for " + newWaterReading.getDeviceId() + ": " + err.getMessage());
+                unwrittenToBlocks = waterReadings.size();
+            }
+        }
 
-        // Parse the timestamp strings into LocalDateTime objects
-        LocalDateTime timestampOfMonth = LocalDateTime.parse(latestWaterReading.getTimestampOfMonth(), formatter);
-//        LocalDateTime waterReadingTimestamp = LocalDateTime.parse(waterReading.getTimestamp(), formatter);
+        // Write the 25-item chunks concurrently, retrying unprocessed items
+        BatchWriteResult result = storageMode.writesItems()
+                ? dynamoDbBatchWriter.saveAll(waterReadings)
+                : new BatchWriteResult(waterReadings.size(), unwrittenToBlocks, 1, 0);
 
-// Compare year and month of timestampOfMonth with waterReadingTimestamp
-        if (timestampOfMonth.getYear() < waterReadingTimestamp.getYear() ||
-                (timestampOfMonth.getYear() == waterReadingTimestamp.getYear() && timestampOfMonth.getMonthValue() < waterReadingTimestamp.getMonthValue())) {
+        leakDetector.consume(waterReadings);
+        alertEngine.onWaterReadings(waterReadings);
 
-            // Update firstReadingOfMonth with the new waterReading's flow reading
-            latestWaterReading.setFirstReadingOfMonth(waterReading.getFlowReading());
+        try {
+            updateLatestWaterReading(waterReadings.get(0));
+        } catch (Exception err) {
+            logger.warning("Failed to update latest reading for " + newWaterReading.getDeviceId() + ": " + err.getMessage());
+        }
+        return result;
+    }
 
-            // Update timestampOfMonth with the new waterReading timestamp
-            latestWaterReading.setTimestampOfMonth(waterReading.getTimestamp());
+    // Read-modify-write of the device's LatestWaterReading row. The save only lands if the row still
+    // holds the timestamp that was read, so two uplinks of one device expanding concurrently cannot
+    // overwrite each other, and a reading older than the stored one never moves the row back
+    private void updateLatestWaterReading(WaterReading waterReading) {
+        latestReadingView.record(waterReading);
+        LocalDateTime readingTime = toIstDateTime(waterReading.getTimestamp());
+        for (int attempt = 0; attempt < LATEST_READING_ATTEMPTS; attempt++) {
+            LatestWaterReading latestWaterReading = latestWaterReadingRepository.findByDeviceIdConsistent(waterReading.getDeviceId());
+            String readTimestamp = latestWaterReading == null ? null : latestWaterReading.getTimestamp();
+            if (latestWaterReading == null) {
+                latestWaterReading = new LatestWaterReading();
+                latestWaterReading.setDeviceId(waterReading.getDeviceId());
+                latestWaterReading.setFirstReadingOfMonth(waterReading.getFlowReading());
+                latestWaterReading.setFirstFlowReading(waterReading.getFlowReading());
+                latestWaterReading.setTimestampOfMonth(waterReading.getTimestamp());
+            } else {
+                LocalDateTime latestTime = toIstDateTime(readTimestamp);
+                if (!latestTime.isBefore(readingTime)) {
+                    return;
+                }
+                // First reading of a new day
+                if (latestTime.toLocalDate().isBefore(readingTime.toLocalDate())) {
+                    latestWaterReading.setFirstFlowReading(waterReading.getFlowReading());
+                }
+                // First reading of a new month; the month that ended closes on the previous latest reading.
+                // Rows created by WaterReadingService have no month fields yet and just start one
+                String timestampOfMonth = latestWaterReading.getTimestampOfMonth();
+                if (timestampOfMonth == null) {
+                    latestWaterReading.setFirstReadingOfMonth(waterReading.getFlowReading());
+                    latestWaterReading.setTimestampOfMonth(waterReading.getTimestamp());
+                } else if (YearMonth.from(toIstDateTime(timestampOfMonth)).isBefore(YearMonth.from(readingTime))) {
+                    latestWaterReading.setLastReadingOfMonth(latestWaterReading.getLatestFlowReading());
+                    latestWaterReading.setFirstReadingOfMonth(waterReading.getFlowReading());
+                    latestWaterReading.setTimestampOfMonth(waterReading.getTimestamp());
+                }
+            }
+            latestWaterReading.setLatestFlowReading(waterReading.getFlowReading());
+            latestWaterReading.setTimestamp(waterReading.getTimestamp());
 
-            // Set lastReadingOfMonth to the current latestFlowReading
-            latestWaterReading.setLastReadingOfMonth(latestWaterReading.getLatestFlowReading());
+            if (latestWaterReadingRepository.saveIfUnchanged(latestWaterReading, readTimestamp)) {
+                return;
+            }
         }
+        logger.warning("Latest reading of " + waterReading.getDeviceId() + " kept changing; skipped "
+                + waterReading.getTimestamp());
+    }
 
-// Save the updated latestWaterReading
-        latestWaterReadingRepository.save(latestWaterReading);
+    // Reading timestamps are epoch seconds; older rows may still carry ISO local times
+    private static LocalDateTime toIstDateTime(String timestamp) {
+        if (!timestamp.isEmpty() && timestamp.chars().allMatch(Character::isDigit)) {
+            return LocalDateTime.ofInstant(Instant.ofEpochSecond(Long.parseLong(timestamp)), IST);
+        }
+        return LocalDateTime.parse(timestamp, ISO_SECONDS);
     }
 
     public Optional<NewWaterReading> getNewWaterReading(String deviceId, String timestamp) {
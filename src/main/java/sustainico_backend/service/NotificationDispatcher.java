@@ -0,0 +1,280 @@
+package sustainico_backend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import sustainico_backend.Models.Device;
+import sustainico_backend.Models.PushNotification;
+import sustainico_backend.Models.PushSendResult;
+import sustainico_backend.Models.PushToken;
+import sustainico_backend.rep.DeviceRepository;
+import sustainico_backend.rep.PushTokenRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Logger;
+
+// Queues push notifications per user and sends them from a scheduled dispatcher instead of the
+// thread that produced them. A user's notifications collect for a coalescing window (same coalesce
+// key replaces the earlier one), are folded into one message, and are only sent while the user's
+// token bucket allows; otherwise they stay queued and keep coalescing. Users that end up with the
+// same message (e.g. owner and viewers of one meter) share multicast sends. A send that fails puts
+// the users' notifications back in their outboxes, so they go out with the next window instead of being lost.
+@Service
+public class NotificationDispatcher {
+
+    private static final int MAX_LINES_IN_SUMMARY = 5;
+
+    private static final Logger logger = Logger.getLogger(NotificationDispatcher.class.getName());
+
+    private static final class UserOutbox {
+        private final LinkedHashMap<String, PushNotification> pending = new LinkedHashMap<>();
+        private long windowStartedAt;
+        private double tokens;
+        private long refilledAt;
+    }
+
+    private record DeviceNotification(String deviceId, PushNotification notification) {}
+
+    private record CachedRecipients(List<String> userIds, long loadedAt) {}
+
+    private record RenderedMessage(String title, String body, Map<String, String> data) {}
+
+    private final Map<String, UserOutbox> outboxes = new ConcurrentHashMap<>();
+
+    private final Queue<DeviceNotification> deviceInbox = new ConcurrentLinkedQueue<>();
+
+    private final Map<String, CachedRecipients> recipientsByDevice = new ConcurrentHashMap<>();
+
+    // Absent unless notifications.transport is set; notifications are then dropped on arrival
+    @Autowired(required = false)
+    private PushTransport pushTransport;
+
+    @Autowired
+    private PushTokenRepository pushTokenRepository;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notifications.coalesce-window-seconds:60}")
+    private long coalesceWindowSeconds;
+
+    @Value("${notifications.per-user.burst:3}")
+    private int burst;
+
+    @Value("${notifications.per-user.per-hour:12}")
+    private double perHour;
+
+    @Value("${notifications.per-user.max-pending:50}")
+    private int maxPendingPerUser;
+
+    @Value("${notifications.recipient-cache-seconds:600}")
+    private long recipientCacheSeconds;
+
+    @PostConstruct
+    public void logTransport() {
+        if (pushTransport == null) {
+            logger.info("No notifications.transport configured, push notifications are dropped");
+        }
+    }
+
+    public void notifyUser(String userId, PushNotification notification) {
+        if (pushTransport == null) {
+            meterRegistry.counter("notifications.dropped").increment();
+            return;
+        }
+        long now = System.currentTimeMillis();
+        UserOutbox outbox = outboxes.computeIfAbsent(userId, id -> {
+            UserOutbox created = new UserOutbox();
+            created.tokens = burst;
+            created.refilledAt = now;
+            return created;
+        });
+        synchronized (outbox) {
+            if (outbox.pending.isEmpty()) {
+                outbox.windowStartedAt = now;
+            }
+            if (outbox.pending.remove(notification.getCoalesceKey()) != null) {
+                meterRegistry.counter("notifications.coalesced").increment();
+            } else if (outbox.pending.size() >= maxPendingPerUser) {
+                Iterator<String> oldest = outbox.pending.keySet().iterator();
+                oldest.next();
+                oldest.remove();
+                meterRegistry.counter("notifications.dropped").increment();
+            }
+            outbox.pending.put(notification.getCoalesceKey(), notification);
+        }
+    }
+
+    // Non-blocking: the device's owner and viewers are looked up on the dispatcher thread
+    public void notifyDeviceUsers(String deviceId, PushNotification notification) {
+        if (pushTransport == null) {
+            meterRegistry.counter("notifications.dropped").increment();
+            return;
+        }
+        deviceInbox.add(new DeviceNotification(deviceId, notification));
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.dispatch-interval-ms:5000}")
+    public void dispatch() {
+        DeviceNotification deviceNotification;
+        while ((deviceNotification = deviceInbox.poll()) != null) {
+            for (String userId : recipientsOf(deviceNotification.deviceId())) {
+                notifyUser(userId, deviceNotification.notification());
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        Map<RenderedMessage, List<String>> usersByMessage = new LinkedHashMap<>();
+        Map<String, List<PushNotification>> taken = new HashMap<>();
+        outboxes.forEach((userId, outbox) -> {
+            synchronized (outbox) {
+                if (outbox.pending.isEmpty() || now - outbox.windowStartedAt < coalesceWindowSeconds * 1000) {
+                    return;
+                }
+                if (!takeToken(outbox, now)) {
+                    meterRegistry.counter("notifications.rate.limited").increment();
+                    return;
+                }
+                List<PushNotification> notifications = new ArrayList<>(outbox.pending.values());
+                outbox.pending.clear();
+                taken.put(userId, notifications);
+                usersByMessage.computeIfAbsent(render(notifications), m -> new ArrayList<>()).add(userId);
+            }
+        });
+
+        usersByMessage.forEach((message, userIds) -> {
+            for (String userId : send(message, userIds)) {
+                requeue(userId, taken.get(userId));
+            }
+        });
+    }
+
+    // Returns the users whose send failed, each at most once
+    private Set<String> send(RenderedMessage message, List<String> userIds) {
+        Set<String> failedUsers = new LinkedHashSet<>();
+        Map<String, String> userByToken = new HashMap<>();
+        for (String userId : userIds) {
+            try {
+                for (PushToken pushToken : pushTokenRepository.findByUserId(userId)) {
+                    userByToken.put(pushToken.getToken(), userId);
+                }
+            } catch (RuntimeException err) {
+                logger.warning("Could not load push tokens for " + userId + ": " + err.getMessage());
+                failedUsers.add(userId);
+            }
+        }
+        List<String> tokens = new ArrayList<>(userByToken.keySet());
+        for (int i = 0; i < tokens.size(); i += pushTransport.maxTokensPerSend()) {
+            List<String> chunk = tokens.subList(i, Math.min(i + pushTransport.maxTokensPerSend(), tokens.size()));
+            try {
+                PushSendResult result = pushTransport.send(chunk, message.title(), message.body(), message.data());
+                meterRegistry.counter("notifications.sent").increment(result.getSuccessCount());
+                meterRegistry.counter("notifications.failed").increment(result.getFailureCount());
+                for (String invalidToken : result.getInvalidTokens()) {
+                    pushTokenRepository.delete(userByToken.get(invalidToken), invalidToken);
+                }
+            } catch (Exception err) {
+                meterRegistry.counter("notifications.failed").increment(chunk.size());
+                logger.warning("Push send to " + chunk.size() + " tokens failed, requeueing: " + err.getMessage());
+                chunk.forEach(token -> failedUsers.add(userByToken.get(token)));
+            }
+        }
+        return failedUsers;
+    }
+
+    // Puts taken notifications back ahead of anything that arrived since; a newer one with the same
+    // coalesce key wins. The window restarts, which spaces out retries of a failing transport
+    private void requeue(String userId, List<PushNotification> notifications) {
+        UserOutbox outbox = outboxes.get(userId);
+        if (outbox == null || notifications == null) {
+            return;
+        }
+        synchronized (outbox) {
+            LinkedHashMap<String, PushNotification> merged = new LinkedHashMap<>();
+            for (PushNotification notification : notifications) {
+                if (!outbox.pending.containsKey(notification.getCoalesceKey())) {
+                    merged.put(notification.getCoalesceKey(), notification);
+                }
+            }
+            merged.putAll(outbox.pending);
+            Iterator<String> oldest = merged.keySet().iterator();
+            while (merged.size() > maxPendingPerUser) {
+                oldest.next();
+                oldest.remove();
+                meterRegistry.counter("notifications.dropped").increment();
+            }
+            outbox.pending.clear();
+            outbox.pending.putAll(merged);
+            outbox.windowStartedAt = System.currentTimeMillis();
+        }
+        meterRegistry.counter("notifications.requeued").increment(notifications.size());
+    }
+
+    private RenderedMessage render(List<PushNotification> notifications) {
+        if (notifications.size() == 1) {
+            PushNotification notification = notifications.get(0);
+            return new RenderedMessage(notification.getTitle(), notification.getBody(),
+                    notification.getData() != null ? notification.getData() : Map.of());
+        }
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < Math.min(notifications.size(), MAX_LINES_IN_SUMMARY); i++) {
+            body.append(i == 0 ? "" : "\n").append(notifications.get(i).getBody());
+        }
+        if (notifications.size() > MAX_LINES_IN_SUMMARY) {
+            body.append("\nand ").append(notifications.size() - MAX_LINES_IN_SUMMARY).append(" more");
+        }
+        return new RenderedMessage(notifications.size() + " new alerts", body.toString(),
+                Map.of("count", String.valueOf(notifications.size())));
+    }
+
+    private boolean takeToken(UserOutbox outbox, long now) {
+        outbox.tokens = Math.min(burst, outbox.tokens + (now - outbox.refilledAt) * perHour / 3_600_000.0);
+        outbox.refilledAt = now;
+        if (outbox.tokens < 1) {
+            return false;
+        }
+        outbox.tokens -= 1;
+        return true;
+    }
+
+    private List<String> recipientsOf(String deviceId) {
+        long now = System.currentTimeMillis();
+        CachedRecipients cached = recipientsByDevice.get(deviceId);
+        if (cached != null && now - cached.loadedAt() < recipientCacheSeconds * 1000) {
+            return cached.userIds();
+        }
+        List<String> userIds = new ArrayList<>();
+        try {
+            Device device = deviceRepository.findByDeviceId(deviceId).orElse(null);
+            if (device != null) {
+                if (device.getOwnerId() != null) {
+                    userIds.add(device.getOwnerId());
+                }
+                if (device.getViewerId() != null) {
+                    device.getViewerId().stream().filter(id -> !userIds.contains(id)).forEach(userIds::add);
+                }
+            }
+        } catch (RuntimeException err) {
+            logger.warning("Could not resolve recipients for " + deviceId + ": " + err.getMessage());
+            return cached != null ? cached.userIds() : List.of();
+        }
+        recipientsByDevice.put(deviceId, new CachedRecipients(userIds, now));
+        return userIds;
+    }
+}
@@ -0,0 +1,38 @@
+package sustainico_backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import sustainico_backend.Models.Alert;
+import sustainico_backend.Models.PushNotification;
+
+import java.util.Map;
+
+// Pushes raised alerts to the owner and viewers of the device; clears are not pushed
+@Service
+public class PushAlertSink implements AlertSink {
+
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+
+    // Opt-in, and only delivered once notifications.transport names a transport
+    @Value("${notifications.alerts.enabled:false}")
+    private boolean enabled;
+
+    @Override
+    public void emit(Alert alert) {
+        if (!enabled || !Alert.RAISED.equals(alert.getState())) {
+            return;
+        }
+        String title = switch (alert.getType()) {
+            case FLOW_ABOVE -> "High water usage";
+            case FLAG_SET -> "Meter alert";
+            case NO_DATA -> "Meter offline";
+        };
+        notificationDispatcher.notifyDeviceUsers(alert.getDeviceId(), new PushNotification(
+                alert.getDeviceId() + "#" + alert.getRuleName(),
+                title,
+                alert.getDeviceId() + ": " + alert.getMessage(),
+                Map.of("deviceId", alert.getDeviceId(), "rule", alert.getRuleName(), "type", alert.getType().name())));
+    }
+}
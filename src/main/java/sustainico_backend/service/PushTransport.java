@@ -0,0 +1,16 @@
+package sustainico_backend.service;
+
+import sustainico_backend.Models.PushSendResult;
+
+import java.util.List;
+import java.util.Map;
+
+// Delivers one message to a set of device tokens. Selected with notifications.transport
+// (firebase, or log for local runs and tests); with neither set nothing is sent.
+public interface PushTransport {
+
+    // Upper bound on tokens per send call
+    int maxTokensPerSend();
+
+    PushSendResult send(List<String> tokens, String title, String body, Map<String, String> data) throws Exception;
+}
@@ -0,0 +1,364 @@
+package sustainico_backend.service;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperTableModel;
+import com.amazonaws.services.dynamodbv2.datamodeling.QueryResultPage;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import sustainico_backend.Models.*;
+import sustainico_backend.rep.*;
+import sustainico_backend.util.RatePacer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+// Deletes readings that are past their configured retention, finest tier first. Raw and hourly rows
+// are only removed for days a coarser rollup covers (hourly for raw, daily for hourly), so reports
+// built on the coarser tables keep working; daily, weekly and monthly rollups are kept forever.
+// A retention of 0 keeps a tier forever.
+@Service
+public class RetentionService {
+
+    private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+
+    private static final int PAGE_SIZE = 1000;
+
+    private static final long HOUR_SECONDS = 3600;
+    private static final long DAY_SECONDS = 86400;
+
+    // DynamoDB bills every item for 100 bytes of overhead on top of its attribute names and values
+    private static final long ITEM_OVERHEAD_BYTES = 100;
+
+    private static final Logger logger = Logger.getLogger(RetentionService.class.getName());
+
+    @Autowired
+    private DynamoDBMapper dynamoDBMapper;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private WaterReadingRepository waterReadingRepository;
+
+    @Autowired
+    private WaterReadingDayBlockRepository waterReadingDayBlockRepository;
+
+    @Autowired
+    private WaterReadingPerHourRepository waterReadingPerHourRepository;
+
+    @Autowired
+    private WaterReadingPerDayRepository waterReadingPerDayRepository;
+
+    @Autowired
+    private NewWaterReading2Repository newWaterReading2Repository;
+
+    @Autowired
+    private ColdSegmentStore coldSegmentStore;
+
+    @Autowired
+    private DynamoDbBatchWriter dynamoDbBatchWriter;
+
+    @Value("${retention.enabled:false}")
+    private boolean enabled;
+
+    @Value("${retention.raw-days:0}")
+    private int rawDays;
+
+    @Value("${retention.hourly-months:0}")
+    private int hourlyMonths;
+
+    @Value("${retention.new-water-reading2-days:0}")
+    private int newWaterReading2Days;
+
+    // newWaterReading2 has no rollup table, so its rows can only expire when this is set explicitly
+    @Value("${retention.new-water-reading2.allow-without-rollup:false}")
+    private boolean newWaterReading2AllowWithoutRollup;
+
+    // Items deleted per second across all devices
+    @Value("${retention.delete-rate:200}")
+    private double deleteRate;
+
+    @Value("${retention.parallelism:4}")
+    private int parallelism;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile RetentionReport lastReport;
+
+    @Scheduled(cron = "${retention.cron:0 0 4 * * ?}", zone = "Asia/Kolkata") // Every day at 04:00 IST by default
+    public void scheduledRun() {
+        if (enabled) {
+            run();
+        }
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public RetentionReport getLastReport() {
+        return lastReport;
+    }
+
+    // Returns null when a run is already in progress; refuses to delete anything unless retention.enabled is set
+    public RetentionReport run() {
+        if (!enabled) {
+            throw new IllegalStateException("Retention is disabled (retention.enabled=false)");
+        }
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        ExecutorService devicePool = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        try {
+            RetentionReport report = new RetentionReport();
+            report.setStartedAt(Instant.now().toString());
+            if (newWaterReading2Days > 0 && !newWaterReading2AllowWithoutRollup) {
+                report.addNote("newWaterReading2 retention skipped: no rollup table covers it; "
+                        + "set retention.new-water-reading2.allow-without-rollup=true to delete anyway");
+            }
+
+            RatePacer pacer = new RatePacer(deleteRate);
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (Device device : deviceRepository.findAll()) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        applyPolicies(device.getDeviceId(), report, pacer);
+                    } catch (RuntimeException err) {
+                        logger.warning("Retention failed for " + device.getDeviceId() + ": " + err.getMessage());
+                        report.addNote("Retention failed for " + device.getDeviceId() + ": " + err.getMessage());
+                    }
+                }, devicePool));
+            }
+            futures.forEach(CompletableFuture::join);
+
+            report.setDevices(futures.size());
+            report.setFinishedAt(Instant.now().toString());
+            lastReport = report;
+            logger.info("Retention run deleted " + report.getTotalItemsDeleted() + " items, reclaimed ~"
+                    + report.getTotalBytesReclaimed() + " bytes: " + report.getItemsDeleted());
+            return report;
+        } finally {
+            devicePool.shutdown();
+            running.set(false);
+        }
+    }
+
+    private void applyPolicies(String deviceId, RetentionReport report, RatePacer pacer) {
+        long now = Instant.now().getEpochSecond();
+
+        if (rawDays > 0) {
+            long rawCutoff = now - rawDays * DAY_SECONDS;
+            TreeSet<Long> hourlyRollups = toEpochSet(waterReadingPerHourRepository.findFetchTimestampsUpTo(
+                    deviceId, String.valueOf(rawCutoff + DAY_SECONDS + HOUR_SECONDS)));
+            purgeRawItems(deviceId, rawCutoff, hourlyRollups, report, pacer);
+            purgeDayBlocks(deviceId, rawCutoff, hourlyRollups, report, pacer);
+            purgeColdSegments(ColdSegmentStore.WATER_READING, deviceId, rawCutoff, hourlyRollups, HOUR_SECONDS, report);
+        }
+
+        if (hourlyMonths > 0) {
+            long hourlyCutoff = ZonedDateTime.now(IST).minusMonths(hourlyMonths).toEpochSecond();
+            TreeSet<Long> dailyRollups = toEpochSet(waterReadingPerDayRepository.findFetchTimestampsUpTo(
+                    deviceId, String.valueOf(hourlyCutoff + 2 * DAY_SECONDS)));
+            purgeHourly(deviceId, hourlyCutoff, dailyRollups, report, pacer);
+        }
+
+        if (newWaterReading2Days > 0 && newWaterReading2AllowWithoutRollup) {
+            long cutoff = now - newWaterReading2Days * DAY_SECONDS;
+            purgeNewWaterReading2(deviceId, cutoff, report, pacer);
+            purgeColdSegments(ColdSegmentStore.NEW_WATER_READING_2, deviceId, cutoff, null, 0, report);
+        }
+    }
+
+    private void purgeRawItems(String deviceId, long cutoff, TreeSet<Long> rollups, RetentionReport report, RatePacer pacer) {
+        Map<String, AttributeValue> exclusiveStartKey = null;
+        do {
+            QueryResultPage<WaterReading> page = waterReadingRepository.findWaterReadingItemPage(
+                    deviceId, null, String.valueOf(cutoff - 1), PAGE_SIZE, exclusiveStartKey);
+            List<WaterReading> expired = new ArrayList<>();
+            long kept = 0;
+            for (WaterReading reading : page.getResults()) {
+                if (isCovered(rollups, parseEpochSeconds(reading.getTimestamp()), HOUR_SECONDS)) {
+                    expired.add(reading);
+                } else {
+                    kept++;
+                }
+            }
+            report.recordKept("waterReading", kept);
+            deleteItems("waterReading", expired, report, pacer);
+            exclusiveStartKey = page.getLastEvaluatedKey();
+        } while (exclusiveStartKey != null);
+    }
+
+    private void purgeDayBlocks(String deviceId, long cutoff, TreeSet<Long> rollups, RetentionReport report, RatePacer pacer) {
+        // A block is only whole-day expired when its day ended before the cutoff
+        String cutoffDay = WaterReadingDayBlockRepository.dayOf(cutoff);
+        List<WaterReadingDayBlock> expired = new ArrayList<>();
+        long kept = 0;
+        for (WaterReadingDayBlock block : waterReadingDayBlockRepository.findBlocksBefore(deviceId, cutoffDay)) {
+            long dayStart = LocalDate.parse(block.getDay()).atStartOfDay(IST).toEpochSecond();
+            if (isCovered(rollups, dayStart, HOUR_SECONDS)) {
+                expired.add(block);
+            } else {
+                kept += block.getReadingCount() != null ? block.getReadingCount() : 1;
+            }
+            if (expired.size() >= PAGE_SIZE) {
+                deleteItems("waterReadingDayBlock", expired, report, pacer);
+                expired = new ArrayList<>();
+            }
+        }
+        report.recordKept("waterReadingDayBlock", kept);
+        deleteItems("waterReadingDayBlock", expired, report, pacer);
+    }
+
+    private void purgeHourly(String deviceId, long cutoff, TreeSet<Long> rollups, RetentionReport report, RatePacer pacer) {
+        Map<String, AttributeValue> exclusiveStartKey = null;
+        do {
+            QueryResultPage<WaterReadingPerHour> page = waterReadingPerHourRepository.findPageByFetchTimestampUpTo(
+                    deviceId, String.valueOf(cutoff - 1), PAGE_SIZE, exclusiveStartKey);
+            List<WaterReadingPerHour> expired = new ArrayList<>();
+            long kept = 0;
+            for (WaterReadingPerHour reading : page.getResults()) {
+                if (isCovered(rollups, parseEpochSeconds(reading.getFetchTimestamp()), DAY_SECONDS)) {
+                    expired.add(reading);
+                } else {
+                    kept++;
+                }
+            }
+            report.recordKept("waterReadingPerHour", kept);
+            deleteItems("waterReadingPerHour", expired, report, pacer);
+            exclusiveStartKey = page.getLastEvaluatedKey();
+        } while (exclusiveStartKey != null);
+    }
+
+    private void purgeNewWaterReading2(String deviceId, long cutoff, RetentionReport report, RatePacer pacer) {
+        Map<String, AttributeValue> exclusiveStartKey = null;
+        do {
+            QueryResultPage<NewWaterReading2> page = newWaterReading2Repository.findHotReadingPageBefore(
+                    deviceId, String.valueOf(cutoff - 1), PAGE_SIZE, exclusiveStartKey);
+            deleteItems("newWaterReading2", page.getResults(), report, pacer);
+            exclusiveStartKey = page.getLastEvaluatedKey();
+        } while (exclusiveStartKey != null);
+    }
+
+    // Only months that ended before the cutoff are considered; a segment is deleted whole or not at all
+    private void purgeColdSegments(String table, String deviceId, long cutoff, TreeSet<Long> rollups, long grace,
+                                   RetentionReport report) {
+        String tier = "cold:" + table;
+        for (YearMonth month : coldSegmentStore.findSegmentMonths(table, deviceId)) {
+            if (month.plusMonths(1).atDay(1).atStartOfDay(IST).toEpochSecond() > cutoff) {
+                continue;
+            }
+            long[] timestamps = coldSegmentStore.readTimestamps(table, deviceId, month);
+            boolean covered = Arrays.stream(timestamps).allMatch(timestamp -> isCovered(rollups, timestamp, grace));
+            if (covered) {
+                report.recordDeleted(tier, timestamps.length, coldSegmentStore.deleteSegment(table, deviceId, month));
+            } else {
+                report.recordKept(tier, timestamps.length);
+            }
+        }
+    }
+
+    private void deleteItems(String tier, List<?> items, RetentionReport report, RatePacer pacer) {
+        if (items.isEmpty()) {
+            return;
+        }
+        long bytes = 0;
+        for (Object item : items) {
+            bytes += estimateItemBytes(item);
+        }
+        pacer.acquire(items.size());
+        // The batch writer already sends the 25-item chunks of a page concurrently
+        BatchWriteResult result = dynamoDbBatchWriter.deleteAll(items);
+        long deleted = items.size() - result.getFailedItems();
+        report.recordDeleted(tier, deleted, bytes * deleted / items.size());
+        report.recordFailed(tier, result.getFailedItems());
+    }
+
+    // A day counts as covered when the coarser table has a row fetched during that day or within
+    // `grace` after it ends, i.e. the rollup job ran over that day before the finer rows go away
+    private boolean isCovered(TreeSet<Long> rollups, long timestamp, long grace) {
+        if (rollups == null) {
+            return true;
+        }
+        if (timestamp == Long.MIN_VALUE) {
+            return false;
+        }
+        long dayStart = Instant.ofEpochSecond(timestamp).atZone(IST).toLocalDate().atStartOfDay(IST).toEpochSecond();
+        Long next = rollups.ceiling(dayStart);
+        return next != null && next < dayStart + DAY_SECONDS + grace;
+    }
+
+    private TreeSet<Long> toEpochSet(List<String> timestamps) {
+        TreeSet<Long> epochs = new TreeSet<>();
+        for (String timestamp : timestamps) {
+            long epoch = parseEpochSeconds(timestamp);
+            if (epoch != Long.MIN_VALUE) {
+                epochs.add(epoch);
+            }
+        }
+        return epochs;
+    }
+
+    private long parseEpochSeconds(String timestamp) {
+        try {
+            return Long.parseLong(timestamp);
+        } catch (NumberFormatException | NullPointerException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> long estimateItemBytes(T item) {
+        DynamoDBMapperTableModel<T> model = dynamoDBMapper.getTableModel((Class<T>) item.getClass());
+        long bytes = ITEM_OVERHEAD_BYTES;
+        for (Map.Entry<String, AttributeValue> attribute : model.convert(item).entrySet()) {
+            bytes += attribute.getKey().getBytes(StandardCharsets.UTF_8).length + attributeBytes(attribute.getValue());
+        }
+        return bytes;
+    }
+
+    // Follows DynamoDB's item size rules closely enough for reporting
+    private long attributeBytes(AttributeValue value) {
+        if (value.getS() != null) {
+            return value.getS().getBytes(StandardCharsets.UTF_8).length;
+        }
+        if (value.getN() != null) {
+            return (value.getN().length() + 1) / 2 + 1;
+        }
+        if (value.getB() != null) {
+            return value.getB().remaining();
+        }
+        if (value.getM() != null) {
+            long bytes = 3;
+            for (Map.Entry<String, AttributeValue> entry : value.getM().entrySet()) {
+                bytes += 1 + entry.getKey().getBytes(StandardCharsets.UTF_8).length + attributeBytes(entry.getValue());
+            }
+            return bytes;
+        }
+        if (value.getL() != null) {
+            long bytes = 3;
+            for (AttributeValue element : value.getL()) {
+                bytes += 1 + attributeBytes(element);
+            }
+            return bytes;
+        }
+        return 1;
+    }
+}
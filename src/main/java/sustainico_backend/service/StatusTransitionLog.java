@@ -0,0 +1,147 @@
+package sustainico_backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import sustainico_backend.Models.NewWaterReading2;
+import sustainico_backend.Models.StatusTransitionEvent;
+import sustainico_backend.rep.NewWaterReading2Repository;
+import sustainico_backend.rep.StatusTransitionEventRepository;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+// Detects status flags going 0 -> 1 at ingest time by comparing each newWaterReading2 uplink with the
+// device's previous status, and appends the transitions to statusTransitionEvent. Keys missing from
+// an uplink keep their previous value, the same way the old three-day diff treated them.
+@Service
+public class StatusTransitionLog {
+
+    private static final ZoneId INDIA_ZONE = ZoneId.of("Asia/Kolkata");
+
+    private static final Logger logger = Logger.getLogger(StatusTransitionLog.class.getName());
+
+    private record LastStatus(long timestamp, Map<String, Boolean> status) {}
+
+    private final Map<String, LastStatus> lastStatusByDevice = new ConcurrentHashMap<>();
+
+    private final Set<String> backfilledDevices = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    private StatusTransitionEventRepository statusTransitionEventRepository;
+
+    @Autowired
+    private NewWaterReading2Repository newWaterReading2Repository;
+
+    // Called once the reading is stored; returns the transitions it raised
+    public List<StatusTransitionEvent> record(NewWaterReading2 reading) {
+        long timestamp;
+        try {
+            timestamp = Long.parseLong(reading.getTimestamp());
+        } catch (NumberFormatException e) {
+            return Collections.emptyList();
+        }
+
+        // The first uplink of a device after startup seeds its status from the table. That query runs
+        // outside compute so it never holds the map's bin lock; a concurrent seed that won keeps its value
+        String deviceId = reading.getDeviceId();
+        if (!lastStatusByDevice.containsKey(deviceId)) {
+            LastStatus previous = loadPrevious(deviceId, reading.getTimestamp());
+            if (previous != null) {
+                lastStatusByDevice.putIfAbsent(deviceId, previous);
+            }
+        }
+
+        List<StatusTransitionEvent> events = new ArrayList<>();
+        lastStatusByDevice.compute(deviceId, (key, last) -> {
+            if (last != null && timestamp <= last.timestamp()) {
+                // Late uplink; the cached status is already newer
+                return last;
+            }
+            Map<String, Boolean> merged = new HashMap<>(last != null ? last.status() : Collections.emptyMap());
+            if (reading.getStatus() != null) {
+                // With no earlier reading at all, the first status is the baseline
+                if (last != null) {
+                    events.addAll(transitions(key, timestamp, merged, reading.getStatus()));
+                }
+                merged.putAll(reading.getStatus());
+            }
+            return new LastStatus(timestamp, merged);
+        });
+
+        for (StatusTransitionEvent event : events) {
+            statusTransitionEventRepository.save(event);
+        }
+        return events;
+    }
+
+    public Long getLatestTimestamp(String deviceId) {
+        LastStatus last = lastStatusByDevice.get(deviceId);
+        return last != null ? last.timestamp() : null;
+    }
+
+    public List<StatusTransitionEvent> findEvents(String deviceId, long startTimestamp, long endTimestamp) {
+        return statusTransitionEventRepository.findBetween(deviceId, startTimestamp, endTimestamp);
+    }
+
+    // Readings stored before the log existed have no events; the first request for a device rebuilds
+    // the window from raw readings once and leaves a marker so no node does it again
+    public void backfillIfNeeded(String deviceId, long startTimestamp, long endTimestamp) {
+        if (backfilledDevices.contains(deviceId)) {
+            return;
+        }
+        if (!statusTransitionEventRepository.isBackfilled(deviceId)) {
+            List<NewWaterReading2> readings = new ArrayList<>(newWaterReading2Repository.findReadingsBetweenTimestamps(
+                    deviceId, String.valueOf(startTimestamp), String.valueOf(endTimestamp)));
+            readings.sort(Comparator.comparingLong(reading -> Long.parseLong(reading.getTimestamp())));
+
+            Map<String, Boolean> previous = new HashMap<>();
+            if (!readings.isEmpty() && readings.get(0).getStatus() != null) {
+                previous.putAll(readings.get(0).getStatus());
+            }
+            int written = 0;
+            for (NewWaterReading2 reading : readings) {
+                if (reading.getStatus() == null) {
+                    continue;
+                }
+                for (StatusTransitionEvent event : transitions(deviceId, Long.parseLong(reading.getTimestamp()), previous, reading.getStatus())) {
+                    statusTransitionEventRepository.save(event);
+                    written++;
+                }
+                previous.putAll(reading.getStatus());
+            }
+            statusTransitionEventRepository.markBackfilled(deviceId);
+            logger.info("Backfilled " + written + " status transitions for " + deviceId);
+        }
+        backfilledDevices.add(deviceId);
+    }
+
+    private List<StatusTransitionEvent> transitions(String deviceId, long timestamp, Map<String, Boolean> previous,
+                                                    Map<String, Boolean> current) {
+        List<StatusTransitionEvent> events = new ArrayList<>();
+        String dateTime = Instant.ofEpochSecond(timestamp).atZone(INDIA_ZONE).toLocalDateTime().toString();
+        for (Map.Entry<String, Boolean> entry : current.entrySet()) {
+            boolean wasSet = Boolean.TRUE.equals(previous.get(entry.getKey()));
+            if (!wasSet && Boolean.TRUE.equals(entry.getValue())) {
+                events.add(new StatusTransitionEvent(deviceId, StatusTransitionEvent.eventKey(timestamp, entry.getKey()),
+                        entry.getKey(), timestamp, dateTime));
+            }
+        }
+        return events;
+    }
+
+    private LastStatus loadPrevious(String deviceId, String timestamp) {
+        NewWaterReading2 previous = newWaterReading2Repository.findLatestBefore(deviceId, timestamp);
+        if (previous == null) {
+            return null;
+        }
+        try {
+            return new LastStatus(Long.parseLong(previous.getTimestamp()),
+                    previous.getStatus() != null ? previous.getStatus() : Collections.emptyMap());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package sustainico_backend.service;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import sustainico_backend.rep.UserHomesRepository;
+import sustainico_backend.util.RatePacer;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+// Drops the duplicate homeIds that HomeRepository.save used to append to UserHomes on every home
+// update. New writes no longer add duplicates, so one run cleans the table; the schedule is off by
+// default and a maintenance admin can start a run from POST /home/userHomes/compact. lastRun shows the run in progress
+// or the last one, including a failure.
+@Service
+public class UserHomesCompactionService {
+
+    private static final int PAGE_SIZE = 500;
+
+    private static final Logger logger = Logger.getLogger(UserHomesCompactionService.class.getName());
+
+    @Autowired
+    private UserHomesRepository userHomesRepository;
+
+    @Value("${user-homes.compaction.enabled:false}")
+    private boolean enabled;
+
+    // Rows read per second, to keep the scan from eating the table's read capacity
+    @Value("${user-homes.compaction.scan-rate:200}")
+    private double scanRate;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile Map<String, Object> lastRun;
+
+    @Scheduled(cron = "${user-homes.compaction.cron:0 30 4 * * ?}", zone = "Asia/Kolkata") // 04:30 IST by default
+    public void scheduledRun() {
+        if (enabled) {
+            run();
+        }
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public Map<String, Object> getLastRun() {
+        return lastRun;
+    }
+
+    // Returns null when a run is already in progress. A failed run is recorded in lastRun and rethrown
+    public Map<String, Object> run() {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        String startedAt = Instant.now().toString();
+        lastRun = status("running", startedAt, 0, 0, null);
+        long scanned = 0;
+        long compacted = 0;
+        try {
+            RatePacer pacer = new RatePacer(scanRate);
+            Map<String, AttributeValue> startKey = null;
+            do {
+                ScanResult page = userHomesRepository.scanPage(startKey, PAGE_SIZE);
+                for (Map<String, AttributeValue> item : page.getItems()) {
+                    scanned++;
+                    if (userHomesRepository.compact(item)) {
+                        compacted++;
+                    }
+                }
+                pacer.acquire(page.getItems().size());
+                startKey = page.getLastEvaluatedKey();
+            } while (startKey != null && !startKey.isEmpty());
+
+            logger.info("UserHomes compaction: " + compacted + " of " + scanned + " rows had duplicate homes");
+            lastRun = status("done", startedAt, scanned, compacted, null);
+            return lastRun;
+        } catch (RuntimeException err) {
+            logger.warning("UserHomes compaction failed after " + scanned + " rows: " + err);
+            lastRun = status("failed", startedAt, scanned, compacted, err.toString());
+            throw err;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // A new map per update, so a status being serialized is never modified underneath
+    private static Map<String, Object> status(String state, String startedAt, long scanned, long compacted, String error) {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("status", state);
+        status.put("startedAt", startedAt);
+        status.put("scanned", scanned);
+        status.put("compacted", compacted);
+        if (!"running".equals(state)) {
+            status.put("finishedAt", Instant.now().toString());
+        }
+        if (error != null) {
+            status.put("error", error);
+        }
+        return status;
+    }
+}
@@ -4,11 +4,15 @@ import com.google.firebase.auth.FirebaseToken;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import  org.springframework.stereotype.Service;
+import sustainico_backend.Models.CascadeDeleteJob;
+import sustainico_backend.Models.PushToken;
 import sustainico_backend.Models.User;
+import sustainico_backend.rep.PushTokenRepository;
 import sustainico_backend.rep.UserRepository;
 import sustainico_backend.util.ApiResponse;
 import sustainico_backend.util.JwtUtil;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,6 +25,12 @@ public class UserService {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private PushTokenRepository pushTokenRepository;
+
+    @Autowired
+    private CascadeDeleteService cascadeDeleteService;
+
     @Autowired
     public UserService(UserRepository userRepository){
         this.userRepository = userRepository;
@@ -68,14 +78,19 @@ public class UserService {
         }
     }
 
-    public boolean deleteUser(String contactNo) {
-        Optional<User> existingUser = userRepository.findByContactNo(contactNo);
-        if (existingUser.isPresent()) {
-            userRepository.delete(existingUser.get());
-            return true;
-        } else {
-            return false;
-        }
+    // Deletes the user with their homes, UserHomes row and push tokens, and releases their devices.
+    // Empty when no user has the contact number
+    public Optional<CascadeDeleteJob> deleteUser(String contactNo) {
+        return userRepository.findByContactNo(contactNo).map(cascadeDeleteService::deleteUser);
+    }
+
+    // Same cascade in the background, for accounts with many homes and meters; poll getDeleteJob
+    public Optional<CascadeDeleteJob> startDeleteUser(String contactNo) {
+        return userRepository.findByContactNo(contactNo).map(cascadeDeleteService::startUserDelete);
+    }
+
+    public CascadeDeleteJob getDeleteJob(String jobId) {
+        return cascadeDeleteService.getJob(jobId);
     }
 
     public String authenticate(String contactNo, String firebaseToken) throws Exception {
@@ -84,7 +99,22 @@ public class UserService {
         return rishi;
     }
 
-    public void deleteUser(User user){
-        userRepository.delete(user);
+    public CascadeDeleteJob deleteUser(User user){
+        return cascadeDeleteService.deleteUser(user);
+    }
+
+    public Optional<PushToken> registerPushToken(String contactNo, String token, String platform) {
+        return userRepository.findByContactNo(contactNo)
+                .map(user -> pushTokenRepository.save(new PushToken(user.getUserId(), token, platform, Instant.now().toString())));
+    }
+
+    public boolean removePushToken(String contactNo, String token) {
+        Optional<User> existingUser = userRepository.findByContactNo(contactNo);
+        if (existingUser.isPresent()) {
+            pushTokenRepository.delete(existingUser.get().getUserId(), token);
+            return true;
+        } else {
+            return false;
+        }
     }
 }
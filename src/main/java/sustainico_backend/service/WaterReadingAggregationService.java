@@ -5,12 +5,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import sustainico_backend.Models.*;
 import sustainico_backend.rep.HomeRepository;
+import sustainico_backend.util.ChartSeriesCodec;
 
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.WeekFields;
 import java.util.*;
+import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -37,17 +41,26 @@ public class WaterReadingAggregationService {
     @Autowired
     private WaterReadingPerMonthService waterReadingPerMonthService;
 
+    @Autowired
+    private LeakDetector leakDetector;
+
     public HomeReportResponse fetchFlowReadingsForDevices(String homeId, String startTimestamp, String endTimestamp, String resolution) {
         List<String> deviceIds = getDeviceIdsByHomeId(homeId);
+        DateTimeFormatter formatter = bucketFormatter(resolution);
         Map<String, Double> aggregatedReadings = new HashMap<>();
 
         double totalFlow = 0;
         double peakUsage = 0;
         int readingCount = 0;
 
+        LeakSummary leakSummary = new LeakSummary();
         for (String deviceId : deviceIds) {
-            Map<String, Double> deviceReadings = fetchDeviceReadings(deviceId, startTimestamp, endTimestamp, resolution);
+            Map<String, Double> deviceReadings = new HashMap<>();
+            for (ChartPoint point : fetchDevicePoints(deviceId, startTimestamp, endTimestamp, resolution)) {
+                deviceReadings.put(formatTimestamp(point.fetchTimestamp(), formatter), point.flowReading());
+            }
             aggregatedReadings = mergeAggregatedReadings(aggregatedReadings, deviceReadings);
+            leakSummary = leakSummary.add(leakDetector.summarize(deviceId, Long.parseLong(startTimestamp), Long.parseLong(endTimestamp)));
         }
 
         // Calculate metrics
@@ -61,32 +74,72 @@ public class WaterReadingAggregationService {
         }
 
         double averageUsage = totalFlow / readingCount;
-        double continuesFlowPercentage = 0.0;
-        double estimatedLeakage = 0.0; // Define this method based on your logic
+        // Interval-weighted across the home's devices; leakage adds up
+        double continuesFlowPercentage = leakSummary.getContinuousFlowPercentage();
+        double estimatedLeakage = leakSummary.getEstimatedLeakage();
 
 
         return new HomeReportResponse(aggregatedReadings, averageUsage, peakUsage, continuesFlowPercentage, estimatedLeakage);
     }
 
-    private Map<String, Double> fetchDeviceReadings(String deviceId, String startTimestamp, String endTimestamp, String resolution) {
+    // Same buckets as fetchFlowReadingsForDevices, keyed by the epoch second the bucket starts at
+    // instead of a formatted label, and in time order
+    public ChartSeriesResponse fetchFlowSeriesForDevices(String homeId, String startTimestamp, String endTimestamp, String resolution) {
+        List<String> deviceIds = getDeviceIdsByHomeId(homeId);
+        TreeMap<Long, Double> buckets = new TreeMap<>();
+
+        LeakSummary leakSummary = new LeakSummary();
+        for (String deviceId : deviceIds) {
+            // Within one device the last reading of a bucket wins, as with the labels
+            Map<Long, Double> deviceBuckets = new HashMap<>();
+            for (ChartPoint point : fetchDevicePoints(deviceId, startTimestamp, endTimestamp, resolution)) {
+                deviceBuckets.put(bucketStart(point.fetchTimestamp(), resolution), point.flowReading());
+            }
+            deviceBuckets.forEach((start, reading) -> buckets.merge(start, reading, Double::sum));
+            leakSummary = leakSummary.add(leakDetector.summarize(deviceId, Long.parseLong(startTimestamp), Long.parseLong(endTimestamp)));
+        }
+
+        double totalFlow = 0;
+        double peakUsage = 0;
+        for (double reading : buckets.values()) {
+            totalFlow += reading;
+            peakUsage = Math.max(peakUsage, reading);
+        }
+        double averageUsage = buckets.isEmpty() ? 0 : totalFlow / buckets.size();
+        return ChartSeriesCodec.fromBuckets(buckets, averageUsage, peakUsage,
+                leakSummary.getContinuousFlowPercentage(), leakSummary.getEstimatedLeakage());
+    }
+
+    // One reading of a device, whatever table the resolution reads from
+    private record ChartPoint(long fetchTimestamp, double flowReading) {}
+
+    private List<ChartPoint> fetchDevicePoints(String deviceId, String startTimestamp, String endTimestamp, String resolution) {
         switch (resolution.toLowerCase()) {
             case "day":
-                List<WaterReadingPerHour> hourReadings = waterReadingPerHourService.getReadings2(deviceId, startTimestamp, endTimestamp);
-                return aggregateHourReadings(hourReadings);
+                return chartPoints(waterReadingPerHourService.getReadings2(deviceId, startTimestamp, endTimestamp),
+                        WaterReadingPerHour::getFetchTimestamp, WaterReadingPerHour::getFlowReading);
             case "week":
-                List<WaterReadingPerDay> dayReadings = waterReadingPerDayService.getReadings2(deviceId, startTimestamp, endTimestamp);
-                return aggregateDayReadings(dayReadings);
+                return chartPoints(waterReadingPerDayService.getReadings2(deviceId, startTimestamp, endTimestamp),
+                        WaterReadingPerDay::getFetchTimestamp, WaterReadingPerDay::getFlowReading);
             case "month":
-                List<WaterReadingPerWeek> weekReadings = waterReadingPerWeekService.getReadings2(deviceId, startTimestamp, endTimestamp);
-                return aggregateWeekReadings(weekReadings);
+                return chartPoints(waterReadingPerWeekService.getReadings2(deviceId, startTimestamp, endTimestamp),
+                        WaterReadingPerWeek::getFetchTimestamp, WaterReadingPerWeek::getFlowReading);
             case "year":
-                List<WaterReadingPerMonth> monthReadings = waterReadingPerMonthService.getReadings2(deviceId, startTimestamp, endTimestamp);
-                return aggregateMonthReadings(monthReadings);
+                return chartPoints(waterReadingPerMonthService.getReadings2(deviceId, startTimestamp, endTimestamp),
+                        WaterReadingPerMonth::getFetchTimestamp, WaterReadingPerMonth::getFlowReading);
             default:
                 throw new IllegalArgumentException("Invalid resolution specified.");
         }
     }
 
+    private static <T> List<ChartPoint> chartPoints(List<T> readings, Function<T, String> fetchTimestamp, Function<T, String> flowReading) {
+        List<ChartPoint> points = new ArrayList<>(readings.size());
+        for (T reading : readings) {
+            points.add(new ChartPoint(Long.parseLong(fetchTimestamp.apply(reading)), Double.parseDouble(flowReading.apply(reading))));
+        }
+        return points;
+    }
+
     private List<String> getDeviceIdsByHomeId(String homeId) {
         return homeService.getDevicesByHomeId(homeId)
                 .stream()
@@ -94,57 +147,46 @@ public class WaterReadingAggregationService {
                 .collect(Collectors.toList());
     }
 
-    private Map<String, Double> aggregateHourReadings(List<WaterReadingPerHour> readings) {
-        Map<String, Double> aggregatedReadings = new HashMap<>();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00");
-
-        for (WaterReadingPerHour reading : readings) {
-            String formattedTime = formatTimestamp(reading.getFetchTimestamp(), formatter);
-            aggregatedReadings.put(formattedTime, Double.parseDouble(reading.getFlowReading()));
-        }
-        return aggregatedReadings;
-    }
-
-    private Map<String, Double> aggregateDayReadings(List<WaterReadingPerDay> readings) {
-        Map<String, Double> aggregatedReadings = new HashMap<>();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-
-        for (WaterReadingPerDay reading : readings) {
-            String formattedTime = formatTimestamp(reading.getFetchTimestamp(), formatter);
-            aggregatedReadings.put(formattedTime, Double.parseDouble(reading.getFlowReading()));
-        }
-        return aggregatedReadings;
-    }
-
-    private Map<String, Double> aggregateWeekReadings(List<WaterReadingPerWeek> readings) {
-        Map<String, Double> aggregatedReadings = new HashMap<>();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-'W'ww");
-
-        for (WaterReadingPerWeek reading : readings) {
-            String formattedTime = formatTimestamp(reading.getFetchTimestamp(), formatter);
-            aggregatedReadings.put(formattedTime, Double.parseDouble(reading.getFlowReading()));
+    private static DateTimeFormatter bucketFormatter(String resolution) {
+        switch (resolution.toLowerCase()) {
+            case "day":
+                return DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00");
+            case "week":
+                return DateTimeFormatter.ofPattern("yyyy-MM-dd");
+            case "month":
+                return DateTimeFormatter.ofPattern("yyyy-'W'ww");
+            case "year":
+                return DateTimeFormatter.ofPattern("yyyy-MM");
+            default:
+                throw new IllegalArgumentException("Invalid resolution specified.");
         }
-        return aggregatedReadings;
     }
 
-    private Map<String, Double> aggregateMonthReadings(List<WaterReadingPerMonth> readings) {
-        Map<String, Double> aggregatedReadings = new HashMap<>();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM");
-
-        for (WaterReadingPerMonth reading : readings) {
-            String formattedTime = formatTimestamp(reading.getFetchTimestamp(), formatter);
-            aggregatedReadings.put(formattedTime, Double.parseDouble(reading.getFlowReading()));
+    // Start of the hour, day, week or month a reading falls in, matching the bucketFormatter labels
+    private static long bucketStart(long timestamp, String resolution) {
+        ZonedDateTime zdt = Instant.ofEpochSecond(timestamp).atZone(ZoneId.systemDefault());
+        switch (resolution.toLowerCase()) {
+            case "day":
+                return zdt.truncatedTo(ChronoUnit.HOURS).toEpochSecond();
+            case "week":
+                return zdt.truncatedTo(ChronoUnit.DAYS).toEpochSecond();
+            case "month":
+                return zdt.with(WeekFields.of(Locale.getDefault()).dayOfWeek(), 1).truncatedTo(ChronoUnit.DAYS).toEpochSecond();
+            case "year":
+                return zdt.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).toEpochSecond();
+            default:
+                throw new IllegalArgumentException("Invalid resolution specified.");
         }
-        return aggregatedReadings;
     }
 
-    private String formatTimestamp(String timestamp, DateTimeFormatter formatter) {
-        Instant instant = Instant.ofEpochSecond(Long.parseLong(timestamp));
+    private String formatTimestamp(long timestamp, DateTimeFormatter formatter) {
+        Instant instant = Instant.ofEpochSecond(timestamp);
         ZonedDateTime zdt = instant.atZone(ZoneId.systemDefault());
         return zdt.format(formatter);
     }
 
-    private Map<String, Double> mergeAggregatedReadings(Map<String, Double> main, Map<String, Double> toAdd) {
+    // Package-private for the JMH benchmarks in src/jmh/java
+    Map<String, Double> mergeAggregatedReadings(Map<String, Double> main, Map<String, Double> toAdd) {
         for (Map.Entry<String, Double> entry : toAdd.entrySet()) {
             main.merge(entry.getKey(), entry.getValue(), Double::sum);
         }
@@ -0,0 +1,142 @@
+package sustainico_backend.service;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.QueryResultPage;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import sustainico_backend.Models.WaterReading;
+import sustainico_backend.rep.WaterReadingDayBlockRepository;
+import sustainico_backend.rep.WaterReadingRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+// Copies existing waterReading items into day blocks. Runs on its own thread so a long backfill
+// never occupies the ingest pool; appends are idempotent, so a run can be repeated after a failure.
+@Service
+public class WaterReadingBlockMigrationService {
+
+    private static final int PAGE_SIZE = 1000;
+
+    private static final Logger logger = Logger.getLogger(WaterReadingBlockMigrationService.class.getName());
+
+    private final WaterReadingRepository waterReadingRepository;
+    private final WaterReadingDayBlockRepository waterReadingDayBlockRepository;
+    private final DynamoDbBatchWriter dynamoDbBatchWriter;
+    private final LatestReadingView latestReadingView;
+
+    private final ExecutorService migrationExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "block-migration");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // deviceId -> pending / running / migrated N / failed
+    private final Map<String, String> progress = new ConcurrentHashMap<>();
+
+    // Item rows are only removed once reads are served from blocks
+    @Value("${water.storage.migration.delete-items:false}")
+    private boolean deleteItems;
+
+    @Autowired
+    public WaterReadingBlockMigrationService(WaterReadingRepository waterReadingRepository,
+                                             WaterReadingDayBlockRepository waterReadingDayBlockRepository,
+                                             DynamoDbBatchWriter dynamoDbBatchWriter,
+                                             LatestReadingView latestReadingView) {
+        this.waterReadingRepository = waterReadingRepository;
+        this.waterReadingDayBlockRepository = waterReadingDayBlockRepository;
+        this.dynamoDbBatchWriter = dynamoDbBatchWriter;
+        this.latestReadingView = latestReadingView;
+    }
+
+    // Starts a migration for one device, or every known device when deviceId is null.
+    // Returns false if a migration is already running.
+    public boolean startMigration(String deviceId) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        List<String> deviceIds = new ArrayList<>();
+        if (deviceId != null) {
+            deviceIds.add(deviceId);
+        } else {
+            latestReadingView.getLatestReadings().forEach(reading -> deviceIds.add(reading.getDeviceId()));
+        }
+        progress.clear();
+        deviceIds.forEach(id -> progress.put(id, "pending"));
+
+        CompletableFuture.runAsync(() -> {
+            try {
+                for (String id : deviceIds) {
+                    progress.put(id, "running");
+                    try {
+                        progress.put(id, "migrated " + migrateDevice(id));
+                    } catch (RuntimeException err) {
+                        logger.warning("Block migration failed for " + id + ": " + err.getMessage());
+                        progress.put(id, "failed");
+                    }
+                }
+            } finally {
+                running.set(false);
+            }
+        }, migrationExecutor);
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public Map<String, String> getProgress() {
+        return new TreeMap<>(progress);
+    }
+
+    // Walks the item rows newest first and writes one day block at a time, so memory stays at a day of readings
+    public int migrateDevice(String deviceId) {
+        int migrated = 0;
+        String currentDay = null;
+        List<WaterReading> dayReadings = new ArrayList<>();
+        Map<String, AttributeValue> exclusiveStartKey = null;
+        do {
+            QueryResultPage<WaterReading> page = waterReadingRepository.findWaterReadingItemPage(
+                    deviceId, null, null, PAGE_SIZE, exclusiveStartKey);
+            for (WaterReading reading : page.getResults()) {
+                if (!WaterReadingDayBlockRepository.isPackable(reading)) {
+                    continue;
+                }
+                String day = WaterReadingDayBlockRepository.dayOf(Long.parseLong(reading.getTimestamp()));
+                if (!day.equals(currentDay)) {
+                    migrated += flushDay(dayReadings);
+                    currentDay = day;
+                }
+                dayReadings.add(reading);
+            }
+            exclusiveStartKey = page.getLastEvaluatedKey();
+        } while (exclusiveStartKey != null);
+        migrated += flushDay(dayReadings);
+        return migrated;
+    }
+
+    private int flushDay(List<WaterReading> dayReadings) {
+        if (dayReadings.isEmpty()) {
+            return 0;
+        }
+        waterReadingDayBlockRepository.append(dayReadings);
+        if (deleteItems && waterReadingRepository.getStorageMode().readsBlocks()) {
+            dynamoDbBatchWriter.deleteAll(new ArrayList<>(dayReadings));
+        }
+        int count = dayReadings.size();
+        dayReadings.clear();
+        return count;
+    }
+}
@@ -19,6 +19,9 @@ import java.util.stream.Collectors;
 @Service
 public class WaterReadingPerDayService {
 
+    @Autowired
+    private LeakDetector leakDetector;
+
     @Autowired
     private DynamoDBMapper dynamoDBMapper;
 
@@ -184,7 +187,19 @@ public class WaterReadingPerDayService {
 
         List<WaterReadingPerDay> result = dynamoDBMapper.query(WaterReadingPerDay.class, queryExpression);
 
+        DeviceReportResponse report = summarizeDailyDeltas(result);
+
+        // Read from the leak detector's daily rows instead of re-scanning raw readings
+        LeakSummary leakSummary = leakDetector.summarize(deviceId, Long.parseLong(startTimestamp), Long.parseLong(endTimestamp));
+        report.setContinuesFlowPercentage(leakSummary.getContinuousFlowPercentage());
+        report.setEstimatedLeakage(leakSummary.getEstimatedLeakage());
+
+        return report;
+    }
 
+    // Turns consecutive daily totalizer rows into per-day usage plus average and peak.
+    // Package-private and free of I/O so the JMH benchmarks in src/jmh/java can drive it.
+    static DeviceReportResponse summarizeDailyDeltas(List<WaterReadingPerDay> result) {
         DeviceReportResponse report = new DeviceReportResponse();
 
         // Compute flow readings as differences and omit the first reading
@@ -235,14 +250,9 @@ public class WaterReadingPerDayService {
         peakUsage = Math.max(peakUsage, 0);
         report.setPeakUsage(peakUsage);
 
-        // Placeholders for other calculations
-        report.setContinuesFlowPercentage(0); // Placeholder
-        report.setEstimatedLeakage(0); // Placeholder
-
         return report;
     }
 
-
     private WaterReadingPerDay getNearestDailyReading(String deviceId, String timestamp, boolean isStart) {
         long timestampInSeconds = Long.parseLong(timestamp);
         long startRange = isStart ? roundToNearestDay(timestampInSeconds) : timestampInSeconds - 86400;
@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import sustainico_backend.Models.DeviceReportResponse;
+import sustainico_backend.Models.LeakSummary;
 import sustainico_backend.Models.WaterReading;
 import sustainico_backend.Models.WaterReadingPerDay;
 import sustainico_backend.Models.WaterReadingPerHour;
@@ -23,12 +24,18 @@ import java.util.stream.Collectors;
 @Service
 public class WaterReadingPerHourService {
 
+    @Autowired
+    private LeakDetector leakDetector;
+
     @Autowired
     private DynamoDBMapper dynamoDBMapper;
 
     @Autowired
     private WaterReadingService waterReadingService;
 
+    @Autowired
+    private LatestReadingView latestReadingView;
+
     @Autowired
     private WaterReadingPerHourRepository waterReadingPerHourRepository;
 
@@ -42,6 +49,8 @@ public class WaterReadingPerHourService {
     @Scheduled(cron = "0 0 * * * ?", zone = "Asia/Kolkata") // Every hour in IST
     public void aggregateWaterReadingPerHour() {
         try {
+            // Picks up readings other nodes ingested since the last refresh
+            latestReadingView.refresh();
             List<WaterReading> latestReadings = waterReadingService.getLatestReadingsForAllDevices();
             for (WaterReading latestReading : latestReadings) {
                 WaterReadingPerHour waterReadingPerHour = new WaterReadingPerHour();
@@ -198,9 +207,10 @@ public class WaterReadingPerHourService {
         }
         report.setPeakUsage(peakUsage);
 
-        // Placeholders for other calculations
-        report.setContinuesFlowPercentage(0); // Placeholder
-        report.setEstimatedLeakage(0); // Placeholder
+        // Read from the leak detector's daily rows instead of re-scanning raw readings
+        LeakSummary leakSummary = leakDetector.summarize(deviceId, Long.parseLong(startTimestamp), Long.parseLong(endTimestamp));
+        report.setContinuesFlowPercentage(leakSummary.getContinuousFlowPercentage());
+        report.setEstimatedLeakage(leakSummary.getEstimatedLeakage());
 
         return report;
     }
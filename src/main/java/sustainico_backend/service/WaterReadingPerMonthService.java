@@ -18,6 +18,9 @@ import java.util.stream.Collectors;
 @Service
 public class WaterReadingPerMonthService {
 
+    @Autowired
+    private LeakDetector leakDetector;
+
     @Autowired
     private DynamoDBMapper dynamoDBMapper;
 
@@ -185,9 +188,10 @@ public class WaterReadingPerMonthService {
         peakUsage = Math.max(peakUsage, 0);
         report.setPeakUsage(peakUsage);
 
-        // Placeholders for other calculations
-        report.setContinuesFlowPercentage(0); // Placeholder
-        report.setEstimatedLeakage(0); // Placeholder
+        // Read from the leak detector's daily rows instead of re-scanning raw readings
+        LeakSummary leakSummary = leakDetector.summarize(deviceId, Long.parseLong(startTimestamp), Long.parseLong(endTimestamp));
+        report.setContinuesFlowPercentage(leakSummary.getContinuousFlowPercentage());
+        report.setEstimatedLeakage(leakSummary.getEstimatedLeakage());
 
         return report;
     }
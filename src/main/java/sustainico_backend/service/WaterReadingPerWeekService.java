@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import sustainico_backend.Models.DeviceReportResponse;
+import sustainico_backend.Models.LeakSummary;
 import sustainico_backend.Models.WaterReadingPerDay;
 import sustainico_backend.Models.WaterReadingPerHour;
 import sustainico_backend.Models.WaterReadingPerWeek;
@@ -21,6 +22,9 @@ import java.util.stream.Collectors;
 @Service
 public class WaterReadingPerWeekService {
 
+    @Autowired
+    private LeakDetector leakDetector;
+
     @Autowired
     private DynamoDBMapper dynamoDBMapper;
 
@@ -227,9 +231,10 @@ public class WaterReadingPerWeekService {
         peakUsage = Math.max(peakUsage, 0);
         report.setPeakUsage(peakUsage);
 
-        // Placeholders for other calculations
-        report.setContinuesFlowPercentage(0); // Placeholder
-        report.setEstimatedLeakage(0); // Placeholder
+        // Read from the leak detector's daily rows instead of re-scanning raw readings
+        LeakSummary leakSummary = leakDetector.summarize(deviceId, Long.parseLong(startTimestamp), Long.parseLong(endTimestamp));
+        report.setContinuesFlowPercentage(leakSummary.getContinuousFlowPercentage());
+        report.setEstimatedLeakage(leakSummary.getEstimatedLeakage());
 
         return report;
     }
@@ -1,18 +1,27 @@
 package sustainico_backend.service;
 
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.QueryResultPage;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import sustainico_backend.Models.LatestWaterReading;
 import sustainico_backend.Models.WaterReading;
+import sustainico_backend.Models.WaterReadingPage;
 import sustainico_backend.rep.DeviceRepository;
 import sustainico_backend.rep.LatestWaterReadingRepository;
 import sustainico_backend.rep.WaterReadingRepository;
+import sustainico_backend.util.PageCursor;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.text.DecimalFormat;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 import java.util.stream.Collectors;
@@ -20,12 +29,31 @@ import java.util.stream.Collectors;
 @Service
 public class WaterReadingService {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    // Page size used when streaming a full history; only one page is held in memory at a time
+    private static final int STREAM_PAGE_SIZE = 500;
 
     private final WaterReadingRepository waterReadingRepository;
 
     @Autowired
     public LatestWaterReadingRepository latestWaterReadingRepository;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private LatestReadingView latestReadingView;
+
+    @Autowired
+    private IngestDeduplicator ingestDeduplicator;
+
+    @Autowired
+    private LeakDetector leakDetector;
+
+    @Autowired
+    private AlertEngine alertEngine;
+
 
     @Autowired
     public WaterReadingService(WaterReadingRepository waterReadingRepository) {
@@ -34,8 +62,27 @@ public class WaterReadingService {
 
 
     public WaterReading saveWaterReading(WaterReading waterReading){
+        storeWaterReading(waterReading);
+        return waterReading;
+    }
+
+    // saveWaterReading for callers that count duplicates; false for a retransmission
+    public boolean storeWaterReading(WaterReading waterReading) {
         waterReading.generateReadingId();
-        WaterReading savedReading = waterReadingRepository.save(waterReading);
+
+        // Meters retransmit; drop copies before any DynamoDB call
+        if (!ingestDeduplicator.firstSighting("waterReading", waterReading.getDeviceId(), waterReading.getReadingId())) {
+            return false;
+        }
+        try {
+            if (!waterReadingRepository.saveIfAbsent(waterReading)) {
+                ingestDeduplicator.recordConditionalDuplicate("waterReading");
+                return false;
+            }
+        } catch (RuntimeException err) {
+            ingestDeduplicator.forget(waterReading.getDeviceId(), waterReading.getReadingId());
+            throw err;
+        }
 
         // Update LatestWaterReading
         LatestWaterReading latestWaterReading = latestWaterReadingRepository.findByDeviceId(waterReading.getDeviceId());
@@ -49,8 +96,10 @@ public class WaterReadingService {
         latestWaterReading.setTimestamp(waterReading.getTimestamp());
 
         latestWaterReadingRepository.save(latestWaterReading);
-
-        return savedReading;
+        latestReadingView.record(waterReading);
+        leakDetector.consume(waterReading);
+        alertEngine.onWaterReading(waterReading);
+        return true;
     }
 
 
@@ -59,33 +108,45 @@ public class WaterReadingService {
         return waterReadingRepository.findWaterReadingByDeviceId(deviceId);
     }
 
+    public WaterReadingPage getWaterReadingsPage(String deviceId, String startTimestamp, String endTimestamp,
+                                                 int limit, String cursor) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        QueryResultPage<WaterReading> page = waterReadingRepository.findWaterReadingPage(
+                deviceId, startTimestamp, endTimestamp, pageSize, PageCursor.decode(cursor));
+        return new WaterReadingPage(page.getResults(), PageCursor.encode(page.getLastEvaluatedKey()));
+    }
+
+    // Writes the readings as a JSON array, newest first, flushing after every DynamoDB page
+    public void streamWaterReadings(String deviceId, String startTimestamp, String endTimestamp,
+                                    OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            Map<String, AttributeValue> exclusiveStartKey = null;
+            do {
+                QueryResultPage<WaterReading> page = waterReadingRepository.findWaterReadingPage(
+                        deviceId, startTimestamp, endTimestamp, STREAM_PAGE_SIZE, exclusiveStartKey);
+                for (WaterReading reading : page.getResults()) {
+                    generator.writeObject(reading);
+                }
+                generator.flush();
+                exclusiveStartKey = page.getLastEvaluatedKey();
+            } while (exclusiveStartKey != null);
+            generator.writeEndArray();
+        }
+    }
+
+    // Served from the in-memory view instead of scanning waterReading and re-reading every device's history
     public List<WaterReading> getLatestReadingsForAllDevices() {
-        List<String> deviceIds = getAllDeviceIds(); // Implement this method to get all device IDs
-        return deviceIds.stream()
-                .map(this::getLatestReading)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toList());
+        return latestReadingView.getLatestReadings();
     }
 
-    public Optional<WaterReading> getLatestReading(String deviceId) {
-        List<WaterReading> readings = waterReadingRepository.findWaterReadingByDeviceId(deviceId);
-        return readings.stream()
-                .max((r1, r2) -> {
-                    try {
-                        return Long.compare(Long.parseLong(r1.getTimestamp()), Long.parseLong(r2.getTimestamp()));
-                    } catch (NumberFormatException e) {
-                        return 0;
-                    }
-                });
+    public List<WaterReading> getLatestReadingsForAllDevices(String deviceIdPrefix, String sinceTimestamp, int offset, int limit) {
+        return latestReadingView.getLatestReadings(deviceIdPrefix, sinceTimestamp, offset, limit);
     }
 
-    private List<String> getAllDeviceIds() {
-        List<WaterReading> readings = waterReadingRepository.findAll();
-        return readings.stream()
-                .map(WaterReading::getDeviceId)
-                .distinct()
-                .collect(Collectors.toList());
+    public Optional<WaterReading> getLatestReading(String deviceId) {
+        return latestReadingView.getLatestReading(deviceId);
     }
 
 //    public WaterReading getLatestReadingById(String deviceId) {
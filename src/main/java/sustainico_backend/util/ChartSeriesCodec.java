@@ -0,0 +1,106 @@
+package sustainico_backend.util;
+
+import sustainico_backend.Models.ChartSeriesResponse;
+import sustainico_backend.Models.DeviceReportResponse;
+import sustainico_backend.Models.WaterReadingPerDay;
+import sustainico_backend.Models.WaterReadingPerHour;
+import sustainico_backend.Models.WaterReadingPerMonth;
+import sustainico_backend.Models.WaterReadingPerWeek;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+
+// Builds ChartSeriesResponse from the report models and packs it for format=binary:
+//   version, averageUsage, peakUsage, continuesFlowPercentage, estimatedLeakage (8-byte doubles),
+//   then the points as a ReadingBlockCodec block with values in thousandths.
+// A year of daily points comes to well under a kilobyte.
+public final class ChartSeriesCodec {
+
+    public static final byte FORMAT_VERSION = 1;
+
+    public static final String MEDIA_TYPE = "application/vnd.sustainico.series";
+
+    private static final int HEADER_BYTES = 1 + 4 * Double.BYTES;
+
+    private ChartSeriesCodec() {}
+
+    // readings holds one of the WaterReadingPer* types, already sorted by fetchTimestamp
+    public static ChartSeriesResponse fromDeviceReport(DeviceReportResponse report) {
+        List<?> readings = report.getReadings() != null ? report.getReadings() : List.of();
+        long[] timestamps = new long[readings.size()];
+        double[] values = new double[readings.size()];
+        for (int i = 0; i < readings.size(); i++) {
+            Object reading = readings.get(i);
+            String fetchTimestamp;
+            String flowReading;
+            if (reading instanceof WaterReadingPerHour hour) {
+                fetchTimestamp = hour.getFetchTimestamp();
+                flowReading = hour.getFlowReading();
+            } else if (reading instanceof WaterReadingPerDay day) {
+                fetchTimestamp = day.getFetchTimestamp();
+                flowReading = day.getFlowReading();
+            } else if (reading instanceof WaterReadingPerWeek week) {
+                fetchTimestamp = week.getFetchTimestamp();
+                flowReading = week.getFlowReading();
+            } else if (reading instanceof WaterReadingPerMonth month) {
+                fetchTimestamp = month.getFetchTimestamp();
+                flowReading = month.getFlowReading();
+            } else {
+                throw new IllegalArgumentException("Unsupported report reading " + reading.getClass().getSimpleName());
+            }
+            timestamps[i] = Long.parseLong(fetchTimestamp);
+            values[i] = Double.parseDouble(flowReading);
+        }
+        return new ChartSeriesResponse(timestamps, values, report.getAverageUsage(), report.getPeakUsage(),
+                report.getContinuesFlowPercentage(), report.getEstimatedLeakage());
+    }
+
+    public static ChartSeriesResponse fromBuckets(SortedMap<Long, Double> buckets, double averageUsage, double peakUsage,
+                                                  double continuesFlowPercentage, double estimatedLeakage) {
+        long[] timestamps = new long[buckets.size()];
+        double[] values = new double[buckets.size()];
+        int i = 0;
+        for (SortedMap.Entry<Long, Double> bucket : buckets.entrySet()) {
+            timestamps[i] = bucket.getKey();
+            values[i++] = bucket.getValue();
+        }
+        return new ChartSeriesResponse(timestamps, values, averageUsage, peakUsage, continuesFlowPercentage, estimatedLeakage);
+    }
+
+    // Values are rounded to thousandths, the precision the meters report in
+    public static byte[] encode(ChartSeriesResponse series) {
+        long[] milliValues = new long[series.getValues().length];
+        for (int i = 0; i < milliValues.length; i++) {
+            milliValues[i] = Math.round(series.getValues()[i] * 1000);
+        }
+        byte[] block = ReadingBlockCodec.encode(series.getTimestamps(), milliValues, milliValues.length);
+        return ByteBuffer.allocate(HEADER_BYTES + block.length)
+                .put(FORMAT_VERSION)
+                .putDouble(series.getAverageUsage())
+                .putDouble(series.getPeakUsage())
+                .putDouble(series.getContinuesFlowPercentage())
+                .putDouble(series.getEstimatedLeakage())
+                .put(block)
+                .array();
+    }
+
+    public static ChartSeriesResponse decode(byte[] encoded) {
+        if (encoded.length < HEADER_BYTES || encoded[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Not a version " + FORMAT_VERSION + " chart series");
+        }
+        ByteBuffer in = ByteBuffer.wrap(encoded, 1, HEADER_BYTES - 1);
+        double averageUsage = in.getDouble();
+        double peakUsage = in.getDouble();
+        double continuesFlowPercentage = in.getDouble();
+        double estimatedLeakage = in.getDouble();
+        ReadingBlockCodec.Block block = ReadingBlockCodec.decode(Arrays.copyOfRange(encoded, HEADER_BYTES, encoded.length));
+        double[] values = new double[block.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = block.getValues()[i] / 1000.0;
+        }
+        return new ChartSeriesResponse(block.getTimestamps(), values, averageUsage, peakUsage,
+                continuesFlowPercentage, estimatedLeakage);
+    }
+}
@@ -0,0 +1,159 @@
+package sustainico_backend.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Immutable columnar file holding one device-month of archived readings.
+// Header: magic, row count, column names, a string dictionary (used for status keys), then every
+// column as a contiguous run of longs. Column 0 is always the ascending epoch-second timestamp,
+// so a range read is a binary search followed by sequential reads from the memory-mapped file.
+public final class ColdSegment {
+
+    private static final int MAGIC = 0x53434731; // "SCG1"
+
+    private final MappedByteBuffer buffer;
+    private final int rowCount;
+    private final List<String> columns;
+    private final List<String> dictionary;
+    private final int dataOffset;
+
+    private ColdSegment(MappedByteBuffer buffer, int rowCount, List<String> columns, List<String> dictionary, int dataOffset) {
+        this.buffer = buffer;
+        this.rowCount = rowCount;
+        this.columns = columns;
+        this.dictionary = dictionary;
+        this.dataOffset = dataOffset;
+    }
+
+    public static ColdSegment open(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer header = buffer.duplicate();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a cold segment: " + path);
+        }
+        int rowCount = header.getInt();
+        List<String> columns = readStrings(header);
+        List<String> dictionary = readStrings(header);
+        return new ColdSegment(buffer, rowCount, columns, dictionary, header.position());
+    }
+
+    // Writes to a temporary file next to the target and renames it into place, so readers only ever
+    // see a complete segment
+    public static void write(Path target, List<String> columns, List<String> dictionary, long[][] data, int rowCount) throws IOException {
+        byte[][] columnNames = encodeStrings(columns);
+        byte[][] dictionaryEntries = encodeStrings(dictionary);
+        int headerSize = 8 + stringsSize(columnNames) + stringsSize(dictionaryEntries);
+
+        ByteBuffer out = ByteBuffer.allocate(headerSize + columns.size() * rowCount * 8);
+        out.putInt(MAGIC).putInt(rowCount);
+        putStrings(out, columnNames);
+        putStrings(out, dictionaryEntries);
+        for (long[] column : data) {
+            for (int row = 0; row < rowCount; row++) {
+                out.putLong(column[row]);
+            }
+        }
+        out.flip();
+
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public List<String> getDictionary() {
+        return dictionary;
+    }
+
+    public int columnIndex(String name) {
+        int index = columns.indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("Cold segment has no column " + name);
+        }
+        return index;
+    }
+
+    public long get(int column, int row) {
+        return buffer.getLong(dataOffset + (column * rowCount + row) * 8);
+    }
+
+    public long getTimestamp(int row) {
+        return get(0, row);
+    }
+
+    // First row whose timestamp is >= the given one (rowCount if none)
+    public int lowerBound(long timestamp) {
+        int low = 0;
+        int high = rowCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getTimestamp(mid) < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static List<String> readStrings(ByteBuffer in) {
+        int count = in.getShort();
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[in.getShort()];
+            in.get(bytes);
+            strings.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return Collections.unmodifiableList(strings);
+    }
+
+    private static byte[][] encodeStrings(List<String> strings) {
+        byte[][] encoded = new byte[strings.size()][];
+        for (int i = 0; i < strings.size(); i++) {
+            encoded[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+        return encoded;
+    }
+
+    private static int stringsSize(byte[][] strings) {
+        int size = 2;
+        for (byte[] string : strings) {
+            size += 2 + string.length;
+        }
+        return size;
+    }
+
+    private static void putStrings(ByteBuffer out, byte[][] strings) {
+        out.putShort((short) strings.length);
+        for (byte[] string : strings) {
+            out.putShort((short) string.length).put(string);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package sustainico_backend.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+// DynamoDB calls, items and consumed capacity of one HTTP request, fed by the client request handler.
+// Bound to the request thread: work handed to executors (ingest expansion, alert fan-out) is not counted.
+public final class DynamoDbCallTally {
+
+    public enum BudgetMode { OFF, WARN, FAIL }
+
+    public static class BudgetExceededException extends IllegalStateException {
+        public BudgetExceededException(String message) {
+            super(message);
+        }
+    }
+
+    private static final ThreadLocal<DynamoDbCallTally> CURRENT = new ThreadLocal<>();
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final Map<String, LongAdder> callsByOperation = new ConcurrentHashMap<>();
+    private final LongAdder itemsRead = new LongAdder();
+    private final LongAdder itemsWritten = new LongAdder();
+    private final DoubleAdder readCapacity = new DoubleAdder();
+    private final DoubleAdder writeCapacity = new DoubleAdder();
+    private final AtomicBoolean budgetExceeded = new AtomicBoolean();
+
+    private volatile String endpoint;
+    private volatile int budget;
+    private volatile BudgetMode budgetMode = BudgetMode.OFF;
+
+    public static DynamoDbCallTally begin() {
+        DynamoDbCallTally tally = new DynamoDbCallTally();
+        CURRENT.set(tally);
+        return tally;
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    // null outside an HTTP request (scheduled jobs, executor threads)
+    public static DynamoDbCallTally current() {
+        return CURRENT.get();
+    }
+
+    public void setBudget(String endpoint, int maxCalls, BudgetMode mode) {
+        this.endpoint = endpoint;
+        this.budget = maxCalls;
+        this.budgetMode = mode;
+    }
+
+    // Called before each DynamoDB call; in FAIL mode the call that goes over budget is refused
+    public void recordCall(String operation) {
+        int count = calls.incrementAndGet();
+        callsByOperation.computeIfAbsent(operation, key -> new LongAdder()).increment();
+        if (budget > 0 && count > budget && budgetMode != BudgetMode.OFF) {
+            budgetExceeded.set(true);
+            if (budgetMode == BudgetMode.FAIL) {
+                throw new BudgetExceededException(endpoint + " exceeded its budget of " + budget
+                        + " DynamoDB calls: " + summary());
+            }
+        }
+    }
+
+    public void recordItems(boolean read, long count) {
+        (read ? itemsRead : itemsWritten).add(count);
+    }
+
+    public void recordCapacity(boolean read, double units) {
+        (read ? readCapacity : writeCapacity).add(units);
+    }
+
+    public int getCalls() {
+        return calls.get();
+    }
+
+    public long getItemsRead() {
+        return itemsRead.sum();
+    }
+
+    public long getItemsWritten() {
+        return itemsWritten.sum();
+    }
+
+    public double getReadCapacity() {
+        return readCapacity.sum();
+    }
+
+    public double getWriteCapacity() {
+        return writeCapacity.sum();
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public boolean isBudgetExceeded() {
+        return budgetExceeded.get();
+    }
+
+    public String summary() {
+        Map<String, Long> byOperation = new TreeMap<>();
+        callsByOperation.forEach((operation, count) -> byOperation.put(operation, count.sum()));
+        return String.format("%d calls %s, %d items read, %d written, %.1f RCU, %.1f WCU",
+                calls.get(), byOperation, itemsRead.sum(), itemsWritten.sum(), readCapacity.sum(), writeCapacity.sum());
+    }
+}
@@ -0,0 +1,972 @@
+package sustainico_backend.util;
+
+import com.amazonaws.services.dynamodbv2.model.AmazonDynamoDBException;
+import com.amazonaws.services.dynamodbv2.model.AttributeAction;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
+import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
+import com.amazonaws.services.dynamodbv2.model.Condition;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Parser and evaluator for the DynamoDB expression languages (condition, filter, key condition,
+// update and projection expressions) plus the legacy Expected/KeyConditions/AttributeUpdates
+// parameters the mapper still sends. Used by the in-memory DynamoDB backend; semantics follow the
+// service closely enough for the repositories here, not every corner of the spec.
+public final class DynamoDbExpression {
+
+    private DynamoDbExpression() {}
+
+    // ---- AST ----
+
+    public interface Operand {}
+
+    public record PathOperand(List<Object> path) implements Operand {
+        public String topLevelName() {
+            return (String) path.get(0);
+        }
+    }
+
+    public record ValueOperand(AttributeValue value) implements Operand {}
+
+    public record SizeOperand(PathOperand path) implements Operand {}
+
+    public interface Predicate {}
+
+    public record Compare(String operator, Operand left, Operand right) implements Predicate {}
+
+    public record Between(Operand operand, Operand lower, Operand upper) implements Predicate {}
+
+    public record In(Operand operand, List<Operand> candidates) implements Predicate {}
+
+    public record And(List<Predicate> predicates) implements Predicate {}
+
+    public record Or(List<Predicate> predicates) implements Predicate {}
+
+    public record Not(Predicate predicate) implements Predicate {}
+
+    public record Function(String name, List<Operand> arguments) implements Predicate {}
+
+    public interface ValueExpression {}
+
+    public record OperandValue(Operand operand) implements ValueExpression {}
+
+    public record IfNotExists(PathOperand path, ValueExpression fallback) implements ValueExpression {}
+
+    public record ListAppend(ValueExpression first, ValueExpression second) implements ValueExpression {}
+
+    public record Arithmetic(char operator, ValueExpression left, ValueExpression right) implements ValueExpression {}
+
+    public interface UpdateAction {}
+
+    public record SetAction(PathOperand path, ValueExpression value) implements UpdateAction {}
+
+    public record RemoveAction(PathOperand path) implements UpdateAction {}
+
+    public record AddAction(PathOperand path, AttributeValue value) implements UpdateAction {}
+
+    public record DeleteAction(PathOperand path, AttributeValue value) implements UpdateAction {}
+
+    // ---- entry points ----
+
+    public static Predicate parseCondition(String expression, Map<String, String> names, Map<String, AttributeValue> values) {
+        Parser parser = new Parser(expression, names, values);
+        Predicate predicate = parser.condition();
+        parser.expectEnd();
+        return predicate;
+    }
+
+    public static List<UpdateAction> parseUpdate(String expression, Map<String, String> names, Map<String, AttributeValue> values) {
+        Parser parser = new Parser(expression, names, values);
+        List<UpdateAction> actions = parser.updateActions();
+        parser.expectEnd();
+        return actions;
+    }
+
+    public static List<PathOperand> parseProjection(String expression, Map<String, String> names) {
+        Parser parser = new Parser(expression, names, null);
+        List<PathOperand> paths = new ArrayList<>();
+        do {
+            paths.add(parser.path());
+        } while (parser.accept(","));
+        parser.expectEnd();
+        return paths;
+    }
+
+    public static Predicate fromExpected(Map<String, ExpectedAttributeValue> expected, String conditionalOperator) {
+        List<Predicate> predicates = new ArrayList<>();
+        expected.forEach((name, value) -> {
+            PathOperand path = new PathOperand(List.of(name));
+            if (value.getComparisonOperator() != null) {
+                predicates.add(fromComparison(path, value.getComparisonOperator(), value.getAttributeValueList()));
+            } else if (Boolean.FALSE.equals(value.getExists())) {
+                predicates.add(new Function("attribute_not_exists", List.of(path)));
+            } else if (value.getValue() != null) {
+                predicates.add(new Compare("=", path, new ValueOperand(value.getValue())));
+            } else {
+                predicates.add(new Function("attribute_exists", List.of(path)));
+            }
+        });
+        return "OR".equalsIgnoreCase(conditionalOperator) ? new Or(predicates) : new And(predicates);
+    }
+
+    public static Predicate fromConditions(Map<String, Condition> conditions, String conditionalOperator) {
+        List<Predicate> predicates = new ArrayList<>();
+        conditions.forEach((name, condition) -> predicates.add(fromComparison(new PathOperand(List.of(name)),
+                condition.getComparisonOperator(), condition.getAttributeValueList())));
+        return "OR".equalsIgnoreCase(conditionalOperator) ? new Or(predicates) : new And(predicates);
+    }
+
+    public static List<UpdateAction> fromAttributeUpdates(Map<String, AttributeValueUpdate> updates) {
+        List<UpdateAction> actions = new ArrayList<>();
+        updates.forEach((name, update) -> {
+            PathOperand path = new PathOperand(List.of(name));
+            String action = update.getAction() != null ? update.getAction() : AttributeAction.PUT.toString();
+            if (AttributeAction.PUT.toString().equals(action)) {
+                actions.add(new SetAction(path, new OperandValue(new ValueOperand(update.getValue()))));
+            } else if (AttributeAction.ADD.toString().equals(action)) {
+                actions.add(new AddAction(path, update.getValue()));
+            } else if (update.getValue() == null) {
+                actions.add(new RemoveAction(path));
+            } else {
+                actions.add(new DeleteAction(path, update.getValue()));
+            }
+        });
+        return actions;
+    }
+
+    // ---- evaluation ----
+
+    public static boolean test(Predicate predicate, Map<String, AttributeValue> item) {
+        if (predicate == null) {
+            return true;
+        }
+        if (predicate instanceof And and) {
+            for (Predicate child : and.predicates()) {
+                if (!test(child, item)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (predicate instanceof Or or) {
+            for (Predicate child : or.predicates()) {
+                if (test(child, item)) {
+                    return true;
+                }
+            }
+            return or.predicates().isEmpty();
+        }
+        if (predicate instanceof Not not) {
+            return !test(not.predicate(), item);
+        }
+        if (predicate instanceof Compare compare) {
+            AttributeValue left = resolve(compare.left(), item);
+            AttributeValue right = resolve(compare.right(), item);
+            if (left == null || right == null) {
+                return compare.operator().equals("<>") && (left != null || right != null);
+            }
+            return switch (compare.operator()) {
+                case "=" -> valuesEqual(left, right);
+                case "<>" -> !valuesEqual(left, right);
+                default -> {
+                    Integer order = compareOrdered(left, right);
+                    if (order == null) {
+                        yield false;
+                    }
+                    yield switch (compare.operator()) {
+                        case "<" -> order < 0;
+                        case "<=" -> order <= 0;
+                        case ">" -> order > 0;
+                        default -> order >= 0;
+                    };
+                }
+            };
+        }
+        if (predicate instanceof Between between) {
+            AttributeValue value = resolve(between.operand(), item);
+            AttributeValue lower = resolve(between.lower(), item);
+            AttributeValue upper = resolve(between.upper(), item);
+            if (value == null || lower == null || upper == null) {
+                return false;
+            }
+            Integer aboveLower = compareOrdered(value, lower);
+            Integer belowUpper = compareOrdered(value, upper);
+            return aboveLower != null && belowUpper != null && aboveLower >= 0 && belowUpper <= 0;
+        }
+        if (predicate instanceof In in) {
+            AttributeValue value = resolve(in.operand(), item);
+            if (value == null) {
+                return false;
+            }
+            for (Operand candidate : in.candidates()) {
+                AttributeValue candidateValue = resolve(candidate, item);
+                if (candidateValue != null && valuesEqual(value, candidateValue)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        Function function = (Function) predicate;
+        AttributeValue first = resolve(function.arguments().get(0), item);
+        switch (function.name()) {
+            case "attribute_exists":
+                return first != null;
+            case "attribute_not_exists":
+                return first == null;
+            case "attribute_type": {
+                AttributeValue type = resolve(function.arguments().get(1), item);
+                return first != null && type != null && typeOf(first).equals(type.getS());
+            }
+            case "begins_with": {
+                AttributeValue prefix = resolve(function.arguments().get(1), item);
+                if (first == null || prefix == null) {
+                    return false;
+                }
+                if (first.getS() != null && prefix.getS() != null) {
+                    return first.getS().startsWith(prefix.getS());
+                }
+                if (first.getB() != null && prefix.getB() != null) {
+                    return startsWith(first.getB(), prefix.getB());
+                }
+                return false;
+            }
+            case "contains": {
+                AttributeValue operand = resolve(function.arguments().get(1), item);
+                if (first == null || operand == null) {
+                    return false;
+                }
+                if (first.getS() != null && operand.getS() != null) {
+                    return first.getS().contains(operand.getS());
+                }
+                if (first.getSS() != null && operand.getS() != null) {
+                    return first.getSS().contains(operand.getS());
+                }
+                if (first.getNS() != null && operand.getN() != null) {
+                    return first.getNS().stream().anyMatch(n -> new BigDecimal(n).compareTo(new BigDecimal(operand.getN())) == 0);
+                }
+                if (first.getL() != null) {
+                    return first.getL().stream().anyMatch(element -> valuesEqual(element, operand));
+                }
+                return false;
+            }
+            default:
+                throw validation("Unsupported function " + function.name());
+        }
+    }
+
+    // Applies the actions to a copy of the item; all SET values are computed against the original.
+    // List indexes also refer to the original, so removals run last, highest index first
+    // (REMOVE l[0], l[2] drops the first and third element, as DynamoDB does)
+    public static Map<String, AttributeValue> apply(List<UpdateAction> actions, Map<String, AttributeValue> original) {
+        Map<String, AttributeValue> updated = deepCopy(original);
+        actions = new ArrayList<>(actions);
+        actions.sort(Comparator.comparingInt(DynamoDbExpression::removalOrder));
+        List<AttributeValue> setValues = new ArrayList<>();
+        for (UpdateAction action : actions) {
+            setValues.add(action instanceof SetAction set ? evaluate(set.value(), original) : null);
+        }
+        for (int i = 0; i < actions.size(); i++) {
+            UpdateAction action = actions.get(i);
+            if (action instanceof SetAction set) {
+                writePath(updated, set.path(), setValues.get(i));
+            } else if (action instanceof RemoveAction remove) {
+                removePath(updated, remove.path());
+            } else if (action instanceof AddAction add) {
+                AttributeValue current = readPath(updated, add.path());
+                writePath(updated, add.path(), current == null ? add.value() : addValues(current, add.value()));
+            } else if (action instanceof DeleteAction delete) {
+                AttributeValue current = readPath(updated, delete.path());
+                if (current != null) {
+                    AttributeValue remaining = subtractSet(current, delete.value());
+                    if (remaining == null) {
+                        removePath(updated, delete.path());
+                    } else {
+                        writePath(updated, delete.path(), remaining);
+                    }
+                }
+            }
+        }
+        return updated;
+    }
+
+    // 0 for everything but REMOVE; removals of list elements sort by descending trailing index
+    private static int removalOrder(UpdateAction action) {
+        if (!(action instanceof RemoveAction remove)) {
+            return 0;
+        }
+        Object last = remove.path().path().get(remove.path().path().size() - 1);
+        return last instanceof Integer index ? Integer.MAX_VALUE - index : 1;
+    }
+
+    public static Map<String, AttributeValue> project(Map<String, AttributeValue> item, List<PathOperand> paths) {
+        if (item == null || paths == null) {
+            return item;
+        }
+        Map<String, AttributeValue> projected = new HashMap<>();
+        for (PathOperand path : paths) {
+            AttributeValue value = readPath(item, path);
+            if (value == null) {
+                continue;
+            }
+            if (path.path().size() == 1) {
+                projected.put(path.topLevelName(), value);
+            } else {
+                // Nested projections keep the enclosing structure, with only the selected element
+                writeProjected(projected, path.path(), 0, value);
+            }
+        }
+        return projected;
+    }
+
+    // ---- value helpers ----
+
+    public static AttributeValue readPath(Map<String, AttributeValue> item, PathOperand path) {
+        AttributeValue current = item.get(path.topLevelName());
+        for (int i = 1; i < path.path().size() && current != null; i++) {
+            Object element = path.path().get(i);
+            if (element instanceof Integer index) {
+                current = current.getL() != null && index < current.getL().size() ? current.getL().get(index) : null;
+            } else {
+                current = current.getM() != null ? current.getM().get(element) : null;
+            }
+        }
+        return current;
+    }
+
+    public static boolean valuesEqual(AttributeValue left, AttributeValue right) {
+        if (left.getN() != null && right.getN() != null) {
+            return new BigDecimal(left.getN()).compareTo(new BigDecimal(right.getN())) == 0;
+        }
+        if (left.getNS() != null && right.getNS() != null) {
+            return numberSet(left.getNS()).equals(numberSet(right.getNS()));
+        }
+        if (left.getSS() != null && right.getSS() != null) {
+            return new HashSet<>(left.getSS()).equals(new HashSet<>(right.getSS()));
+        }
+        if (left.getBS() != null && right.getBS() != null) {
+            return new HashSet<>(left.getBS()).equals(new HashSet<>(right.getBS()));
+        }
+        if (left.getL() != null && right.getL() != null) {
+            if (left.getL().size() != right.getL().size()) {
+                return false;
+            }
+            for (int i = 0; i < left.getL().size(); i++) {
+                if (!valuesEqual(left.getL().get(i), right.getL().get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (left.getM() != null && right.getM() != null) {
+            if (!left.getM().keySet().equals(right.getM().keySet())) {
+                return false;
+            }
+            for (Map.Entry<String, AttributeValue> entry : left.getM().entrySet()) {
+                if (!valuesEqual(entry.getValue(), right.getM().get(entry.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return typeOf(left).equals(typeOf(right)) && Objects.equals(left, right);
+    }
+
+    // Ordering for S, N and B; null when the types differ or are not ordered
+    public static Integer compareOrdered(AttributeValue left, AttributeValue right) {
+        if (left.getN() != null && right.getN() != null) {
+            return new BigDecimal(left.getN()).compareTo(new BigDecimal(right.getN()));
+        }
+        if (left.getS() != null && right.getS() != null) {
+            return compareUtf8(left.getS(), right.getS());
+        }
+        if (left.getB() != null && right.getB() != null) {
+            return compareBytes(left.getB(), right.getB());
+        }
+        return null;
+    }
+
+    // DynamoDB orders strings by their UTF-8 bytes, which is code point order
+    public static int compareUtf8(String left, String right) {
+        int i = 0;
+        int j = 0;
+        while (i < left.length() && j < right.length()) {
+            int a = left.codePointAt(i);
+            int b = right.codePointAt(j);
+            if (a != b) {
+                return Integer.compare(a, b);
+            }
+            i += Character.charCount(a);
+            j += Character.charCount(b);
+        }
+        return Integer.compare(left.length() - i, right.length() - j);
+    }
+
+    public static int compareBytes(ByteBuffer left, ByteBuffer right) {
+        ByteBuffer a = left.duplicate();
+        ByteBuffer b = right.duplicate();
+        while (a.hasRemaining() && b.hasRemaining()) {
+            int cmp = Integer.compare(a.get() & 0xFF, b.get() & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(a.remaining(), b.remaining());
+    }
+
+    public static String typeOf(AttributeValue value) {
+        if (value.getS() != null) return "S";
+        if (value.getN() != null) return "N";
+        if (value.getB() != null) return "B";
+        if (value.getSS() != null) return "SS";
+        if (value.getNS() != null) return "NS";
+        if (value.getBS() != null) return "BS";
+        if (value.getM() != null) return "M";
+        if (value.getL() != null) return "L";
+        if (value.getBOOL() != null) return "BOOL";
+        if (value.getNULL() != null) return "NULL";
+        throw validation("Supplied AttributeValue is empty, must contain exactly one of the supported datatypes");
+    }
+
+    // Approximation of DynamoDB's item size: attribute names plus encoded values
+    public static long sizeOf(Map<String, AttributeValue> item) {
+        long size = 0;
+        for (Map.Entry<String, AttributeValue> entry : item.entrySet()) {
+            size += entry.getKey().getBytes(StandardCharsets.UTF_8).length + sizeOf(entry.getValue());
+        }
+        return size;
+    }
+
+    public static long sizeOf(AttributeValue value) {
+        if (value.getS() != null) return value.getS().getBytes(StandardCharsets.UTF_8).length;
+        if (value.getN() != null) return value.getN().length() / 2 + 1;
+        if (value.getB() != null) return value.getB().remaining();
+        if (value.getSS() != null) return value.getSS().stream().mapToLong(s -> s.getBytes(StandardCharsets.UTF_8).length).sum();
+        if (value.getNS() != null) return value.getNS().stream().mapToLong(n -> n.length() / 2 + 1).sum();
+        if (value.getBS() != null) return value.getBS().stream().mapToLong(ByteBuffer::remaining).sum();
+        if (value.getM() != null) return 3 + sizeOf(value.getM()) + value.getM().size();
+        if (value.getL() != null) return 3 + value.getL().stream().mapToLong(element -> 1 + sizeOf(element)).sum();
+        return 1;
+    }
+
+    public static Map<String, AttributeValue> deepCopy(Map<String, AttributeValue> item) {
+        if (item == null) {
+            return null;
+        }
+        Map<String, AttributeValue> copy = new HashMap<>(item.size() * 2);
+        item.forEach((name, value) -> copy.put(name, deepCopy(value)));
+        return copy;
+    }
+
+    public static AttributeValue deepCopy(AttributeValue value) {
+        AttributeValue copy = value.clone();
+        if (value.getB() != null) copy.setB(value.getB().asReadOnlyBuffer());
+        if (value.getSS() != null) copy.setSS(new ArrayList<>(value.getSS()));
+        if (value.getNS() != null) copy.setNS(new ArrayList<>(value.getNS()));
+        if (value.getBS() != null) copy.setBS(new ArrayList<>(value.getBS()));
+        if (value.getM() != null) copy.setM(deepCopy(value.getM()));
+        if (value.getL() != null) {
+            List<AttributeValue> list = new ArrayList<>(value.getL().size());
+            value.getL().forEach(element -> list.add(deepCopy(element)));
+            copy.setL(list);
+        }
+        return copy;
+    }
+
+    public static AmazonDynamoDBException validation(String message) {
+        AmazonDynamoDBException exception = new AmazonDynamoDBException(message);
+        exception.setErrorCode("ValidationException");
+        exception.setStatusCode(400);
+        exception.setErrorType(AmazonDynamoDBException.ErrorType.Client);
+        return exception;
+    }
+
+    // ---- internals ----
+
+    private static Predicate fromComparison(PathOperand path, String comparisonOperator, List<AttributeValue> values) {
+        List<AttributeValue> arguments = values != null ? values : List.of();
+        ComparisonOperator operator = ComparisonOperator.fromValue(comparisonOperator);
+        return switch (operator) {
+            case EQ -> new Compare("=", path, new ValueOperand(arguments.get(0)));
+            case NE -> new Compare("<>", path, new ValueOperand(arguments.get(0)));
+            case LT -> new Compare("<", path, new ValueOperand(arguments.get(0)));
+            case LE -> new Compare("<=", path, new ValueOperand(arguments.get(0)));
+            case GT -> new Compare(">", path, new ValueOperand(arguments.get(0)));
+            case GE -> new Compare(">=", path, new ValueOperand(arguments.get(0)));
+            case NOT_NULL -> new Function("attribute_exists", List.of(path));
+            case NULL -> new Function("attribute_not_exists", List.of(path));
+            case CONTAINS -> new Function("contains", List.of(path, new ValueOperand(arguments.get(0))));
+            case NOT_CONTAINS -> new Not(new Function("contains", List.of(path, new ValueOperand(arguments.get(0)))));
+            case BEGINS_WITH -> new Function("begins_with", List.of(path, new ValueOperand(arguments.get(0))));
+            case IN -> new In(path, arguments.stream().<Operand>map(ValueOperand::new).toList());
+            case BETWEEN -> new Between(path, new ValueOperand(arguments.get(0)), new ValueOperand(arguments.get(1)));
+        };
+    }
+
+    private static AttributeValue resolve(Operand operand, Map<String, AttributeValue> item) {
+        if (operand instanceof ValueOperand value) {
+            return value.value();
+        }
+        if (operand instanceof PathOperand path) {
+            return readPath(item, path);
+        }
+        AttributeValue value = readPath(item, ((SizeOperand) operand).path());
+        if (value == null) {
+            return null;
+        }
+        long size;
+        if (value.getS() != null) size = value.getS().length();
+        else if (value.getB() != null) size = value.getB().remaining();
+        else if (value.getSS() != null) size = value.getSS().size();
+        else if (value.getNS() != null) size = value.getNS().size();
+        else if (value.getBS() != null) size = value.getBS().size();
+        else if (value.getL() != null) size = value.getL().size();
+        else if (value.getM() != null) size = value.getM().size();
+        else return null;
+        return new AttributeValue().withN(Long.toString(size));
+    }
+
+    private static AttributeValue evaluate(ValueExpression expression, Map<String, AttributeValue> item) {
+        if (expression instanceof OperandValue operandValue) {
+            AttributeValue value = resolve(operandValue.operand(), item);
+            if (value == null) {
+                throw validation("The provided expression refers to an attribute that does not exist in the item");
+            }
+            return value;
+        }
+        if (expression instanceof IfNotExists ifNotExists) {
+            AttributeValue existing = readPath(item, ifNotExists.path());
+            return existing != null ? existing : evaluate(ifNotExists.fallback(), item);
+        }
+        if (expression instanceof ListAppend listAppend) {
+            AttributeValue first = evaluate(listAppend.first(), item);
+            AttributeValue second = evaluate(listAppend.second(), item);
+            if (first.getL() == null || second.getL() == null) {
+                throw validation("Incorrect operand type for operator or function; operator or function: list_append");
+            }
+            List<AttributeValue> combined = new ArrayList<>(first.getL());
+            combined.addAll(second.getL());
+            return new AttributeValue().withL(combined);
+        }
+        Arithmetic arithmetic = (Arithmetic) expression;
+        AttributeValue left = evaluate(arithmetic.left(), item);
+        AttributeValue right = evaluate(arithmetic.right(), item);
+        if (left.getN() == null || right.getN() == null) {
+            throw validation("Incorrect operand type for operator or function; operator: " + arithmetic.operator());
+        }
+        BigDecimal result = arithmetic.operator() == '+'
+                ? new BigDecimal(left.getN()).add(new BigDecimal(right.getN()))
+                : new BigDecimal(left.getN()).subtract(new BigDecimal(right.getN()));
+        return new AttributeValue().withN(result.toPlainString());
+    }
+
+    private static AttributeValue addValues(AttributeValue current, AttributeValue value) {
+        if (current.getN() != null && value.getN() != null) {
+            return new AttributeValue().withN(new BigDecimal(current.getN()).add(new BigDecimal(value.getN())).toPlainString());
+        }
+        if (current.getSS() != null && value.getSS() != null) {
+            LinkedHashSet<String> union = new LinkedHashSet<>(current.getSS());
+            union.addAll(value.getSS());
+            return new AttributeValue().withSS(new ArrayList<>(union));
+        }
+        if (current.getNS() != null && value.getNS() != null) {
+            LinkedHashSet<String> union = new LinkedHashSet<>(current.getNS());
+            union.addAll(value.getNS());
+            return new AttributeValue().withNS(new ArrayList<>(union));
+        }
+        if (current.getBS() != null && value.getBS() != null) {
+            LinkedHashSet<ByteBuffer> union = new LinkedHashSet<>(current.getBS());
+            union.addAll(value.getBS());
+            return new AttributeValue().withBS(new ArrayList<>(union));
+        }
+        throw validation("An operand in the update expression has an incorrect data type");
+    }
+
+    private static AttributeValue subtractSet(AttributeValue current, AttributeValue value) {
+        if (current.getSS() != null && value.getSS() != null) {
+            List<String> set = new ArrayList<>(current.getSS());
+            set.removeAll(value.getSS());
+            return set.isEmpty() ? null : new AttributeValue().withSS(set);
+        }
+        if (current.getNS() != null && value.getNS() != null) {
+            Set<BigDecimal> removed = numberSet(value.getNS());
+            List<String> set = new ArrayList<>(current.getNS());
+            set.removeIf(n -> removed.contains(new BigDecimal(n).stripTrailingZeros()));
+            return set.isEmpty() ? null : new AttributeValue().withNS(set);
+        }
+        if (current.getBS() != null && value.getBS() != null) {
+            List<ByteBuffer> set = new ArrayList<>(current.getBS());
+            set.removeAll(value.getBS());
+            return set.isEmpty() ? null : new AttributeValue().withBS(set);
+        }
+        throw validation("An operand in the update expression has an incorrect data type");
+    }
+
+    private static Set<BigDecimal> numberSet(List<String> numbers) {
+        Set<BigDecimal> set = new HashSet<>();
+        numbers.forEach(n -> set.add(new BigDecimal(n).stripTrailingZeros()));
+        return set;
+    }
+
+    private static boolean startsWith(ByteBuffer value, ByteBuffer prefix) {
+        if (prefix.remaining() > value.remaining()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.remaining(); i++) {
+            if (value.get(value.position() + i) != prefix.get(prefix.position() + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writePath(Map<String, AttributeValue> item, PathOperand path, AttributeValue value) {
+        List<Object> elements = path.path();
+        if (elements.size() == 1) {
+            item.put(path.topLevelName(), value);
+            return;
+        }
+        AttributeValue parent = readPath(item, new PathOperand(elements.subList(0, elements.size() - 1)));
+        Object last = elements.get(elements.size() - 1);
+        if (parent != null && last instanceof Integer index && parent.getL() != null) {
+            if (index < parent.getL().size()) {
+                parent.getL().set(index, value);
+            } else {
+                parent.getL().add(value);
+            }
+            return;
+        }
+        if (parent != null && last instanceof String key && parent.getM() != null) {
+            parent.getM().put(key, value);
+            return;
+        }
+        throw validation("The document path provided in the update expression is invalid for update");
+    }
+
+    private static void removePath(Map<String, AttributeValue> item, PathOperand path) {
+        List<Object> elements = path.path();
+        if (elements.size() == 1) {
+            item.remove(path.topLevelName());
+            return;
+        }
+        AttributeValue parent = readPath(item, new PathOperand(elements.subList(0, elements.size() - 1)));
+        Object last = elements.get(elements.size() - 1);
+        if (parent != null && last instanceof Integer index && parent.getL() != null && index < parent.getL().size()) {
+            parent.getL().remove((int) index);
+        } else if (parent != null && last instanceof String key && parent.getM() != null) {
+            parent.getM().remove(key);
+        }
+    }
+
+    private static void writeProjected(Map<String, AttributeValue> target, List<Object> path, int depth, AttributeValue value) {
+        String name = (String) path.get(depth);
+        if (depth == path.size() - 1) {
+            target.put(name, value);
+            return;
+        }
+        if (path.get(depth + 1) instanceof Integer) {
+            AttributeValue list = target.computeIfAbsent(name, n -> new AttributeValue().withL(new ArrayList<>()));
+            list.getL().add(value);
+            return;
+        }
+        AttributeValue map = target.computeIfAbsent(name, n -> new AttributeValue().withM(new HashMap<>()));
+        writeProjected(map.getM(), path, depth + 1, value);
+    }
+
+    private static final class Parser {
+        private final String input;
+        private final Map<String, String> names;
+        private final Map<String, AttributeValue> values;
+        private int position;
+
+        private Parser(String input, Map<String, String> names, Map<String, AttributeValue> values) {
+            this.input = input;
+            this.names = names != null ? names : Map.of();
+            this.values = values != null ? values : Map.of();
+        }
+
+        Predicate condition() {
+            List<Predicate> alternatives = new ArrayList<>();
+            alternatives.add(conjunction());
+            while (acceptKeyword("OR")) {
+                alternatives.add(conjunction());
+            }
+            return alternatives.size() == 1 ? alternatives.get(0) : new Or(alternatives);
+        }
+
+        private Predicate conjunction() {
+            List<Predicate> terms = new ArrayList<>();
+            terms.add(negation());
+            while (acceptKeyword("AND")) {
+                terms.add(negation());
+            }
+            return terms.size() == 1 ? terms.get(0) : new And(terms);
+        }
+
+        private Predicate negation() {
+            if (acceptKeyword("NOT")) {
+                return new Not(negation());
+            }
+            if (accept("(")) {
+                Predicate inner = condition();
+                expect(")");
+                return inner;
+            }
+            int start = position;
+            String identifier = peekIdentifier();
+            if (identifier != null) {
+                String function = identifier.toLowerCase(Locale.ROOT);
+                if (Set.of("attribute_exists", "attribute_not_exists", "attribute_type", "begins_with", "contains").contains(function)) {
+                    position += identifier.length();
+                    if (accept("(")) {
+                        List<Operand> arguments = new ArrayList<>();
+                        do {
+                            arguments.add(operand());
+                        } while (accept(","));
+                        expect(")");
+                        return new Function(function, arguments);
+                    }
+                    position = start;
+                }
+            }
+
+            Operand left = operand();
+            if (acceptKeyword("BETWEEN")) {
+                Operand lower = operand();
+                expectKeyword("AND");
+                return new Between(left, lower, operand());
+            }
+            if (acceptKeyword("IN")) {
+                expect("(");
+                List<Operand> candidates = new ArrayList<>();
+                do {
+                    candidates.add(operand());
+                } while (accept(","));
+                expect(")");
+                return new In(left, candidates);
+            }
+            for (String comparator : List.of("<>", "<=", ">=", "=", "<", ">")) {
+                if (accept(comparator)) {
+                    return new Compare(comparator, left, operand());
+                }
+            }
+            throw error("Expected a comparator");
+        }
+
+        private Operand operand() {
+            skipWhitespace();
+            if (peek() == ':') {
+                return new ValueOperand(valueReference());
+            }
+            String identifier = peekIdentifier();
+            if (identifier != null && identifier.equalsIgnoreCase("size")) {
+                int start = position;
+                position += identifier.length();
+                if (accept("(")) {
+                    PathOperand path = path();
+                    expect(")");
+                    return new SizeOperand(path);
+                }
+                position = start;
+            }
+            return path();
+        }
+
+        PathOperand path() {
+            List<Object> elements = new ArrayList<>();
+            elements.add(name());
+            while (true) {
+                if (accept(".")) {
+                    elements.add(name());
+                } else if (accept("[")) {
+                    skipWhitespace();
+                    int start = position;
+                    while (position < input.length() && Character.isDigit(input.charAt(position))) {
+                        position++;
+                    }
+                    if (start == position) {
+                        throw error("Expected a list index");
+                    }
+                    elements.add(Integer.parseInt(input.substring(start, position)));
+                    expect("]");
+                } else {
+                    return new PathOperand(elements);
+                }
+            }
+        }
+
+        List<UpdateAction> updateActions() {
+            List<UpdateAction> actions = new ArrayList<>();
+            while (true) {
+                skipWhitespace();
+                if (position >= input.length()) {
+                    break;
+                }
+                if (acceptKeyword("SET")) {
+                    do {
+                        PathOperand path = path();
+                        expect("=");
+                        actions.add(new SetAction(path, setValue()));
+                    } while (accept(","));
+                } else if (acceptKeyword("REMOVE")) {
+                    do {
+                        actions.add(new RemoveAction(path()));
+                    } while (accept(","));
+                } else if (acceptKeyword("ADD")) {
+                    do {
+                        PathOperand path = path();
+                        actions.add(new AddAction(path, valueReference()));
+                    } while (accept(","));
+                } else if (acceptKeyword("DELETE")) {
+                    do {
+                        PathOperand path = path();
+                        actions.add(new DeleteAction(path, valueReference()));
+                    } while (accept(","));
+                } else {
+                    throw error("Expected SET, REMOVE, ADD or DELETE");
+                }
+            }
+            if (actions.isEmpty()) {
+                throw error("Empty update expression");
+            }
+            return actions;
+        }
+
+        private ValueExpression setValue() {
+            ValueExpression left = setOperand();
+            if (accept("+")) {
+                return new Arithmetic('+', left, setOperand());
+            }
+            if (accept("-")) {
+                return new Arithmetic('-', left, setOperand());
+            }
+            return left;
+        }
+
+        private ValueExpression setOperand() {
+            String identifier = peekIdentifier();
+            if (identifier != null) {
+                int start = position;
+                String function = identifier.toLowerCase(Locale.ROOT);
+                position += identifier.length();
+                if (function.equals("if_not_exists") && accept("(")) {
+                    PathOperand path = path();
+                    expect(",");
+                    ValueExpression fallback = setValue();
+                    expect(")");
+                    return new IfNotExists(path, fallback);
+                }
+                if (function.equals("list_append") && accept("(")) {
+                    ValueExpression first = setValue();
+                    expect(",");
+                    ValueExpression second = setValue();
+                    expect(")");
+                    return new ListAppend(first, second);
+                }
+                position = start;
+            }
+            return new OperandValue(operand());
+        }
+
+        private AttributeValue valueReference() {
+            expect(":");
+            String name = ":" + word();
+            AttributeValue value = values.get(name);
+            if (value == null) {
+                throw validation("An expression attribute value used in expression is not defined; attribute value: " + name);
+            }
+            return value;
+        }
+
+        private String name() {
+            skipWhitespace();
+            if (peek() == '#') {
+                position++;
+                String placeholder = "#" + word();
+                String name = names.get(placeholder);
+                if (name == null) {
+                    throw validation("An expression attribute name used in the document path is not defined; attribute name: " + placeholder);
+                }
+                return name;
+            }
+            String word = word();
+            if (word.isEmpty()) {
+                throw error("Expected an attribute name");
+            }
+            return word;
+        }
+
+        private String word() {
+            int start = position;
+            while (position < input.length()
+                    && (Character.isLetterOrDigit(input.charAt(position)) || input.charAt(position) == '_')) {
+                position++;
+            }
+            return input.substring(start, position);
+        }
+
+        private String peekIdentifier() {
+            skipWhitespace();
+            int end = position;
+            while (end < input.length() && (Character.isLetterOrDigit(input.charAt(end)) || input.charAt(end) == '_')) {
+                end++;
+            }
+            return end > position && Character.isLetter(input.charAt(position)) ? input.substring(position, end) : null;
+        }
+
+        private boolean acceptKeyword(String keyword) {
+            String identifier = peekIdentifier();
+            if (identifier != null && identifier.equalsIgnoreCase(keyword)) {
+                position += identifier.length();
+                return true;
+            }
+            return false;
+        }
+
+        private void expectKeyword(String keyword) {
+            if (!acceptKeyword(keyword)) {
+                throw error("Expected " + keyword);
+            }
+        }
+
+        boolean accept(String token) {
+            skipWhitespace();
+            if (input.startsWith(token, position)) {
+                position += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token) {
+            if (!accept(token)) {
+                throw error("Expected '" + token + "'");
+            }
+        }
+
+        void expectEnd() {
+            skipWhitespace();
+            if (position < input.length()) {
+                throw error("Unexpected token");
+            }
+        }
+
+        private char peek() {
+            return position < input.length() ? input.charAt(position) : '\0';
+        }
+
+        private void skipWhitespace() {
+            while (position < input.length() && Character.isWhitespace(input.charAt(position))) {
+                position++;
+            }
+        }
+
+        private AmazonDynamoDBException error(String message) {
+            return validation("Invalid expression: " + message + " at position " + position + " in \"" + input + "\"");
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package sustainico_backend.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Compact binary ingest frame for meters and gateways, carrying waterReading samples, newWaterReading2
+// readings and LoRa uplinks (the decoded_payload of /newWaterReading/send) in one fixed schema.
+// Everything is a varint:
+//   version, flag name count, flag names, device count, device ids, record count, records
+//   record  = type, device index, timestamp (epoch seconds, 0 = receive time), then
+//     water : flowReading in thousandths
+//     V2    : liters, milliliters, status present mask, status set mask
+//     LoRa  : key, index, totalizer, alerts present/set masks, status present/set masks,
+//             intraDay count, intraDay values
+// Flag names and device ids are sent once per frame and referenced by position, so a batch of
+// readings from a few meters costs a handful of bytes per reading. Decoding reads primitives
+// straight off the buffer; only the flag maps the models store are allocated.
+public final class IngestFrameCodec {
+
+    public static final byte FORMAT_VERSION = 1;
+
+    public static final String MEDIA_TYPE = "application/vnd.sustainico.readings";
+
+    public static final int TYPE_NEW_WATER_READING_2 = 1;
+    public static final int TYPE_LORA_UPLINK = 2;
+    public static final int TYPE_WATER_READING = 3;
+
+    // One bit per flag name in the present/set masks
+    public static final int MAX_FLAG_NAMES = 64;
+
+    private IngestFrameCodec() {}
+
+    public interface Visitor {
+        void waterReading(String deviceId, long timestamp, long flowReadingMilliUnits);
+
+        void newWaterReading2(String deviceId, long timestamp, long liters, long milliliters, Map<String, Boolean> status);
+
+        void loraUplink(String deviceId, long timestamp, int key, int index, int totalizer,
+                        Map<String, Boolean> alerts, Map<String, Boolean> status, int[] intraDay);
+    }
+
+    public static int decode(byte[] frame, int offset, int length, Visitor visitor) {
+        return decode(ByteBuffer.wrap(frame, offset, length), visitor);
+    }
+
+    // Reads position..limit with absolute gets, so a direct buffer is decoded in place and left untouched.
+    // Throws IllegalArgumentException for malformed or truncated frames; returns the record count
+    public static int decode(ByteBuffer frame, Visitor visitor) {
+        Reader in = new Reader(frame);
+        int version = in.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported ingest frame version " + version);
+        }
+        int flagCount = in.readCount();
+        if (flagCount > MAX_FLAG_NAMES) {
+            throw new IllegalArgumentException("Too many flag names: " + flagCount);
+        }
+        String[] flagNames = new String[flagCount];
+        for (int i = 0; i < flagCount; i++) {
+            flagNames[i] = in.readString();
+        }
+        String[] deviceIds = new String[in.readCount()];
+        for (int i = 0; i < deviceIds.length; i++) {
+            deviceIds[i] = in.readString();
+        }
+
+        int records = in.readCount();
+        for (int r = 0; r < records; r++) {
+            int type = in.readByte();
+            int device = in.readInt();
+            if (device < 0 || device >= deviceIds.length) {
+                throw new IllegalArgumentException("Device index " + device + " out of range");
+            }
+            long timestamp = in.readVarLong();
+            if (type == TYPE_WATER_READING) {
+                visitor.waterReading(deviceIds[device], timestamp, in.readVarLong());
+            } else if (type == TYPE_NEW_WATER_READING_2) {
+                long liters = in.readVarLong();
+                long milliliters = in.readVarLong();
+                Map<String, Boolean> status = flags(flagNames, in.readVarLong(), in.readVarLong());
+                visitor.newWaterReading2(deviceIds[device], timestamp, liters, milliliters, status);
+            } else if (type == TYPE_LORA_UPLINK) {
+                int key = in.readInt();
+                int index = in.readInt();
+                int totalizer = in.readInt();
+                Map<String, Boolean> alerts = flags(flagNames, in.readVarLong(), in.readVarLong());
+                Map<String, Boolean> status = flags(flagNames, in.readVarLong(), in.readVarLong());
+                int[] intraDay = new int[in.readCount()];
+                for (int i = 0; i < intraDay.length; i++) {
+                    intraDay[i] = in.readInt();
+                }
+                visitor.loraUplink(deviceIds[device], timestamp, key, index, totalizer, alerts, status, intraDay);
+            } else {
+                throw new IllegalArgumentException("Unknown record type " + type);
+            }
+        }
+        if (in.remaining() != 0) {
+            throw new IllegalArgumentException(in.remaining() + " trailing bytes after " + records + " records");
+        }
+        return records;
+    }
+
+    // Sending side: add readings, then toByteArray()
+    public static final class Encoder {
+        private final List<String> flagNames = new ArrayList<>();
+        private final Map<String, Integer> flagIndex = new HashMap<>();
+        private final Map<String, Integer> deviceIndex = new LinkedHashMap<>();
+        private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        private int count;
+
+        public Encoder waterReading(String deviceId, long timestamp, long flowReadingMilliUnits) {
+            writeHeader(TYPE_WATER_READING, deviceId, timestamp);
+            writeVarLong(records, flowReadingMilliUnits);
+            count++;
+            return this;
+        }
+
+        public Encoder newWaterReading2(String deviceId, long timestamp, long liters, long milliliters,
+                                        Map<String, Boolean> status) {
+            writeHeader(TYPE_NEW_WATER_READING_2, deviceId, timestamp);
+            writeVarLong(records, liters);
+            writeVarLong(records, milliliters);
+            writeFlags(status);
+            count++;
+            return this;
+        }
+
+        public Encoder loraUplink(String deviceId, long timestamp, int key, int index, int totalizer,
+                                  Map<String, Boolean> alerts, Map<String, Boolean> status, int[] intraDay) {
+            writeHeader(TYPE_LORA_UPLINK, deviceId, timestamp);
+            writeVarLong(records, key);
+            writeVarLong(records, index);
+            writeVarLong(records, totalizer);
+            writeFlags(alerts);
+            writeFlags(status);
+            writeVarLong(records, intraDay.length);
+            for (int used : intraDay) {
+                writeVarLong(records, used);
+            }
+            count++;
+            return this;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public byte[] toByteArray() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(records.size() + 64);
+            out.write(FORMAT_VERSION);
+            writeVarLong(out, flagNames.size());
+            flagNames.forEach(name -> writeString(out, name));
+            writeVarLong(out, deviceIndex.size());
+            deviceIndex.keySet().forEach(deviceId -> writeString(out, deviceId));
+            writeVarLong(out, count);
+            out.writeBytes(records.toByteArray());
+            return out.toByteArray();
+        }
+
+        private void writeHeader(int type, String deviceId, long timestamp) {
+            if (timestamp < 0) {
+                throw new IllegalArgumentException("Negative timestamp " + timestamp);
+            }
+            records.write(type);
+            writeVarLong(records, deviceIndex.computeIfAbsent(deviceId, id -> deviceIndex.size()));
+            writeVarLong(records, timestamp);
+        }
+
+        private void writeFlags(Map<String, Boolean> flags) {
+            long present = 0;
+            long set = 0;
+            if (flags != null) {
+                for (Map.Entry<String, Boolean> flag : flags.entrySet()) {
+                    Integer bit = flagIndex.get(flag.getKey());
+                    if (bit == null) {
+                        if (flagNames.size() == MAX_FLAG_NAMES) {
+                            throw new IllegalArgumentException("More than " + MAX_FLAG_NAMES + " flag names in one frame");
+                        }
+                        bit = flagNames.size();
+                        flagNames.add(flag.getKey());
+                        flagIndex.put(flag.getKey(), bit);
+                    }
+                    present |= 1L << bit;
+                    if (Boolean.TRUE.equals(flag.getValue())) {
+                        set |= 1L << bit;
+                    }
+                }
+            }
+            writeVarLong(records, present);
+            writeVarLong(records, set);
+        }
+    }
+
+    // null when no flag is present, like a JSON payload without the object
+    private static Map<String, Boolean> flags(String[] flagNames, long present, long set) {
+        if (present == 0) {
+            return null;
+        }
+        if (flagNames.length < MAX_FLAG_NAMES && present >>> flagNames.length != 0) {
+            throw new IllegalArgumentException("Flag mask refers to an unnamed flag");
+        }
+        Map<String, Boolean> flags = new LinkedHashMap<>();
+        for (int bit = 0; bit < flagNames.length; bit++) {
+            if ((present & (1L << bit)) != 0) {
+                flags.put(flagNames[bit], (set & (1L << bit)) != 0);
+            }
+        }
+        return flags;
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    // Bounds-checked cursor; counts are checked against the bytes left so a bad frame cannot force a huge allocation
+    private static final class Reader {
+        private final ByteBuffer in;
+        private final int end;
+        private int position;
+
+        Reader(ByteBuffer in) {
+            this.in = in;
+            this.position = in.position();
+            this.end = in.limit();
+        }
+
+        int remaining() {
+            return end - position;
+        }
+
+        int readByte() {
+            if (position >= end) {
+                throw new IllegalArgumentException("Truncated ingest frame");
+            }
+            return in.get(position++) & 0xFF;
+        }
+
+        long readVarLong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        int readInt() {
+            long value = readVarLong();
+            if (value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Value " + value + " does not fit an int");
+            }
+            return (int) value;
+        }
+
+        int readCount() {
+            int count = readInt();
+            if (count < 0 || count > remaining()) {
+                throw new IllegalArgumentException("Count " + count + " exceeds the remaining " + remaining() + " bytes");
+            }
+            return count;
+        }
+
+        // Device ids and flag names are the only copies taken out of the buffer
+        String readString() {
+            int length = readCount();
+            String value;
+            if (in.hasArray()) {
+                value = new String(in.array(), in.arrayOffset() + position, length, StandardCharsets.UTF_8);
+            } else {
+                byte[] bytes = new byte[length];
+                in.get(position, bytes);
+                value = new String(bytes, StandardCharsets.UTF_8);
+            }
+            position += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package sustainico_backend.util;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+// Turns a DynamoDB LastEvaluatedKey into an opaque URL-safe token and back.
+// Only string key attributes are supported, which covers every table we page over.
+public final class PageCursor {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private PageCursor() {}
+
+    public static String encode(Map<String, AttributeValue> lastEvaluatedKey) {
+        if (lastEvaluatedKey == null || lastEvaluatedKey.isEmpty()) {
+            return null;
+        }
+        Map<String, String> plain = new HashMap<>();
+        for (Map.Entry<String, AttributeValue> entry : lastEvaluatedKey.entrySet()) {
+            plain.put(entry.getKey(), entry.getValue().getS());
+        }
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(plain);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to encode page cursor", e);
+        }
+    }
+
+    public static Map<String, AttributeValue> decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor);
+            Map<String, String> plain = objectMapper.readValue(
+                    new String(json, StandardCharsets.UTF_8), new TypeReference<Map<String, String>>() {});
+            Map<String, AttributeValue> key = new HashMap<>();
+            for (Map.Entry<String, String> entry : plain.entrySet()) {
+                key.put(entry.getKey(), new AttributeValue().withS(entry.getValue()));
+            }
+            return key;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+    }
+}
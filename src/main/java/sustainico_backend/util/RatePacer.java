@@ -0,0 +1,35 @@
+package sustainico_backend.util;
+
+import java.util.concurrent.TimeUnit;
+
+// Spaces out permits so that, averaged over time, no more than permitsPerSecond are handed out.
+// Shared between threads; a rate of zero or less disables pacing.
+public class RatePacer {
+
+    private final double nanosPerPermit;
+    private long nextFreeNanos = System.nanoTime();
+
+    public RatePacer(double permitsPerSecond) {
+        this.nanosPerPermit = permitsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / permitsPerSecond : 0;
+    }
+
+    public void acquire(int permits) {
+        if (nanosPerPermit == 0) {
+            return;
+        }
+        long waitUntil;
+        synchronized (this) {
+            long now = System.nanoTime();
+            waitUntil = Math.max(nextFreeNanos, now);
+            nextFreeNanos = waitUntil + (long) (permits * nanosPerPermit);
+        }
+        long waitNanos = waitUntil - System.nanoTime();
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package sustainico_backend.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+// Packs a series of (timestamp, totalizer) pairs into a compact binary block.
+// Layout before deflate: version, count, then timestamps as first value + first delta + zigzag
+// delta-of-deltas, then values as first value + zigzag deltas. Everything is a varint, so a meter
+// reporting on a fixed interval with small increments costs about two bytes per reading.
+// Totalizer values are stored in thousandths so decimal flow readings survive the round trip.
+public final class ReadingBlockCodec {
+
+    public static final byte FORMAT_VERSION = 1;
+
+    private static final int MILLI_SCALE = 3;
+
+    private ReadingBlockCodec() {}
+
+    public static final class Block {
+        private final long[] timestamps;
+        private final long[] values;
+
+        public Block(long[] timestamps, long[] values) {
+            this.timestamps = timestamps;
+            this.values = values;
+        }
+
+        public long[] getTimestamps() {
+            return timestamps;
+        }
+
+        public long[] getValues() {
+            return values;
+        }
+
+        public int size() {
+            return timestamps.length;
+        }
+    }
+
+    // Timestamps must be ascending
+    public static byte[] encode(long[] timestamps, long[] values, int count) {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(count * 4 + 16);
+        raw.write(FORMAT_VERSION);
+        writeVarLong(raw, count);
+
+        long previousTimestamp = 0;
+        long previousDelta = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0) {
+                writeVarLong(raw, zigzag(timestamps[0]));
+            } else {
+                long delta = timestamps[i] - previousTimestamp;
+                writeVarLong(raw, zigzag(i == 1 ? delta : delta - previousDelta));
+                previousDelta = delta;
+            }
+            previousTimestamp = timestamps[i];
+        }
+
+        long previousValue = 0;
+        for (int i = 0; i < count; i++) {
+            writeVarLong(raw, zigzag(values[i] - previousValue));
+            previousValue = values[i];
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.size() / 2 + 16);
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+            raw.writeTo(deflater);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    public static Block decode(byte[] block) {
+        byte[] raw;
+        try (InflaterInputStream inflater = new InflaterInputStream(new ByteArrayInputStream(block))) {
+            raw = inflater.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int[] position = {0};
+        byte version = raw[position[0]++];
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported reading block version " + version);
+        }
+        int count = (int) readVarLong(raw, position);
+        long[] timestamps = new long[count];
+        long[] values = new long[count];
+
+        long previousDelta = 0;
+        for (int i = 0; i < count; i++) {
+            long encoded = unzigzag(readVarLong(raw, position));
+            if (i == 0) {
+                timestamps[0] = encoded;
+            } else {
+                long delta = i == 1 ? encoded : previousDelta + encoded;
+                timestamps[i] = timestamps[i - 1] + delta;
+                previousDelta = delta;
+            }
+        }
+
+        long previousValue = 0;
+        for (int i = 0; i < count; i++) {
+            previousValue += unzigzag(readVarLong(raw, position));
+            values[i] = previousValue;
+        }
+        return new Block(timestamps, values);
+    }
+
+    // Throws ArithmeticException/NumberFormatException for readings that cannot be stored exactly
+    public static long toMilliUnits(String flowReading) {
+        return new BigDecimal(flowReading.trim()).movePointRight(MILLI_SCALE).longValueExact();
+    }
+
+    // Canonical form: trailing zeros are dropped, so "12.300" is stored as 12300 and comes back as "12.3"
+    public static String fromMilliUnits(long milliUnits) {
+        BigDecimal value = BigDecimal.valueOf(milliUnits, MILLI_SCALE).stripTrailingZeros();
+        return value.scale() < 0 ? value.setScale(0).toPlainString() : value.toPlainString();
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(byte[] in, int[] position) {
+        long result = 0;
+        int shift = 0;
+        while (true) {
+            byte b = in[position[0]++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+            shift += 7;
+        }
+    }
+}
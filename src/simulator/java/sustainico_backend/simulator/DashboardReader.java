@@ -0,0 +1,121 @@
+package sustainico_backend.simulator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Closed-loop dashboard user: request, wait for the answer, think, repeat. Cycles through the
+// screens the app opens against the simulated devices, with the bearer token given on the command line.
+final class DashboardReader implements Runnable {
+
+    static final List<String> SCREENS = List.of(
+            "read latest-readings", "read reading page", "read v2 chart", "read device report");
+
+    private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+
+    private final SimulatorOptions options;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final List<SimulatedMeter> meters;
+    private final Map<String, EndpointStats> stats;
+    private volatile boolean running = true;
+
+    DashboardReader(SimulatorOptions options, HttpClient client, ObjectMapper objectMapper,
+                    List<SimulatedMeter> meters, Map<String, EndpointStats> stats) {
+        this.options = options;
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.meters = meters;
+        this.stats = stats;
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    @Override
+    public void run() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running) {
+            SimulatedMeter meter = meters.get(random.nextInt(meters.size()));
+            String screen;
+            HttpRequest.Builder request;
+            try {
+                switch (random.nextInt(options.userId != null ? 4 : 3)) {
+                    case 0 -> {
+                        screen = SCREENS.get(0);
+                        request = get("/water/latest-readings?deviceIdPrefix=" + options.devicePrefix + "&limit=50");
+                    }
+                    case 1 -> {
+                        screen = SCREENS.get(1);
+                        request = get("/water/" + meter.deviceId + "/page?limit=100");
+                    }
+                    case 2 -> {
+                        screen = SCREENS.get(2);
+                        request = post("/newWaterReading2/latest", Map.of(
+                                "deviceId", meter.deviceId,
+                                "timeFilter", random.nextBoolean() ? "day" : "month",
+                                "targetDate", LocalDate.now(IST).toString()));
+                    }
+                    default -> {
+                        long end = Instant.now().getEpochSecond();
+                        boolean day = random.nextBoolean();
+                        screen = SCREENS.get(3);
+                        request = post("/water/reading/report/device", Map.of(
+                                "userId", options.userId,
+                                "deviceId", meter.deviceId,
+                                "startTimestamp", String.valueOf(end - (day ? 86400 : 7 * 86400)),
+                                "endTimestamp", String.valueOf(end),
+                                "resolution", day ? "day" : "week"));
+                    }
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+
+            EndpointStats endpoint = stats.get(screen);
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+                endpoint.recordResponse(response.statusCode(), start);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                endpoint.recordFailure(e, start);
+            }
+
+            try {
+                Thread.sleep(options.readerThink.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return base(path).GET();
+    }
+
+    private HttpRequest.Builder post(String path, Map<String, Object> body) throws Exception {
+        return base(path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+    }
+
+    private HttpRequest.Builder base(String path) {
+        return HttpRequest.newBuilder(URI.create(options.baseUrl + path))
+                .timeout(options.timeout)
+                .header("Authorization", "Bearer " + options.token);
+    }
+}
@@ -0,0 +1,105 @@
+package sustainico_backend.simulator;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Outcome counters and latencies of one endpoint. Only requests due inside the measured window are
+// counted, so the warmup does not skew the summary; the interval histogram feeds the progress lines.
+final class EndpointStats {
+
+    final String name;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram intervalLatency = new LatencyHistogram();
+    private final LongAdder ok = new LongAdder();
+    private final LongAdder intervalRequests = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final long measureFromNanos;
+    private final long measureToNanos;
+
+    EndpointStats(String name, long measureFromNanos, long measureToNanos) {
+        this.name = name;
+        this.measureFromNanos = measureFromNanos;
+        this.measureToNanos = measureToNanos;
+    }
+
+    // dueNanos is when the request should have gone out, not when it was sent, so a backed-up
+    // client shows up as latency instead of silently lowering the offered load
+    void recordResponse(int status, long dueNanos) {
+        if (!record(dueNanos)) {
+            return;
+        }
+        if (status >= 200 && status < 300) {
+            ok.increment();
+        } else {
+            errors.computeIfAbsent("HTTP " + status, key -> new LongAdder()).increment();
+        }
+    }
+
+    void recordFailure(Throwable failure, long dueNanos) {
+        if (!record(dueNanos)) {
+            return;
+        }
+        Throwable cause = failure.getCause() != null ? failure.getCause() : failure;
+        errors.computeIfAbsent(cause.getClass().getSimpleName(), key -> new LongAdder()).increment();
+    }
+
+    // Due while --max-in-flight requests were already outstanding: the client, not the service, is the bottleneck
+    void recordSkipped(long dueNanos) {
+        if (inWindow(dueNanos)) {
+            skipped.increment();
+        }
+    }
+
+    long requests() {
+        return latency.count();
+    }
+
+    long ok() {
+        return ok.sum();
+    }
+
+    long skipped() {
+        return skipped.sum();
+    }
+
+    long errorCount() {
+        return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    Map<String, Long> errors() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        errors.forEach((key, count) -> snapshot.put(key, count.sum()));
+        return snapshot;
+    }
+
+    LatencyHistogram latency() {
+        return latency;
+    }
+
+    long drainIntervalRequests() {
+        return intervalRequests.sumThenReset();
+    }
+
+    LatencyHistogram drainIntervalLatency() {
+        return intervalLatency.drain();
+    }
+
+    private boolean record(long dueNanos) {
+        long latencyNanos = System.nanoTime() - dueNanos;
+        intervalRequests.increment();
+        intervalLatency.record(latencyNanos);
+        if (!inWindow(dueNanos)) {
+            return false;
+        }
+        latency.record(latencyNanos);
+        return true;
+    }
+
+    private boolean inWindow(long dueNanos) {
+        return dueNanos >= measureFromNanos && dueNanos < measureToNanos;
+    }
+}
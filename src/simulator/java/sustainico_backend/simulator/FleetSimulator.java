@@ -0,0 +1,286 @@
+package sustainico_backend.simulator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Load generator for a running instance: N meters post WaterReading, LoRa NewWaterReading and
+// NewWaterReading2 payloads at a fixed offered rate (open loop, each meter on its own jittered
+// schedule) while dashboard readers query the same devices. Prints throughput, latency percentiles
+// and errors per endpoint every --report-every and a summary at the end. Raise --rate between runs
+// until errors or p99 climb, or requests get skipped: that is the saturation point.
+//
+//   mvn -Psimulator verify -DskipTests -Dsimulator.args="--meters 5000 --rate 500 --duration 5m"
+public final class FleetSimulator {
+
+    private record Due(long atNanos, SimulatedMeter meter) {}
+
+    private final SimulatorOptions options;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+    private final List<SimulatedMeter> meters = new ArrayList<>();
+    private final HttpClient client;
+    private final Semaphore inFlight;
+    private final LongAdder outstanding = new LongAdder();
+
+    private FleetSimulator(SimulatorOptions options) {
+        this.options = options;
+        this.inFlight = new Semaphore(options.maxInFlight);
+        // Plain HTTP/1.1 like the meters' webhook relays; the h2c upgrade attempt only adds a round trip
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(options.timeout)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        SimulatorOptions options;
+        try {
+            options = SimulatorOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(SimulatorOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+        if (options == null) {
+            System.out.print(SimulatorOptions.USAGE);
+            return;
+        }
+        new FleetSimulator(options).run();
+    }
+
+    private void run() throws Exception {
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup.toNanos();
+        long end = measureFrom + options.duration.toNanos();
+        createMeters(measureFrom, end);
+        System.out.printf("Simulating %d meters at %.1f req/s (one send per meter every %.2fs) against %s%n",
+                options.meters, options.rate, options.meterInterval(), options.baseUrl);
+        if (options.meterInterval() < 1) {
+            System.out.println("Warning: meters send more than once a second; NewWaterReading2 stamps readings with "
+                    + "server time, so some of its sends will be deduplicated");
+        }
+
+        List<DashboardReader> readers = new ArrayList<>();
+        List<Thread> readerThreads = new ArrayList<>();
+        if (options.readers > 0 && options.token == null) {
+            System.out.println("No --token given; dashboard readers are disabled (their endpoints need a JWT)");
+        } else {
+            DashboardReader.SCREENS.stream()
+                    .limit(options.userId != null ? 4 : 3)
+                    .forEach(screen -> stats.put(screen, new EndpointStats(screen, measureFrom, end)));
+            for (int i = 0; i < options.readers; i++) {
+                DashboardReader reader = new DashboardReader(options, client, objectMapper, meters, stats);
+                readers.add(reader);
+                readerThreads.add(Thread.ofVirtual().name("reader-" + i).start(reader));
+            }
+        }
+
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.schedule(() -> {
+            stats.values().forEach(endpoint -> {
+                endpoint.drainIntervalRequests();
+                endpoint.drainIntervalLatency();
+            });
+            System.out.println("Warmup done, measuring for " + options.duration.toSeconds() + "s");
+        }, options.warmup.toNanos(), TimeUnit.NANOSECONDS);
+        long reportNanos = options.reportEvery.toNanos();
+        reporter.scheduleAtFixedRate(() -> printProgress(start), options.warmup.toNanos() + reportNanos,
+                reportNanos, TimeUnit.NANOSECONDS);
+
+        dispatch(start, end);
+
+        readers.forEach(DashboardReader::stop);
+        reporter.shutdownNow();
+        // Let outstanding requests finish so they do not show up as errors on a busy server
+        inFlight.tryAcquire(options.maxInFlight, options.timeout.toMillis(), TimeUnit.MILLISECONDS);
+        for (Thread thread : readerThreads) {
+            thread.join(options.timeout.toMillis());
+        }
+
+        printSummary();
+        if (options.out != null) {
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(new File(options.out), summary());
+            System.out.println("Summary written to " + options.out);
+        }
+        System.exit(0);
+    }
+
+    private void createMeters(long measureFrom, long end) {
+        double[] mix = options.mix;
+        double total = mix[0] + mix[1] + mix[2];
+        long expectedSends = (long) Math.ceil((options.warmup.toSeconds() + options.duration.toSeconds())
+                / options.meterInterval()) + 1;
+        Random random = new Random(7);
+        for (int i = 0; i < options.meters; i++) {
+            double pick = random.nextDouble() * total;
+            SimulatedMeter.Kind kind = pick < mix[0] ? SimulatedMeter.Kind.WATER
+                    : pick < mix[0] + mix[1] ? SimulatedMeter.Kind.LORA : SimulatedMeter.Kind.V2;
+            meters.add(new SimulatedMeter(String.format("%s%06d", options.devicePrefix, i), kind, i,
+                    options.virtualInterval.toSeconds(), expectedSends));
+        }
+        for (SimulatedMeter.Kind kind : SimulatedMeter.Kind.values()) {
+            stats.put(ingestName(kind), new EndpointStats(ingestName(kind), measureFrom, end));
+        }
+    }
+
+    // Single dispatcher thread walking a due-time queue; sends are asynchronous, so one thread
+    // keeps thousands of requests per second on schedule
+    private void dispatch(long start, long end) throws InterruptedException {
+        double intervalNanos = options.meterInterval() * 1e9;
+        PriorityQueue<Due> queue = new PriorityQueue<>((a, b) -> Long.compare(a.atNanos(), b.atNanos()));
+        Random random = new Random(11);
+        for (SimulatedMeter meter : meters) {
+            queue.add(new Due(start + (long) (random.nextDouble() * intervalNanos), meter));
+        }
+
+        while (!queue.isEmpty()) {
+            Due due = queue.poll();
+            if (due.atNanos() >= end) {
+                break;
+            }
+            long wait = due.atNanos() - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            send(due);
+            double jitter = 1 + (random.nextDouble() * 2 - 1) * options.jitter;
+            queue.add(new Due(due.atNanos() + (long) (intervalNanos * jitter), due.meter()));
+        }
+    }
+
+    private void send(Due due) {
+        SimulatedMeter meter = due.meter();
+        EndpointStats endpoint = stats.get(ingestName(meter.kind));
+        if (!inFlight.tryAcquire()) {
+            endpoint.recordSkipped(due.atNanos());
+            return;
+        }
+        Map.Entry<String, Map<String, Object>> payload = meter.next();
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(options.baseUrl + payload.getKey()))
+                    .timeout(options.timeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(payload.getValue())))
+                    .build();
+        } catch (Exception e) {
+            inFlight.release();
+            throw new IllegalStateException(e);
+        }
+        outstanding.increment();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+            if (failure != null) {
+                endpoint.recordFailure(failure, due.atNanos());
+            } else {
+                endpoint.recordResponse(response.statusCode(), due.atNanos());
+            }
+            outstanding.decrement();
+            inFlight.release();
+        });
+    }
+
+    private void printProgress(long start) {
+        long elapsed = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
+        double seconds = options.reportEvery.toMillis() / 1000.0;
+        StringBuilder line = new StringBuilder(String.format("t=%4ds in-flight=%-4d", elapsed, outstanding.sum()));
+        for (EndpointStats endpoint : sortedStats()) {
+            long requests = endpoint.drainIntervalRequests();
+            LatencyHistogram latency = endpoint.drainIntervalLatency();
+            line.append(String.format(" | %s %.1f/s p50=%.1fms p99=%.1fms", endpoint.name, requests / seconds,
+                    latency.percentileMillis(0.50), latency.percentileMillis(0.99)));
+        }
+        System.out.println(line);
+    }
+
+    private void printSummary() {
+        double seconds = options.duration.toMillis() / 1000.0;
+        System.out.println();
+        System.out.printf("%-22s %9s %9s %8s %8s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "req/s", "errors", "skipped", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        LatencyHistogram ingest = new LatencyHistogram();
+        long ingestRequests = 0;
+        long ingestErrors = 0;
+        long ingestSkipped = 0;
+        for (EndpointStats endpoint : sortedStats()) {
+            LatencyHistogram latency = endpoint.latency();
+            System.out.printf("%-22s %9d %9.1f %8d %8d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    endpoint.name, endpoint.requests(), endpoint.requests() / seconds, endpoint.errorCount(),
+                    endpoint.skipped(), latency.percentileMillis(0.50), latency.percentileMillis(0.90),
+                    latency.percentileMillis(0.99), latency.percentileMillis(0.999), latency.percentileMillis(1.0));
+            endpoint.errors().forEach((error, count) -> System.out.printf("    %-18s %d%n", error, count));
+            if (endpoint.name.startsWith("ingest")) {
+                ingest.add(latency);
+                ingestRequests += endpoint.requests();
+                ingestErrors += endpoint.errorCount();
+                ingestSkipped += endpoint.skipped();
+            }
+        }
+
+        double achieved = ingestRequests / seconds;
+        double errorRate = ingestRequests == 0 ? 0 : ingestErrors * 100.0 / ingestRequests;
+        System.out.printf("%nIngest: offered %.1f req/s, completed %.1f req/s, %.2f%% errors, %d skipped, p99 %.1fms%n",
+                options.rate, achieved, errorRate, ingestSkipped, ingest.percentileMillis(0.99));
+        if (ingestSkipped > 0 || achieved < options.rate * 0.9 || errorRate > 1) {
+            System.out.println("The service did not keep up with the offered rate: saturated at or below this load");
+        } else {
+            System.out.println("The service kept up with the offered rate; try a higher --rate");
+        }
+    }
+
+    private Map<String, Object> summary() {
+        double seconds = options.duration.toMillis() / 1000.0;
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("meters", options.meters);
+        summary.put("offeredRate", options.rate);
+        summary.put("durationSeconds", seconds);
+        summary.put("readers", options.token != null ? options.readers : 0);
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        for (EndpointStats endpoint : sortedStats()) {
+            LatencyHistogram latency = endpoint.latency();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("requests", endpoint.requests());
+            row.put("throughput", endpoint.requests() / seconds);
+            row.put("ok", endpoint.ok());
+            row.put("errors", endpoint.errors());
+            row.put("skipped", endpoint.skipped());
+            row.put("p50Ms", latency.percentileMillis(0.50));
+            row.put("p90Ms", latency.percentileMillis(0.90));
+            row.put("p99Ms", latency.percentileMillis(0.99));
+            row.put("p999Ms", latency.percentileMillis(0.999));
+            row.put("maxMs", latency.percentileMillis(1.0));
+            endpoints.put(endpoint.name, row);
+        }
+        summary.put("endpoints", endpoints);
+        return summary;
+    }
+
+    private List<EndpointStats> sortedStats() {
+        return stats.values().stream()
+                .sorted((a, b) -> a.name.compareTo(b.name))
+                .toList();
+    }
+
+    private static String ingestName(SimulatedMeter.Kind kind) {
+        return "ingest " + kind.name().toLowerCase();
+    }
+}
@@ -0,0 +1,61 @@
+package sustainico_backend.simulator;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Lock-free latency histogram with logarithmic buckets about 2% wide, from 10 microseconds to
+// well past any request timeout. Good enough for percentiles without pulling in HdrHistogram.
+final class LatencyHistogram {
+
+    private static final double GROWTH = 1.02;
+    private static final double LOG_GROWTH = Math.log(GROWTH);
+    private static final long MIN_MICROS = 10;
+    private static final int BUCKETS = 800;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    void record(long nanos) {
+        long micros = Math.max(MIN_MICROS, nanos / 1000);
+        int bucket = (int) Math.min(BUCKETS - 1, Math.log((double) micros / MIN_MICROS) / LOG_GROWTH);
+        counts.incrementAndGet(bucket);
+    }
+
+    // Returns a copy and clears this histogram, for per-interval progress lines
+    LatencyHistogram drain() {
+        LatencyHistogram copy = new LatencyHistogram();
+        for (int i = 0; i < BUCKETS; i++) {
+            copy.counts.set(i, counts.getAndSet(i, 0));
+        }
+        return copy;
+    }
+
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.addAndGet(i, other.counts.get(i));
+        }
+    }
+
+    long count() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    // Upper edge of the bucket holding the given quantile, in milliseconds
+    double percentileMillis(double quantile) {
+        long total = count();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= Math.max(rank, 1)) {
+                return MIN_MICROS * Math.pow(GROWTH, i + 1) / 1000.0;
+            }
+        }
+        return MIN_MICROS * Math.pow(GROWTH, BUCKETS) / 1000.0;
+    }
+}
@@ -0,0 +1,131 @@
+package sustainico_backend.simulator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// One simulated meter. Consumption follows a household day (morning and evening peaks, a near-zero
+// night) on the meter's own clock, which advances one reporting period per send so a run of a few
+// minutes covers days of readings without colliding on the (deviceId, timestamp) keys.
+// A few meters leak a steady trickle and flags flip now and then, so the leak and alert paths get load too.
+final class SimulatedMeter {
+
+    enum Kind {
+        // POST /water/reading/send, a WaterReading totalizer sample
+        WATER,
+        // POST /newWaterReading/send, the LoRa webhook uplink with 12 five-minute intraDay deltas
+        LORA,
+        // POST /newWaterReading2/send, liters + milliliters with status flags
+        V2
+    }
+
+    // Epoch second index 0 of the LoRa uplinks counts from, as NewWaterReadingService expands them
+    private static final long LORA_EPOCH = 1577817000L;
+    private static final int LORA_INTRADAY_SIZE = 12;
+    private static final int IST_OFFSET_SECONDS = 19800;
+
+    final String deviceId;
+    final Kind kind;
+
+    private final Random random;
+    private final long virtualIntervalSeconds;
+    private final boolean leaking;
+    private double totalizer;
+    private long clock;
+    private boolean tamper;
+    private boolean lowBattery;
+
+    SimulatedMeter(String deviceId, Kind kind, long seed, long virtualIntervalSeconds, long expectedSends) {
+        this.deviceId = deviceId;
+        this.kind = kind;
+        this.random = new Random(seed);
+        this.virtualIntervalSeconds = kind == Kind.LORA ? 3600 : virtualIntervalSeconds;
+        this.leaking = random.nextInt(50) == 0;
+        this.totalizer = 1_000 + random.nextInt(200_000);
+        // Start far enough back that the clock is still in the past when the run ends
+        long now = System.currentTimeMillis() / 1000;
+        long back = (long) (expectedSends * 1.2 + 24) * this.virtualIntervalSeconds;
+        this.clock = kind == Kind.LORA
+                ? LORA_EPOCH + ((now - back - LORA_EPOCH) / 3600) * 3600
+                : now - back;
+    }
+
+    // Path and JSON-ready body of the next send; called by one thread at a time per meter
+    synchronized Map.Entry<String, Map<String, Object>> next() {
+        long now = System.currentTimeMillis() / 1000;
+        long periodStart = clock;
+        if (clock + virtualIntervalSeconds < now) {
+            clock += virtualIntervalSeconds;
+        }
+        flipFlags();
+        return switch (kind) {
+            case WATER -> Map.entry("/water/reading/send", waterReading(periodStart));
+            case LORA -> Map.entry("/newWaterReading/send", loraUplink(periodStart));
+            case V2 -> Map.entry("/newWaterReading2/send", newWaterReading2(periodStart));
+        };
+    }
+
+    private Map<String, Object> waterReading(long periodStart) {
+        totalizer += usage(periodStart, virtualIntervalSeconds);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("deviceId", deviceId);
+        body.put("flowReading", String.valueOf((long) totalizer));
+        body.put("timestamp", String.valueOf(periodStart + virtualIntervalSeconds));
+        return body;
+    }
+
+    private Map<String, Object> loraUplink(long periodStart) {
+        List<Integer> intraDay = new ArrayList<>(LORA_INTRADAY_SIZE);
+        for (int i = 0; i < LORA_INTRADAY_SIZE; i++) {
+            int used = (int) Math.round(usage(periodStart + i * 300L, 300));
+            intraDay.add(used);
+            totalizer += used;
+        }
+        Map<String, Object> decoded = new LinkedHashMap<>();
+        decoded.put("deviceId", deviceId);
+        decoded.put("timestamp", String.valueOf(periodStart + 3600));
+        decoded.put("index", (int) ((periodStart - LORA_EPOCH) / 3600));
+        decoded.put("key", 1);
+        decoded.put("totalizer", (int) totalizer);
+        decoded.put("intraDay", intraDay);
+        decoded.put("alerts", Map.of("leak", leaking, "burst", false));
+        decoded.put("status", flags());
+        return Map.of("end_device_ids", Map.of("device_id", deviceId),
+                "uplink_message", Map.of("f_port", 1, "decoded_payload", decoded));
+    }
+
+    private Map<String, Object> newWaterReading2(long periodStart) {
+        totalizer += usage(periodStart, virtualIntervalSeconds);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("DeviceID", deviceId);
+        body.put("Status", flags());
+        body.put("Liters", (long) totalizer);
+        body.put("Milliliters", Math.round((totalizer - (long) totalizer) * 1000) % 1000);
+        return body;
+    }
+
+    private Map<String, Boolean> flags() {
+        return Map.of("tamper", tamper, "lowBattery", lowBattery);
+    }
+
+    // Rare faults that clear after a few sends, so transitions in both directions show up
+    private void flipFlags() {
+        tamper = tamper ? random.nextInt(5) != 0 : random.nextInt(1000) == 0;
+        lowBattery = lowBattery ? random.nextInt(20) != 0 : random.nextInt(5000) == 0;
+    }
+
+    // Liters used over [start, start + seconds), by hour of day in IST
+    private double usage(long start, long seconds) {
+        int hour = (int) ((start + IST_OFFSET_SECONDS) % 86400 / 3600);
+        double perHour = (hour >= 6 && hour < 9) || (hour >= 18 && hour < 21) ? 60 : hour < 5 ? 0.5 : 10;
+        if (random.nextInt(10) < 3) {
+            perHour = 0;
+        }
+        if (leaking) {
+            perHour += 5;
+        }
+        return Math.max(0, perHour * seconds / 3600.0 * (0.5 + random.nextDouble()));
+    }
+}
@@ -0,0 +1,141 @@
+package sustainico_backend.simulator;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// Command line of the fleet simulator; every option is --name value or --name=value
+final class SimulatorOptions {
+
+    static final String USAGE = """
+            Fleet simulator options (defaults in brackets):
+              --base-url URL            service under test [http://localhost:8080]
+              --meters N                simulated meters [1000]
+              --mix W,L,V               share of meters posting WaterReading, LoRa NewWaterReading and
+                                        NewWaterReading2 payloads [1,1,1]
+              --rate R                  ingest requests per second across the fleet [100]
+              --jitter F                +/- fraction applied to every meter's send interval [0.2]
+              --duration D              measured run, e.g. 90s or 5m [60s]
+              --warmup D                unmeasured ramp before the run [10s]
+              --readers N               concurrent dashboard readers [4]
+              --reader-think D          pause between one reader's requests [500ms]
+              --token JWT               bearer token for the authenticated report endpoints
+              --user-id ID              userId owning the simulated devices, used with --token
+              --max-in-flight N         cap on outstanding ingest requests [512]
+              --timeout D               per-request timeout [10s]
+              --device-prefix P         deviceId prefix, kept apart from real meters [SIM-]
+              --virtual-interval D      meter clock advance per WaterReading [5m]
+              --report-every D          interval of the progress lines [10s]
+              --out FILE                also write the summary as JSON
+            """;
+
+    String baseUrl = "http://localhost:8080";
+    int meters = 1000;
+    double[] mix = {1, 1, 1};
+    double rate = 100;
+    double jitter = 0.2;
+    Duration duration = Duration.ofSeconds(60);
+    Duration warmup = Duration.ofSeconds(10);
+    int readers = 4;
+    Duration readerThink = Duration.ofMillis(500);
+    String token;
+    String userId;
+    int maxInFlight = 512;
+    Duration timeout = Duration.ofSeconds(10);
+    String devicePrefix = "SIM-";
+    Duration virtualInterval = Duration.ofMinutes(5);
+    Duration reportEvery = Duration.ofSeconds(10);
+    String out;
+
+    static SimulatorOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + arg);
+            }
+            int equals = arg.indexOf('=');
+            if (equals > 0) {
+                values.put(arg.substring(2, equals), arg.substring(equals + 1));
+            } else if (arg.equals("--help")) {
+                values.put("help", "true");
+            } else if (i + 1 < args.length) {
+                values.put(arg.substring(2), args[++i]);
+            } else {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+        }
+
+        SimulatorOptions options = new SimulatorOptions();
+        if (values.containsKey("help")) {
+            return null;
+        }
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String value = entry.getValue();
+            switch (entry.getKey()) {
+                case "base-url" -> options.baseUrl = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                case "meters" -> options.meters = Integer.parseInt(value);
+                case "mix" -> options.mix = parseMix(value);
+                case "rate" -> options.rate = Double.parseDouble(value);
+                case "jitter" -> options.jitter = Double.parseDouble(value);
+                case "duration" -> options.duration = parseDuration(value);
+                case "warmup" -> options.warmup = parseDuration(value);
+                case "readers" -> options.readers = Integer.parseInt(value);
+                case "reader-think" -> options.readerThink = parseDuration(value);
+                case "token" -> options.token = value;
+                case "user-id" -> options.userId = value;
+                case "max-in-flight" -> options.maxInFlight = Integer.parseInt(value);
+                case "timeout" -> options.timeout = parseDuration(value);
+                case "device-prefix" -> options.devicePrefix = value;
+                case "virtual-interval" -> options.virtualInterval = parseDuration(value);
+                case "report-every" -> options.reportEvery = parseDuration(value);
+                case "out" -> options.out = value;
+                default -> throw new IllegalArgumentException("Unknown option --" + entry.getKey());
+            }
+        }
+        if (options.meters < 1 || options.rate <= 0 || options.maxInFlight < 1) {
+            throw new IllegalArgumentException("--meters, --rate and --max-in-flight must be positive");
+        }
+        if (options.jitter < 0 || options.jitter >= 1) {
+            throw new IllegalArgumentException("--jitter must be in [0, 1)");
+        }
+        return options;
+    }
+
+    // Seconds between two sends of one meter
+    double meterInterval() {
+        return meters / rate;
+    }
+
+    private static double[] parseMix(String value) {
+        String[] parts = value.split(",");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("--mix needs three weights, e.g. 2,1,1");
+        }
+        double[] mix = new double[3];
+        for (int i = 0; i < 3; i++) {
+            mix[i] = Double.parseDouble(parts[i].trim());
+            if (mix[i] < 0) {
+                throw new IllegalArgumentException("--mix weights cannot be negative");
+            }
+        }
+        if (mix[0] + mix[1] + mix[2] == 0) {
+            throw new IllegalArgumentException("--mix needs at least one non-zero weight");
+        }
+        return mix;
+    }
+
+    static Duration parseDuration(String value) {
+        String trimmed = value.trim().toLowerCase();
+        if (trimmed.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(trimmed.substring(0, trimmed.length() - 2)));
+        }
+        long amount = Long.parseLong(trimmed.substring(0, trimmed.length() - 1));
+        return switch (trimmed.charAt(trimmed.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            default -> Duration.ofSeconds(Long.parseLong(trimmed));
+        };
+    }
+}
@@ -0,0 +1,92 @@
+package sustainico_backend.controller;
+
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.mock.web.DelegatingServletInputStream;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import sustainico_backend.Models.IngestFrameResult;
+import sustainico_backend.service.BinaryIngestService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class BinaryIngestControllerTest {
+
+    private static final int MAX_FRAME_BYTES = 16;
+
+    private final BinaryIngestService binaryIngestService = mock(BinaryIngestService.class);
+    private BinaryIngestController controller;
+
+    @BeforeEach
+    void setUp() {
+        controller = new BinaryIngestController();
+        ReflectionTestUtils.setField(controller, "binaryIngestService", binaryIngestService);
+        ReflectionTestUtils.setField(controller, "maxFrameBytes", MAX_FRAME_BYTES);
+        when(binaryIngestService.ingest(any(), anyInt(), anyInt()))
+                .thenReturn(CompletableFuture.completedFuture(new IngestFrameResult()));
+    }
+
+    // No Content-Length, so the size is only known by reading the body
+    private static MockHttpServletRequest chunked(int bodyBytes) {
+        ServletInputStream body = new DelegatingServletInputStream(new ByteArrayInputStream(new byte[bodyBytes]));
+        return new MockHttpServletRequest("POST", "/ingest/binary") {
+            @Override
+            public ServletInputStream getInputStream() {
+                return body;
+            }
+        };
+    }
+
+    private HttpStatusCode status(MockHttpServletRequest request) throws IOException {
+        return controller.ingest(request).getStatusCode();
+    }
+
+    @Test
+    void declaredLengthOverTheLimitIsRefusedWithoutReadingTheBody() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/ingest/binary") {
+            @Override
+            public ServletInputStream getInputStream() {
+                throw new AssertionError("the body must not be read");
+            }
+
+            @Override
+            public long getContentLengthLong() {
+                return MAX_FRAME_BYTES + 1;
+            }
+        };
+
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, status(request));
+        verifyNoInteractions(binaryIngestService);
+    }
+
+    @Test
+    void chunkedBodyOverTheLimitIsRefused() throws IOException {
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, status(chunked(MAX_FRAME_BYTES + 1)));
+        verifyNoInteractions(binaryIngestService);
+    }
+
+    @Test
+    void bodiesUpToTheLimitAreIngested() throws IOException {
+        MockHttpServletRequest withLength = new MockHttpServletRequest("POST", "/ingest/binary");
+        withLength.setContent(new byte[MAX_FRAME_BYTES]);
+
+        assertEquals(HttpStatus.OK, status(withLength));
+        assertEquals(HttpStatus.OK, status(chunked(MAX_FRAME_BYTES)));
+        verify(binaryIngestService, times(2)).ingest(any(), eq(0), eq(MAX_FRAME_BYTES));
+    }
+}
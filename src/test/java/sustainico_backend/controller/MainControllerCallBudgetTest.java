@@ -0,0 +1,125 @@
+package sustainico_backend.controller;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.method.HandlerMethod;
+import sustainico_backend.Config.DynamoDbMetrics;
+import sustainico_backend.Models.*;
+import sustainico_backend.filter.DynamoDbCallBudgetInterceptor;
+import sustainico_backend.rep.HomeRepository;
+import sustainico_backend.rep.InMemoryDynamoDB;
+import sustainico_backend.rep.UserRepository;
+import sustainico_backend.rep.WaterReadingRepository;
+import sustainico_backend.util.DynamoDbCallTally;
+import sustainico_backend.util.JwtUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Runs GET /main/{contactNo} against the in-memory backend with aws.dynamodb.budget.mode=fail, the way
+// DynamoDbAccountingFilter and DynamoDbCallBudgetInterceptor set up a request, so a change that makes
+// the endpoint issue more calls per home or device fails here instead of in production
+class MainControllerCallBudgetTest {
+
+    private static final String CONTACT_NO = "9000000001";
+
+    private InMemoryDynamoDB db;
+    private DynamoDBMapper mapper;
+    private MainController controller;
+    private DynamoDbCallBudgetInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        db = new InMemoryDynamoDB().withRequestHandlers(new DynamoDbMetrics(new SimpleMeterRegistry(), true));
+        mapper = new DynamoDBMapper(db);
+        for (Class<?> table : List.of(User.class, Home.class, LatestWaterReading.class,
+                WaterReadingPerHour.class, WaterReadingPerMonth.class)) {
+            db.createTable(mapper.generateCreateTableRequest(table));
+        }
+
+        WaterReadingRepository waterReadingRepository = new WaterReadingRepository(mapper);
+        ReflectionTestUtils.setField(waterReadingRepository, "amazonDynamoDB", db);
+        HomeRepository homeRepository = new HomeRepository(mapper);
+        homeRepository.waterReadingRepository = waterReadingRepository;
+        JwtUtil jwtUtil = mock(JwtUtil.class);
+        when(jwtUtil.extractContactNo("token")).thenReturn(CONTACT_NO);
+
+        controller = new MainController();
+        ReflectionTestUtils.setField(controller, "userRepository", new UserRepository(mapper, db));
+        ReflectionTestUtils.setField(controller, "homeRepository", homeRepository);
+        ReflectionTestUtils.setField(controller, "jwtUtil", jwtUtil);
+
+        interceptor = new DynamoDbCallBudgetInterceptor();
+        ReflectionTestUtils.setField(interceptor, "mode", "fail");
+        ReflectionTestUtils.setField(interceptor, "defaultMaxCalls", 0);
+
+        User user = new User();
+        user.setUserId("user-1");
+        user.setContactNo(CONTACT_NO);
+        mapper.save(user);
+    }
+
+    @AfterEach
+    void endRequest() {
+        DynamoDbCallTally.end();
+    }
+
+    private void addHomes(int homes, int devicesPerHome) {
+        for (int h = 0; h < homes; h++) {
+            List<DeviceArray> devices = new ArrayList<>();
+            for (int d = 0; d < devicesPerHome; d++) {
+                String deviceId = "device-" + h + "-" + d;
+                DeviceArray device = new DeviceArray();
+                device.setDeviceId(deviceId);
+                devices.add(device);
+                mapper.save(new LatestWaterReading(deviceId, "120", "100", "50", null, "1727721000", "1727721000"));
+            }
+            Home home = new Home();
+            home.setHomeId("home-" + h);
+            home.setUserId("user-1");
+            home.setDevices(devices);
+            mapper.save(home);
+        }
+    }
+
+    private DynamoDbCallTally beginRequest() throws Exception {
+        DynamoDbCallTally tally = DynamoDbCallTally.begin();
+        HandlerMethod handler = new HandlerMethod(controller,
+                MainController.class.getMethod("getUserWithHomesByContactNo", String.class, String.class));
+        interceptor.preHandle(null, null, handler);
+        return tally;
+    }
+
+    @Test
+    void typicalAccountStaysWithinTheBudget() throws Exception {
+        addHomes(3, 2);
+        DynamoDbCallTally tally = beginRequest();
+
+        UserWithHomesDTO result = controller.getUserWithHomesByContactNo(CONTACT_NO, "Bearer token");
+
+        assertEquals(3, result.getHomes().size());
+        assertEquals(40, tally.getBudget());
+        assertTrue(tally.getCalls() <= 40, tally.summary());
+    }
+
+    @Test
+    void callsGrowingWithHomesAndDevicesHitTheBudget() throws Exception {
+        addHomes(10, 2);
+        DynamoDbCallTally tally = beginRequest();
+
+        assertThrows(DynamoDbCallTally.BudgetExceededException.class,
+                () -> controller.getUserWithHomesByContactNo(CONTACT_NO, "Bearer token"));
+        assertTrue(tally.isBudgetExceeded());
+        assertEquals(41, tally.getCalls(), "the call over budget is refused");
+    }
+}
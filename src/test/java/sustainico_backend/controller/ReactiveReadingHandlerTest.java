@@ -0,0 +1,81 @@
+package sustainico_backend.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import sustainico_backend.Models.NewWaterReading2;
+import sustainico_backend.service.NewWaterReading2Service;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReactiveReadingHandlerTest {
+
+    private final List<NewWaterReading2> saved = new CopyOnWriteArrayList<>();
+
+    private ReactiveReadingHandler handler() {
+        NewWaterReading2Service service = mock(NewWaterReading2Service.class);
+        when(service.saveReadingAsync(any())).thenAnswer(invocation -> {
+            saved.add(invocation.getArgument(0));
+            return CompletableFuture.completedFuture(true);
+        });
+        ReactiveReadingHandler handler = new ReactiveReadingHandler();
+        ReflectionTestUtils.setField(handler, "service", service);
+        ReflectionTestUtils.setField(handler, "ingestConcurrency", 4);
+        return handler;
+    }
+
+    private ServerResponse send(ReactiveReadingHandler handler, List<Map<String, Object>> readings) {
+        MockServerRequest request = MockServerRequest.builder()
+                .method(HttpMethod.POST)
+                .uri(URI.create("/newWaterReading2/send"))
+                .exchange(MockServerWebExchange.from(MockServerHttpRequest.post("/newWaterReading2/send")))
+                .body(Flux.fromIterable(readings));
+        return handler.routes().route(request)
+                .flatMap(handlerFunction -> handlerFunction.handle(request))
+                .block();
+    }
+
+    private NewWaterReading2 savedReading(long liters) {
+        return saved.stream().filter(reading -> reading.getLiters() == liters).findFirst().orElseThrow();
+    }
+
+    @Test
+    void readingsOfOneDeviceWithoutTimestampGetTheirOwnSeconds() {
+        ServerResponse response = send(handler(), List.of(
+                Map.of("DeviceID", "meter-1", "Liters", 10, "Milliliters", 0),
+                Map.of("DeviceID", "meter-1", "Liters", 11, "Milliliters", 0)));
+
+        assertEquals(200, response.statusCode().value());
+        assertEquals(2, saved.size());
+        long first = Long.parseLong(savedReading(10).getTimestamp());
+        long second = Long.parseLong(savedReading(11).getTimestamp());
+        assertEquals(first + 1, second, "body order is kept");
+    }
+
+    @Test
+    void otherDevicesAndExplicitTimestampsAreNotShifted() {
+        send(handler(), List.of(
+                Map.of("DeviceID", "meter-1", "Liters", 10, "Milliliters", 0),
+                Map.of("DeviceID", "meter-2", "Liters", 20, "Milliliters", 0),
+                Map.of("DeviceID", "meter-1", "Liters", 12, "Milliliters", 0, "Timestamp", 1727721000)));
+
+        assertEquals(savedReading(10).getTimestamp(), savedReading(20).getTimestamp());
+        assertEquals("1727721000", savedReading(12).getTimestamp());
+        assertNotEquals(savedReading(10).getTimestamp(), savedReading(12).getTimestamp());
+    }
+}
@@ -0,0 +1,42 @@
+package sustainico_backend.rep;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import sustainico_backend.Models.WaterReading;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ColdSegmentStoreTest {
+
+    private static final long TIMESTAMP = 1_727_721_000L;
+
+    @TempDir
+    Path coldDir;
+
+    @Test
+    void plainIdsKeepTheirDirectoryName() {
+        assertEquals("meter_01-A", ColdSegmentStore.deviceDirName("meter_01-A"));
+    }
+
+    @Test
+    void idsThatOnlyDifferInUnsafeCharactersGetTheirOwnDirectory() {
+        assertNotEquals(ColdSegmentStore.deviceDirName("a.b"), ColdSegmentStore.deviceDirName("a_b"));
+        assertNotEquals(ColdSegmentStore.deviceDirName("a/b"), ColdSegmentStore.deviceDirName("a.b"));
+        assertEquals(-1, ColdSegmentStore.deviceDirName("../x").indexOf('/'));
+
+        ColdSegmentStore store = new ColdSegmentStore();
+        ReflectionTestUtils.setField(store, "coldDir", coldDir.toString());
+        store.archiveWaterReadings("a.b", ColdSegmentStore.monthOf(TIMESTAMP),
+                List.of(new WaterReading("a.b", "1.5", String.valueOf(TIMESTAMP), "a.b-" + TIMESTAMP)));
+        store.archiveWaterReadings("a_b", ColdSegmentStore.monthOf(TIMESTAMP),
+                List.of(new WaterReading("a_b", "2.5", String.valueOf(TIMESTAMP), "a_b-" + TIMESTAMP)));
+
+        assertEquals("1.5", store.findWaterReadings("a.b", Long.MIN_VALUE, Long.MAX_VALUE, 10, false).get(0).getFlowReading());
+        assertEquals("2.5", store.findWaterReadings("a_b", Long.MIN_VALUE, Long.MAX_VALUE, 10, false).get(0).getFlowReading());
+    }
+}
@@ -0,0 +1,88 @@
+package sustainico_backend.rep;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import sustainico_backend.Models.Device;
+import sustainico_backend.Models.DeviceArray;
+import sustainico_backend.Models.Home;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class HomeDevicesRepositoryTest {
+
+    private static final String DEVICE = "meter-1";
+
+    private DynamoDBMapper mapper;
+
+    private HomeDevicesRepository repository(InMemoryDynamoDB db) {
+        mapper = new DynamoDBMapper(db);
+        db.createTable(mapper.generateCreateTableRequest(Home.class));
+        db.createTable(mapper.generateCreateTableRequest(Device.class));
+        HomeDevicesRepository repository = new HomeDevicesRepository(db, mapper);
+        ReflectionTestUtils.setField(repository, "deviceCache", mock(EntityCache.class));
+        ReflectionTestUtils.setField(repository, "homeCache", mock(EntityCache.class));
+        ReflectionTestUtils.setField(repository, "maxBatchAttempts", 5);
+        ReflectionTestUtils.setField(repository, "baseBackoffMs", 1L);
+        return repository;
+    }
+
+    // Homes that all list the device; saved through a plain mapper so the setup works even when reads are throttled
+    private List<String> homesWithDevice(int count) {
+        Device device = new Device();
+        device.setDeviceId(DEVICE);
+        device.setDeviceName("kitchen");
+        mapper.save(device);
+        List<String> homeIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Home home = new Home();
+            home.setHomeId("home-" + i);
+            home.setDevices(new ArrayList<>(List.of(new DeviceArray(DEVICE, "kitchen"), new DeviceArray("meter-" + (i + 2), "garden"))));
+            mapper.save(home);
+            homeIds.add(home.getHomeId());
+        }
+        return homeIds;
+    }
+
+    @Test
+    void renameReachesMoreHomesThanOneTransactionHolds() {
+        HomeDevicesRepository repository = repository(new InMemoryDynamoDB());
+        List<String> homeIds = homesWithDevice(250);
+
+        repository.renameDevice(DEVICE, homeIds, "utility");
+
+        assertEquals("utility", mapper.load(Device.class, DEVICE).getDeviceName());
+        for (String homeId : homeIds) {
+            List<DeviceArray> devices = mapper.load(Home.class, homeId).getDevices();
+            assertEquals("utility", devices.get(0).getDeviceName(), homeId);
+            assertEquals("garden", devices.get(1).getDeviceName(), homeId);
+        }
+    }
+
+    @Test
+    void detachDropsTheDeviceFromEveryHome() {
+        HomeDevicesRepository repository = repository(new InMemoryDynamoDB());
+        List<String> homeIds = homesWithDevice(120);
+        Device device = mapper.load(Device.class, DEVICE);
+
+        repository.detachDevice(device, homeIds);
+
+        assertTrue(homeIds.stream().allMatch(homeId -> mapper.load(Home.class, homeId).getDevices().size() == 1));
+    }
+
+    @Test
+    void unprocessedKeysAreRetriedALimitedNumberOfTimes() {
+        // Every batch read hands every key back unprocessed
+        HomeDevicesRepository repository = repository(new InMemoryDynamoDB(0, 0, 0, 1.0));
+        List<String> homeIds = homesWithDevice(3);
+
+        assertThrows(IllegalStateException.class, () -> repository.renameDevice(DEVICE, homeIds, "utility"));
+        assertEquals("kitchen", mapper.load(Device.class, DEVICE).getDeviceName());
+    }
+}
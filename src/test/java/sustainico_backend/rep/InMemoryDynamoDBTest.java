@@ -0,0 +1,195 @@
+package sustainico_backend.rep;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.dynamodbv2.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryDynamoDBTest {
+
+    private static final String TABLE = "readings";
+
+    private InMemoryDynamoDB db;
+
+    private static AttributeValue s(String value) {
+        return new AttributeValue().withS(value);
+    }
+
+    private static AttributeValue n(long value) {
+        return new AttributeValue().withN(String.valueOf(value));
+    }
+
+    private static Map<String, AttributeValue> reading(String deviceId, long timestamp, long flow) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("deviceId", s(deviceId));
+        item.put("timestamp", n(timestamp));
+        item.put("flow", n(flow));
+        return item;
+    }
+
+    private static Map<String, AttributeValue> key(String deviceId, long timestamp) {
+        return Map.of("deviceId", s(deviceId), "timestamp", n(timestamp));
+    }
+
+    @BeforeEach
+    void createTable() {
+        db = new InMemoryDynamoDB();
+        db.createTable(new CreateTableRequest()
+                .withTableName(TABLE)
+                .withKeySchema(new KeySchemaElement("deviceId", KeyType.HASH), new KeySchemaElement("timestamp", KeyType.RANGE))
+                .withAttributeDefinitions(new AttributeDefinition("deviceId", ScalarAttributeType.S),
+                        new AttributeDefinition("timestamp", ScalarAttributeType.N))
+                .withBillingMode(BillingMode.PAY_PER_REQUEST));
+        for (long i = 0; i < 10; i++) {
+            db.putItem(TABLE, reading("dev-1", 1000 + i * 300, i * 10));
+        }
+        db.putItem(TABLE, reading("dev-2", 1000, 5));
+    }
+
+    private QueryRequest rangeQuery(long from, long to) {
+        return new QueryRequest()
+                .withTableName(TABLE)
+                .withKeyConditionExpression("deviceId = :d AND #ts BETWEEN :from AND :to")
+                .withExpressionAttributeNames(Map.of("#ts", "timestamp"))
+                .withExpressionAttributeValues(new HashMap<>(Map.of(":d", s("dev-1"), ":from", n(from), ":to", n(to))));
+    }
+
+    @Test
+    void queryReturnsTheKeyRangeInOrder() {
+        QueryResult result = db.query(rangeQuery(1300, 2200));
+
+        assertEquals(List.of("1300", "1600", "1900", "2200"),
+                result.getItems().stream().map(item -> item.get("timestamp").getN()).toList());
+        assertNull(result.getLastEvaluatedKey());
+
+        QueryResult descending = db.query(rangeQuery(1300, 2200).withScanIndexForward(false));
+        assertEquals("2200", descending.getItems().get(0).get("timestamp").getN());
+    }
+
+    @Test
+    void queryPagesWithLimitAndLastEvaluatedKey() {
+        List<String> timestamps = new ArrayList<>();
+        Map<String, AttributeValue> startKey = null;
+        int pages = 0;
+        do {
+            QueryResult page = db.query(rangeQuery(0, Long.MAX_VALUE).withLimit(4).withExclusiveStartKey(startKey));
+            page.getItems().forEach(item -> timestamps.add(item.get("timestamp").getN()));
+            startKey = page.getLastEvaluatedKey();
+            pages++;
+        } while (startKey != null);
+
+        assertEquals(10, timestamps.size());
+        assertEquals(List.of("1000", "1300"), timestamps.subList(0, 2));
+        assertEquals(3, pages);
+    }
+
+    @Test
+    void filterAppliesAfterTheLimit() {
+        QueryResult page = db.query(rangeQuery(0, Long.MAX_VALUE)
+                .withFilterExpression("flow >= :min")
+                .withExpressionAttributeValues(new HashMap<>(Map.of(":d", s("dev-1"), ":from", n(0),
+                        ":to", n(Long.MAX_VALUE), ":min", n(30))))
+                .withLimit(5));
+
+        // Limit counts evaluated rows, as in DynamoDB: five scanned, two of them pass the filter
+        assertEquals(5, page.getScannedCount());
+        assertEquals(2, page.getCount());
+        assertEquals(key("dev-1", 2200), page.getLastEvaluatedKey());
+    }
+
+    @Test
+    void queryWithoutHashKeyEqualityIsRejected() {
+        QueryRequest request = new QueryRequest()
+                .withTableName(TABLE)
+                .withKeyConditionExpression("#ts > :from")
+                .withExpressionAttributeNames(Map.of("#ts", "timestamp"))
+                .withExpressionAttributeValues(Map.of(":from", n(0)));
+
+        AmazonServiceException err = assertThrows(AmazonServiceException.class, () -> db.query(request));
+        assertEquals("ValidationException", err.getErrorCode());
+    }
+
+    @Test
+    void scanPagesAcrossDevices() {
+        int items = 0;
+        Map<String, AttributeValue> startKey = null;
+        do {
+            ScanResult page = db.scan(new ScanRequest().withTableName(TABLE).withLimit(3).withExclusiveStartKey(startKey));
+            items += page.getCount();
+            startKey = page.getLastEvaluatedKey();
+        } while (startKey != null);
+
+        assertEquals(11, items);
+    }
+
+    @Test
+    void conditionalPutRejectsExistingItem() {
+        PutItemRequest put = new PutItemRequest()
+                .withTableName(TABLE)
+                .withItem(reading("dev-1", 1000, 999))
+                .withConditionExpression("attribute_not_exists(#ts)")
+                .withExpressionAttributeNames(Map.of("#ts", "timestamp"));
+
+        assertThrows(ConditionalCheckFailedException.class, () -> db.putItem(put));
+        assertEquals("0", db.getItem(TABLE, key("dev-1", 1000)).getItem().get("flow").getN());
+
+        db.putItem(put.withItem(reading("dev-1", 99, 1)));
+        assertNotNull(db.getItem(TABLE, key("dev-1", 99)).getItem());
+    }
+
+    @Test
+    void updateAppliesExpressionAndReturnsNewValues() {
+        UpdateItemResult result = db.updateItem(new UpdateItemRequest()
+                .withTableName(TABLE)
+                .withKey(key("dev-1", 1300))
+                .withUpdateExpression("SET flow = flow + :delta, homes = :homes")
+                .withConditionExpression("flow = :expected")
+                .withExpressionAttributeValues(Map.of(":delta", n(5), ":expected", n(10),
+                        ":homes", new AttributeValue().withL(s("h1"), s("h2"), s("h3"))))
+                .withReturnValues(ReturnValue.UPDATED_NEW));
+
+        assertEquals("15", result.getAttributes().get("flow").getN());
+
+        db.updateItem(new UpdateItemRequest()
+                .withTableName(TABLE)
+                .withKey(key("dev-1", 1300))
+                .withUpdateExpression("REMOVE homes[2], homes[0]"));
+        assertEquals(List.of(s("h2")), db.getItem(TABLE, key("dev-1", 1300)).getItem().get("homes").getL());
+
+        assertThrows(ConditionalCheckFailedException.class, () -> db.updateItem(new UpdateItemRequest()
+                .withTableName(TABLE)
+                .withKey(key("dev-1", 1300))
+                .withUpdateExpression("SET flow = :zero")
+                .withConditionExpression("flow = :expected")
+                .withExpressionAttributeValues(Map.of(":zero", n(0), ":expected", n(10)))));
+    }
+
+    @Test
+    void batchWriteEnforcesTheRequestLimit() {
+        List<WriteRequest> requests = new ArrayList<>();
+        for (long i = 0; i < 26; i++) {
+            requests.add(new WriteRequest(new PutRequest(reading("dev-3", i, i))));
+        }
+
+        assertThrows(AmazonServiceException.class,
+                () -> db.batchWriteItem(new BatchWriteItemRequest(Map.of(TABLE, requests))));
+
+        BatchWriteItemResult result = db.batchWriteItem(new BatchWriteItemRequest(Map.of(TABLE, requests.subList(0, 25))));
+        assertTrue(result.getUnprocessedItems().isEmpty());
+        assertEquals(25, db.query(new QueryRequest()
+                .withTableName(TABLE)
+                .withKeyConditionExpression("deviceId = :d")
+                .withExpressionAttributeValues(Map.of(":d", s("dev-3")))).getCount());
+    }
+}
@@ -0,0 +1,132 @@
+package sustainico_backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import sustainico_backend.Models.IngestFrameResult;
+import sustainico_backend.Models.NewWaterReading;
+import sustainico_backend.Models.NewWaterReading2;
+import sustainico_backend.Models.WaterReading;
+import sustainico_backend.util.IngestFrameCodec;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class BinaryIngestServiceTest {
+
+    // Period index whose start is safely in the past for key 6 (six-hour periods)
+    private static final int PAST_INDEX = 1;
+
+    private final WaterReadingService waterReadingService = mock(WaterReadingService.class);
+    private final NewWaterReading2Service newWaterReading2Service = mock(NewWaterReading2Service.class);
+    private final NewWaterReadingService newWaterReadingService = mock(NewWaterReadingService.class);
+    private BinaryIngestService service;
+
+    private final List<WaterReading> storedWaterReadings = new ArrayList<>();
+    private final List<NewWaterReading2> storedReadings2 = new ArrayList<>();
+    private final List<NewWaterReading> storedUplinks = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        service = new BinaryIngestService();
+        ReflectionTestUtils.setField(service, "waterReadingService", waterReadingService);
+        ReflectionTestUtils.setField(service, "newWaterReading2Service", newWaterReading2Service);
+        ReflectionTestUtils.setField(service, "newWaterReadingService", newWaterReadingService);
+        when(waterReadingService.storeWaterReading(any())).thenAnswer(call -> storedWaterReadings.add(call.getArgument(0)));
+        when(newWaterReading2Service.saveReadingAsync(any())).thenAnswer(call ->
+                CompletableFuture.completedFuture(storedReadings2.add(call.getArgument(0))));
+        when(newWaterReadingService.storeUplink(any())).thenAnswer(call -> storedUplinks.add(call.getArgument(0)));
+    }
+
+    private IngestFrameResult ingest(byte[] frame) {
+        return service.ingest(frame, 0, frame.length).join();
+    }
+
+    @Test
+    void decodedRecordsReachTheServicesAsModels() {
+        long before = Instant.now().getEpochSecond();
+        IngestFrameResult result = ingest(new IngestFrameCodec.Encoder()
+                .waterReading("meter-1", 0L, 12_500L)
+                .newWaterReading2("meter-2", 1_727_721_000L, 42L, 750L, Map.of("leak", true))
+                .loraUplink("meter-3", 0L, 6, PAST_INDEX, 1_000, null, Map.of("tamper", false), new int[]{1, 2, 3})
+                .toByteArray());
+
+        assertEquals(3, result.getReceived());
+        assertEquals(3, result.getStored());
+
+        WaterReading water = storedWaterReadings.get(0);
+        assertEquals("12.5", water.getFlowReading());
+        assertTrue(Long.parseLong(water.getTimestamp()) >= before, "timestamp 0 means receive time");
+
+        NewWaterReading2 reading2 = storedReadings2.get(0);
+        assertEquals("1727721000", reading2.getTimestamp());
+        assertEquals(42L, reading2.getLiters());
+        assertEquals(750L, reading2.getMilliliters());
+        assertEquals(Map.of("leak", true), reading2.getStatus());
+
+        NewWaterReading uplink = storedUplinks.get(0);
+        assertNull(uplink.getTimestamp(), "uplinks without a device timestamp are keyed by storeUplink");
+        assertEquals(List.of(1, 2, 3), uplink.getIntraDay());
+        assertNull(uplink.getAlerts());
+        verify(newWaterReadingService).expandInBackground(uplink);
+    }
+
+    @Test
+    void duplicatesAreCountedAndNotExpanded() {
+        when(waterReadingService.storeWaterReading(any())).thenReturn(false);
+        when(newWaterReading2Service.saveReadingAsync(any())).thenReturn(CompletableFuture.completedFuture(false));
+        when(newWaterReadingService.storeUplink(any())).thenReturn(false);
+
+        IngestFrameResult result = ingest(new IngestFrameCodec.Encoder()
+                .waterReading("meter-1", 1_727_721_000L, 1L)
+                .newWaterReading2("meter-2", 1_727_721_000L, 1L, 0L, null)
+                .loraUplink("meter-3", 0L, 6, PAST_INDEX, 1_000, null, null, new int[]{1})
+                .toByteArray());
+
+        assertEquals(0, result.getStored());
+        assertEquals(3, result.getDuplicates());
+        verify(newWaterReadingService, never()).expandInBackground(any());
+    }
+
+    @Test
+    void uplinksForFuturePeriodsOrEmptyTotalizersAreSkipped() {
+        int futureIndex = (int) ((Instant.now().getEpochSecond() - 1577817000L) / (6 * 3600L)) + 10;
+
+        IngestFrameResult result = ingest(new IngestFrameCodec.Encoder()
+                .loraUplink("meter-1", 0L, 6, futureIndex, 1_000, null, null, new int[]{1})
+                .loraUplink("meter-1", 0L, 6, PAST_INDEX, 0, null, null, new int[]{1})
+                .loraUplink("meter-1", 0L, 6, PAST_INDEX + 1, 1_000, null, null, new int[]{1})
+                .toByteArray());
+
+        assertEquals(3, result.getReceived());
+        assertEquals(2, result.getSkipped());
+        assertEquals(1, result.getStored());
+        verify(newWaterReadingService, times(1)).storeUplink(any());
+    }
+
+    @Test
+    void malformedFrameStoresNothing() {
+        byte[] frame = new IngestFrameCodec.Encoder()
+                .waterReading("meter-1", 1_727_721_000L, 1L)
+                .newWaterReading2("meter-2", 1_727_721_000L, 1L, 0L, null)
+                .toByteArray();
+
+        assertThrows(IllegalArgumentException.class, () -> service.ingest(frame, 0, frame.length - 1));
+        verifyNoInteractions(waterReadingService, newWaterReading2Service, newWaterReadingService);
+    }
+}
@@ -0,0 +1,125 @@
+package sustainico_backend.service;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.QueryResultPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import sustainico_backend.Models.Device;
+import sustainico_backend.Models.NewWaterReading2;
+import sustainico_backend.Models.ReadingStorageMode;
+import sustainico_backend.Models.WaterReading;
+import sustainico_backend.Models.WaterReadingDayBlock;
+import sustainico_backend.rep.ColdSegmentStore;
+import sustainico_backend.rep.DeviceRepository;
+import sustainico_backend.rep.InMemoryDynamoDB;
+import sustainico_backend.rep.NewWaterReading2Repository;
+import sustainico_backend.rep.WaterReadingDayBlockRepository;
+import sustainico_backend.rep.WaterReadingRepository;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ColdStorageArchiverTest {
+
+    private static final String DEVICE = "meter-1";
+
+    @TempDir
+    Path coldDir;
+
+    private final WaterReadingRepository waterReadingRepository = mock(WaterReadingRepository.class);
+    private WaterReadingDayBlockRepository dayBlocks;
+    private ColdSegmentStore coldSegmentStore;
+    private ColdStorageArchiver archiver;
+
+    @BeforeEach
+    void setUp() {
+        InMemoryDynamoDB db = new InMemoryDynamoDB();
+        DynamoDBMapper mapper = new DynamoDBMapper(db);
+        db.createTable(mapper.generateCreateTableRequest(WaterReadingDayBlock.class));
+        dayBlocks = new WaterReadingDayBlockRepository(mapper);
+
+        coldSegmentStore = new ColdSegmentStore();
+        ReflectionTestUtils.setField(coldSegmentStore, "coldDir", coldDir.toString());
+
+        DeviceRepository deviceRepository = mock(DeviceRepository.class);
+        Device device = new Device();
+        device.setDeviceId(DEVICE);
+        when(deviceRepository.findAll()).thenReturn(List.of(device));
+        NewWaterReading2Repository newWaterReading2Repository = mock(NewWaterReading2Repository.class);
+        QueryResultPage<NewWaterReading2> noReadings = new QueryResultPage<>();
+        noReadings.setResults(List.of());
+        when(newWaterReading2Repository.findHotReadingPageBefore(anyString(), anyString(), anyInt(), any())).thenReturn(noReadings);
+
+        archiver = new ColdStorageArchiver();
+        ReflectionTestUtils.setField(archiver, "coldSegmentStore", coldSegmentStore);
+        ReflectionTestUtils.setField(archiver, "waterReadingRepository", waterReadingRepository);
+        ReflectionTestUtils.setField(archiver, "waterReadingDayBlockRepository", dayBlocks);
+        ReflectionTestUtils.setField(archiver, "newWaterReading2Repository", newWaterReading2Repository);
+        ReflectionTestUtils.setField(archiver, "deviceRepository", deviceRepository);
+        ReflectionTestUtils.setField(archiver, "dynamoDbBatchWriter", mock(DynamoDbBatchWriter.class));
+        ReflectionTestUtils.setField(archiver, "afterDays", 90);
+    }
+
+    // Hourly readings for the whole IST day holding the given instant
+    private List<WaterReading> dayOfReadings(long epochSeconds) {
+        String day = WaterReadingDayBlockRepository.dayOf(epochSeconds);
+        List<WaterReading> readings = new ArrayList<>();
+        for (long t = epochSeconds - 86_400; t <= epochSeconds + 86_400; t += 3600) {
+            if (WaterReadingDayBlockRepository.dayOf(t).equals(day)) {
+                readings.add(new WaterReading(DEVICE, "10" + readings.size() + ".5", String.valueOf(t), DEVICE + "-" + t));
+            }
+        }
+        return readings;
+    }
+
+    @Test
+    void blocksModeArchivesWholeDaysBeforeTheCutoff() {
+        when(waterReadingRepository.getStorageMode()).thenReturn(ReadingStorageMode.BLOCKS);
+        long old = Instant.now().minus(Duration.ofDays(120)).getEpochSecond();
+        long recent = Instant.now().minus(Duration.ofDays(1)).getEpochSecond();
+        List<WaterReading> oldReadings = dayOfReadings(old);
+        dayBlocks.append(oldReadings);
+        dayBlocks.append(dayOfReadings(recent));
+
+        Map<String, Integer> archived = archiver.archiveAll();
+
+        assertEquals(oldReadings.size(), archived.get(ColdSegmentStore.WATER_READING));
+        assertNull(dayBlocks.findByDay(DEVICE, WaterReadingDayBlockRepository.dayOf(old)));
+        assertNotNull(dayBlocks.findByDay(DEVICE, WaterReadingDayBlockRepository.dayOf(recent)));
+        List<WaterReading> cold = coldSegmentStore.findWaterReadings(DEVICE, Long.MIN_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE, false);
+        assertEquals(oldReadings.stream().map(WaterReading::getTimestamp).toList(), cold.stream().map(WaterReading::getTimestamp).toList());
+        assertEquals(oldReadings.get(3).getFlowReading(), cold.get(3).getFlowReading());
+        verify(waterReadingRepository, never()).findWaterReadingItemPage(any(), any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void itemsModeLeavesDayBlocksAlone() {
+        when(waterReadingRepository.getStorageMode()).thenReturn(ReadingStorageMode.ITEMS);
+        QueryResultPage<WaterReading> noItems = new QueryResultPage<>();
+        noItems.setResults(List.of());
+        when(waterReadingRepository.findWaterReadingItemPage(any(), any(), any(), anyInt(), any())).thenReturn(noItems);
+        long old = Instant.now().minus(Duration.ofDays(120)).getEpochSecond();
+        dayBlocks.append(dayOfReadings(old));
+
+        archiver.archiveAll();
+
+        assertNotNull(dayBlocks.findByDay(DEVICE, WaterReadingDayBlockRepository.dayOf(old)));
+    }
+}
@@ -0,0 +1,91 @@
+package sustainico_backend.service;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import sustainico_backend.util.IngestFrameCodec;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IngestGatewayServerTest {
+
+    private static final long NOW = 1_727_721_000L;
+    private static final String KEY = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+
+    private final Mac mac = IngestGatewayServer.newMac(IngestGatewayServer.udpKey(KEY));
+
+    // Builds a datagram the way a gateway does: header, tag over sequence + sent at + frame, frame
+    private static ByteBuf datagram(Mac mac, long sequence, long sentAt, byte[] frame) {
+        ByteBuf signed = Unpooled.buffer().writeLong(sequence).writeLong(sentAt).writeBytes(frame);
+        mac.reset();
+        mac.update(signed.nioBuffer());
+        byte[] tag = mac.doFinal();
+        return Unpooled.buffer()
+                .writeInt(8 + 8 + IngestGatewayServer.TAG_BYTES + frame.length)
+                .writeLong(sequence)
+                .writeLong(sentAt)
+                .writeBytes(tag)
+                .writeBytes(frame);
+    }
+
+    private static byte[] frame() {
+        return new IngestFrameCodec.Encoder().waterReading("meter-1", NOW, 12_500L).toByteArray();
+    }
+
+    @Test
+    void signedDatagramIsAcceptedAndLeftUnread() {
+        ByteBuf datagram = datagram(mac, 7, NOW - 30, frame());
+
+        assertTrue(IngestGatewayServer.authentic(datagram, mac, NOW, 60));
+        assertEquals(0, datagram.readerIndex());
+    }
+
+    @Test
+    void tamperedFrameOrHeaderIsRejected() {
+        ByteBuf frameFlipped = datagram(mac, 7, NOW, frame());
+        int last = frameFlipped.writerIndex() - 1;
+        frameFlipped.setByte(last, frameFlipped.getByte(last) ^ 1);
+
+        ByteBuf sequenceChanged = datagram(mac, 7, NOW, frame());
+        sequenceChanged.setLong(4, 8);
+
+        assertFalse(IngestGatewayServer.authentic(frameFlipped, mac, NOW, 60));
+        assertFalse(IngestGatewayServer.authentic(sequenceChanged, mac, NOW, 60));
+    }
+
+    @Test
+    void otherKeyIsRejected() {
+        Mac other = IngestGatewayServer.newMac(new SecretKeySpec(new byte[32], "HmacSHA256"));
+
+        assertFalse(IngestGatewayServer.authentic(datagram(other, 7, NOW, frame()), mac, NOW, 60));
+    }
+
+    @Test
+    void staleOrFutureDatagramIsRejected() {
+        assertFalse(IngestGatewayServer.authentic(datagram(mac, 7, NOW - 61, frame()), mac, NOW, 60));
+        assertFalse(IngestGatewayServer.authentic(datagram(mac, 7, NOW + 61, frame()), mac, NOW, 60));
+    }
+
+    @Test
+    void shortOrMislabelledDatagramIsRejected() {
+        ByteBuf truncated = datagram(mac, 7, NOW, frame());
+        truncated.writerIndex(truncated.writerIndex() - 1);
+
+        assertFalse(IngestGatewayServer.authentic(Unpooled.buffer().writeInt(8).writeLong(7), mac, NOW, 60));
+        assertFalse(IngestGatewayServer.authentic(truncated, mac, NOW, 60));
+    }
+
+    @Test
+    void shortOrMalformedKeysAreRefused() {
+        assertThrows(IllegalStateException.class, () -> IngestGatewayServer.udpKey(""));
+        assertThrows(IllegalStateException.class, () -> IngestGatewayServer.udpKey("c2hvcnQ="));
+        assertThrows(IllegalStateException.class, () -> IngestGatewayServer.udpKey("not base64!"));
+    }
+}
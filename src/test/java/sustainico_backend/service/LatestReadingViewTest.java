@@ -0,0 +1,66 @@
+package sustainico_backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import sustainico_backend.Models.LatestWaterReading;
+import sustainico_backend.Models.WaterReading;
+import sustainico_backend.rep.LatestWaterReadingRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LatestReadingViewTest {
+
+    private final LatestWaterReadingRepository repository = mock(LatestWaterReadingRepository.class);
+    private LatestReadingView view;
+
+    @BeforeEach
+    void setUp() {
+        view = new LatestReadingView();
+        ReflectionTestUtils.setField(view, "latestWaterReadingRepository", repository);
+    }
+
+    private static LatestWaterReading row(String deviceId, String flowReading, String timestamp) {
+        LatestWaterReading row = new LatestWaterReading();
+        row.setDeviceId(deviceId);
+        row.setLatestFlowReading(flowReading);
+        row.setTimestamp(timestamp);
+        return row;
+    }
+
+    @Test
+    void refreshPicksUpReadingsIngestedElsewhere() {
+        when(repository.findAll()).thenReturn(List.of(row("meter-1", "10", "1727721000")));
+        view.hydrate();
+        when(repository.findAll()).thenReturn(List.of(row("meter-1", "12", "1727724600"), row("meter-2", "5", "1727724600")));
+
+        view.refresh();
+
+        assertEquals("12", view.getLatestReading("meter-1").orElseThrow().getFlowReading());
+        assertEquals(2, view.size());
+    }
+
+    @Test
+    void refreshNeverMovesAReadingBack() {
+        view.record(new WaterReading("meter-1", "15", "1727728200", null));
+        when(repository.findAll()).thenReturn(List.of(row("meter-1", "12", "1727724600")));
+
+        view.refresh();
+
+        assertEquals("15", view.getLatestReading("meter-1").orElseThrow().getFlowReading());
+    }
+
+    @Test
+    void failedScanKeepsTheView() {
+        view.record(new WaterReading("meter-1", "15", "1727728200", null));
+        when(repository.findAll()).thenThrow(new IllegalStateException("throttled"));
+
+        assertFalse(view.refresh());
+        assertEquals(1, view.size());
+    }
+}
@@ -0,0 +1,106 @@
+package sustainico_backend.service;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import sustainico_backend.Models.DailyLeakMetrics;
+import sustainico_backend.Models.WaterReading;
+import sustainico_backend.rep.DailyLeakMetricsRepository;
+import sustainico_backend.rep.InMemoryDynamoDB;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LeakDetectorTest {
+
+    private static final String DEVICE = "meter-1";
+    // 2024-10-01 00:00 IST
+    private static final long DAY_START = 1_727_721_000L;
+
+    private DailyLeakMetricsRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        InMemoryDynamoDB db = new InMemoryDynamoDB();
+        DynamoDBMapper mapper = new DynamoDBMapper(db);
+        db.createTable(mapper.generateCreateTableRequest(DailyLeakMetrics.class));
+        repository = new DailyLeakMetricsRepository();
+        ReflectionTestUtils.setField(repository, "dynamoDBMapper", mapper);
+    }
+
+    private static LeakDetector detector(DailyLeakMetricsRepository repository) {
+        LeakDetector detector = new LeakDetector();
+        ReflectionTestUtils.setField(detector, "dailyLeakMetricsRepository", repository);
+        ReflectionTestUtils.setField(detector, "nightStartHour", 1);
+        ReflectionTestUtils.setField(detector, "nightEndHour", 5);
+        ReflectionTestUtils.setField(detector, "maxGapSeconds", 7200L);
+        ReflectionTestUtils.setField(detector, "minNightIntervals", 3);
+        ReflectionTestUtils.setField(detector, "flowThreshold", 0.0);
+        return detector;
+    }
+
+    private static List<WaterReading> readings(int from, int to) {
+        return IntStream.rangeClosed(from, to)
+                .mapToObj(i -> new WaterReading(DEVICE, String.valueOf(100 + i), String.valueOf(DAY_START + i * 900L), null))
+                .toList();
+    }
+
+    @Test
+    void nodeThatSawFurtherKeepsItsRow() {
+        LeakDetector ahead = detector(repository);
+        LeakDetector behind = detector(repository);
+        ahead.consume(readings(0, 8));
+        behind.consume(readings(0, 4));
+
+        ahead.flush();
+        behind.flush();
+
+        DailyLeakMetrics stored = repository.findByDay(DEVICE, "2024-10-01");
+        assertEquals(DAY_START + 8 * 900L, stored.getLastTimestamp());
+        assertEquals(8, stored.getIntervals());
+        assertNull(behind.getLiveMetrics(DEVICE), "the node that lost drops its state");
+
+        // and picks up the stored row with the next reading
+        behind.consume(readings(9, 9));
+        assertEquals(9, behind.getLiveMetrics(DEVICE).getIntervals());
+        behind.flush();
+        assertEquals(DAY_START + 9 * 900L, repository.findByDay(DEVICE, "2024-10-01").getLastTimestamp());
+    }
+
+    @Test
+    void laterFlushOfTheSameNodeOverwritesItsOwnRow() {
+        LeakDetector detector = detector(repository);
+        detector.consume(readings(0, 2));
+        detector.flush();
+        detector.consume(readings(3, 5));
+        detector.flush();
+
+        assertEquals(5, repository.findByDay(DEVICE, "2024-10-01").getIntervals());
+        assertNotNull(detector.getLiveMetrics(DEVICE));
+    }
+
+    @Test
+    void failedLoadOrWriteDoesNotLoseReadings() {
+        DailyLeakMetricsRepository failing = mock(DailyLeakMetricsRepository.class);
+        when(failing.findByDay(any(), any())).thenThrow(new IllegalStateException("throttled"));
+        when(failing.saveIfNewer(any())).thenThrow(new IllegalStateException("throttled")).thenReturn(true);
+        LeakDetector detector = detector(failing);
+
+        detector.consume(readings(0, 3));
+        detector.flush();
+        detector.flush();
+
+        assertEquals(3, detector.getLiveMetrics(DEVICE).getIntervals());
+        verify(failing, times(2)).saveIfNewer(any());
+    }
+}
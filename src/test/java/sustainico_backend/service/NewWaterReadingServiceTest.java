@@ -0,0 +1,89 @@
+package sustainico_backend.service;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import sustainico_backend.Models.NewWaterReading;
+import sustainico_backend.rep.InMemoryDynamoDB;
+import sustainico_backend.rep.NewWaterReadingRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NewWaterReadingServiceTest {
+
+    private static final String DEVICE = "meter-1";
+
+    private NewWaterReadingRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        InMemoryDynamoDB db = new InMemoryDynamoDB();
+        DynamoDBMapper mapper = new DynamoDBMapper(db);
+        db.createTable(mapper.generateCreateTableRequest(NewWaterReading.class));
+        repository = new NewWaterReadingRepository(mapper);
+    }
+
+    // A node of its own: the in-memory dedup window never saw what other nodes stored
+    private NewWaterReadingService node() {
+        NewWaterReadingService service = new NewWaterReadingService(repository, null);
+        IngestDeduplicator deduplicator = mock(IngestDeduplicator.class);
+        when(deduplicator.firstSighting(anyString(), anyString(), anyString())).thenReturn(true);
+        ReflectionTestUtils.setField(service, "ingestDeduplicator", deduplicator);
+        ReflectionTestUtils.setField(service, "alertEngine", mock(AlertEngine.class));
+        return service;
+    }
+
+    private static NewWaterReading uplink(int index, int totalizer) {
+        NewWaterReading uplink = new NewWaterReading();
+        uplink.setDeviceId(DEVICE);
+        uplink.setKey(6);
+        uplink.setIndex(index);
+        uplink.setTotalizer(totalizer);
+        uplink.setIntraDay(List.of(1, 2, 3, 4));
+        return uplink;
+    }
+
+    @Test
+    void timestamplessUplinkIsKeyedByTheEndOfItsPeriod() {
+        NewWaterReading uplink = uplink(3, 1_000);
+
+        assertTrue(node().storeUplink(uplink));
+
+        // 2020-01-01 00:00 IST + 3 six-hour periods, plus three 30-minute intervals
+        long periodEnd = 1577817000L + 3 * 6 * 3600L + 3 * 30 * 60L;
+        assertEquals(String.valueOf(periodEnd), uplink.getTimestamp());
+        assertTrue(repository.findById(DEVICE, String.valueOf(periodEnd)).isPresent());
+    }
+
+    @Test
+    void retransmissionReachingAnotherNodeIsRejected() {
+        assertTrue(node().storeUplink(uplink(3, 1_000)));
+
+        assertFalse(node().storeUplink(uplink(3, 1_000)));
+    }
+
+    @Test
+    void nextPeriodIsAccepted() {
+        NewWaterReadingService service = node();
+        assertTrue(service.storeUplink(uplink(3, 1_000)));
+
+        assertTrue(service.storeUplink(uplink(4, 1_010)));
+    }
+
+    @Test
+    void deviceTimestampIsKept() {
+        NewWaterReading uplink = uplink(3, 1_000);
+        uplink.setTimestamp("1727721000");
+
+        assertTrue(node().storeUplink(uplink));
+        assertEquals("1727721000", uplink.getTimestamp());
+    }
+}
@@ -0,0 +1,127 @@
+package sustainico_backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import sustainico_backend.Models.PushNotification;
+import sustainico_backend.Models.PushSendResult;
+import sustainico_backend.Models.PushToken;
+import sustainico_backend.rep.DeviceRepository;
+import sustainico_backend.rep.PushTokenRepository;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NotificationDispatcherTest {
+
+    private final LoggingPushTransport transport = new LoggingPushTransport();
+    private final PushTokenRepository pushTokenRepository = mock(PushTokenRepository.class);
+    private NotificationDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        when(pushTokenRepository.findByUserId("u1")).thenReturn(List.of(new PushToken("u1", "t1", "android", "0")));
+        when(pushTokenRepository.findByUserId("u2")).thenReturn(List.of(new PushToken("u2", "t2", "ios", "0")));
+        dispatcher = dispatcherWith(transport);
+    }
+
+    private NotificationDispatcher dispatcherWith(PushTransport pushTransport) {
+        NotificationDispatcher created = new NotificationDispatcher();
+        ReflectionTestUtils.setField(created, "pushTransport", pushTransport);
+        ReflectionTestUtils.setField(created, "pushTokenRepository", pushTokenRepository);
+        ReflectionTestUtils.setField(created, "deviceRepository", mock(DeviceRepository.class));
+        ReflectionTestUtils.setField(created, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(created, "coalesceWindowSeconds", 0L);
+        ReflectionTestUtils.setField(created, "burst", 10);
+        ReflectionTestUtils.setField(created, "perHour", 10.0);
+        ReflectionTestUtils.setField(created, "maxPendingPerUser", 50);
+        return created;
+    }
+
+    private static PushNotification notification(String key, String body) {
+        return new PushNotification(key, "Meter alert", body, Map.of());
+    }
+
+    @Test
+    void sameCoalesceKeyIsSentOnce() {
+        dispatcher.notifyUser("u1", notification("d1#leak", "first"));
+        dispatcher.notifyUser("u1", notification("d1#leak", "second"));
+        dispatcher.dispatch();
+
+        List<LoggingPushTransport.SentPush> sent = transport.getSent();
+        assertEquals(1, sent.size());
+        assertEquals("second", sent.get(0).body());
+        assertEquals(List.of("t1"), sent.get(0).tokens());
+    }
+
+    @Test
+    void distinctNotificationsAreFoldedIntoOneMessage() {
+        dispatcher.notifyUser("u1", notification("d1#leak", "leak on d1"));
+        dispatcher.notifyUser("u1", notification("d2#leak", "leak on d2"));
+        dispatcher.dispatch();
+
+        List<LoggingPushTransport.SentPush> sent = transport.getSent();
+        assertEquals(1, sent.size());
+        assertEquals("2 new alerts", sent.get(0).title());
+        assertEquals("leak on d1\nleak on d2", sent.get(0).body());
+    }
+
+    @Test
+    void usersWithTheSameMessageShareOneSend() {
+        dispatcher.notifyUser("u1", notification("d1#leak", "leak on d1"));
+        dispatcher.notifyUser("u2", notification("d1#leak", "leak on d1"));
+        dispatcher.dispatch();
+
+        List<LoggingPushTransport.SentPush> sent = transport.getSent();
+        assertEquals(1, sent.size());
+        assertEquals(2, sent.get(0).tokens().size());
+    }
+
+    @Test
+    void failedSendIsRequeuedAndSentNextTime() {
+        PushTransport flaky = new PushTransport() {
+            private boolean failed;
+
+            @Override
+            public int maxTokensPerSend() {
+                return transport.maxTokensPerSend();
+            }
+
+            @Override
+            public PushSendResult send(List<String> tokens, String title, String body, Map<String, String> data) throws Exception {
+                if (!failed) {
+                    failed = true;
+                    throw new Exception("FCM unavailable");
+                }
+                return transport.send(tokens, title, body, data);
+            }
+        };
+        dispatcher = dispatcherWith(flaky);
+        dispatcher.notifyUser("u1", notification("d1#leak", "leak on d1"));
+        dispatcher.notifyUser("u1", notification("d2#leak", "leak on d2"));
+
+        dispatcher.dispatch();
+        assertEquals(0, transport.getSent().size());
+
+        dispatcher.dispatch();
+        List<LoggingPushTransport.SentPush> sent = transport.getSent();
+        assertEquals(1, sent.size());
+        assertEquals("leak on d1\nleak on d2", sent.get(0).body());
+    }
+
+    @Test
+    void nothingIsQueuedWithoutATransport() {
+        dispatcher = dispatcherWith(null);
+        dispatcher.notifyUser("u1", notification("d1#leak", "leak on d1"));
+        dispatcher.notifyDeviceUsers("d1", notification("d1#leak", "leak on d1"));
+        dispatcher.dispatch();
+
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(dispatcher, "outboxes")).isEmpty());
+    }
+}
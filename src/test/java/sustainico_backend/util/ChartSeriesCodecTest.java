@@ -0,0 +1,102 @@
+package sustainico_backend.util;
+
+import org.junit.jupiter.api.Test;
+import sustainico_backend.Models.ChartSeriesResponse;
+import sustainico_backend.Models.DeviceReportResponse;
+import sustainico_backend.Models.WaterReadingPerDay;
+import sustainico_backend.Models.WaterReadingPerHour;
+
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChartSeriesCodecTest {
+
+    private static WaterReadingPerDay day(String fetchTimestamp, String flowReading) {
+        WaterReadingPerDay day = new WaterReadingPerDay();
+        day.setFetchTimestamp(fetchTimestamp);
+        day.setFlowReading(flowReading);
+        return day;
+    }
+
+    private static DeviceReportResponse report(List<?> readings) {
+        DeviceReportResponse report = new DeviceReportResponse();
+        report.setReadings(readings);
+        report.setAverageUsage(120.25);
+        report.setPeakUsage(310.5);
+        report.setContinuesFlowPercentage(12.5);
+        report.setEstimatedLeakage(3.125);
+        return report;
+    }
+
+    private static void assertSameSeries(ChartSeriesResponse expected, ChartSeriesResponse actual) {
+        assertArrayEquals(expected.getTimestamps(), actual.getTimestamps());
+        assertArrayEquals(expected.getValues(), actual.getValues(), 0.0005);
+        assertEquals(expected.getAverageUsage(), actual.getAverageUsage());
+        assertEquals(expected.getPeakUsage(), actual.getPeakUsage());
+        assertEquals(expected.getContinuesFlowPercentage(), actual.getContinuesFlowPercentage());
+        assertEquals(expected.getEstimatedLeakage(), actual.getEstimatedLeakage());
+    }
+
+    @Test
+    void deviceReportBecomesParallelArrays() {
+        ChartSeriesResponse series = ChartSeriesCodec.fromDeviceReport(report(List.of(
+                day("1727721000", "10.5"), day("1727807400", "0"), day("1727893800", "1234.567"))));
+
+        assertArrayEquals(new long[]{1727721000L, 1727807400L, 1727893800L}, series.getTimestamps());
+        assertArrayEquals(new double[]{10.5, 0, 1234.567}, series.getValues());
+        assertEquals(310.5, series.getPeakUsage());
+    }
+
+    @Test
+    void unsupportedReadingTypeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ChartSeriesCodec.fromDeviceReport(report(List.of("not a reading"))));
+    }
+
+    @Test
+    void yearOfDailyPointsRoundTripsInUnderAKilobyte() {
+        TreeMap<Long, Double> buckets = new TreeMap<>();
+        for (int i = 0; i < 365; i++) {
+            buckets.put(1_704_047_400L + i * 86_400L, 400 + (i % 7) * 12.345);
+        }
+        ChartSeriesResponse series = ChartSeriesCodec.fromBuckets(buckets, 437.0, 474.07, 4.5, 0.25);
+
+        byte[] encoded = ChartSeriesCodec.encode(series);
+
+        assertSameSeries(series, ChartSeriesCodec.decode(encoded));
+        assertTrue(encoded.length < 1024, "encoded to " + encoded.length + " bytes");
+    }
+
+    @Test
+    void valuesAreRoundedToThousandths() {
+        WaterReadingPerHour hour = new WaterReadingPerHour();
+        hour.setFetchTimestamp("1727721000");
+        hour.setFlowReading("1.23456");
+        ChartSeriesResponse series = ChartSeriesCodec.fromDeviceReport(report(List.of(hour)));
+
+        assertArrayEquals(new double[]{1.235}, ChartSeriesCodec.decode(ChartSeriesCodec.encode(series)).getValues());
+    }
+
+    @Test
+    void emptySeriesKeepsItsSummary() {
+        ChartSeriesResponse series = ChartSeriesCodec.fromDeviceReport(report(null));
+
+        ChartSeriesResponse decoded = ChartSeriesCodec.decode(ChartSeriesCodec.encode(series));
+
+        assertEquals(0, decoded.getTimestamps().length);
+        assertSameSeries(series, decoded);
+    }
+
+    @Test
+    void otherVersionsAndShortInputAreRejected() {
+        byte[] encoded = ChartSeriesCodec.encode(ChartSeriesCodec.fromDeviceReport(report(List.of(day("1727721000", "1")))));
+        encoded[0] = 2;
+
+        assertThrows(IllegalArgumentException.class, () -> ChartSeriesCodec.decode(encoded));
+        assertThrows(IllegalArgumentException.class, () -> ChartSeriesCodec.decode(new byte[]{ChartSeriesCodec.FORMAT_VERSION}));
+    }
+}
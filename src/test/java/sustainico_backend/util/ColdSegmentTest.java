@@ -0,0 +1,89 @@
+package sustainico_backend.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sustainico_backend.rep.ColdSegmentStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ColdSegmentTest {
+
+    @TempDir
+    Path dir;
+
+    private ColdSegment writeAndOpen(long[] timestamps, long[] values) throws IOException {
+        Path path = dir.resolve("device").resolve("2024-10.seg");
+        ColdSegment.write(path, List.of("timestamp", "value"), List.of("leak", "tamper"),
+                new long[][]{timestamps, values}, timestamps.length);
+        return ColdSegment.open(path);
+    }
+
+    @Test
+    void writtenSegmentReadsBackColumnsAndDictionary() throws IOException {
+        long[] timestamps = {1_727_721_000L, 1_727_721_300L, 1_727_721_600L};
+        long[] values = {10L, -20L, Long.MAX_VALUE};
+        ColdSegment segment = writeAndOpen(timestamps, values);
+
+        assertEquals(3, segment.getRowCount());
+        assertEquals(List.of("leak", "tamper"), segment.getDictionary());
+        int valueColumn = segment.columnIndex("value");
+        for (int row = 0; row < timestamps.length; row++) {
+            assertEquals(timestamps[row], segment.getTimestamp(row));
+            assertEquals(values[row], segment.get(valueColumn, row));
+        }
+        assertThrows(IllegalArgumentException.class, () -> segment.columnIndex("missing"));
+    }
+
+    @Test
+    void rewriteReplacesTheWholeSegment() throws IOException {
+        writeAndOpen(new long[]{1L, 2L, 3L}, new long[]{1L, 2L, 3L});
+        ColdSegment segment = writeAndOpen(new long[]{5L}, new long[]{50L});
+
+        assertEquals(1, segment.getRowCount());
+        assertEquals(50L, segment.get(segment.columnIndex("value"), 0));
+        try (var files = Files.list(dir.resolve("device"))) {
+            assertEquals(1, files.count(), "no temporary file left behind");
+        }
+    }
+
+    @Test
+    void lowerBoundFindsFirstRowAtOrAfterTimestamp() throws IOException {
+        ColdSegment segment = writeAndOpen(new long[]{100L, 200L, 200L, 300L}, new long[]{1L, 2L, 3L, 4L});
+
+        assertEquals(0, segment.lowerBound(Long.MIN_VALUE));
+        assertEquals(0, segment.lowerBound(100L));
+        assertEquals(1, segment.lowerBound(101L));
+        assertEquals(1, segment.lowerBound(200L));
+        assertEquals(3, segment.lowerBound(201L));
+        assertEquals(3, segment.lowerBound(300L));
+        assertEquals(4, segment.lowerBound(301L));
+    }
+
+    @Test
+    void emptySegmentHasNoRows() throws IOException {
+        ColdSegment segment = writeAndOpen(new long[0], new long[0]);
+
+        assertEquals(0, segment.getRowCount());
+        assertEquals(0, segment.lowerBound(1_727_721_000L));
+    }
+
+    @Test
+    void openRejectsOtherFiles() throws IOException {
+        Path path = dir.resolve("not-a-segment.seg");
+        Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+        assertThrows(IOException.class, () -> ColdSegment.open(path));
+    }
+
+    @Test
+    void tempDirIsNotPersistentStorage() throws IOException {
+        assertNotNull(ColdSegmentStore.ephemeralReason(dir.resolve("cold-segments")));
+    }
+}
@@ -0,0 +1,145 @@
+package sustainico_backend.util;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
+import com.amazonaws.services.dynamodbv2.model.Condition;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DynamoDbExpressionTest {
+
+    private static AttributeValue s(String value) {
+        return new AttributeValue().withS(value);
+    }
+
+    private static AttributeValue n(String value) {
+        return new AttributeValue().withN(value);
+    }
+
+    private static AttributeValue list(AttributeValue... values) {
+        return new AttributeValue().withL(values);
+    }
+
+    private static Map<String, AttributeValue> reading() {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("deviceId", s("dev-1"));
+        item.put("timestamp", n("1727721000"));
+        item.put("flowReading", n("12.5"));
+        item.put("homes", list(s("h1"), s("h2"), s("h3")));
+        item.put("status", new AttributeValue().withM(Map.of("leak", new AttributeValue().withBOOL(true))));
+        return item;
+    }
+
+    private static boolean matches(String expression, Map<String, AttributeValue> values, Map<String, AttributeValue> item) {
+        return DynamoDbExpression.test(DynamoDbExpression.parseCondition(expression, Map.of("#ts", "timestamp"), values), item);
+    }
+
+    private static Map<String, AttributeValue> update(String expression, Map<String, AttributeValue> values,
+                                                      Map<String, AttributeValue> item) {
+        return DynamoDbExpression.apply(DynamoDbExpression.parseUpdate(expression, Map.of(), values), item);
+    }
+
+    @Test
+    void keyConditionComparesNumbersNumerically() {
+        Map<String, AttributeValue> values = Map.of(":d", s("dev-1"), ":from", n("999999999"), ":to", n("1727721000"));
+
+        assertTrue(matches("deviceId = :d AND #ts BETWEEN :from AND :to", values, reading()));
+        assertTrue(matches("deviceId = :d AND #ts > :from", values, reading()));
+        assertFalse(matches("deviceId = :d AND #ts < :to", values, reading()));
+        assertTrue(matches("begins_with(deviceId, :prefix)", Map.of(":prefix", s("dev-")), reading()));
+    }
+
+    @Test
+    void filterFunctionsAndBooleanOperators() {
+        Map<String, AttributeValue> values = Map.of(":h", s("h2"), ":two", n("2"), ":a", s("dev-9"), ":b", s("dev-1"));
+
+        assertTrue(matches("contains(homes, :h) AND size(homes) > :two", values, reading()));
+        assertTrue(matches("deviceId IN (:a, :b)", values, reading()));
+        assertTrue(matches("attribute_exists(status.leak) AND NOT attribute_exists(missing)", values, reading()));
+        assertTrue(matches("homes[1] = :h", values, reading()));
+        assertFalse(matches("attribute_not_exists(deviceId) OR deviceId = :a", values, reading()));
+    }
+
+    @Test
+    void conditionOnMissingItemOnlyPassesAbsenceChecks() {
+        assertTrue(matches("attribute_not_exists(deviceId)", Map.of(), Map.of()));
+        assertFalse(matches("#ts < :new", Map.of(":new", n("5")), Map.of()));
+        assertTrue(matches("flowReading <> :v", Map.of(":v", n("1")), Map.of()));
+    }
+
+    @Test
+    void legacyExpectedAndConditionMapsMatchTheirExpressions() {
+        Map<String, ExpectedAttributeValue> absent = Map.of("timestamp", new ExpectedAttributeValue(false));
+        assertTrue(DynamoDbExpression.test(DynamoDbExpression.fromExpected(absent, null), Map.of()));
+        assertFalse(DynamoDbExpression.test(DynamoDbExpression.fromExpected(absent, null), reading()));
+
+        Map<String, ExpectedAttributeValue> equal = Map.of("flowReading", new ExpectedAttributeValue(n("12.50")));
+        assertTrue(DynamoDbExpression.test(DynamoDbExpression.fromExpected(equal, null), reading()));
+
+        Map<String, Condition> range = Map.of("timestamp", new Condition()
+                .withComparisonOperator(ComparisonOperator.GE)
+                .withAttributeValueList(n("1727721000")));
+        assertTrue(DynamoDbExpression.test(DynamoDbExpression.fromConditions(range, "AND"), reading()));
+    }
+
+    @Test
+    void updateSetsAgainstTheOriginalItem() {
+        Map<String, AttributeValue> values = Map.of(":one", n("1"), ":more", list(s("h4")), ":zero", n("0"));
+
+        Map<String, AttributeValue> updated = update(
+                "SET flowReading = flowReading + :one, previous = flowReading, homes = list_append(homes, :more), "
+                        + "resets = if_not_exists(resets, :zero) REMOVE status.leak",
+                values, reading());
+
+        assertEquals("13.5", updated.get("flowReading").getN());
+        assertEquals("12.5", updated.get("previous").getN());
+        assertEquals(List.of(s("h1"), s("h2"), s("h3"), s("h4")), updated.get("homes").getL());
+        assertEquals("0", updated.get("resets").getN());
+        assertTrue(updated.get("status").getM().isEmpty());
+        assertEquals("12.5", reading().get("flowReading").getN(), "the original item is not modified");
+    }
+
+    @Test
+    void addAndDeleteWorkOnNumbersAndSets() {
+        Map<String, AttributeValue> item = new HashMap<>(reading());
+        item.put("tags", new AttributeValue().withSS("a", "b"));
+
+        Map<String, AttributeValue> updated = update("ADD counter :five, tags :c DELETE tags :a",
+                Map.of(":five", n("5"), ":c", new AttributeValue().withSS("c"), ":a", new AttributeValue().withSS("a")), item);
+
+        assertEquals("5", updated.get("counter").getN());
+        assertEquals(List.of("b", "c"), updated.get("tags").getSS().stream().sorted().toList());
+    }
+
+    @Test
+    void listRemovalsUseOriginalIndexes() {
+        Map<String, AttributeValue> updated = update("REMOVE homes[0], homes[2]", Map.of(), reading());
+
+        assertEquals(List.of(s("h2")), updated.get("homes").getL());
+    }
+
+    @Test
+    void listRemovalsIgnoreTheirOrderInTheExpression() {
+        Map<String, AttributeValue> updated = update("REMOVE homes[2], homes[0]", Map.of(), reading());
+
+        assertEquals(List.of(s("h2")), updated.get("homes").getL());
+    }
+
+    @Test
+    void readPathFollowsMapsAndLists() {
+        DynamoDbExpression.PathOperand leak = new DynamoDbExpression.PathOperand(List.of("status", "leak"));
+        DynamoDbExpression.PathOperand outOfRange = new DynamoDbExpression.PathOperand(List.of("homes", 7));
+
+        assertTrue(DynamoDbExpression.readPath(reading(), leak).getBOOL());
+        assertNull(DynamoDbExpression.readPath(reading(), outOfRange));
+    }
+}
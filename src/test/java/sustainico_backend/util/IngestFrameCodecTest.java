@@ -0,0 +1,228 @@
+package sustainico_backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IngestFrameCodecTest {
+
+    // Flattens every callback into one line per record so whole frames compare with assertEquals
+    private static final class Recorder implements IngestFrameCodec.Visitor {
+        private final List<String> records = new ArrayList<>();
+
+        @Override
+        public void waterReading(String deviceId, long timestamp, long flowReadingMilliUnits) {
+            records.add("water " + deviceId + " " + timestamp + " " + flowReadingMilliUnits);
+        }
+
+        @Override
+        public void newWaterReading2(String deviceId, long timestamp, long liters, long milliliters, Map<String, Boolean> status) {
+            records.add("v2 " + deviceId + " " + timestamp + " " + liters + " " + milliliters + " " + status);
+        }
+
+        @Override
+        public void loraUplink(String deviceId, long timestamp, int key, int index, int totalizer,
+                               Map<String, Boolean> alerts, Map<String, Boolean> status, int[] intraDay) {
+            records.add("lora " + deviceId + " " + timestamp + " " + key + " " + index + " " + totalizer + " "
+                    + alerts + " " + status + " " + Arrays.toString(intraDay));
+        }
+    }
+
+    private static Map<String, Boolean> flags(Object... namesAndValues) {
+        Map<String, Boolean> flags = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            flags.put((String) namesAndValues[i], (Boolean) namesAndValues[i + 1]);
+        }
+        return flags;
+    }
+
+    private static byte[] sampleFrame() {
+        return new IngestFrameCodec.Encoder()
+                .waterReading("meter-1", 1_727_721_000L, 123_456L)
+                .newWaterReading2("meter-2", 0L, 42L, 750L, flags("leak", true, "tamper", false))
+                .loraUplink("meter-1", 1_727_721_300L, 6, 4_000, 98_765,
+                        flags("lowBattery", true), flags("leak", false), new int[]{0, 5, 300, -1})
+                .newWaterReading2("meter-2", 1_727_721_600L, Long.MAX_VALUE, 0L, null)
+                .toByteArray();
+    }
+
+    private static List<String> decode(byte[] frame) {
+        Recorder recorder = new Recorder();
+        IngestFrameCodec.decode(frame, 0, frame.length, recorder);
+        return recorder.records;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    // Version, flag names and device ids, ready for a hand-built record count and records
+    private static ByteArrayOutputStream header(List<String> flagNames, List<String> deviceIds) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(IngestFrameCodec.FORMAT_VERSION);
+        writeVarLong(out, flagNames.size());
+        flagNames.forEach(name -> writeString(out, name));
+        writeVarLong(out, deviceIds.size());
+        deviceIds.forEach(id -> writeString(out, id));
+        return out;
+    }
+
+    @Test
+    void everyRecordTypeRoundTrips() {
+        assertEquals(List.of(
+                "water meter-1 1727721000 123456",
+                "v2 meter-2 0 42 750 {leak=true, tamper=false}",
+                "lora meter-1 1727721300 6 4000 98765 {lowBattery=true} {leak=false} [0, 5, 300, -1]",
+                "v2 meter-2 1727721600 " + Long.MAX_VALUE + " 0 null"), decode(sampleFrame()));
+    }
+
+    @Test
+    void decodesInPlaceFromAnOffsetOrDirectBuffer() {
+        byte[] frame = sampleFrame();
+        byte[] padded = new byte[frame.length + 7];
+        System.arraycopy(frame, 0, padded, 3, frame.length);
+        Recorder fromOffset = new Recorder();
+        assertEquals(4, IngestFrameCodec.decode(padded, 3, frame.length, fromOffset));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(frame.length).put(frame).flip();
+        Recorder fromDirect = new Recorder();
+        IngestFrameCodec.decode(direct, fromDirect);
+
+        assertEquals(decode(frame), fromOffset.records);
+        assertEquals(decode(frame), fromDirect.records);
+        assertEquals(0, direct.position(), "the buffer is read with absolute gets");
+    }
+
+    @Test
+    void emptyFrameHasNoRecords() {
+        assertEquals(List.of(), decode(new IngestFrameCodec.Encoder().toByteArray()));
+    }
+
+    @Test
+    void everyTruncationIsRejected() {
+        byte[] frame = sampleFrame();
+        for (int length = 0; length < frame.length; length++) {
+            int cut = length;
+            assertThrows(IllegalArgumentException.class,
+                    () -> IngestFrameCodec.decode(frame, 0, cut, new Recorder()), "frame cut at " + cut);
+        }
+    }
+
+    @Test
+    void trailingBytesAreRejected() {
+        byte[] frame = sampleFrame();
+        byte[] longer = Arrays.copyOf(frame, frame.length + 1);
+
+        assertThrows(IllegalArgumentException.class, () -> decode(longer));
+    }
+
+    @Test
+    void countsLargerThanTheFrameAreRejectedBeforeAllocating() {
+        ByteArrayOutputStream records = header(List.of(), List.of("meter-1"));
+        writeVarLong(records, Integer.MAX_VALUE);
+
+        ByteArrayOutputStream deviceIds = new ByteArrayOutputStream();
+        deviceIds.write(IngestFrameCodec.FORMAT_VERSION);
+        writeVarLong(deviceIds, 0);
+        writeVarLong(deviceIds, 1_000_000);
+
+        ByteArrayOutputStream intraDay = header(List.of(), List.of("meter-1"));
+        writeVarLong(intraDay, 1);
+        intraDay.write(IngestFrameCodec.TYPE_LORA_UPLINK);
+        for (long field : new long[]{0, 0, 6, 1, 100, 0, 0, 0, 0}) {
+            writeVarLong(intraDay, field);
+        }
+        writeVarLong(intraDay, 500_000);
+
+        assertThrows(IllegalArgumentException.class, () -> decode(records.toByteArray()));
+        assertThrows(IllegalArgumentException.class, () -> decode(deviceIds.toByteArray()));
+        assertThrows(IllegalArgumentException.class, () -> decode(intraDay.toByteArray()));
+    }
+
+    @Test
+    void negativeCountsAndDeviceIndexesAreRejected() {
+        ByteArrayOutputStream negativeCount = header(List.of(), List.of("meter-1"));
+        writeVarLong(negativeCount, -1L);
+
+        ByteArrayOutputStream negativeDevice = header(List.of(), List.of("meter-1"));
+        writeVarLong(negativeDevice, 1);
+        negativeDevice.write(IngestFrameCodec.TYPE_WATER_READING);
+        writeVarLong(negativeDevice, -1L);
+        writeVarLong(negativeDevice, 0);
+        writeVarLong(negativeDevice, 0);
+
+        assertThrows(IllegalArgumentException.class, () -> decode(negativeCount.toByteArray()));
+        assertThrows(IllegalArgumentException.class, () -> decode(negativeDevice.toByteArray()));
+    }
+
+    @Test
+    void flagMaskMustOnlyReferToNamedFlags() {
+        ByteArrayOutputStream frame = header(List.of("leak"), List.of("meter-1"));
+        writeVarLong(frame, 1);
+        frame.write(IngestFrameCodec.TYPE_NEW_WATER_READING_2);
+        writeVarLong(frame, 0);
+        writeVarLong(frame, 1_727_721_000L);
+        writeVarLong(frame, 1);
+        writeVarLong(frame, 0);
+        writeVarLong(frame, 0b10);
+        writeVarLong(frame, 0b10);
+
+        assertThrows(IllegalArgumentException.class, () -> decode(frame.toByteArray()));
+    }
+
+    @Test
+    void unknownVersionTypeAndDeviceIndexAreRejected() {
+        byte[] badVersion = sampleFrame();
+        badVersion[0] = 2;
+
+        ByteArrayOutputStream badType = header(List.of(), List.of("meter-1"));
+        writeVarLong(badType, 1);
+        badType.write(9);
+        writeVarLong(badType, 0);
+        writeVarLong(badType, 0);
+
+        ByteArrayOutputStream badDevice = header(List.of(), List.of("meter-1"));
+        writeVarLong(badDevice, 1);
+        badDevice.write(IngestFrameCodec.TYPE_WATER_READING);
+        writeVarLong(badDevice, 1);
+        writeVarLong(badDevice, 0);
+        writeVarLong(badDevice, 0);
+
+        assertThrows(IllegalArgumentException.class, () -> decode(badVersion));
+        assertThrows(IllegalArgumentException.class, () -> decode(badType.toByteArray()));
+        assertThrows(IllegalArgumentException.class, () -> decode(badDevice.toByteArray()));
+    }
+
+    @Test
+    void encoderRefusesMoreFlagNamesThanTheMaskHolds() {
+        Map<String, Boolean> tooMany = new HashMap<>();
+        for (int i = 0; i <= IngestFrameCodec.MAX_FLAG_NAMES; i++) {
+            tooMany.put("flag" + i, true);
+        }
+        IngestFrameCodec.Encoder encoder = new IngestFrameCodec.Encoder();
+
+        assertThrows(IllegalArgumentException.class, () -> encoder.newWaterReading2("meter-1", 0L, 1L, 0L, tooMany));
+        assertThrows(IllegalArgumentException.class, () -> encoder.waterReading("meter-1", -1L, 1L));
+    }
+}
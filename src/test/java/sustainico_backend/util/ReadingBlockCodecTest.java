@@ -0,0 +1,84 @@
+package sustainico_backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadingBlockCodecTest {
+
+    private static void assertRoundTrip(long[] timestamps, long[] values) {
+        ReadingBlockCodec.Block block = ReadingBlockCodec.decode(ReadingBlockCodec.encode(timestamps, values, timestamps.length));
+        assertArrayEquals(timestamps, block.getTimestamps());
+        assertArrayEquals(values, block.getValues());
+    }
+
+    @Test
+    void regularSeriesRoundTripsCompactly() {
+        int count = 288;
+        long[] timestamps = new long[count];
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            timestamps[i] = 1_700_000_000L + i * 300L;
+            values[i] = 1_234_500L + i * 7L;
+        }
+        byte[] encoded = ReadingBlockCodec.encode(timestamps, values, count);
+        assertRoundTrip(timestamps, values);
+        assertTrue(encoded.length < count * 2, "expected about two bytes per reading, got " + encoded.length);
+    }
+
+    @Test
+    void irregularGapsResetsAndNegativesRoundTrip() {
+        assertRoundTrip(
+                new long[]{0L, 1L, 1_000L, 1_001L, 90_000L, Long.MAX_VALUE / 2},
+                new long[]{5L, 0L, -3L, Long.MAX_VALUE / 4, Long.MIN_VALUE / 4, 0L});
+    }
+
+    @Test
+    void emptyAndSingleReadingBlocksRoundTrip() {
+        assertRoundTrip(new long[0], new long[0]);
+        assertRoundTrip(new long[]{1_700_000_000L}, new long[]{42L});
+    }
+
+    @Test
+    void encodeUsesOnlyTheFirstCountEntries() {
+        ReadingBlockCodec.Block block = ReadingBlockCodec.decode(
+                ReadingBlockCodec.encode(new long[]{1L, 2L, 3L}, new long[]{10L, 20L, 30L}, 2));
+        assertArrayEquals(new long[]{1L, 2L}, block.getTimestamps());
+        assertArrayEquals(new long[]{10L, 20L}, block.getValues());
+    }
+
+    @Test
+    void unknownVersionIsRejected() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+            deflater.write(new byte[]{ReadingBlockCodec.FORMAT_VERSION + 1, 0});
+        }
+        assertThrows(IllegalArgumentException.class, () -> ReadingBlockCodec.decode(compressed.toByteArray()));
+    }
+
+    @Test
+    void milliUnitsKeepThreeDecimals() {
+        assertEquals(12_345L, ReadingBlockCodec.toMilliUnits("12.345"));
+        assertEquals(12_000L, ReadingBlockCodec.toMilliUnits(" 12 "));
+        assertEquals(-500L, ReadingBlockCodec.toMilliUnits("-0.5"));
+        assertThrows(ArithmeticException.class, () -> ReadingBlockCodec.toMilliUnits("1.2345"));
+        assertThrows(NumberFormatException.class, () -> ReadingBlockCodec.toMilliUnits("12 L"));
+    }
+
+    @Test
+    void fromMilliUnitsReturnsTheCanonicalForm() {
+        assertEquals("12.3", ReadingBlockCodec.fromMilliUnits(ReadingBlockCodec.toMilliUnits("12.300")));
+        assertEquals("12.345", ReadingBlockCodec.fromMilliUnits(ReadingBlockCodec.toMilliUnits("12.345")));
+        assertEquals("1200", ReadingBlockCodec.fromMilliUnits(ReadingBlockCodec.toMilliUnits("1200")));
+        assertEquals("1200", ReadingBlockCodec.fromMilliUnits(ReadingBlockCodec.toMilliUnits("1200.0")));
+        assertEquals("0", ReadingBlockCodec.fromMilliUnits(0L));
+        assertEquals("-0.5", ReadingBlockCodec.fromMilliUnits(-500L));
+    }
+}